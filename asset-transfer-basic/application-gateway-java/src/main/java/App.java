@@ -7,6 +7,7 @@
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParser;
+import io.grpc.ConnectivityState;
 import io.grpc.Grpc;
 import io.grpc.ManagedChannel;
 import io.grpc.TlsChannelCredentials;
@@ -32,7 +33,11 @@ import java.nio.file.Paths;
 import java.security.InvalidKeyException;
 import java.security.cert.CertificateException;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public final class App {
 	private static final String MSP_ID = System.getenv().getOrDefault("MSP_ID", "Org1MSP");
@@ -49,8 +54,27 @@ public final class App {
 	private static final Path TLS_CERT_PATH = CRYPTO_PATH.resolve(Paths.get("peers/peer0.org1.example.com/tls/ca.crt"));
 
 	// Gateway peer end point.
-	private static final String PEER_ENDPOINT = "localhost:7051";
-	private static final String OVERRIDE_AUTH = "peer0.org1.example.com";
+	private static final String PEER_ENDPOINT = System.getenv().getOrDefault("PEER_ENDPOINT", "localhost:7051");
+	private static final String OVERRIDE_AUTH = System.getenv().getOrDefault("PEER_HOST_ALIAS", "peer0.org1.example.com");
+
+	// Comma-separated Gateway peer end points, SSL host name overrides and TLS certificate paths, matched by position.
+	// Missing host name overrides and TLS certificate paths default to the single peer values above. Peers are tried
+	// in order, and the first one that connects is used.
+	private static final List<String> PEER_ENDPOINTS = splitList(System.getenv().getOrDefault("PEER_ENDPOINTS", PEER_ENDPOINT));
+	private static final List<String> PEER_HOST_ALIASES = splitList(System.getenv().getOrDefault("PEER_HOST_ALIASES", ""));
+	private static final List<String> TLS_CERT_PATHS = splitList(System.getenv().getOrDefault("TLS_CERT_PATHS", ""));
+	private static final long CONNECT_TIMEOUT_SECONDS = envSeconds("CONNECT_TIMEOUT_SECONDS", 10);
+
+	// Keepalive pings detect broken connections while idle. Peers reject pings more frequent than their
+	// peer.keepalive.client.interval setting, which defaults to 60 seconds.
+	private static final long KEEPALIVE_TIME_SECONDS = envSeconds("KEEPALIVE_TIME_SECONDS", 120);
+	private static final long KEEPALIVE_TIMEOUT_SECONDS = envSeconds("KEEPALIVE_TIMEOUT_SECONDS", 20);
+
+	// Default timeouts for different gRPC calls
+	private static final long EVALUATE_TIMEOUT_SECONDS = envSeconds("EVALUATE_TIMEOUT_SECONDS", 5);
+	private static final long ENDORSE_TIMEOUT_SECONDS = envSeconds("ENDORSE_TIMEOUT_SECONDS", 15);
+	private static final long SUBMIT_TIMEOUT_SECONDS = envSeconds("SUBMIT_TIMEOUT_SECONDS", 5);
+	private static final long COMMIT_STATUS_TIMEOUT_SECONDS = envSeconds("COMMIT_STATUS_TIMEOUT_SECONDS", 60);
 
 	private final Contract contract;
 	private final String assetId = "asset" + Instant.now().toEpochMilli();
@@ -66,11 +90,10 @@ public final class App {
                 .signer(newSigner())
                 .hash(Hash.SHA256)
                 .connection(channel)
-				// Default timeouts for different gRPC calls
-				.evaluateOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
-				.endorseOptions(options -> options.withDeadlineAfter(15, TimeUnit.SECONDS))
-				.submitOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
-				.commitStatusOptions(options -> options.withDeadlineAfter(1, TimeUnit.MINUTES));
+				.evaluateOptions(options -> options.withDeadlineAfter(EVALUATE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				.endorseOptions(options -> options.withDeadlineAfter(ENDORSE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				.submitOptions(options -> options.withDeadlineAfter(SUBMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+				.commitStatusOptions(options -> options.withDeadlineAfter(COMMIT_STATUS_TIMEOUT_SECONDS, TimeUnit.SECONDS));
 
 		try (var gateway = builder.connect()) {
 			new App(gateway).run();
@@ -79,15 +102,69 @@ public final class App {
 		}
 	}
 
-	private static ManagedChannel newGrpcConnection() throws IOException {
+	// Connects to the first of the configured Gateway peers that can be reached. With a single peer configured, the
+	// connection is established by the first call.
+	private static ManagedChannel newGrpcConnection() throws IOException, InterruptedException {
+		if (PEER_ENDPOINTS.size() == 1) {
+			return newGrpcConnection(0);
+		}
+
+		for (int i = 0; i < PEER_ENDPOINTS.size(); i++) {
+			var channel = newGrpcConnection(i);
+			if (awaitReady(channel)) {
+				return channel;
+			}
+			System.out.println("Gateway peer " + PEER_ENDPOINTS.get(i) + " is unavailable");
+			channel.shutdownNow();
+		}
+
+		throw new IOException("None of the Gateway peers " + PEER_ENDPOINTS + " could be reached");
+	}
+
+	private static ManagedChannel newGrpcConnection(final int index) throws IOException {
+		var hostAlias = index < PEER_HOST_ALIASES.size() ? PEER_HOST_ALIASES.get(index) : OVERRIDE_AUTH;
+		var tlsCertPath = index < TLS_CERT_PATHS.size() ? Paths.get(TLS_CERT_PATHS.get(index)) : TLS_CERT_PATH;
 		var credentials = TlsChannelCredentials.newBuilder()
-				.trustManager(TLS_CERT_PATH.toFile())
+				.trustManager(tlsCertPath.toFile())
 				.build();
-		return Grpc.newChannelBuilder(PEER_ENDPOINT, credentials)
-				.overrideAuthority(OVERRIDE_AUTH)
+		return Grpc.newChannelBuilder(PEER_ENDPOINTS.get(index), credentials)
+				.overrideAuthority(hostAlias)
+				.keepAliveTime(KEEPALIVE_TIME_SECONDS, TimeUnit.SECONDS)
+				.keepAliveTimeout(KEEPALIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+				.keepAliveWithoutCalls(true)
 				.build();
 	}
 
+	// Waits for a connection to be established, giving up as soon as an attempt fails
+	private static boolean awaitReady(final ManagedChannel channel) throws InterruptedException {
+		var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(CONNECT_TIMEOUT_SECONDS);
+		var state = channel.getState(true);
+		while (state != ConnectivityState.READY) {
+			var remaining = deadline - System.nanoTime();
+			if (remaining <= 0 || state == ConnectivityState.TRANSIENT_FAILURE || state == ConnectivityState.SHUTDOWN) {
+				return false;
+			}
+
+			var changed = new CountDownLatch(1);
+			channel.notifyWhenStateChanged(state, changed::countDown);
+			changed.await(remaining, TimeUnit.NANOSECONDS);
+			state = channel.getState(false);
+		}
+		return true;
+	}
+
+	private static long envSeconds(final String name, final long defaultValue) {
+		var value = System.getenv(name);
+		return value != null ? Long.parseUnsignedLong(value) : defaultValue;
+	}
+
+	private static List<String> splitList(final String value) {
+		return Arrays.stream(value.split(","))
+				.map(String::trim)
+				.filter(item -> !item.isEmpty())
+				.collect(Collectors.toList());
+	}
+
 	private static Identity newIdentity() throws IOException, CertificateException {
 		try (var certReader = Files.newBufferedReader(getFirstFilePath(CERT_DIR_PATH))) {
 			var certificate = Identities.readX509Certificate(certReader);
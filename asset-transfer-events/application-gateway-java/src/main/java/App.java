@@ -7,21 +7,29 @@
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonParser;
+import com.google.protobuf.InvalidProtocolBufferException;
 import io.grpc.Status;
 import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.Checkpointer;
 import org.hyperledger.fabric.client.CloseableIterator;
 import org.hyperledger.fabric.client.CommitException;
 import org.hyperledger.fabric.client.CommitStatusException;
 import org.hyperledger.fabric.client.Contract;
 import org.hyperledger.fabric.client.EndorseException;
+import org.hyperledger.fabric.client.FileCheckpointer;
 import org.hyperledger.fabric.client.Gateway;
 import org.hyperledger.fabric.client.GatewayRuntimeException;
-import org.hyperledger.fabric.client.Hash;
+import org.hyperledger.fabric.client.InMemoryCheckpointer;
 import org.hyperledger.fabric.client.Network;
 import org.hyperledger.fabric.client.SubmitException;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.Set;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +37,13 @@ import java.util.concurrent.TimeUnit;
 public final class App implements AutoCloseable {
     private static final String channelName = "mychannel";
     private static final String chaincodeName = "events";
+    // Optional event format to set in the smart contract before submitting transactions, either json or binary.
+    private static final String eventFormat = System.getenv("EVENT_FORMAT");
+    // Worker threads and queued events per event handler, after which event reading is paused
+    private static final int HANDLER_WORKERS = 4;
+    private static final int HANDLER_QUEUE_CAPACITY = 64;
+    // File recording the position of replayed events, so that a restarted replay resumes where the previous one ended
+    private static final Path checkpointFile = Paths.get(Objects.requireNonNullElse(System.getenv("CHECKPOINT_FILE"), "checkpoint.json"));
 
     private final Network network;
     private final Contract contract;
@@ -38,15 +53,7 @@ public final class App implements AutoCloseable {
 
     public static void main(final String[] args) throws Exception {
         var grpcChannel = Connections.newGrpcConnection();
-        var builder = Gateway.newInstance()
-                .identity(Connections.newIdentity())
-                .signer(Connections.newSigner())
-                .hash(Hash.SHA256)
-                .connection(grpcChannel)
-                .evaluateOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
-                .endorseOptions(options -> options.withDeadlineAfter(15, TimeUnit.SECONDS))
-                .submitOptions(options -> options.withDeadlineAfter(5, TimeUnit.SECONDS))
-                .commitStatusOptions(options -> options.withDeadlineAfter(1, TimeUnit.MINUTES));
+        var builder = Connections.newGatewayBuilder(grpcChannel);
 
         try (var gateway = builder.connect(); var app = new App(gateway)) {
             app.run();
@@ -60,8 +67,12 @@ public final class App implements AutoCloseable {
         contract = network.getContract(chaincodeName);
     }
 
-    public void run() throws EndorseException, SubmitException, CommitStatusException, CommitException {
+    public void run() throws EndorseException, SubmitException, CommitStatusException, CommitException, IOException {
         // Listen for events emitted by subsequent transactions, stopping when the try-with-resources block exits
+        if (eventFormat != null) {
+            setEventFormat();
+        }
+
         try (var eventSession = startChaincodeEventListening()) {
             var firstBlockNumber = createAsset();
             updateAsset();
@@ -83,15 +94,58 @@ public final class App implements AutoCloseable {
     }
 
     private void readEvents(final CloseableIterator<ChaincodeEvent> eventIter) {
-        try {
-            eventIter.forEachRemaining(event -> {
-                var payload = prettyJson(event.getPayload());
-                System.out.println("\n<-- Chaincode event received: " + event.getEventName() + " - " + payload);
-            });
-        } catch (GatewayRuntimeException e) {
-            if (e.getStatus().getCode() != Status.Code.CANCELLED) {
-                throw e;
+        try (var dispatcher = newEventDispatcher(new InMemoryCheckpointer(), "received")) {
+            try {
+                while (eventIter.hasNext()) {
+                    dispatcher.dispatch(eventIter.next());
+                }
+            } catch (GatewayRuntimeException e) {
+                if (e.getStatus().getCode() != Status.Code.CANCELLED) {
+                    throw e;
+                }
             }
+
+            // Allow handlers to finish with events already received before stopping the workers
+            dispatcher.awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private EventDispatcher newEventDispatcher(final Checkpointer checkpointer, final String action) {
+        // Events for the same asset are handled in order, while events for different assets are handled concurrently.
+        // One handler covers every asset event name, so all events for an asset go to the same worker.
+        return new EventDispatcher(checkpointer, this::assetIdOf)
+                .addHandler(Set.of("CreateAsset", "UpdateAsset", "TransferAsset", "DeleteAsset"), HANDLER_WORKERS,
+                        HANDLER_QUEUE_CAPACITY, event -> {
+                            var payload = formatPayload(event.getPayload());
+                            System.out.println("\n<-- Chaincode event " + action + ": " + event.getEventName() + " - " + payload);
+                        });
+    }
+
+    private String assetIdOf(final ChaincodeEvent event) {
+        var payload = event.getPayload();
+        try {
+            var asset = AssetEvents.isJson(payload)
+                    ? JsonParser.parseString(new String(payload, StandardCharsets.UTF_8)).getAsJsonObject()
+                    : AssetEvents.decode(payload);
+            var id = asset.get("ID");
+            return id != null ? id.getAsString() : "";
+        } catch (InvalidProtocolBufferException | RuntimeException e) {
+            // Unparseable payloads are still delivered, but without ordering relative to other assets
+            return "";
+        }
+    }
+
+    private String formatPayload(final byte[] payload) {
+        if (AssetEvents.isJson(payload)) {
+            return prettyJson(payload);
+        }
+
+        try {
+            return "(binary, " + payload.length + " bytes) " + gson.toJson(AssetEvents.decode(payload));
+        } catch (InvalidProtocolBufferException e) {
+            return "(undecodable binary, " + payload.length + " bytes) " + e.getMessage();
         }
     }
 
@@ -104,6 +158,14 @@ public final class App implements AutoCloseable {
         return gson.toJson(parsedJson);
     }
 
+    private void setEventFormat() throws EndorseException, SubmitException, CommitStatusException, CommitException {
+        System.out.println("\n--> Submit transaction: SetEventFormat, " + eventFormat);
+
+        contract.submitTransaction("SetEventFormat", eventFormat);
+
+        System.out.println("\n*** SetEventFormat committed successfully");
+    }
+
     private long createAsset() throws EndorseException, SubmitException, CommitStatusException {
         System.out.println("\n--> Submit transaction: CreateAsset, " + assetId + " owned by Sam with appraised value 100");
 
@@ -147,25 +209,52 @@ public final class App implements AutoCloseable {
         System.out.println("\n*** DeleteAsset committed successfully");
     }
 
-    private void replayChaincodeEvents(final long startBlock) {
-        System.out.println("\n*** Start chaincode event replay");
+    private void replayChaincodeEvents(final long startBlock) throws IOException {
+        try (var checkpointer = new FileCheckpointer(checkpointFile)) {
+            replayChaincodeEvents(startBlock, checkpointer);
+        }
+    }
+
+    /**
+     * Replay chaincode events, resuming after the last event recorded by the checkpointer if it has a position.
+     * @param startBlock Block from which to replay if the checkpointer has no position.
+     * @param checkpointer Records the position of events handled, so a restarted replay can resume from there.
+     */
+    private void replayChaincodeEvents(final long startBlock, final Checkpointer checkpointer) {
+        System.out.println("\n*** Start chaincode event replay from block "
+                + Long.toUnsignedString(checkpointer.getBlockNumber().orElse(startBlock))
+                + checkpointer.getTransactionId().map(transactionId -> " after transaction " + transactionId).orElse(""));
 
         var request = network.newChaincodeEventsRequest(chaincodeName)
-                .startBlock(startBlock)
+                .startBlock(startBlock) // Used only if there is no checkpoint block number
+                .checkpoint(checkpointer)
                 .build();
 
-        try (var eventIter = request.getEvents()) {
+        var eventCount = 0L;
+        var startTime = System.nanoTime();
+
+        try (var eventIter = request.getEvents();
+             var dispatcher = newEventDispatcher(checkpointer, "replayed")) {
             while (eventIter.hasNext()) {
                 var event = eventIter.next();
-                var payload = prettyJson(event.getPayload());
-                System.out.println("\n<-- Chaincode event replayed: " + event.getEventName() + " - " + payload);
+                if (dispatcher.dispatch(event)) {
+                    eventCount++;
+                }
 
-                if (event.getEventName().equals("DeleteAsset")) {
+                if (event.getEventName().equals("DeleteAsset") && assetId.equals(assetIdOf(event))) {
                     // Reached the last submitted transaction so break to close the iterator and stop listening for events
                     break;
                 }
             }
+
+            dispatcher.awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+
+        var elapsedSeconds = Math.max(System.nanoTime() - startTime, 1L) / 1e9;
+        System.out.printf("%n*** Replayed %d events in %.3f seconds (%.1f events/sec)%n",
+                eventCount, elapsedSeconds, eventCount / elapsedSeconds);
     }
 
     @Override
@@ -0,0 +1,100 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.JsonObject;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+
+/**
+ * Decodes the compact binary asset event payloads published by the smart contract when its event format is set to
+ * binary. Payloads use the protobuf wire format of the following message, and contain only the asset fields changed
+ * by the transaction:
+ * <pre>
+ * message AssetEvent {
+ *     uint32 version = 1;
+ *     string id = 2;
+ *     optional string color = 3;
+ *     optional int32 size = 4;
+ *     optional string owner = 5;
+ *     optional int32 appraised_value = 6;
+ * }
+ * </pre>
+ */
+public final class AssetEvents {
+    static final int SUPPORTED_VERSION = 1;
+
+    // Field numbers of the message above, under the names the smart contract's AssetEvent encoder uses for them
+    static final int VERSION_FIELD = 1;
+    static final int ID_FIELD = 2;
+    static final int COLOR_FIELD = 3;
+    static final int SIZE_FIELD = 4;
+    static final int OWNER_FIELD = 5;
+    static final int APPRAISED_VALUE_FIELD = 6;
+
+    private AssetEvents() { }
+
+    /**
+     * Check whether an event payload is JSON, as published by the smart contract by default, rather than binary.
+     * @param payload Event payload.
+     * @return true if the payload is a JSON object.
+     */
+    public static boolean isJson(final byte[] payload) {
+        return payload.length > 0 && payload[0] == '{';
+    }
+
+    /**
+     * Decode a binary event payload into a JSON object with the same property names as the JSON payload. Only the
+     * changed properties are present.
+     * @param payload Binary event payload.
+     * @return Changed asset properties.
+     * @throws InvalidProtocolBufferException if the payload is not a supported binary event payload.
+     */
+    public static JsonObject decode(final byte[] payload) throws InvalidProtocolBufferException {
+        var result = new JsonObject();
+        var input = CodedInputStream.newInstance(payload);
+
+        try {
+            for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+                switch (WireFormat.getTagFieldNumber(tag)) {
+                    case VERSION_FIELD:
+                        var version = input.readUInt32();
+                        if (version != SUPPORTED_VERSION) {
+                            throw new InvalidProtocolBufferException("Unsupported asset event version: " + version);
+                        }
+                        break;
+                    case ID_FIELD:
+                        result.addProperty("ID", input.readString());
+                        break;
+                    case COLOR_FIELD:
+                        result.addProperty("Color", input.readString());
+                        break;
+                    case SIZE_FIELD:
+                        result.addProperty("Size", input.readInt32());
+                        break;
+                    case OWNER_FIELD:
+                        result.addProperty("Owner", input.readString());
+                        break;
+                    case APPRAISED_VALUE_FIELD:
+                        result.addProperty("AppraisedValue", input.readInt32());
+                        break;
+                    default:
+                        // Skip fields added by later format versions
+                        input.skipField(tag);
+                        break;
+                }
+            }
+        } catch (InvalidProtocolBufferException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new InvalidProtocolBufferException(e);
+        }
+
+        return result;
+    }
+}
@@ -4,9 +4,12 @@
  * SPDX-License-Identifier: Apache-2.0
  */
 
+import io.grpc.ConnectivityState;
 import io.grpc.Grpc;
 import io.grpc.ManagedChannel;
 import io.grpc.TlsChannelCredentials;
+import org.hyperledger.fabric.client.Gateway;
+import org.hyperledger.fabric.client.Hash;
 import org.hyperledger.fabric.client.identity.Identities;
 import org.hyperledger.fabric.client.identity.Identity;
 import org.hyperledger.fabric.client.identity.Signer;
@@ -19,6 +22,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.InvalidKeyException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public final class Connections {
     // Path to crypto materials.
@@ -31,24 +39,119 @@ public final class Connections {
     private static final Path tlsCertPath = cryptoPath.resolve(Paths.get("peers", "peer0.org1.example.com", "tls", "ca.crt"));
 
     // Gateway peer end point.
-    private static final String peerEndpoint = "localhost:7051";
-    private static final String overrideAuth = "peer0.org1.example.com";
+    private static final String peerEndpoint = System.getenv().getOrDefault("PEER_ENDPOINT", "localhost:7051");
+    private static final String overrideAuth = System.getenv().getOrDefault("PEER_HOST_ALIAS", "peer0.org1.example.com");
 
-    private static final String mspID = "Org1MSP";
+    // Comma-separated Gateway peer end points, SSL host name overrides and TLS certificate paths, matched by position.
+    // Missing host name overrides and TLS certificate paths default to the single peer values above. Peers are tried
+    // in order, and the first one that connects is used.
+    private static final List<String> peerEndpoints = splitList(System.getenv().getOrDefault("PEER_ENDPOINTS", peerEndpoint));
+    private static final List<String> peerHostAliases = splitList(System.getenv().getOrDefault("PEER_HOST_ALIASES", ""));
+    private static final List<String> tlsCertPaths = splitList(System.getenv().getOrDefault("TLS_CERT_PATHS", ""));
+    private static final long connectTimeoutSeconds = envSeconds("CONNECT_TIMEOUT_SECONDS", 10);
+
+    // Keepalive pings detect broken connections while idle, such as the event stream between events. Peers reject
+    // pings more frequent than their peer.keepalive.client.interval setting, which defaults to 60 seconds.
+    private static final long keepaliveTimeSeconds = envSeconds("KEEPALIVE_TIME_SECONDS", 120);
+    private static final long keepaliveTimeoutSeconds = envSeconds("KEEPALIVE_TIMEOUT_SECONDS", 20);
+
+    private static final long evaluateTimeoutSeconds = envSeconds("EVALUATE_TIMEOUT_SECONDS", 5);
+    private static final long endorseTimeoutSeconds = envSeconds("ENDORSE_TIMEOUT_SECONDS", 15);
+    private static final long submitTimeoutSeconds = envSeconds("SUBMIT_TIMEOUT_SECONDS", 5);
+    private static final long commitStatusTimeoutSeconds = envSeconds("COMMIT_STATUS_TIMEOUT_SECONDS", 60);
+
+    private static final String mspID = System.getenv().getOrDefault("MSP_ID", "Org1MSP");
 
     private Connections() {
         // Private constructor to prevent instantiation
     }
 
-    public static ManagedChannel newGrpcConnection() throws IOException {
+    /**
+     * Connect to the first of the configured Gateway peers that can be reached. With a single peer configured, the
+     * connection is established by the first call, as before.
+     * @return gRPC connection.
+     * @throws IOException if a TLS certificate cannot be read, or no peer can be reached.
+     * @throws InterruptedException if interrupted while connecting.
+     */
+    public static ManagedChannel newGrpcConnection() throws IOException, InterruptedException {
+        if (peerEndpoints.size() == 1) {
+            return newGrpcConnection(0);
+        }
+
+        for (int i = 0; i < peerEndpoints.size(); i++) {
+            var channel = newGrpcConnection(i);
+            if (awaitReady(channel)) {
+                return channel;
+            }
+            System.out.println("Gateway peer " + peerEndpoints.get(i) + " is unavailable");
+            channel.shutdownNow();
+        }
+
+        throw new IOException("None of the Gateway peers " + peerEndpoints + " could be reached");
+    }
+
+    private static ManagedChannel newGrpcConnection(final int index) throws IOException {
+        var hostAlias = index < peerHostAliases.size() ? peerHostAliases.get(index) : overrideAuth;
+        var certPath = index < tlsCertPaths.size() ? Paths.get(tlsCertPaths.get(index)) : tlsCertPath;
         var credentials = TlsChannelCredentials.newBuilder()
-                .trustManager(tlsCertPath.toFile())
+                .trustManager(certPath.toFile())
                 .build();
-        return Grpc.newChannelBuilder(peerEndpoint, credentials)
-                .overrideAuthority(overrideAuth)
+        return Grpc.newChannelBuilder(peerEndpoints.get(index), credentials)
+                .overrideAuthority(hostAlias)
+                .keepAliveTime(keepaliveTimeSeconds, TimeUnit.SECONDS)
+                .keepAliveTimeout(keepaliveTimeoutSeconds, TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(true)
                 .build();
     }
 
+    // Waits for a connection to be established, giving up as soon as an attempt fails
+    private static boolean awaitReady(final ManagedChannel channel) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(connectTimeoutSeconds);
+        var state = channel.getState(true);
+        while (state != ConnectivityState.READY) {
+            var remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || state == ConnectivityState.TRANSIENT_FAILURE || state == ConnectivityState.SHUTDOWN) {
+                return false;
+            }
+
+            var changed = new CountDownLatch(1);
+            channel.notifyWhenStateChanged(state, changed::countDown);
+            changed.await(remaining, TimeUnit.NANOSECONDS);
+            state = channel.getState(false);
+        }
+        return true;
+    }
+
+    /**
+     * Create a Gateway builder with the call deadlines set by the EVALUATE_TIMEOUT_SECONDS, ENDORSE_TIMEOUT_SECONDS,
+     * SUBMIT_TIMEOUT_SECONDS and COMMIT_STATUS_TIMEOUT_SECONDS environment variables.
+     * @param grpcChannel gRPC connection.
+     * @return Gateway builder.
+     */
+    public static Gateway.Builder newGatewayBuilder(final ManagedChannel grpcChannel) throws IOException, CertificateException, InvalidKeyException {
+        return Gateway.newInstance()
+                .identity(newIdentity())
+                .signer(newSigner())
+                .hash(Hash.SHA256)
+                .connection(grpcChannel)
+                .evaluateOptions(options -> options.withDeadlineAfter(evaluateTimeoutSeconds, TimeUnit.SECONDS))
+                .endorseOptions(options -> options.withDeadlineAfter(endorseTimeoutSeconds, TimeUnit.SECONDS))
+                .submitOptions(options -> options.withDeadlineAfter(submitTimeoutSeconds, TimeUnit.SECONDS))
+                .commitStatusOptions(options -> options.withDeadlineAfter(commitStatusTimeoutSeconds, TimeUnit.SECONDS));
+    }
+
+    private static long envSeconds(final String name, final long defaultValue) {
+        var value = System.getenv(name);
+        return value != null ? Long.parseUnsignedLong(value) : defaultValue;
+    }
+
+    private static List<String> splitList(final String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+
     public static Identity newIdentity() throws IOException, CertificateException {
         try (var certReader = Files.newBufferedReader(getFirstFilePath(certDirPath))) {
             var certificate = Identities.readX509Certificate(certReader);
@@ -0,0 +1,303 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.Checkpointer;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Fans out chaincode events from a single event stream to handlers registered by event name.
+ * <p>
+ * Each handler has its own worker threads, so handlers scale independently of each other. Events are assigned to a
+ * handler's workers by hashing a partition key extracted from the event, so events with the same key are handled in
+ * the order they were received. A handler registered for several event names shares its workers between them, so
+ * that order also holds across those names, such as the create, update and delete events of one asset. Each worker has a bounded queue, and {@link #dispatch(ChaincodeEvent)} blocks while
+ * the queue is full, which applies backpressure to the event stream.
+ * <p>
+ * The checkpointer is only advanced past an event once every handler for that event, and for all the preceding
+ * events, has acknowledged it by returning successfully. If a handler fails, the dispatcher stops and the checkpoint
+ * remains before the failed event, so that it is delivered again when event reading is resumed from the checkpoint.
+ * <p>
+ * Event reading should be resumed by passing the same checkpointer to the chaincode events request, so that the
+ * Gateway service starts after the checkpoint position. As a guard against the checkpoint transaction being delivered
+ * again, an event for the exact transaction ID of the checkpoint when the dispatcher is created is not delivered to
+ * handlers; every other event is. Events that were handled but not yet checkpointed when the application stopped are
+ * delivered again, so handlers should be idempotent.
+ */
+public final class EventDispatcher implements AutoCloseable {
+    /**
+     * Handles chaincode events. Handlers for different partition keys are called concurrently.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(ChaincodeEvent event) throws Exception;
+    }
+
+    private final Checkpointer checkpointer;
+    private final Function<ChaincodeEvent, String> partitionKey;
+    private final Map<String, List<HandlerWorkers>> handlersByName = new HashMap<>();
+    private final List<HandlerWorkers> allWorkers = new ArrayList<>();
+    private final Deque<PendingEvent> pending = new ArrayDeque<>();
+    private volatile Exception failure;
+    private volatile boolean closed = false;
+    private final long resumeBlock;
+    private final String resumeTransactionId;
+
+    /**
+     * Create a dispatcher.
+     * @param checkpointer Checkpointer to advance as events are acknowledged by all their handlers.
+     * @param partitionKey Extracts the key used to order events, such as an asset ID.
+     */
+    public EventDispatcher(final Checkpointer checkpointer, final Function<ChaincodeEvent, String> partitionKey) {
+        this.checkpointer = Objects.requireNonNull(checkpointer, "checkpointer");
+        this.partitionKey = Objects.requireNonNull(partitionKey, "partitionKey");
+        this.resumeBlock = checkpointer.getBlockNumber().orElse(-1L);
+        this.resumeTransactionId = checkpointer.getTransactionId().orElse(null);
+    }
+
+    /**
+     * Register a handler for events with a given name. Handlers must be registered before events are dispatched.
+     * @param eventName Chaincode event name.
+     * @param workerCount Number of worker threads, each handling a partition of the event keys.
+     * @param queueCapacity Maximum number of events waiting for each worker.
+     * @param handler Event handler.
+     * @return This dispatcher.
+     */
+    public EventDispatcher addHandler(final String eventName, final int workerCount, final int queueCapacity,
+                                      final Handler handler) {
+        return addHandler(Set.of(eventName), workerCount, queueCapacity, handler);
+    }
+
+    /**
+     * Register a handler for events with any of the given names, whose events share one set of workers so that
+     * events with the same partition key are handled in order whatever their name.
+     * @param eventNames Chaincode event names.
+     * @param workerCount Number of worker threads, each handling a partition of the event keys.
+     * @param queueCapacity Maximum number of events waiting for each worker.
+     * @param handler Event handler.
+     * @return This dispatcher.
+     */
+    public EventDispatcher addHandler(final Set<String> eventNames, final int workerCount, final int queueCapacity,
+                                      final Handler handler) {
+        return addHandler(String.join("-", new TreeSet<>(eventNames)), eventNames::contains, workerCount,
+                queueCapacity, handler);
+    }
+
+    /**
+     * Register a handler for events whose name matches a predicate, whose events share one set of workers so that
+     * events with the same partition key are handled in order whatever their name.
+     * @param label Name used for the handler's worker threads.
+     * @param eventNames Selects the chaincode event names to handle.
+     * @param workerCount Number of worker threads, each handling a partition of the event keys.
+     * @param queueCapacity Maximum number of events waiting for each worker.
+     * @param handler Event handler.
+     * @return This dispatcher.
+     */
+    public EventDispatcher addHandler(final String label, final Predicate<String> eventNames, final int workerCount,
+                                      final int queueCapacity, final Handler handler) {
+        Objects.requireNonNull(eventNames, "eventNames");
+        if (workerCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("workerCount and queueCapacity must be at least 1");
+        }
+
+        allWorkers.add(new HandlerWorkers(label, eventNames, workerCount, queueCapacity, handler));
+        handlersByName.clear();
+        return this;
+    }
+
+    /**
+     * Dispatch an event to the handlers registered for its name, blocking while a handler's queue is full.
+     * @param event Chaincode event.
+     * @return false if the event was skipped because it is the transaction of the initial checkpoint.
+     * @throws InterruptedException if interrupted while waiting for queue space.
+     * @throws IllegalStateException if the dispatcher is closed or a handler has failed.
+     */
+    public boolean dispatch(final ChaincodeEvent event) throws InterruptedException {
+        checkRunning();
+        if (isCheckpointed(event)) {
+            return false;
+        }
+
+        var eventHandlers = handlersFor(event.getEventName());
+        var pendingEvent = new PendingEvent(event, eventHandlers.size());
+        synchronized (pending) {
+            pending.addLast(pendingEvent);
+        }
+
+        if (eventHandlers.isEmpty()) {
+            acknowledge(pendingEvent);
+            return true;
+        }
+
+        var key = partitionKey.apply(event);
+        for (var workers : eventHandlers) {
+            workers.submit(key, pendingEvent);
+        }
+        return true;
+    }
+
+    private List<HandlerWorkers> handlersFor(final String eventName) {
+        return handlersByName.computeIfAbsent(eventName, name -> {
+            var matching = new ArrayList<HandlerWorkers>();
+            for (var workers : allWorkers) {
+                if (workers.eventNames.test(name)) {
+                    matching.add(workers);
+                }
+            }
+            return matching;
+        });
+    }
+
+    private boolean isCheckpointed(final ChaincodeEvent event) {
+        // Other events in the checkpoint block follow the checkpoint transaction, and were not yet acknowledged
+        return resumeTransactionId != null
+                && event.getBlockNumber() == resumeBlock
+                && resumeTransactionId.equals(event.getTransactionId());
+    }
+
+    private void checkRunning() {
+        if (failure != null) {
+            throw new IllegalStateException("Event handler failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Event dispatcher is closed");
+        }
+    }
+
+    private void acknowledge(final PendingEvent pendingEvent) {
+        if (pendingEvent.remaining.decrementAndGet() > 0) {
+            return;
+        }
+
+        synchronized (pending) {
+            PendingEvent lastCompleted = null;
+            while (!pending.isEmpty() && pending.peekFirst().remaining.get() == 0) {
+                lastCompleted = pending.removeFirst();
+            }
+
+            if (lastCompleted != null && failure == null) {
+                try {
+                    checkpointer.checkpointChaincodeEvent(lastCompleted.event);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+            pending.notifyAll();
+        }
+    }
+
+    private void fail(final Exception e) {
+        synchronized (pending) {
+            if (failure == null) {
+                failure = e;
+            }
+            pending.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until all dispatched events have been acknowledged by their handlers and checkpointed.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IllegalStateException if a handler has failed.
+     */
+    public void awaitIdle() throws InterruptedException {
+        synchronized (pending) {
+            while (!pending.isEmpty() && failure == null) {
+                pending.wait();
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Event handler failed", failure);
+        }
+    }
+
+    /**
+     * Stop the worker threads. Events that have not been handled are discarded, and will be delivered again when
+     * event reading is resumed from the checkpoint.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        allWorkers.forEach(HandlerWorkers::close);
+    }
+
+    private static final class PendingEvent {
+        private final ChaincodeEvent event;
+        private final AtomicInteger remaining;
+
+        PendingEvent(final ChaincodeEvent event, final int handlerCount) {
+            this.event = event;
+            this.remaining = new AtomicInteger(Math.max(handlerCount, 1));
+        }
+    }
+
+    private final class HandlerWorkers {
+        private final Predicate<String> eventNames;
+        private final List<BlockingQueue<PendingEvent>> queues = new ArrayList<>();
+        private final List<Thread> threads = new ArrayList<>();
+
+        HandlerWorkers(final String label, final Predicate<String> eventNames, final int workerCount,
+                       final int queueCapacity, final Handler handler) {
+            this.eventNames = eventNames;
+            for (int i = 0; i < workerCount; i++) {
+                var queue = new ArrayBlockingQueue<PendingEvent>(queueCapacity);
+                var thread = new Thread(() -> run(queue, handler), "event-" + label + "-" + i);
+                thread.setDaemon(true);
+                queues.add(queue);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        void submit(final String key, final PendingEvent pendingEvent) throws InterruptedException {
+            var partition = Math.floorMod(Objects.hashCode(key), queues.size());
+            queues.get(partition).put(pendingEvent);
+        }
+
+        private void run(final BlockingQueue<PendingEvent> queue, final Handler handler) {
+            try {
+                while (true) {
+                    var pendingEvent = queue.take();
+                    if (failure != null) {
+                        // Keep draining so that a dispatch blocked on this queue can observe the failure
+                        continue;
+                    }
+
+                    try {
+                        handler.handle(pendingEvent.event);
+                    } catch (InterruptedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        fail(e);
+                        continue;
+                    }
+                    acknowledge(pendingEvent);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void close() {
+            threads.forEach(Thread::interrupt);
+        }
+    }
+}
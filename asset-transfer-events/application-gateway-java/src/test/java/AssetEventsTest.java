@@ -0,0 +1,93 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.JsonParser;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.junit.jupiter.api.Test;
+
+public final class AssetEventsTest {
+    private static final int UNKNOWN_FIELD = 99;
+
+    @FunctionalInterface
+    private interface Fields {
+        void write(CodedOutputStream out) throws IOException;
+    }
+
+    // Writes a payload the way the smart contract does, with the version and ID first
+    private static byte[] payload(final String id, final Fields fields) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = CodedOutputStream.newInstance(bytes);
+        out.writeUInt32(AssetEvents.VERSION_FIELD, AssetEvents.SUPPORTED_VERSION);
+        out.writeString(AssetEvents.ID_FIELD, id);
+        fields.write(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void decodesCreateWithEveryField() throws Exception {
+        var payload = payload("asset1", out -> {
+            out.writeString(AssetEvents.COLOR_FIELD, "blue");
+            out.writeInt32(AssetEvents.SIZE_FIELD, 5);
+            out.writeString(AssetEvents.OWNER_FIELD, "Tomoko");
+            out.writeInt32(AssetEvents.APPRAISED_VALUE_FIELD, 300);
+        });
+
+        assertThat(AssetEvents.decode(payload)).isEqualTo(JsonParser.parseString(
+                "{\"ID\":\"asset1\",\"Color\":\"blue\",\"Size\":5,\"Owner\":\"Tomoko\",\"AppraisedValue\":300}"));
+    }
+
+    @Test
+    void decodesTransferWithOnlyTheNewOwner() throws Exception {
+        var payload = payload("asset1", out -> out.writeString(AssetEvents.OWNER_FIELD, "Max"));
+
+        assertThat(AssetEvents.decode(payload)).isEqualTo(JsonParser.parseString("{\"ID\":\"asset1\",\"Owner\":\"Max\"}"));
+    }
+
+    @Test
+    void decodesDeleteWithOnlyTheID() throws Exception {
+        var payload = payload("asset1", out -> { });
+
+        assertThat(AssetEvents.decode(payload)).isEqualTo(JsonParser.parseString("{\"ID\":\"asset1\"}"));
+    }
+
+    @Test
+    void skipsFieldsAddedByLaterVersions() throws Exception {
+        var payload = payload("asset1", out -> {
+            out.writeUInt64(UNKNOWN_FIELD, Long.MAX_VALUE);
+            out.writeString(AssetEvents.OWNER_FIELD, "Max");
+            out.writeBytes(UNKNOWN_FIELD + 1, ByteString.copyFromUtf8("later"));
+            out.writeFixed64(UNKNOWN_FIELD + 2, 1);
+        });
+
+        assertThat(AssetEvents.decode(payload)).isEqualTo(JsonParser.parseString("{\"ID\":\"asset1\",\"Owner\":\"Max\"}"));
+    }
+
+    @Test
+    void rejectsUnsupportedVersions() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        var out = CodedOutputStream.newInstance(bytes);
+        out.writeUInt32(AssetEvents.VERSION_FIELD, AssetEvents.SUPPORTED_VERSION + 1);
+        out.flush();
+
+        assertThatThrownBy(() -> AssetEvents.decode(bytes.toByteArray())).isInstanceOf(InvalidProtocolBufferException.class);
+    }
+
+    @Test
+    void distinguishesJsonFromBinaryPayloads() throws Exception {
+        assertThat(AssetEvents.isJson("{\"ID\":\"asset1\"}".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(AssetEvents.isJson(payload("asset1", out -> { }))).isFalse();
+    }
+}
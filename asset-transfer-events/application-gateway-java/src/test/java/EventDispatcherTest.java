@@ -0,0 +1,167 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.hyperledger.fabric.client.ChaincodeEvent;
+import org.hyperledger.fabric.client.InMemoryCheckpointer;
+import org.junit.jupiter.api.Test;
+
+public final class EventDispatcherTest {
+
+    private static final class TestEvent implements ChaincodeEvent {
+        private final long blockNumber;
+        private final String transactionId;
+        private final String eventName;
+
+        TestEvent(final long blockNumber, final String transactionId, final String eventName) {
+            this.blockNumber = blockNumber;
+            this.transactionId = transactionId;
+            this.eventName = eventName;
+        }
+
+        @Override
+        public long getBlockNumber() {
+            return blockNumber;
+        }
+
+        @Override
+        public String getTransactionId() {
+            return transactionId;
+        }
+
+        @Override
+        public String getChaincodeName() {
+            return "events";
+        }
+
+        @Override
+        public String getEventName() {
+            return eventName;
+        }
+
+        @Override
+        public byte[] getPayload() {
+            return transactionId.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static EventDispatcher newDispatcher(final InMemoryCheckpointer checkpointer, final List<String> handled) {
+        return new EventDispatcher(checkpointer, ChaincodeEvent::getTransactionId)
+                .addHandler("CreateAsset", 2, 4, event -> handled.add(event.getTransactionId()));
+    }
+
+    @Test
+    void checkpointsLastAcknowledgedEvent() throws Exception {
+        var checkpointer = new InMemoryCheckpointer();
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        try (var dispatcher = newDispatcher(checkpointer, handled)) {
+            assertThat(dispatcher.dispatch(new TestEvent(4, "tx1", "CreateAsset"))).isTrue();
+            assertThat(dispatcher.dispatch(new TestEvent(5, "tx2", "CreateAsset"))).isTrue();
+            dispatcher.awaitIdle();
+        }
+
+        assertThat(handled).containsExactlyInAnyOrder("tx1", "tx2");
+        assertThat(checkpointer.getBlockNumber()).hasValue(5);
+        assertThat(checkpointer.getTransactionId()).hasValue("tx2");
+    }
+
+    @Test
+    void deliversRemainingEventsInBlockWhenRestartedFromMidBlockCheckpoint() throws Exception {
+        var checkpointer = new InMemoryCheckpointer();
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        try (var dispatcher = newDispatcher(checkpointer, handled)) {
+            dispatcher.dispatch(new TestEvent(5, "tx1", "CreateAsset"));
+            dispatcher.awaitIdle();
+        }
+        assertThat(checkpointer.getTransactionId()).hasValue("tx1");
+
+        // The Gateway service resumes after the checkpoint transaction, so the rest of block 5 arrives first
+        handled.clear();
+        try (var dispatcher = newDispatcher(checkpointer, handled)) {
+            assertThat(dispatcher.dispatch(new TestEvent(5, "tx2", "CreateAsset"))).isTrue();
+            assertThat(dispatcher.dispatch(new TestEvent(5, "tx3", "CreateAsset"))).isTrue();
+            assertThat(dispatcher.dispatch(new TestEvent(6, "tx4", "CreateAsset"))).isTrue();
+            dispatcher.awaitIdle();
+        }
+
+        assertThat(handled).containsExactlyInAnyOrder("tx2", "tx3", "tx4");
+        assertThat(checkpointer.getBlockNumber()).hasValue(6);
+        assertThat(checkpointer.getTransactionId()).hasValue("tx4");
+    }
+
+    @Test
+    void skipsOnlyTheCheckpointTransactionIfItIsDeliveredAgain() throws Exception {
+        var checkpointer = new InMemoryCheckpointer();
+        checkpointer.checkpointTransaction(5, "tx1");
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        try (var dispatcher = newDispatcher(checkpointer, handled)) {
+            assertThat(dispatcher.dispatch(new TestEvent(5, "tx1", "CreateAsset"))).isFalse();
+            assertThat(dispatcher.dispatch(new TestEvent(5, "tx2", "CreateAsset"))).isTrue();
+            dispatcher.awaitIdle();
+        }
+
+        assertThat(handled).containsExactly("tx2");
+        assertThat(checkpointer.getTransactionId()).hasValue("tx2");
+    }
+
+    @Test
+    void handlesEventsForTheSameKeyInOrderAcrossEventNames() throws Exception {
+        var checkpointer = new InMemoryCheckpointer();
+        Map<String, List<String>> handledByAsset = new ConcurrentHashMap<>();
+        var eventNames = List.of("CreateAsset", "UpdateAsset", "DeleteAsset");
+
+        // Transaction IDs are <asset>-<n>, and creates are slowest so that a later event would overtake them
+        try (var dispatcher = new EventDispatcher(checkpointer, event -> event.getTransactionId().split("-")[0])
+                .addHandler(Set.copyOf(eventNames), 4, 2, event -> {
+                    if ("CreateAsset".equals(event.getEventName())) {
+                        Thread.sleep(5);
+                    }
+                    handledByAsset.computeIfAbsent(event.getTransactionId().split("-")[0],
+                            asset -> new CopyOnWriteArrayList<>()).add(event.getEventName());
+                })) {
+            var block = 0;
+            for (var asset : List.of("a", "b", "c", "d", "e", "f")) {
+                for (var eventName : eventNames) {
+                    dispatcher.dispatch(new TestEvent(block, asset + "-" + block, eventName));
+                    block++;
+                }
+            }
+            dispatcher.awaitIdle();
+        }
+
+        assertThat(handledByAsset).hasSize(6);
+        assertThat(handledByAsset.values()).allSatisfy(handled -> assertThat(handled).isEqualTo(eventNames));
+        assertThat(checkpointer.getBlockNumber()).hasValue(17);
+    }
+
+    @Test
+    void dispatchesToHandlersMatchingTheEventName() throws Exception {
+        var checkpointer = new InMemoryCheckpointer();
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        try (var dispatcher = new EventDispatcher(checkpointer, ChaincodeEvent::getTransactionId)
+                .addHandler("asset", name -> name.endsWith("Asset"), 2, 4, event -> handled.add(event.getTransactionId()))) {
+            assertThat(dispatcher.dispatch(new TestEvent(1, "tx1", "CreateAsset"))).isTrue();
+            assertThat(dispatcher.dispatch(new TestEvent(2, "tx2", "Audit"))).isTrue();
+            assertThat(dispatcher.dispatch(new TestEvent(3, "tx3", "TransferAsset"))).isTrue();
+            dispatcher.awaitIdle();
+        }
+
+        assertThat(handled).containsExactlyInAnyOrder("tx1", "tx3");
+        assertThat(checkpointer.getTransactionId()).hasValue("tx3");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.events;
+
+import com.google.protobuf.CodedOutputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Encodes compact binary asset event payloads, containing only the asset fields changed by a transaction.
+ * <p>
+ * Payloads use the protobuf wire format of the following message, so they can be decoded by any protobuf
+ * implementation. Fields that did not change are omitted.
+ * <pre>
+ * message AssetEvent {
+ *     uint32 version = 1;          // payload format version, currently 1
+ *     string id = 2;
+ *     optional string color = 3;
+ *     optional int32 size = 4;
+ *     optional string owner = 5;
+ *     optional int32 appraised_value = 6;
+ * }
+ * </pre>
+ */
+final class AssetEvent {
+
+    static final int FORMAT_VERSION = 1;
+
+    // Field numbers of the message above, which the application's AssetEvents decoder uses under the same names
+    static final int VERSION_FIELD = 1;
+    static final int ID_FIELD = 2;
+    static final int COLOR_FIELD = 3;
+    static final int SIZE_FIELD = 4;
+    static final int OWNER_FIELD = 5;
+    static final int APPRAISED_VALUE_FIELD = 6;
+
+    private AssetEvent() {
+    }
+
+    /**
+     * Encode the changes between two versions of an asset.
+     *
+     * @param assetID the ID of the asset
+     * @param before  the asset before the transaction, or null if it was created
+     * @param after   the asset after the transaction, or null if it was deleted
+     * @return the binary event payload
+     */
+    static byte[] delta(final String assetID, final Asset before, final Asset after) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        try {
+            out.writeUInt32(VERSION_FIELD, FORMAT_VERSION);
+            out.writeString(ID_FIELD, assetID);
+            if (after != null) {
+                if (after.getColor() != null && (before == null || !Objects.equals(before.getColor(), after.getColor()))) {
+                    out.writeString(COLOR_FIELD, after.getColor());
+                }
+                if (before == null || before.getSize() != after.getSize()) {
+                    out.writeInt32(SIZE_FIELD, after.getSize());
+                }
+                if (after.getOwner() != null && (before == null || !Objects.equals(before.getOwner(), after.getOwner()))) {
+                    out.writeString(OWNER_FIELD, after.getOwner());
+                }
+                if (before == null || before.getAppraisedValue() != after.getAppraisedValue()) {
+                    out.writeInt32(APPRAISED_VALUE_FIELD, after.getAppraisedValue());
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -16,6 +16,7 @@ import org.hyperledger.fabric.contract.annotation.License;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
 
 import java.util.Map;
 
@@ -47,6 +48,10 @@ public final class AssetTransfer implements ContractInterface {
 
     static final String IMPLICIT_COLLECTION_NAME_PREFIX = "_implicit_org_";
     static final String PRIVATE_PROPS_KEY = "asset_properties";
+    static final String CONFIG_KEY_PREFIX = "config";
+    static final String EVENT_FORMAT_KEY = "eventFormat";
+    static final String EVENT_FORMAT_JSON = "json";
+    static final String EVENT_FORMAT_BINARY = "binary";
 
     /**
      * Retrieves the asset details with the specified ID
@@ -109,7 +114,7 @@ public final class AssetTransfer implements ContractInterface {
         stub.putState(assetID, assetJSON);
         // add Event data to the transaction data. Event will be published after the block containing
         // this transaction is committed
-        stub.setEvent("CreateAsset", assetJSON);
+        stub.setEvent("CreateAsset", isBinaryEventFormat(ctx) ? AssetEvent.delta(assetID, null, asset) : assetJSON);
         return asset;
     }
 
@@ -140,6 +145,7 @@ public final class AssetTransfer implements ContractInterface {
         }
         System.out.printf("TransferAsset: verify asset %s exists\n", assetID);
         Asset thisAsset = getState(ctx, assetID);
+        Asset previous = copy(thisAsset);
         // Transfer asset to new owner
         thisAsset.setOwner(newOwner);
 
@@ -148,7 +154,7 @@ public final class AssetTransfer implements ContractInterface {
         byte[] assetJSON = thisAsset.serialize();
 
         stub.putState(assetID, assetJSON);
-        stub.setEvent("TransferAsset", assetJSON); //publish Event
+        stub.setEvent("TransferAsset", isBinaryEventFormat(ctx) ? AssetEvent.delta(assetID, previous, thisAsset) : assetJSON); //publish Event
     }
 
     /**
@@ -179,6 +185,7 @@ public final class AssetTransfer implements ContractInterface {
         }
         // reads from the Statedb. Check if asset already exists
         Asset asset = getState(ctx, assetID);
+        Asset previous = copy(asset);
 
         if (owner != null) {
             asset.setOwner(owner);
@@ -197,7 +204,7 @@ public final class AssetTransfer implements ContractInterface {
         byte[] assetJSON = asset.serialize();
         System.out.printf("UpdateAsset Put: ID %s Data %s\n", assetID, new String(assetJSON));
         stub.putState(assetID, assetJSON);
-        stub.setEvent("UpdateAsset", assetJSON); //publish Event
+        stub.setEvent("UpdateAsset", isBinaryEventFormat(ctx) ? AssetEvent.delta(assetID, previous, asset) : assetJSON); //publish Event
         return asset;
     }
 
@@ -217,7 +224,40 @@ public final class AssetTransfer implements ContractInterface {
         // delete private details of asset
         removePrivateData(ctx, assetID);
         stub.delState(assetID);         // delete the key from Statedb
-        stub.setEvent("DeleteAsset", asset.serialize()); // publish Event
+        stub.setEvent("DeleteAsset", isBinaryEventFormat(ctx) ? AssetEvent.delta(assetID, asset, null) : asset.serialize()); // publish Event
+    }
+
+    /**
+     * Sets the format of the event payloads published by subsequent transactions.
+     * The json format publishes the full asset, and the binary format publishes a compact protobuf encoded
+     * payload containing only the asset fields changed by the transaction (see AssetEvent).
+     *
+     * @param ctx    the transaction context
+     * @param format the event format, either json or binary
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public void SetEventFormat(final Context ctx, final String format) {
+        if (!EVENT_FORMAT_JSON.equals(format) && !EVENT_FORMAT_BINARY.equals(format)) {
+            String errorMessage = String.format("Unsupported event format %s, expected %s or %s", format, EVENT_FORMAT_JSON, EVENT_FORMAT_BINARY);
+            System.err.println(errorMessage);
+            throw new ChaincodeException(errorMessage, AssetTransferErrors.INCOMPLETE_INPUT.toString());
+        }
+
+        System.out.printf("SetEventFormat: %s\n", format);
+        ctx.getStub().putStringState(eventFormatKey(ctx).toString(), format);
+    }
+
+    private boolean isBinaryEventFormat(final Context ctx) {
+        return EVENT_FORMAT_BINARY.equals(ctx.getStub().getStringState(eventFormatKey(ctx).toString()));
+    }
+
+    // A composite key cannot clash with an asset ID
+    private CompositeKey eventFormatKey(final Context ctx) {
+        return ctx.getStub().createCompositeKey(CONFIG_KEY_PREFIX, EVENT_FORMAT_KEY);
+    }
+
+    private static Asset copy(final Asset asset) {
+        return new Asset(asset.getAssetID(), asset.getColor(), asset.getSize(), asset.getOwner(), asset.getAppraisedValue());
     }
 
     private Asset getState(final Context ctx, final String assetID) {
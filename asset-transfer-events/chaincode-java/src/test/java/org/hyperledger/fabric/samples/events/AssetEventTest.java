@@ -0,0 +1,73 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.events;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import org.junit.jupiter.api.Test;
+
+public final class AssetEventTest {
+
+    // Decodes a payload with the generic protobuf parser, as a client without the contract's decoder would
+    private static Map<Integer, Object> decode(final byte[] payload) throws InvalidProtocolBufferException {
+        Map<Integer, Object> fields = new TreeMap<>();
+        UnknownFieldSet.parseFrom(payload).asMap().forEach((number, field) -> {
+            List<Long> varints = field.getVarintList();
+            fields.put(number, varints.isEmpty()
+                    ? field.getLengthDelimitedList().get(0).toStringUtf8()
+                    : (Object) varints.get(0).intValue());
+        });
+        return fields;
+    }
+
+    @Test
+    public void createIncludesEveryField() throws Exception {
+        Asset asset = new Asset("asset1", "blue", 5, "Tomoko", 300);
+
+        assertThat(decode(AssetEvent.delta("asset1", null, asset))).containsExactly(
+                Map.entry(AssetEvent.VERSION_FIELD, AssetEvent.FORMAT_VERSION),
+                Map.entry(AssetEvent.ID_FIELD, "asset1"),
+                Map.entry(AssetEvent.COLOR_FIELD, "blue"),
+                Map.entry(AssetEvent.SIZE_FIELD, 5),
+                Map.entry(AssetEvent.OWNER_FIELD, "Tomoko"),
+                Map.entry(AssetEvent.APPRAISED_VALUE_FIELD, 300));
+    }
+
+    @Test
+    public void transferIncludesOnlyTheNewOwner() throws Exception {
+        Asset before = new Asset("asset1", "blue", 5, "Tomoko", 300);
+        Asset after = new Asset("asset1", "blue", 5, "Max", 300);
+
+        assertThat(decode(AssetEvent.delta("asset1", before, after))).containsExactly(
+                Map.entry(AssetEvent.VERSION_FIELD, AssetEvent.FORMAT_VERSION),
+                Map.entry(AssetEvent.ID_FIELD, "asset1"),
+                Map.entry(AssetEvent.OWNER_FIELD, "Max"));
+    }
+
+    @Test
+    public void deleteIncludesOnlyTheID() throws Exception {
+        Asset before = new Asset("asset1", "blue", 5, "Tomoko", 300);
+
+        assertThat(decode(AssetEvent.delta("asset1", before, null))).containsExactly(
+                Map.entry(AssetEvent.VERSION_FIELD, AssetEvent.FORMAT_VERSION),
+                Map.entry(AssetEvent.ID_FIELD, "asset1"));
+    }
+
+    @Test
+    public void zeroValuesAreWrittenWhenTheyChange() throws Exception {
+        Asset before = new Asset("asset1", "blue", 5, "Tomoko", 300);
+        Asset after = new Asset("asset1", "blue", 0, "Tomoko", 0);
+
+        assertThat(decode(AssetEvent.delta("asset1", before, after))).containsEntry(AssetEvent.SIZE_FIELD, 0)
+                .containsEntry(AssetEvent.APPRAISED_VALUE_FIELD, 0)
+                .doesNotContainKeys(AssetEvent.COLOR_FIELD, AssetEvent.OWNER_FIELD);
+    }
+}
@@ -6,6 +6,7 @@ package org.hyperledger.fabric.samples.privatedata;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import org.hyperledger.fabric.Logger;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
 import org.hyperledger.fabric.contract.annotation.Contact;
@@ -20,12 +21,16 @@ import org.hyperledger.fabric.shim.ledger.CompositeKey;
 
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 /**
  * Main Chaincode class. A ContractInterface gets converted to Chaincode internally.
@@ -63,6 +68,8 @@ public final class AssetTransfer implements ContractInterface {
     static final String ASSET_COLLECTION_NAME = "assetCollection";
     static final String AGREEMENT_KEYPREFIX = "transferAgreement";
 
+    private static final Logger LOGGER = Logger.getLogger(AssetTransfer.class);
+
     private enum AssetTransferErrors {
         INCOMPLETE_INPUT,
         INVALID_ACCESS,
@@ -140,6 +147,47 @@ public final class AssetTransfer implements ContractInterface {
         return new TransferAgreement(assetID, new String(buyerIdentity, UTF_8));
     }
 
+    /**
+     * VerifyAssetHashes compares the hashes of many private data values in a collection with the
+     * expected hashes, for example the hash of the appraised value agreed with a counterparty.
+     * Only the hashes are read, so the peer does not need to be a member of the collection.
+     *
+     * @param ctx                  the transaction context
+     * @param collection           the collection containing the private data
+     * @param idsAndExpectedHashes JSON array of objects with the assetID and the hex encoded
+     *                             SHA-256 hash expected for each asset
+     * @return the number of assets checked and mismatched, and a bitmap of the mismatches
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public HashVerificationResult VerifyAssetHashes(final Context ctx, final String collection, final String idsAndExpectedHashes) {
+        ChaincodeStub stub = ctx.getStub();
+        JSONArray expected;
+        try {
+            expected = new JSONArray(idsAndExpectedHashes);
+        } catch (JSONException e) {
+            throw new ChaincodeException("Invalid expected hashes: " + e.getMessage(), AssetTransferErrors.INCOMPLETE_INPUT.toString());
+        }
+        System.out.printf("VerifyAssetHashes: collection %s, %d assets\n", collection, expected.length());
+
+        byte[] bitmap = new byte[(expected.length() + 7) / 8];
+        int mismatchCount = 0;
+        for (int i = 0; i < expected.length(); i++) {
+            JSONObject entry = expected.optJSONObject(i);
+            if (entry == null || isNullOrEmpty(entry.optString("assetID")) || isNullOrEmpty(entry.optString("hash"))) {
+                throw new ChaincodeException(String.format("Entry %d must specify an assetID and a hash", i),
+                        AssetTransferErrors.INCOMPLETE_INPUT.toString());
+            }
+
+            // A missing value does not match any expected hash
+            byte[] hash = stub.getPrivateDataHash(collection, entry.getString("assetID"));
+            if (hash == null || hash.length == 0 || !Arrays.equals(hash, parseHex(entry.getString("hash")))) {
+                bitmap[i / 8] |= (byte) (1 << (i % 8));
+                mismatchCount++;
+            }
+        }
+        return new HashVerificationResult(expected.length(), mismatchCount, Base64.getEncoder().encodeToString(bitmap));
+    }
+
     /**
      * GetAssetByRange performs a range query based on the start and end keys provided. Range
      * queries can be used to read data from private data collections, but can not be used in
@@ -166,12 +214,67 @@ public final class AssetTransfer implements ContractInterface {
                 }
                 Asset asset = Asset.deserialize(result.getStringValue());
                 queryResults.add(asset);
-                System.out.println("QueryResult: " + asset.toString());
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.debug("QueryResult: " + asset.toString());
+                }
             }
         }
         return queryResults.toArray(new Asset[0]);
     }
 
+    /**
+     * GetAssetByRangeWithPagination performs a range query based on the start and end keys
+     * provided, and returns a single page of assets. Private data collections do not support
+     * paginated queries, so the bookmark is the key of the last asset on the page, and the next
+     * page continues from the key that follows it.
+     *
+     * @param ctx      the transaction context
+     * @param startKey for ID range of the asset
+     * @param endKey   for ID range of the asset
+     * @param pageSize the maximum number of assets to return
+     * @param bookmark the bookmark returned with the previous page, or empty for the first page
+     * @return the assets on the page, and the bookmark for the next page, empty on the last page
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public PaginatedQueryResult GetAssetByRangeWithPagination(final Context ctx, final String startKey, final String endKey,
+                                                              final int pageSize, final String bookmark) throws Exception {
+        List<KeyValue> page = new ArrayList<>();
+        String nextBookmark = getRangePage(ctx, startKey, endKey, pageSize, bookmark, page);
+        return new PaginatedQueryResult(deserializeAssets(page), nextBookmark);
+    }
+
+    /**
+     * GetAssetByRangeJSON is a projection of GetAssetByRangeWithPagination that returns the stored
+     * asset JSON as is, without deserializing and serializing each asset.
+     *
+     * @param ctx      the transaction context
+     * @param startKey for ID range of the asset
+     * @param endKey   for ID range of the asset
+     * @param pageSize the maximum number of assets to return
+     * @param bookmark the bookmark returned with the previous page, or empty for the first page
+     * @return JSON object with the records, fetchedRecordsCount and bookmark of the page
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String GetAssetByRangeJSON(final Context ctx, final String startKey, final String endKey,
+                                      final int pageSize, final String bookmark) throws Exception {
+        List<KeyValue> page = new ArrayList<>();
+        String nextBookmark = getRangePage(ctx, startKey, endKey, pageSize, bookmark, page);
+        return toPageJSON(page, nextBookmark);
+    }
+
+    private String getRangePage(final Context ctx, final String startKey, final String endKey,
+                                final int pageSize, final String bookmark, final List<KeyValue> page) throws Exception {
+        ChaincodeStub stub = ctx.getStub();
+        validatePageSize(pageSize);
+        System.out.printf("GetAssetByRangeWithPagination: start %s, end %s, pageSize %d, bookmark %s\n", startKey, endKey, pageSize, bookmark);
+
+        // "\u0000" is the lowest character, so the page starts at the first key after the bookmark
+        String pageStartKey = isNullOrEmpty(bookmark) ? startKey : bookmark + "\u0000";
+        try (QueryResultsIterator<KeyValue> results = stub.getPrivateDataByRange(ASSET_COLLECTION_NAME, pageStartKey, endKey)) {
+            return readPage(results, pageSize, page);
+        }
+    }
+
     // =======Rich queries =========================================================================
     // Two examples of rich queries are provided below (parameterized query and ad hoc query).
     // Rich queries pass a query string to the state database.
@@ -215,6 +318,148 @@ public final class AssetTransfer implements ContractInterface {
         return getQueryResult(ctx, queryString);
     }
 
+    /**
+     * QueryAssetsWithPagination uses a query string to perform a query for assets, and returns a
+     * single page of assets. Private data collections do not support paginated queries, so the
+     * bookmark is the key of the last asset on the page, and the query for the next page is
+     * restricted to later keys. Each page query is sorted by key, so that CouchDB returns assets in
+     * key order even when the selector could be served by an index on another field, such as
+     * indexOwner, and the query string must not specify a sort.
+     *
+     * @param ctx         the transaction context
+     * @param queryString query string matching state database syntax
+     * @param pageSize    the maximum number of assets to return
+     * @param bookmark    the bookmark returned with the previous page, or empty for the first page
+     * @return the assets on the page, and the bookmark for the next page, empty on the last page
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public PaginatedQueryResult QueryAssetsWithPagination(final Context ctx, final String queryString,
+                                                          final int pageSize, final String bookmark) throws Exception {
+        List<KeyValue> page = new ArrayList<>();
+        String nextBookmark = getQueryPage(ctx, queryString, pageSize, bookmark, page);
+        return new PaginatedQueryResult(deserializeAssets(page), nextBookmark);
+    }
+
+    /**
+     * QueryAssetsJSON is a projection of QueryAssetsWithPagination that returns the stored asset
+     * JSON as is, without deserializing and serializing each asset.
+     *
+     * @param ctx         the transaction context
+     * @param queryString query string matching state database syntax
+     * @param pageSize    the maximum number of assets to return
+     * @param bookmark    the bookmark returned with the previous page, or empty for the first page
+     * @return JSON object with the records, fetchedRecordsCount and bookmark of the page
+     */
+    @Transaction(intent = Transaction.TYPE.EVALUATE)
+    public String QueryAssetsJSON(final Context ctx, final String queryString,
+                                  final int pageSize, final String bookmark) throws Exception {
+        List<KeyValue> page = new ArrayList<>();
+        String nextBookmark = getQueryPage(ctx, queryString, pageSize, bookmark, page);
+        return toPageJSON(page, nextBookmark);
+    }
+
+    private String getQueryPage(final Context ctx, final String queryString, final int pageSize,
+                                final String bookmark, final List<KeyValue> page) throws Exception {
+        ChaincodeStub stub = ctx.getStub();
+        validatePageSize(pageSize);
+        String pageQuery = getPageQuery(queryString, bookmark);
+        System.out.printf("QueryAssetsWithPagination: %s, pageSize %d\n", pageQuery, pageSize);
+
+        try (QueryResultsIterator<KeyValue> results = stub.getPrivateDataQueryResult(ASSET_COLLECTION_NAME, pageQuery)) {
+            return readPage(results, pageSize, page);
+        }
+    }
+
+    private static String getPageQuery(final String queryString, final String bookmark) {
+        JSONObject query;
+        try {
+            query = new JSONObject(queryString);
+        } catch (JSONException e) {
+            throw new ChaincodeException("Invalid query string: " + e.getMessage(), AssetTransferErrors.INCOMPLETE_INPUT.toString());
+        }
+        if (query.has("sort")) {
+            throw new ChaincodeException("Paginated queries return assets in key order and cannot specify a sort",
+                    AssetTransferErrors.INCOMPLETE_INPUT.toString());
+        }
+        // Results in the order of an index on another field would not follow the bookmark
+        query.put("sort", new JSONArray().put(new JSONObject().put("_id", "asc")));
+        if (isNullOrEmpty(bookmark)) {
+            return query.toString();
+        }
+
+        JSONObject selector = query.optJSONObject("selector");
+        JSONObject afterBookmark = new JSONObject().put("_id", new JSONObject().put("$gt", bookmark));
+        JSONArray conditions = new JSONArray().put(selector != null ? selector : new JSONObject()).put(afterBookmark);
+        query.put("selector", new JSONObject().put("$and", conditions));
+        return query.toString();
+    }
+
+    // Reads up to pageSize non-empty results, and returns the key of the last one if there are more results.
+    private static String readPage(final QueryResultsIterator<KeyValue> results, final int pageSize,
+                                   final List<KeyValue> page) {
+        for (KeyValue result : results) {
+            if (result.getValue() == null || result.getValue().length == 0) {
+                continue;
+            }
+            if (page.size() == pageSize) {
+                return page.get(pageSize - 1).getKey();
+            }
+            page.add(result);
+        }
+        return "";
+    }
+
+    private static Asset[] deserializeAssets(final List<KeyValue> page) {
+        Asset[] assets = new Asset[page.size()];
+        for (int i = 0; i < assets.length; i++) {
+            assets[i] = Asset.deserialize(page.get(i).getValue());
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.debug("QueryResult: " + assets[i].toString());
+            }
+        }
+        return assets;
+    }
+
+    private static String toPageJSON(final List<KeyValue> page, final String bookmark) {
+        StringBuilder json = new StringBuilder("{\"records\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(page.get(i).getStringValue());
+        }
+        json.append("],\"fetchedRecordsCount\":").append(page.size())
+                .append(",\"bookmark\":").append(JSONObject.quote(bookmark)).append('}');
+        return json.toString();
+    }
+
+    private static void validatePageSize(final int pageSize) {
+        if (pageSize <= 0) {
+            throw new ChaincodeException(String.format("Page size %d must be greater than zero", pageSize),
+                    AssetTransferErrors.INCOMPLETE_INPUT.toString());
+        }
+    }
+
+    private static byte[] parseHex(final String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new ChaincodeException("Invalid hex encoded hash: " + hex, AssetTransferErrors.INCOMPLETE_INPUT.toString());
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new ChaincodeException("Invalid hex encoded hash: " + hex, AssetTransferErrors.INCOMPLETE_INPUT.toString());
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    private static boolean isNullOrEmpty(final String value) {
+        return value == null || value.isEmpty();
+    }
+
     private Asset[] getQueryResult(final Context ctx, final String queryString) throws Exception {
         ChaincodeStub stub = ctx.getStub();
         System.out.printf("QueryAssets: %s\n", queryString);
@@ -229,7 +474,9 @@ public final class AssetTransfer implements ContractInterface {
                 }
                 Asset asset = Asset.deserialize(result.getStringValue());
                 queryResults.add(asset);
-                System.out.println("QueryResult: " + asset.toString());
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.debug("QueryResult: " + asset.toString());
+                }
             }
         }
         return queryResults.toArray(new Asset[0]);
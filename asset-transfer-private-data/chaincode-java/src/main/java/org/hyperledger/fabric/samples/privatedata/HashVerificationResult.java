@@ -0,0 +1,44 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.privatedata;
+
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+@DataType()
+public final class HashVerificationResult {
+
+    @Property()
+    private final int checkedCount;
+
+    @Property()
+    private final int mismatchCount;
+
+    @Property()
+    private final String mismatches;
+
+    public int getCheckedCount() {
+        return checkedCount;
+    }
+
+    public int getMismatchCount() {
+        return mismatchCount;
+    }
+
+    /**
+     * Base64 encoded bitmap with bit (i % 8) of byte (i / 8) set if asset i did not match.
+     *
+     * @return the mismatch bitmap
+     */
+    public String getMismatches() {
+        return mismatches;
+    }
+
+    public HashVerificationResult(final int checkedCount, final int mismatchCount, final String mismatches) {
+        this.checkedCount = checkedCount;
+        this.mismatchCount = mismatchCount;
+        this.mismatches = mismatches;
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.privatedata;
+
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+@DataType()
+public final class PaginatedQueryResult {
+
+    @Property()
+    private final Asset[] records;
+
+    @Property()
+    private final int fetchedRecordsCount;
+
+    @Property()
+    private final String bookmark;
+
+    public Asset[] getRecords() {
+        return records;
+    }
+
+    public int getFetchedRecordsCount() {
+        return fetchedRecordsCount;
+    }
+
+    public String getBookmark() {
+        return bookmark;
+    }
+
+    public PaginatedQueryResult(final Asset[] records, final String bookmark) {
+        this.records = records;
+        this.fetchedRecordsCount = records.length;
+        this.bookmark = bookmark;
+    }
+}
@@ -9,10 +9,17 @@ import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.json.JSONObject;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -159,6 +166,194 @@ public final class AssetTransferTest {
 
     }
 
+    @Nested
+    class QueryPaginationTransaction {
+
+        @SuppressWarnings("unchecked")
+        private QueryResultsIterator<KeyValue> mockResults(final String... ids) {
+            List<KeyValue> list = new ArrayList<>();
+            for (String id : ids) {
+                KeyValue kv = mock(KeyValue.class);
+                String json = "{\"objectType\":\"testasset\",\"assetID\":\"" + id
+                        + "\",\"color\":\"blue\",\"size\":5,\"owner\":\"" + TEST_ORG_1_USER + "\"}";
+                when(kv.getKey()).thenReturn(id);
+                when(kv.getValue()).thenReturn(json.getBytes(UTF_8));
+                when(kv.getStringValue()).thenReturn(json);
+                list.add(kv);
+            }
+            QueryResultsIterator<KeyValue> results = mock(QueryResultsIterator.class);
+            when(results.iterator()).thenReturn(list.iterator());
+            return results;
+        }
+
+        @Test
+        public void whenRangeHasMoreAssetsThanPageSize() throws Exception {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIterator<KeyValue> results = mockResults("asset1", "asset2", "asset3");
+            when(stub.getPrivateDataByRange(ASSET_COLLECTION_NAME, "asset1", "asset9")).thenReturn(results);
+
+            PaginatedQueryResult page = contract.GetAssetByRangeWithPagination(ctx, "asset1", "asset9", 2, "");
+
+            assertThat(page.getRecords()).extracting(Asset::getAssetID).containsExactly("asset1", "asset2");
+            assertThat(page.getFetchedRecordsCount()).isEqualTo(2);
+            assertThat(page.getBookmark()).isEqualTo("asset2");
+            verify(results).close();
+        }
+
+        @Test
+        public void whenRangeContinuesFromBookmark() throws Exception {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIterator<KeyValue> results = mockResults("asset3");
+            when(stub.getPrivateDataByRange(ASSET_COLLECTION_NAME, "asset2\u0000", "asset9")).thenReturn(results);
+
+            String page = contract.GetAssetByRangeJSON(ctx, "asset1", "asset9", 2, "asset2");
+
+            assertThat(page).isEqualTo("{\"records\":[{\"objectType\":\"testasset\",\"assetID\":\"asset3\",\"color\":\"blue\","
+                    + "\"size\":5,\"owner\":\"testOrg1User\"}],\"fetchedRecordsCount\":1,\"bookmark\":\"\"}");
+        }
+
+        @Test
+        public void whenQueryContinuesFromBookmark() throws Exception {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            QueryResultsIterator<KeyValue> results = mockResults("asset3");
+            when(stub.getPrivateDataQueryResult(anyString(), anyString())).thenReturn(results);
+
+            PaginatedQueryResult page = contract.QueryAssetsWithPagination(ctx, "{\"selector\":{\"color\":\"blue\"}}", 2, "asset2");
+
+            assertThat(page.getRecords()).extracting(Asset::getAssetID).containsExactly("asset3");
+            assertThat(page.getBookmark()).isEmpty();
+            verify(stub).getPrivateDataQueryResult(ASSET_COLLECTION_NAME,
+                    "{\"selector\":{\"$and\":[{\"color\":\"blue\"},{\"_id\":{\"$gt\":\"asset2\"}}]},\"sort\":[{\"_id\":\"asc\"}]}");
+        }
+
+        // Answers a query for owners in a set the way CouchDB would: in key order if the query sorts by _id,
+        // and otherwise in the order of indexOwner, which sorts by owner before key.
+        private QueryResultsIterator<KeyValue> runOwnerQuery(final Map<String, String> owners, final String queryString) {
+            JSONObject query = new JSONObject(queryString);
+            JSONObject selector = query.getJSONObject("selector");
+            String after = "";
+            if (selector.has("$and")) {
+                after = selector.getJSONArray("$and").getJSONObject(1).getJSONObject("_id").getString("$gt");
+                selector = selector.getJSONArray("$and").getJSONObject(0);
+            }
+            List<Object> wanted = selector.getJSONObject("owner").getJSONArray("$in").toList();
+
+            Comparator<String> order = query.has("sort")
+                    ? Comparator.naturalOrder()
+                    : Comparator.comparing((String id) -> owners.get(id)).thenComparing(Comparator.naturalOrder());
+            List<String> ids = new ArrayList<>(owners.keySet());
+            ids.sort(order);
+
+            List<KeyValue> list = new ArrayList<>();
+            for (String id : ids) {
+                if (id.compareTo(after) > 0 && wanted.contains(owners.get(id))) {
+                    String json = "{\"objectType\":\"testasset\",\"assetID\":\"" + id
+                            + "\",\"color\":\"blue\",\"size\":5,\"owner\":\"" + owners.get(id) + "\"}";
+                    KeyValue kv = mock(KeyValue.class);
+                    when(kv.getKey()).thenReturn(id);
+                    when(kv.getValue()).thenReturn(json.getBytes(UTF_8));
+                    list.add(kv);
+                }
+            }
+            @SuppressWarnings("unchecked")
+            QueryResultsIterator<KeyValue> results = mock(QueryResultsIterator.class);
+            when(results.iterator()).thenReturn(list.iterator());
+            return results;
+        }
+
+        @Test
+        public void whenOwnerQuerySpansPages() throws Exception {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            Map<String, String> owners = new HashMap<>();
+            owners.put("asset1", "Tom");
+            owners.put("asset2", "Ann");
+            owners.put("asset3", "Tom");
+            owners.put("asset4", "Ann");
+            owners.put("asset5", "Ann");
+            when(stub.getPrivateDataQueryResult(anyString(), anyString()))
+                    .thenAnswer(invocation -> runOwnerQuery(owners, invocation.getArgument(1)));
+
+            List<String> assetIds = new ArrayList<>();
+            String bookmark = "";
+            do {
+                PaginatedQueryResult page = contract.QueryAssetsWithPagination(ctx,
+                        "{\"selector\":{\"objectType\":\"testasset\",\"owner\":{\"$in\":[\"Ann\",\"Tom\"]}}}", 2, bookmark);
+                for (Asset asset : page.getRecords()) {
+                    assetIds.add(asset.getAssetID());
+                }
+                bookmark = page.getBookmark();
+            } while (!bookmark.isEmpty());
+
+            assertThat(assetIds).containsExactly("asset1", "asset2", "asset3", "asset4", "asset5");
+        }
+
+        @Test
+        public void whenQuerySpecifiesSort() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.QueryAssetsWithPagination(ctx, "{\"selector\":{},\"sort\":[{\"size\":\"asc\"}]}", 2, "");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Paginated queries return assets in key order and cannot specify a sort");
+        }
+    }
+
+    @Nested
+    class VerifyAssetHashesTransaction {
+
+        @Test
+        public void whenSomeHashesDoNotMatch() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getPrivateDataHash("Org2MSPPrivateCollection", "asset1")).thenReturn(new byte[]{0x0a, (byte) 0xff});
+            when(stub.getPrivateDataHash("Org2MSPPrivateCollection", "asset2")).thenReturn(new byte[]{0x0b, 0x00});
+            when(stub.getPrivateDataHash("Org2MSPPrivateCollection", "asset3")).thenReturn(null);
+
+            HashVerificationResult result = contract.VerifyAssetHashes(ctx, "Org2MSPPrivateCollection",
+                    "[{\"assetID\":\"asset1\",\"hash\":\"0AFF\"},{\"assetID\":\"asset2\",\"hash\":\"0b01\"},"
+                    + "{\"assetID\":\"asset3\",\"hash\":\"0c00\"}]");
+
+            assertThat(result.getCheckedCount()).isEqualTo(3);
+            assertThat(result.getMismatchCount()).isEqualTo(2);
+            assertThat(Base64.getDecoder().decode(result.getMismatches())).containsExactly(0b110);
+        }
+
+        @Test
+        public void whenHashIsNotHex() {
+            AssetTransfer contract = new AssetTransfer();
+            Context ctx = mock(Context.class);
+            ChaincodeStub stub = mock(ChaincodeStub.class);
+            when(ctx.getStub()).thenReturn(stub);
+            when(stub.getPrivateDataHash(anyString(), anyString())).thenReturn(new byte[]{0x0a});
+
+            Throwable thrown = catchThrowable(() -> {
+                contract.VerifyAssetHashes(ctx, "Org2MSPPrivateCollection", "[{\"assetID\":\"asset1\",\"hash\":\"zz\"}]");
+            });
+
+            assertThat(thrown).isInstanceOf(ChaincodeException.class).hasNoCause()
+                    .hasMessage("Invalid hex encoded hash: zz");
+        }
+    }
+
     private static final String TEST_ORG_1_MSP = "TestOrg1";
     private static final String TEST_ORG_1_USER = "testOrg1User";
 
@@ -5,6 +5,8 @@
 package org.hyperledger.fabric.samples.sbe;
 
 import com.owlike.genson.Genson;
+import com.owlike.genson.JsonBindingException;
+import com.owlike.genson.stream.JsonStreamException;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
 import org.hyperledger.fabric.contract.annotation.Contract;
@@ -22,7 +24,12 @@ import org.hyperledger.fabric.shim.ext.sbe.StateBasedEndorsement;
 import org.hyperledger.fabric.shim.ext.sbe.impl.StateBasedEndorsementFactory;
 
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -41,7 +48,9 @@ public final class AssetContract implements ContractInterface {
 
     private enum AssetTransferErrors {
         ASSET_NOT_FOUND,
-        ASSET_ALREADY_EXISTS
+        ASSET_ALREADY_EXISTS,
+        INCOMPLETE_INPUT,
+        INVALID_BATCH
     }
 
     /**
@@ -79,6 +88,41 @@ public final class AssetContract implements ContractInterface {
         return asset;
     }
 
+    /**
+     * Creates a batch of new assets, owned by the client Org.
+     * The endorsement policy that requires the owner Org Peer to endorse future updates is built once, and the same
+     * validation parameter is set on every assetId Key in the batch.
+     *
+     * @param ctx the transaction context
+     * @param assetsJson JSON array of assets, each with an ID, Value and Owner
+     * @return the created assets
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public Asset[] CreateAssets(final Context ctx, final String assetsJson) {
+        ChaincodeStub stub = ctx.getStub();
+        Asset[] requests = parseBatch(assetsJson, Asset[].class);
+        checkUniqueIds(requests.length, i -> requests[i].getID());
+
+        for (Asset request : requests) {
+            if (AssetExists(ctx, request.getID())) {
+                String errorMessage = String.format("Asset %s already exists", request.getID());
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, AssetTransferErrors.ASSET_ALREADY_EXISTS.toString());
+            }
+        }
+
+        final String ownerOrg = getClientOrgId(ctx);
+        final byte[] ownerPolicy = ownerPolicy(List.of(ownerOrg));
+        Asset[] assets = new Asset[requests.length];
+        for (int i = 0; i < requests.length; i++) {
+            assets[i] = new Asset(requests[i].getID(), requests[i].getValue(), requests[i].getOwner(), ownerOrg);
+            stub.putStringState(assets[i].getID(), genson.serialize(assets[i]));
+            stub.setStateValidationParameter(assets[i].getID(), ownerPolicy);
+        }
+
+        return assets;
+    }
+
     /**
      * Retrieves an asset with the given assetId.
      *
@@ -173,6 +217,90 @@ public final class AssetContract implements ContractInterface {
         return asset;
     }
 
+    /**
+     * Transfers a batch of assets, updating the owner & ownerOrg fields of each asset.
+     * Needs an endorsement of the current owner Org Peer of every asset in the batch.
+     * The endorsement policy for each distinct new owner Org is built once, and reused for every assetId Key
+     * transferred to that Org.
+     *
+     * @param ctx the transaction context
+     * @param transfersJson JSON array of transfers, each with an ID, NewOwner and NewOwnerOrg
+     * @return the updated assets
+     */
+    @Transaction(intent = Transaction.TYPE.SUBMIT)
+    public Asset[] TransferAssets(final Context ctx, final String transfersJson) {
+        ChaincodeStub stub = ctx.getStub();
+        OwnershipTransfer[] transfers = parseBatch(transfersJson, OwnershipTransfer[].class);
+        checkUniqueIds(transfers.length, i -> transfers[i].getID());
+
+        // Read every asset before writing any of them, so that the batch transfers all or nothing
+        Asset[] assets = new Asset[transfers.length];
+        for (int i = 0; i < transfers.length; i++) {
+            assets[i] = genson.deserialize(ReadAsset(ctx, transfers[i].getID()), Asset.class);
+        }
+
+        Map<List<String>, byte[]> policies = new HashMap<>();
+        for (int i = 0; i < transfers.length; i++) {
+            Asset asset = assets[i];
+            asset.setOwner(transfers[i].getNewOwner());
+            asset.setOwnerOrg(transfers[i].getNewOwnerOrg());
+            stub.putStringState(asset.getID(), genson.serialize(asset));
+
+            byte[] ownerPolicy = policies.computeIfAbsent(List.of(asset.getOwnerOrg()), AssetContract::ownerPolicy);
+            stub.setStateValidationParameter(asset.getID(), ownerPolicy);
+        }
+
+        return assets;
+    }
+
+    /**
+     * Parses the JSON array of a batch transaction.
+     * Every entry must be a JSON object, since a null entry has no assetId to check.
+     *
+     * @param json the JSON array
+     * @param type the array type of the batch entries
+     * @return the batch entries
+     */
+    private <T> T[] parseBatch(final String json, final Class<T[]> type) {
+        T[] entries;
+        try {
+            entries = genson.deserialize(json, type);
+        } catch (JsonBindingException | JsonStreamException e) {
+            throw new ChaincodeException("Invalid batch: " + e.getMessage(), AssetTransferErrors.INVALID_BATCH.toString());
+        }
+
+        if (entries == null || entries.length == 0) {
+            throw new ChaincodeException("Batch must contain at least one asset", AssetTransferErrors.INVALID_BATCH.toString());
+        }
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] == null) {
+                String errorMessage = String.format("Batch entry %d is null", i);
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, AssetTransferErrors.INCOMPLETE_INPUT.toString());
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Checks that no assetId appears more than once in a batch.
+     * A transaction does not read its own writes, so a repeated assetId would be processed twice against the same state.
+     *
+     * @param size the number of entries in the batch
+     * @param assetIds the assetId of the entry at each index
+     */
+    private static void checkUniqueIds(final int size, final IntFunction<String> assetIds) {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            String assetId = assetIds.apply(i);
+            if (assetId == null || assetId.isEmpty() || !seen.add(assetId)) {
+                String errorMessage = String.format("Asset %s is missing or repeated in the batch", assetId);
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, AssetTransferErrors.INVALID_BATCH.toString());
+            }
+        }
+    }
+
     /**
      * Checks the existence of the asset.
      *
@@ -206,9 +334,19 @@ public final class AssetContract implements ContractInterface {
      * @param ownerOrgs the list of Owner Org MSPID's
      */
     private static void setStateBasedEndorsement(final Context ctx, final String assetId, final List<String> ownerOrgs) {
+        ctx.getStub().setStateValidationParameter(assetId, ownerPolicy(ownerOrgs));
+    }
+
+    /**
+     * Create a policy that requires a member of each of the owner Orgs to endorse.
+     *
+     * @param ownerOrgs the list of Owner Org MSPID's
+     * @return the serialized policy, to be set as the validation parameter of a Key
+     */
+    private static byte[] ownerPolicy(final List<String> ownerOrgs) {
         StateBasedEndorsement stateBasedEndorsement = StateBasedEndorsementFactory.getInstance().newStateBasedEndorsement(null);
         stateBasedEndorsement.addOrgs(StateBasedEndorsement.RoleType.RoleTypeMember, ownerOrgs.toArray(new String[0]));
-        ctx.getStub().setStateValidationParameter(assetId, stateBasedEndorsement.policy());
+        return stateBasedEndorsement.policy();
     }
 
     /**
@@ -0,0 +1,44 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.sbe;
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+@DataType()
+public final class OwnershipTransfer {
+
+    @Property()
+    private final String ID;
+
+    @Property()
+    private final String NewOwner;
+
+    @Property()
+    private final String NewOwnerOrg;
+
+    @JsonProperty("ID")
+    public String getID() {
+        return ID;
+    }
+
+    @JsonProperty("NewOwner")
+    public String getNewOwner() {
+        return NewOwner;
+    }
+
+    @JsonProperty("NewOwnerOrg")
+    public String getNewOwnerOrg() {
+        return NewOwnerOrg;
+    }
+
+    public OwnershipTransfer(@JsonProperty("ID") final String ID, @JsonProperty("NewOwner") final String NewOwner,
+                             @JsonProperty("NewOwnerOrg") final String NewOwnerOrg) {
+        this.ID = ID;
+        this.NewOwner = NewOwner;
+        this.NewOwnerOrg = NewOwnerOrg;
+    }
+}
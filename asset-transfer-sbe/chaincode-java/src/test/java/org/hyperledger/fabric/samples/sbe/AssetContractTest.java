@@ -0,0 +1,234 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.sbe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.contract.ClientIdentity;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.protos.common.MSPRole;
+import org.hyperledger.fabric.protos.common.SignaturePolicyEnvelope;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public final class AssetContractTest {
+
+    private final Genson genson = new Genson();
+    private final Map<String, String> state = new HashMap<>();
+    private final Map<String, byte[]> validationParameters = new HashMap<>();
+    private AssetContract contract;
+    private Context ctx;
+    private ChaincodeStub stub;
+
+    @BeforeEach
+    public void setUp() {
+        contract = new AssetContract();
+        ctx = mock(Context.class);
+        stub = mock(ChaincodeStub.class);
+        ClientIdentity identity = mock(ClientIdentity.class);
+        when(ctx.getStub()).thenReturn(stub);
+        when(ctx.getClientIdentity()).thenReturn(identity);
+        when(identity.getMSPID()).thenReturn("Org1MSP");
+        when(stub.getStringState(anyString())).thenAnswer(i -> state.getOrDefault(i.getArgument(0), ""));
+        doAnswer(i -> state.put(i.getArgument(0), i.getArgument(1))).when(stub).putStringState(anyString(), anyString());
+        doAnswer(i -> state.remove(i.getArgument(0))).when(stub).delState(anyString());
+        doAnswer(i -> validationParameters.put(i.getArgument(0), i.getArgument(1)))
+                .when(stub).setStateValidationParameter(anyString(), any());
+    }
+
+    private void putAsset(final String assetId, final String ownerOrg) {
+        state.put(assetId, genson.serialize(new Asset(assetId, 100, "owner", ownerOrg)));
+    }
+
+    // The single Org that the validation parameter of a Key requires to endorse
+    private String endorsingOrg(final String assetId) throws InvalidProtocolBufferException {
+        SignaturePolicyEnvelope policy = SignaturePolicyEnvelope.parseFrom(validationParameters.get(assetId));
+        assertThat(policy.getIdentitiesCount()).isEqualTo(1);
+        return MSPRole.parseFrom(policy.getIdentities(0).getPrincipal()).getMspIdentifier();
+    }
+
+    private static void assertRejected(final Throwable thrown, final String error) {
+        assertThat(thrown).isInstanceOf(ChaincodeException.class);
+        assertThat(((ChaincodeException) thrown).getPayload()).isEqualTo(error.getBytes());
+    }
+
+    @Nested
+    class SingleAssetTransactions {
+
+        @Test
+        public void createAssetRequiresOwnerOrgEndorsement() throws Exception {
+            Asset asset = contract.CreateAsset(ctx, "asset1", 100, "Tom");
+
+            assertThat(asset).isEqualTo(new Asset("asset1", 100, "Tom", "Org1MSP"));
+            assertThat(genson.deserialize(contract.ReadAsset(ctx, "asset1"), Asset.class)).isEqualTo(asset);
+            assertThat(endorsingOrg("asset1")).isEqualTo("Org1MSP");
+        }
+
+        @Test
+        public void createAssetRejectsExistingAsset() {
+            putAsset("asset1", "Org1MSP");
+
+            assertRejected(catchThrowable(() -> contract.CreateAsset(ctx, "asset1", 100, "Tom")), "ASSET_ALREADY_EXISTS");
+        }
+
+        @Test
+        public void updateAssetKeepsOwner() {
+            putAsset("asset1", "Org1MSP");
+
+            Asset asset = contract.UpdateAsset(ctx, "asset1", 200);
+
+            assertThat(asset).isEqualTo(new Asset("asset1", 200, "owner", "Org1MSP"));
+            assertThat(validationParameters).isEmpty();
+        }
+
+        @Test
+        public void transferAssetRequiresNewOwnerOrgEndorsement() throws Exception {
+            putAsset("asset1", "Org1MSP");
+
+            Asset asset = contract.TransferAsset(ctx, "asset1", "Max", "Org2MSP");
+
+            assertThat(asset).isEqualTo(new Asset("asset1", 100, "Max", "Org2MSP"));
+            assertThat(endorsingOrg("asset1")).isEqualTo("Org2MSP");
+        }
+
+        @Test
+        public void deleteAssetRemovesAsset() {
+            putAsset("asset1", "Org1MSP");
+
+            contract.DeleteAsset(ctx, "asset1");
+
+            assertThat(state).doesNotContainKey("asset1");
+            assertRejected(catchThrowable(() -> contract.ReadAsset(ctx, "asset1")), "ASSET_NOT_FOUND");
+            assertRejected(catchThrowable(() -> contract.DeleteAsset(ctx, "asset1")), "ASSET_NOT_FOUND");
+        }
+    }
+
+    @Nested
+    class CreateAssets {
+
+        @Test
+        public void setsTheSamePolicyInstanceOnEveryAsset() throws Exception {
+            Asset[] assets = contract.CreateAssets(ctx,
+                    "[{\"ID\":\"asset1\",\"Value\":10,\"Owner\":\"Tom\"},{\"ID\":\"asset2\",\"Value\":20,\"Owner\":\"Max\"}]");
+
+            assertThat(assets).containsExactly(new Asset("asset1", 10, "Tom", "Org1MSP"), new Asset("asset2", 20, "Max", "Org1MSP"));
+            assertThat(validationParameters.get("asset2")).isSameAs(validationParameters.get("asset1"));
+            assertThat(endorsingOrg("asset1")).isEqualTo("Org1MSP");
+        }
+
+        @Test
+        public void rejectsDuplicateIds() {
+            Throwable thrown = catchThrowable(() -> contract.CreateAssets(ctx,
+                    "[{\"ID\":\"asset1\",\"Value\":10,\"Owner\":\"Tom\"},{\"ID\":\"asset1\",\"Value\":20,\"Owner\":\"Max\"}]"));
+
+            assertRejected(thrown, "INVALID_BATCH");
+            assertThat(state).isEmpty();
+        }
+
+        @Test
+        public void rejectsExistingAssetsBeforeWritingAny() {
+            putAsset("asset2", "Org2MSP");
+
+            Throwable thrown = catchThrowable(() -> contract.CreateAssets(ctx,
+                    "[{\"ID\":\"asset1\",\"Value\":10,\"Owner\":\"Tom\"},{\"ID\":\"asset2\",\"Value\":20,\"Owner\":\"Max\"}]"));
+
+            assertRejected(thrown, "ASSET_ALREADY_EXISTS");
+            assertThat(state).containsOnlyKeys("asset2");
+            verify(stub, never()).setStateValidationParameter(anyString(), any());
+        }
+    }
+
+    @Nested
+    class TransferAssets {
+
+        @Test
+        public void sharesPolicyInstancesBetweenAssetsForTheSameOrg() throws Exception {
+            putAsset("asset1", "Org1MSP");
+            putAsset("asset2", "Org1MSP");
+            putAsset("asset3", "Org1MSP");
+
+            Asset[] assets = contract.TransferAssets(ctx, "[{\"ID\":\"asset1\",\"NewOwner\":\"Max\",\"NewOwnerOrg\":\"Org2MSP\"},"
+                    + "{\"ID\":\"asset2\",\"NewOwner\":\"Ann\",\"NewOwnerOrg\":\"Org3MSP\"},"
+                    + "{\"ID\":\"asset3\",\"NewOwner\":\"Max\",\"NewOwnerOrg\":\"Org2MSP\"}]");
+
+            assertThat(assets).extracting(Asset::getOwnerOrg).containsExactly("Org2MSP", "Org3MSP", "Org2MSP");
+            assertThat(validationParameters.get("asset3")).isSameAs(validationParameters.get("asset1"));
+            assertThat(validationParameters.get("asset2")).isNotSameAs(validationParameters.get("asset1"));
+            assertThat(endorsingOrg("asset1")).isEqualTo("Org2MSP");
+            assertThat(endorsingOrg("asset2")).isEqualTo("Org3MSP");
+        }
+
+        @Test
+        public void rejectsDuplicateIds() {
+            putAsset("asset1", "Org1MSP");
+
+            Throwable thrown = catchThrowable(() -> contract.TransferAssets(ctx,
+                    "[{\"ID\":\"asset1\",\"NewOwner\":\"Max\",\"NewOwnerOrg\":\"Org2MSP\"},"
+                    + "{\"ID\":\"asset1\",\"NewOwner\":\"Ann\",\"NewOwnerOrg\":\"Org3MSP\"}]"));
+
+            assertRejected(thrown, "INVALID_BATCH");
+            verify(stub, never()).putStringState(anyString(), anyString());
+        }
+
+        @Test
+        public void rejectsMissingAssetsBeforeWritingAny() {
+            putAsset("asset1", "Org1MSP");
+
+            Throwable thrown = catchThrowable(() -> contract.TransferAssets(ctx,
+                    "[{\"ID\":\"asset1\",\"NewOwner\":\"Max\",\"NewOwnerOrg\":\"Org2MSP\"},"
+                    + "{\"ID\":\"asset2\",\"NewOwner\":\"Ann\",\"NewOwnerOrg\":\"Org3MSP\"}]"));
+
+            assertRejected(thrown, "ASSET_NOT_FOUND");
+            verify(stub, never()).putStringState(eq("asset1"), anyString());
+            verify(stub, never()).setStateValidationParameter(anyString(), any());
+        }
+    }
+
+    @Nested
+    class ParseBatch {
+
+        @Test
+        public void rejectsNullEntries() {
+            assertRejected(catchThrowable(() -> contract.CreateAssets(ctx,
+                    "[{\"ID\":\"asset1\",\"Value\":10,\"Owner\":\"Tom\"},null]")), "INCOMPLETE_INPUT");
+            assertRejected(catchThrowable(() -> contract.TransferAssets(ctx, "[null]")), "INCOMPLETE_INPUT");
+        }
+
+        @Test
+        public void rejectsEmptyBatches() {
+            assertRejected(catchThrowable(() -> contract.CreateAssets(ctx, "[]")), "INVALID_BATCH");
+            assertRejected(catchThrowable(() -> contract.TransferAssets(ctx, "null")), "INVALID_BATCH");
+        }
+
+        @Test
+        public void rejectsMalformedJson() {
+            assertRejected(catchThrowable(() -> contract.CreateAssets(ctx, "[{\"ID\":")), "INVALID_BATCH");
+            assertRejected(catchThrowable(() -> contract.TransferAssets(ctx, "{\"ID\":\"asset1\"}")), "INVALID_BATCH");
+        }
+
+        @Test
+        public void rejectsEntriesWithoutId() {
+            assertRejected(catchThrowable(() -> contract.CreateAssets(ctx, "[{\"Value\":10,\"Owner\":\"Tom\"}]")),
+                    "INVALID_BATCH");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+package org.hyperledger.fabric.samples.sbe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public final class AssetTest {
+
+    @Nested
+    class Equality {
+
+        @Test
+        public void isSymmetric() {
+            Asset assetA = new Asset("asset1", 100, "Tom", "Org1MSP");
+            Asset assetB = new Asset("asset1", 100, "Tom", "Org1MSP");
+
+            assertThat(assetA).isEqualTo(assetA);
+            assertThat(assetA).isEqualTo(assetB);
+            assertThat(assetB).isEqualTo(assetA);
+            assertThat(assetA.hashCode()).isEqualTo(assetB.hashCode());
+        }
+
+        @Test
+        public void handlesInequality() {
+            Asset asset = new Asset("asset1", 100, "Tom", "Org1MSP");
+
+            assertThat(asset).isNotEqualTo(new Asset("asset1", 200, "Tom", "Org1MSP"));
+            assertThat(asset).isNotEqualTo(new Asset("asset2", 100, "Tom", "Org1MSP"));
+            assertThat(asset).isNotEqualTo(new Asset("asset1", 100, "Max", "Org1MSP"));
+            assertThat(asset).isNotEqualTo(new Asset("asset1", 100, "Tom", "Org2MSP"));
+        }
+
+        @Test
+        public void handlesOtherObjects() {
+            Asset asset = new Asset("asset1", 100, "Tom", "Org1MSP");
+
+            assertThat(asset).isNotEqualTo("not an asset");
+            assertThat(asset).isNotEqualTo(null);
+        }
+    }
+
+    @Test
+    public void toStringIdentifiesAsset() {
+        Asset asset = new Asset("asset1", 100, "Tom", "Org1MSP");
+
+        assertThat(asset.toString()).isEqualTo("Asset{ID='asset1', Value=100, Owner='Tom', OwnerOrg='Org1MSP'}");
+    }
+}
@@ -0,0 +1,104 @@
+package Whistleblower;
+import org.hyperledger.fabric.contract.execution.JSONTransactionSerializer;
+import org.hyperledger.fabric.contract.metadata.TypeSchema;
+import org.hyperledger.fabric.contract.routing.TypeRegistry;
+import com.owlike.genson.Genson;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares the cost of encoding a mutating transaction's response in each way the contract can return it:
+//   object  - returning the Whistleblower for the contract router to serialize, after encoding it for the ledger
+//   encoded - returning the JSON already encoded for the ledger (the default response)
+//   ack     - returning only the ID, status and version (responseMode=ack in the transient data)
+//
+// Usage: gradle benchmark [--args="<chat messages> <message length> <iterations>"]
+public class ResponseEncodingBenchmark {
+    private static final Genson GENSON = new Genson();
+    private static final JSONTransactionSerializer SERIALIZER = new JSONTransactionSerializer();
+    private static final TypeSchema REPORT_SCHEMA = TypeSchema.typeConvert(Whistleblower.class);
+    private static final TypeSchema STRING_SCHEMA = TypeSchema.typeConvert(String.class);
+
+    private interface Encoder {
+        byte[] encode(Whistleblower report);
+    }
+
+    public static void main(final String[] args) {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int messageLength = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        // The router looks up report properties in the type registry, which is populated when the contract starts
+        TypeRegistry registry = TypeRegistry.getRegistry();
+        registry.addDataType(Whistleblower.class);
+        registry.addDataType(ChatMessage.class);
+        registry.addDataType(FileAttachment.class);
+
+        Whistleblower report = newReport(messageCount, messageLength);
+
+        Map<String, Encoder> encoders = new LinkedHashMap<>();
+        encoders.put("object", r -> {
+            GENSON.serialize(r);
+            return SERIALIZER.toBuffer(r, REPORT_SCHEMA);
+        });
+        encoders.put("encoded", r -> SERIALIZER.toBuffer(GENSON.serialize(r), STRING_SCHEMA));
+        encoders.put("ack", r -> {
+            GENSON.serialize(r);
+            Map<String, String> ack = new LinkedHashMap<>();
+            ack.put("id", r.getId());
+            ack.put("status", r.getStatus());
+            ack.put("version", "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef");
+            return SERIALIZER.toBuffer(GENSON.serialize(ack), STRING_SCHEMA);
+        });
+
+        System.out.println(String.format("Report with %d chat messages of %d characters, %d iterations",
+                messageCount, messageLength, iterations));
+        System.out.println(String.format("%-8s %14s %16s %14s", "mode", "us/op", "allocated KB/op", "response bytes"));
+
+        for (Map.Entry<String, Encoder> entry : encoders.entrySet()) {
+            Encoder encoder = entry.getValue();
+
+            // Warm up so that the measurement excludes class loading and JIT compilation
+            for (int i = 0; i < iterations; i++) {
+                encoder.encode(report);
+            }
+
+            long startBytes = allocatedBytes();
+            long startTime = System.nanoTime();
+            int responseSize = 0;
+            for (int i = 0; i < iterations; i++) {
+                responseSize = encoder.encode(report).length;
+            }
+            long elapsed = System.nanoTime() - startTime;
+            long allocated = allocatedBytes() - startBytes;
+
+            System.out.println(String.format("%-8s %14.1f %16.1f %14d", entry.getKey(),
+                    elapsed / 1000.0 / iterations, allocated / 1024.0 / iterations, responseSize));
+        }
+    }
+
+    private static Whistleblower newReport(final int messageCount, final int messageLength) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < messageLength; i++) {
+            content.append((char) ('a' + i % 26));
+        }
+
+        List<ChatMessage> chatHistory = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            String sender = i % 2 == 0 ? "whistleblower" : "investigator-1";
+            chatHistory.add(new ChatMessage(sender, content.toString(), "2025-04-13T10:00:00Z", true, null, false));
+        }
+
+        return new Whistleblower("1", "Sample Report", "Description", "anonymous", "2025-04-13", "under_investigation",
+                3, "", "investigator-1", "Investigator One", chatHistory, "", false, "Finance", "Head office",
+                "", "", "", false, "Summary", new ArrayList<>(), new ArrayList<>(), false, "", false, "", 0.0, false,
+                new ArrayList<>(), "");
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,78 @@
+package Whistleblower;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+import java.util.Objects;
+
+// A permanently closed report moved out of the active keyspace. The report is stored without its chat history,
+// which is kept under a separate key, and both are either plain JSON or gzip compressed and Base64 encoded.
+@DataType
+public class ArchivedReport {
+    public static final String ENCODING_JSON = "json";
+    public static final String ENCODING_GZIP = "gzip";
+
+    @Property
+    private final String id;
+
+    @Property
+    private final String closedDate; // yyyyMMdd
+
+    @Property
+    private final String archivedDate; // yyyyMMdd
+
+    @Property
+    private final String encoding;
+
+    @Property
+    private final String report;
+
+    @Property
+    private final int chatMessages;
+
+    public ArchivedReport(
+            @JsonProperty("id") final String id,
+            @JsonProperty("closedDate") final String closedDate,
+            @JsonProperty("archivedDate") final String archivedDate,
+            @JsonProperty("encoding") final String encoding,
+            @JsonProperty("report") final String report,
+            @JsonProperty("chatMessages") final int chatMessages) {
+        this.id = id;
+        this.closedDate = closedDate;
+        this.archivedDate = archivedDate;
+        this.encoding = encoding;
+        this.report = report;
+        this.chatMessages = chatMessages;
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public String getClosedDate() { return closedDate; }
+    public String getArchivedDate() { return archivedDate; }
+    public String getEncoding() { return encoding; }
+    public String getReport() { return report; }
+    public int getChatMessages() { return chatMessages; }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        ArchivedReport other = (ArchivedReport) obj;
+        return Objects.equals(id, other.id) &&
+               Objects.equals(closedDate, other.closedDate) &&
+               Objects.equals(archivedDate, other.archivedDate) &&
+               Objects.equals(encoding, other.encoding) &&
+               Objects.equals(report, other.report) &&
+               chatMessages == other.chatMessages;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, closedDate, archivedDate, encoding, report, chatMessages);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ArchivedReport [id=%s, closedDate=%s, archivedDate=%s, encoding=%s, chatMessages=%d]",
+                           id, closedDate, archivedDate, encoding, chatMessages);
+    }
+}
@@ -0,0 +1,292 @@
+package Whistleblower;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// A single change to a report. Every mutating transaction describes its change as an event and applies it to the
+// current report, so the document and event-sourced storage engines produce the same report for the same changes.
+@DataType
+public class ReportEvent {
+    public static final String SUBMITTED = "submitted";
+    public static final String ASSIGNED = "assigned";
+    public static final String STATUS_CHANGED = "status_changed";
+    public static final String SUMMARY_ADDED = "summary_added";
+    public static final String REOPENED = "reopened";
+    public static final String COMPLETED = "completed";
+    public static final String CLOSED = "closed";
+    public static final String REWARDED = "rewarded";
+    public static final String CHAT_MESSAGE = "chat_message";
+    public static final String MESSAGES_READ = "messages_read";
+
+    @Property
+    private final String type;
+
+    @Property
+    private final String timestamp;
+
+    @Property
+    private final String txId;
+
+    @Property
+    private final String status;
+
+    @Property
+    private final String investigatorId;
+
+    @Property
+    private final String investigatorName;
+
+    @Property
+    private final String text; // management summary, reopen reason, closure summary or reward note
+
+    @Property
+    private final double amount;
+
+    @Property
+    private final ChatMessage message;
+
+    @Property
+    private final String reader;
+
+    @Property
+    private final Long readThrough; // sequence of the last event a messages_read event was validated against
+
+    public ReportEvent(
+            @JsonProperty("type") final String type,
+            @JsonProperty("timestamp") final String timestamp,
+            @JsonProperty("txId") final String txId,
+            @JsonProperty("status") final String status,
+            @JsonProperty("investigatorId") final String investigatorId,
+            @JsonProperty("investigatorName") final String investigatorName,
+            @JsonProperty("text") final String text,
+            @JsonProperty("amount") final double amount,
+            @JsonProperty("message") final ChatMessage message,
+            @JsonProperty("reader") final String reader,
+            @JsonProperty("readThrough") final Long readThrough) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.txId = txId;
+        this.status = status;
+        this.investigatorId = investigatorId;
+        this.investigatorName = investigatorName;
+        this.text = text;
+        this.amount = amount;
+        this.message = message;
+        this.reader = reader;
+        this.readThrough = readThrough;
+    }
+
+    public static ReportEvent submitted() {
+        return new ReportEvent(SUBMITTED, null, null, null, null, null, null, 0.0, null, null, null);
+    }
+
+    public static ReportEvent assigned(final String investigatorId, final String investigatorName) {
+        return new ReportEvent(ASSIGNED, null, null, null, investigatorId, investigatorName, null, 0.0, null, null, null);
+    }
+
+    public static ReportEvent statusChanged(final String status) {
+        return new ReportEvent(STATUS_CHANGED, null, null, status, null, null, null, 0.0, null, null, null);
+    }
+
+    public static ReportEvent summaryAdded(final String investigatorId, final String summary) {
+        return new ReportEvent(SUMMARY_ADDED, null, null, null, investigatorId, null, summary, 0.0, null, null, null);
+    }
+
+    public static ReportEvent reopened(final String reason) {
+        return new ReportEvent(REOPENED, null, null, null, null, null, reason, 0.0, null, null, null);
+    }
+
+    public static ReportEvent completed(final String investigatorId) {
+        return new ReportEvent(COMPLETED, null, null, null, investigatorId, null, null, 0.0, null, null, null);
+    }
+
+    public static ReportEvent closed(final String closureSummary) {
+        return new ReportEvent(CLOSED, null, null, null, null, null, closureSummary, 0.0, null, null, null);
+    }
+
+    public static ReportEvent rewarded(final String rewardNote, final double rewardAmount) {
+        return new ReportEvent(REWARDED, null, null, null, null, null, rewardNote, rewardAmount, null, null, null);
+    }
+
+    public static ReportEvent chatMessage(final ChatMessage message) {
+        return new ReportEvent(CHAT_MESSAGE, null, null, null, null, null, null, 0.0, message, null, null);
+    }
+
+    // Marks the messages in the events up to readThrough, the last event read when the change was validated
+    public static ReportEvent messagesRead(final String reader, final long readThrough) {
+        return new ReportEvent(MESSAGES_READ, null, null, null, null, null, null, 0.0, null, reader, readThrough);
+    }
+
+    // Copy of this event recording the transaction that made the change
+    public ReportEvent withTransaction(final String eventTimestamp, final String eventTxId) {
+        return new ReportEvent(type, eventTimestamp, eventTxId, status, investigatorId, investigatorName, text, amount,
+                message, reader, readThrough);
+    }
+
+    public Whistleblower applyTo(final Whistleblower report) {
+        return applyTo(report, null);
+    }
+
+    // Applies the event during replay, where messageSequences holds the sequence of the event that added each chat
+    // message, so that a messages_read event only marks the messages it was validated against. Messages added by
+    // events that sort after it, or that were appended without reading the report, are left unread.
+    public Whistleblower applyTo(final Whistleblower report, final List<Long> messageSequences) {
+        String newStatus = report.getStatus();
+        String assignedTo = report.getAssignedTo();
+        String assignedToName = report.getAssignedToName();
+        List<ChatMessage> chatHistory = report.getChatHistory();
+        String managementSummary = report.getManagementSummary();
+        List<String> previousInvestigators = report.getPreviousInvestigators();
+        List<String> reopenReasons = report.getReopenReasons();
+        boolean isReopened = report.getIsReopened();
+        String closureSummary = report.getClosureSummary();
+        boolean permanentlyClosed = report.getPermanentlyClosed();
+        String rewardNote = report.getRewardNote();
+        double rewardAmount = report.getRewardAmount();
+        boolean rewardProcessed = report.getRewardProcessed();
+
+        switch (type) {
+            case SUBMITTED:
+                break;
+            case ASSIGNED:
+                newStatus = "under_investigation"; // Automatically change status to under investigation
+                assignedTo = investigatorId;
+                assignedToName = investigatorName;
+                break;
+            case STATUS_CHANGED:
+                newStatus = status;
+                break;
+            case SUMMARY_ADDED:
+                managementSummary = text;
+                break;
+            case REOPENED:
+                // Remember the previous investigator, who may not investigate the reopened report
+                previousInvestigators = new ArrayList<>(previousInvestigators);
+                if (!previousInvestigators.contains(assignedTo)) {
+                    previousInvestigators.add(assignedTo);
+                }
+                reopenReasons = new ArrayList<>(reopenReasons);
+                reopenReasons.add(text);
+                newStatus = "pending"; // Change status back to pending
+                assignedTo = "";
+                assignedToName = "";
+                isReopened = true;
+                permanentlyClosed = false;
+                break;
+            case COMPLETED:
+                newStatus = "investigation_complete";
+                break;
+            case CLOSED:
+                newStatus = "completed";
+                closureSummary = text;
+                permanentlyClosed = true;
+                break;
+            case REWARDED:
+                rewardNote = text;
+                rewardAmount = amount;
+                rewardProcessed = true;
+                break;
+            case CHAT_MESSAGE:
+                chatHistory = new ArrayList<>(chatHistory);
+                chatHistory.add(message);
+                break;
+            case MESSAGES_READ:
+                // Mark messages as read if they are not from the reader
+                chatHistory = new ArrayList<>();
+                for (int i = 0; i < report.getChatHistory().size(); i++) {
+                    ChatMessage msg = report.getChatHistory().get(i);
+                    boolean covered = readThrough == null || messageSequences == null
+                            || messageSequences.get(i) <= readThrough;
+                    boolean isRead = msg.getIsRead() || (covered && !msg.getSender().equals(reader));
+                    chatHistory.add(new ChatMessage(
+                        msg.getSender(),
+                        msg.getContent(),
+                        msg.getTimestamp(),
+                        isRead,
+                        msg.getAttachment(),
+                        msg.getHasAttachment()
+                    ));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown report event type: " + type);
+        }
+
+        return new Whistleblower(
+            report.getId(),
+            report.getTitle(),
+            report.getDescription(),
+            report.getSubmitter(),
+            report.getDate(),
+            newStatus,
+            report.getCriticality(),
+            report.getRewardWallet(),
+            assignedTo,
+            assignedToName,
+            chatHistory,
+            report.getVoiceNote(),
+            report.getHasVoiceNote(),
+            report.getDepartment(),
+            report.getLocation(),
+            report.getMonetaryValue(),
+            report.getRelationship(),
+            report.getEncounter(),
+            report.getAuthoritiesAware(),
+            managementSummary,
+            previousInvestigators,
+            reopenReasons,
+            isReopened,
+            closureSummary,
+            permanentlyClosed,
+            rewardNote,
+            rewardAmount,
+            rewardProcessed,
+            report.getAttachments(),
+            report.getVoiceToText()
+        );
+    }
+
+    // Getters
+    public String getType() { return type; }
+    public String getTimestamp() { return timestamp; }
+    public String getTxId() { return txId; }
+    public String getStatus() { return status; }
+    public String getInvestigatorId() { return investigatorId; }
+    public String getInvestigatorName() { return investigatorName; }
+    public String getText() { return text; }
+    public double getAmount() { return amount; }
+    public ChatMessage getMessage() { return message; }
+    public String getReader() { return reader; }
+    public Long getReadThrough() { return readThrough; }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        ReportEvent other = (ReportEvent) obj;
+        return Objects.equals(type, other.type) &&
+               Objects.equals(timestamp, other.timestamp) &&
+               Objects.equals(txId, other.txId) &&
+               Objects.equals(status, other.status) &&
+               Objects.equals(investigatorId, other.investigatorId) &&
+               Objects.equals(investigatorName, other.investigatorName) &&
+               Objects.equals(text, other.text) &&
+               amount == other.amount &&
+               Objects.equals(message, other.message) &&
+               Objects.equals(reader, other.reader) &&
+               Objects.equals(readThrough, other.readThrough);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, timestamp, txId, status, investigatorId, investigatorName, text, amount, message, reader, readThrough);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReportEvent [type=%s, timestamp=%s, txId=%s]", type, timestamp, txId);
+    }
+}
@@ -0,0 +1,46 @@
+package Whistleblower;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+import java.util.Objects;
+
+// Compacted state of an event-sourced report. The report includes every event up to the start of the epoch,
+// so reading the report only needs the events appended in the current epoch.
+@DataType
+public class ReportSnapshot {
+    @Property
+    private final int epoch;
+
+    @Property
+    private final Whistleblower report;
+
+    public ReportSnapshot(
+            @JsonProperty("epoch") final int epoch,
+            @JsonProperty("report") final Whistleblower report) {
+        this.epoch = epoch;
+        this.report = report;
+    }
+
+    // Getters
+    public int getEpoch() { return epoch; }
+    public Whistleblower getReport() { return report; }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        ReportSnapshot other = (ReportSnapshot) obj;
+        return epoch == other.epoch &&
+               Objects.equals(report, other.report);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epoch, report);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReportSnapshot [epoch=%d, report=%s]", epoch, report);
+    }
+}
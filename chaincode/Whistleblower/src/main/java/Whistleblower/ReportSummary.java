@@ -0,0 +1,139 @@
+package Whistleblower;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+import java.util.Objects;
+
+// Compact copy of the fields shown in and used to filter report lists, stored alongside each report so that
+// list queries do not need to read chat history, voice notes or attachments
+@DataType
+public class ReportSummary {
+    @Property
+    private final String id;
+
+    @Property
+    private final String title;
+
+    @Property
+    private final String date;
+
+    @Property
+    private final String status;
+
+    @Property
+    private final int criticality;
+
+    @Property
+    private final String department;
+
+    @Property
+    private final String location;
+
+    @Property
+    private final String assignedTo;
+
+    @Property
+    private final String assignedToName;
+
+    @Property
+    private final boolean isReopened;
+
+    @Property
+    private final boolean permanentlyClosed;
+
+    @Property
+    private final String statusDate; // yyyyMMdd day the report entered its current status
+
+    public ReportSummary(
+            @JsonProperty("id") final String id,
+            @JsonProperty("title") final String title,
+            @JsonProperty("date") final String date,
+            @JsonProperty("status") final String status,
+            @JsonProperty("criticality") final int criticality,
+            @JsonProperty("department") final String department,
+            @JsonProperty("location") final String location,
+            @JsonProperty("assignedTo") final String assignedTo,
+            @JsonProperty("assignedToName") final String assignedToName,
+            @JsonProperty("isReopened") final boolean isReopened,
+            @JsonProperty("permanentlyClosed") final boolean permanentlyClosed,
+            @JsonProperty("statusDate") final String statusDate) {
+        this.id = id;
+        this.title = title;
+        this.date = date;
+        this.status = status;
+        this.criticality = criticality;
+        this.department = department;
+        this.location = location;
+        this.assignedTo = assignedTo;
+        this.assignedToName = assignedToName;
+        this.isReopened = isReopened;
+        this.permanentlyClosed = permanentlyClosed;
+        this.statusDate = statusDate;
+    }
+
+    public static ReportSummary fromReport(final Whistleblower report) {
+        return fromReport(report, null);
+    }
+
+    public static ReportSummary fromReport(final Whistleblower report, final String statusDate) {
+        return new ReportSummary(
+            report.getId(),
+            report.getTitle(),
+            report.getDate(),
+            report.getStatus(),
+            report.getCriticality(),
+            report.getDepartment(),
+            report.getLocation(),
+            report.getAssignedTo(),
+            report.getAssignedToName(),
+            report.getIsReopened(),
+            report.getPermanentlyClosed(),
+            statusDate
+        );
+    }
+
+    // Getters
+    public String getId() { return id; }
+    public String getTitle() { return title; }
+    public String getDate() { return date; }
+    public String getStatus() { return status; }
+    public int getCriticality() { return criticality; }
+    public String getDepartment() { return department; }
+    public String getLocation() { return location; }
+    public String getAssignedTo() { return assignedTo; }
+    public String getAssignedToName() { return assignedToName; }
+    public boolean getIsReopened() { return isReopened; }
+    public boolean getPermanentlyClosed() { return permanentlyClosed; }
+    public String getStatusDate() { return statusDate; }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        ReportSummary other = (ReportSummary) obj;
+        return Objects.equals(id, other.id) &&
+               Objects.equals(title, other.title) &&
+               Objects.equals(date, other.date) &&
+               Objects.equals(status, other.status) &&
+               criticality == other.criticality &&
+               Objects.equals(department, other.department) &&
+               Objects.equals(location, other.location) &&
+               Objects.equals(assignedTo, other.assignedTo) &&
+               Objects.equals(assignedToName, other.assignedToName) &&
+               isReopened == other.isReopened &&
+               permanentlyClosed == other.permanentlyClosed &&
+               Objects.equals(statusDate, other.statusDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, date, status, criticality, department, location, assignedTo, assignedToName,
+                          isReopened, permanentlyClosed, statusDate);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReportSummary [id=%s, title=%s, date=%s, status=%s, criticality=%d, assignedTo=%s, statusDate=%s]",
+                           id, title, date, status, criticality, assignedTo, statusDate);
+    }
+}
@@ -0,0 +1,58 @@
+package Whistleblower;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Splits report text into the terms of the keyword index. Every endorsing peer must produce the same terms for the
+// same text, whatever its Java version, so only ASCII is interpreted: ASCII letters are lower cased, and any ASCII
+// character other than a letter or digit separates terms. Other characters are kept unchanged as part of a term,
+// rather than relying on the Unicode tables of the peer's JVM.
+public final class ReportTokenizer {
+    public static final int MIN_TERM_LENGTH = 2;
+    public static final int MAX_TERM_LENGTH = 40;
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+        "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "he", "in", "is", "it", "its",
+        "of", "on", "or", "she", "that", "the", "they", "this", "to", "was", "were", "will", "with"
+    ));
+
+    private ReportTokenizer() {
+    }
+
+    // Distinct terms in the order they first appear across the texts, up to maxTerms
+    public static List<String> tokenize(final int maxTerms, final String... texts) {
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+
+            for (int i = 0; i <= text.length() && terms.size() < maxTerms; i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                if (c >= 'A' && c <= 'Z') {
+                    term.append((char) (c + ('a' - 'A')));
+                } else if (c >= 0x80 || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                    term.append(c);
+                } else {
+                    addTerm(terms, term.toString());
+                    term.setLength(0);
+                }
+            }
+            term.setLength(0);
+        }
+
+        return new ArrayList<>(terms);
+    }
+
+    private static void addTerm(final Set<String> terms, final String term) {
+        // Terms longer than the limit are unlikely to be searched for, such as encoded data pasted into a report
+        if (term.length() >= MIN_TERM_LENGTH && term.length() <= MAX_TERM_LENGTH && !STOP_WORDS.contains(term)) {
+            terms.add(term);
+        }
+    }
+}
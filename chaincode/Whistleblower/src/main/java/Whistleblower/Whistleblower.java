@@ -8,6 +8,12 @@ import java.util.List;
 
 @DataType
 public class Whistleblower {
+    public static final String DOC_TYPE = "report";
+
+    // Tells report documents apart from summaries and index entries in CouchDB rich queries
+    @Property
+    private final String docType = DOC_TYPE;
+
     @Property
     private final String id;
 
@@ -163,6 +169,7 @@ public class Whistleblower {
     }
 
     // Getters
+    public String getDocType() { return docType; }
     public String getId() { return id; }
     public String getTitle() { return title; }
     public String getDescription() { return description; }
@@ -4,14 +4,40 @@ import org.hyperledger.fabric.contract.ContractInterface;
 import org.hyperledger.fabric.contract.annotation.Contract;
 import org.hyperledger.fabric.contract.annotation.Default;
 import org.hyperledger.fabric.contract.annotation.Info;
+import org.hyperledger.fabric.contract.annotation.Property;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
 import com.owlike.genson.Genson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Contract(
     name = "Whistleblower",
@@ -23,6 +49,59 @@ import java.util.HashMap;
 )
 @Default
 public class WhistleblowerContract implements ContractInterface {
+    private static final String SUMMARY_KEY_PREFIX = "summary";
+    private static final String REPORT_KEY_PREFIX = "report";
+    private static final String SNAPSHOT_KEY_PREFIX = "snapshot";
+    private static final String REPORT_VIEW_KEY_PREFIX = "reportView";
+    private static final String STATUS_DATE_KEY_PREFIX = "statusDate";
+    private static final String FACET_KEY_PREFIX = "facet";
+    private static final String TERM_KEY_PREFIX = "term";
+    private static final String ARCHIVE_KEY_PREFIX = "archive";
+    private static final String ARCHIVE_CHAT_KEY_PREFIX = "archiveChat";
+    private static final String FACET_DEPARTMENT = "department";
+    private static final String FACET_LOCATION = "location";
+    private static final String FACET_CRITICALITY = "criticality";
+    private static final List<String> FACETS = Arrays.asList(FACET_DEPARTMENT, FACET_LOCATION, FACET_CRITICALITY);
+    private static final String FIELD_STATUS = "status";
+    private static final String FIELD_ASSIGNED_TO = "assignedTo";
+    private static final List<String> FILTER_FIELDS = Arrays.asList(FIELD_STATUS, FIELD_ASSIGNED_TO, FACET_DEPARTMENT,
+            FACET_LOCATION, FACET_CRITICALITY);
+    private static final String EVENT_KEY_PREFIX = "evt";
+    private static final String SEQUENCE_KEY_PREFIX = "sequence";
+    private static final String CONFIG_KEY_PREFIX = "config";
+    private static final String STORAGE_ENGINE_KEY = "storageEngine";
+    private static final String KEYWORD_INDEX_KEY = "keywordIndex";
+    private static final String ARCHIVE_COMPRESSION_KEY = "archiveCompression";
+    private static final String STATUS_COMPLETED = "completed";
+    private static final List<String> REPORT_STATUSES = Arrays.asList("pending", "under_investigation",
+            "investigation_complete", STATUS_COMPLETED);
+    private static final String STORAGE_ENGINE_DOCUMENT = "document";
+    private static final String STORAGE_ENGINE_EVENTS = "events";
+    private static final int SNAPSHOT_INTERVAL = 16;
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_WINDOW_DAYS = 366;
+    private static final int SELECTIVITY_PROBE_SIZE = 100;
+    private static final String BOOKMARK_SEPARATOR = "|";
+    private static final int MAX_POSTINGS_PER_REPORT = 64;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final String SEARCH_MODE_AND = "AND";
+    private static final String SEARCH_MODE_OR = "OR";
+    private static final String RESPONSE_MODE_KEY = "responseMode";
+    private static final String RESPONSE_MODE_FULL = "full";
+    private static final String RESPONSE_MODE_ACK = "ack";
+
+    // Field names that queries may project, taken from the stored report properties
+    private static final Set<String> REPORT_FIELDS = new HashSet<>();
+
+    static {
+        for (Field field : Whistleblower.class.getDeclaredFields()) {
+            if (field.isAnnotationPresent(Property.class)) {
+                REPORT_FIELDS.add(field.getName());
+            }
+        }
+    }
+
     private final Genson genson = new Genson();
 
     private enum WhistleblowerErrors {
@@ -33,7 +112,8 @@ public class WhistleblowerContract implements ContractInterface {
         INVESTIGATOR_NOT_ASSIGNED,
         INVESTIGATOR_INELIGIBLE,
         ALREADY_PERMANENTLY_CLOSED,
-        NO_REWARD_WALLET
+        NO_REWARD_WALLET,
+        INVALID_ARGUMENT
     }
 
     @Transaction()
@@ -78,13 +158,12 @@ public class WhistleblowerContract implements ContractInterface {
             "" // no voice to text
         );
 
-        String reportState = genson.serialize(report);
-        stub.putStringState("1", reportState);
+        createReport(stub, report);
         System.out.println("Ledger Initialized with default whistleblower report.");
     }
 
     @Transaction()
-    public Whistleblower submitReport(
+    public String submitReport(
             final Context ctx,
             final String id,
             final String title,
@@ -105,9 +184,8 @@ public class WhistleblowerContract implements ContractInterface {
             final String attachmentsJson) {
 
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(id);
 
-        if (!reportState.isEmpty()) {
+        if (reportExists(stub, id)) {
             String errorMessage = String.format("Report with ID %s already exists", id);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_ALREADY_EXISTS.toString());
@@ -160,42 +238,107 @@ public class WhistleblowerContract implements ContractInterface {
             voiceToText // voice to text
         );
 
-        reportState = genson.serialize(report);
-        stub.putStringState(id, reportState);
+        StoredReport stored = createReport(stub, report);
+        if (Boolean.parseBoolean(stub.getStringState(stub.createCompositeKey(CONFIG_KEY_PREFIX, KEYWORD_INDEX_KEY).toString()))) {
+            putPostings(stub, report);
+        }
         System.out.println("Report submitted: " + report.toString());
 
-        return report;
+        return respond(stub, stored);
     }
 
     @Transaction()
     public Whistleblower queryReportById(final Context ctx, final String id) {
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(id);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", id);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
 
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
+        Whistleblower report = readReport(stub, id).report;
         System.out.println("Report retrieved: " + report.toString());
 
         return report;
     }
 
     @Transaction()
-    public Whistleblower assignReport(final Context ctx, final String id, final String investigatorId, final String investigatorName) {
+    public String queryReportsByIds(final Context ctx, final String idsJson, final String fieldsJson) {
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(id);
 
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", id);
+        String[] ids = parseStringArray(idsJson, "report IDs");
+        if (ids.length > MAX_BATCH_SIZE) {
+            String errorMessage = String.format("At most %d report IDs may be requested at once", MAX_BATCH_SIZE);
             System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+        List<String> fields = fieldsJson == null || fieldsJson.isEmpty()
+                ? new ArrayList<>()
+                : Arrays.asList(parseStringArray(fieldsJson, "field names"));
+
+        for (String field : fields) {
+            if (!REPORT_FIELDS.contains(field)) {
+                String errorMessage = String.format("Unknown report field %s", field);
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+            }
+        }
+
+        // Each distinct report is read once, even if its ID is requested more than once
+        Map<String, String> reportStates = new HashMap<>();
+        List<String> reports = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String id : ids) {
+            String reportState = reportStates.get(id);
+            if (reportState == null) {
+                reportState = id == null || id.isEmpty() ? "" : getReportState(stub, id);
+                reportStates.put(id, reportState);
+            }
+
+            if (reportState.isEmpty()) {
+                missing.add(id);
+            } else if (fields.isEmpty()) {
+                // Document reports are already JSON, so return them without decoding
+                reports.add(reportState);
+            } else {
+                reports.add(genson.serialize(projectFields(reportState, fields)));
+            }
+        }
+
+        System.out.println(String.format("Reports retrieved: %d found, %d missing", reports.size(), missing.size()));
+
+        return "{\"reports\":[" + String.join(",", reports) + "],\"missing\":" + genson.serialize(missing) + "}";
+    }
+
+    private String[] parseStringArray(final String json, final String description) {
+        try {
+            String[] values = genson.deserialize(json, String[].class);
+            if (values != null) {
+                return values;
+            }
+        } catch (Exception e) {
+            System.out.println("Error parsing " + description + ": " + e.getMessage());
         }
 
-        Whistleblower oldReport = genson.deserialize(reportState, Whistleblower.class);
+        String errorMessage = String.format("Expected a JSON array of %s", description);
+        throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> projectFields(final String reportState, final List<String> fields) {
+        Map<String, Object> report = genson.deserialize(reportState, Map.class);
+        Map<String, Object> projection = new LinkedHashMap<>();
+
+        for (String field : fields) {
+            if (report.containsKey(field)) {
+                projection.put(field, report.get(field));
+            }
+        }
+
+        return projection;
+    }
+
+    @Transaction()
+    public String assignReport(final Context ctx, final String id, final String investigatorId, final String investigatorName) {
+        ChaincodeStub stub = ctx.getStub();
+        StoredReport stored = readReport(stub, id);
+        Whistleblower oldReport = stored.report;
 
         // Check if investigator is eligible (not in previousInvestigators list)
         if (oldReport.getIsReopened() && oldReport.getPreviousInvestigators().contains(investigatorId)) {
@@ -204,118 +347,41 @@ public class WhistleblowerContract implements ContractInterface {
             throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVESTIGATOR_INELIGIBLE.toString());
         }
 
-        // Create a new report with updated assignment and status
-        Whistleblower newReport = new Whistleblower(
-            oldReport.getId(),
-            oldReport.getTitle(),
-            oldReport.getDescription(),
-            oldReport.getSubmitter(),
-            oldReport.getDate(),
-            "under_investigation", // Automatically change status to under investigation
-            oldReport.getCriticality(),
-            oldReport.getRewardWallet(),
-            investigatorId, // Assign the investigator
-            investigatorName, // Assign investigator name
-            oldReport.getChatHistory(),
-            oldReport.getVoiceNote(),
-            oldReport.getHasVoiceNote(),
-            oldReport.getDepartment(),
-            oldReport.getLocation(),
-            oldReport.getMonetaryValue(),
-            oldReport.getRelationship(),
-            oldReport.getEncounter(),
-            oldReport.getAuthoritiesAware(),
-            oldReport.getManagementSummary(),
-            oldReport.getPreviousInvestigators(),
-            oldReport.getReopenReasons(),
-            oldReport.getIsReopened(),
-            oldReport.getClosureSummary(),
-            oldReport.getPermanentlyClosed(),
-            oldReport.getRewardNote(),
-            oldReport.getRewardAmount(),
-            oldReport.getRewardProcessed(),
-            oldReport.getAttachments(),
-            oldReport.getVoiceToText()
-        );
-
-        String newReportState = genson.serialize(newReport);
-        stub.putStringState(id, newReportState);
-        System.out.println("Report assigned to investigator: " + newReport.toString());
+        // Assigning the investigator automatically changes the status to under investigation
+        StoredReport updated = saveReport(stub, stored, ReportEvent.assigned(investigatorId, investigatorName));
+        System.out.println("Report assigned to investigator: " + updated.report.toString());
 
-        return newReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower updateReportStatus(final Context ctx, final String id, final String newStatus) {
-        ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(id);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", id);
+    public String updateReportStatus(final Context ctx, final String id, final String newStatus) {
+        // Queries by status date read each known status, so reports may only be given one of them
+        if (!REPORT_STATUSES.contains(newStatus)) {
+            String errorMessage = String.format("Status %s is not one of %s", newStatus, REPORT_STATUSES);
             System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_STATUS_CHANGE.toString());
         }
 
-        Whistleblower oldReport = genson.deserialize(reportState, Whistleblower.class);
-
-        // Create a new report with updated status
-        Whistleblower newReport = new Whistleblower(
-            oldReport.getId(),
-            oldReport.getTitle(),
-            oldReport.getDescription(),
-            oldReport.getSubmitter(),
-            oldReport.getDate(),
-            newStatus,
-            oldReport.getCriticality(),
-            oldReport.getRewardWallet(),
-            oldReport.getAssignedTo(),
-            oldReport.getAssignedToName(),
-            oldReport.getChatHistory(),
-            oldReport.getVoiceNote(),
-            oldReport.getHasVoiceNote(),
-            oldReport.getDepartment(),
-            oldReport.getLocation(),
-            oldReport.getMonetaryValue(),
-            oldReport.getRelationship(),
-            oldReport.getEncounter(),
-            oldReport.getAuthoritiesAware(),
-            oldReport.getManagementSummary(),
-            oldReport.getPreviousInvestigators(),
-            oldReport.getReopenReasons(),
-            oldReport.getIsReopened(),
-            oldReport.getClosureSummary(),
-            oldReport.getPermanentlyClosed(),
-            oldReport.getRewardNote(),
-            oldReport.getRewardAmount(),
-            oldReport.getRewardProcessed(),
-            oldReport.getAttachments(),
-            oldReport.getVoiceToText()
-        );
+        ChaincodeStub stub = ctx.getStub();
+        StoredReport stored = readReport(stub, id);
 
-        String newReportState = genson.serialize(newReport);
-        stub.putStringState(id, newReportState);
-        System.out.println("Report status updated: " + newReport.toString());
+        StoredReport updated = saveReport(stub, stored, ReportEvent.statusChanged(newStatus));
+        System.out.println("Report status updated: " + updated.report.toString());
 
-        return newReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower addManagementSummary(
+    public String addManagementSummary(
             final Context ctx,
             final String reportId,
             final String investigatorId,
             final String summary) {
 
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", reportId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
-
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
+        StoredReport stored = readReport(stub, reportId);
+        Whistleblower report = stored.report;
 
         // Verify that the investigator is assigned to this report
         if (!report.getAssignedTo().equals(investigatorId)) {
@@ -324,63 +390,21 @@ public class WhistleblowerContract implements ContractInterface {
             throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVESTIGATOR_NOT_ASSIGNED.toString());
         }
 
-        // Create an updated report with the management summary
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            report.getStatus(),
-            report.getCriticality(),
-            report.getRewardWallet(),
-            report.getAssignedTo(),
-            report.getAssignedToName(),
-            report.getChatHistory(),
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            summary,
-            report.getPreviousInvestigators(),
-            report.getReopenReasons(),
-            report.getIsReopened(),
-            report.getClosureSummary(),
-            report.getPermanentlyClosed(),
-            report.getRewardNote(),
-            report.getRewardAmount(),
-            report.getRewardProcessed(),
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
-
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Management summary added to report: " + updatedReport.getId());
+        StoredReport updated = saveReport(stub, stored, ReportEvent.summaryAdded(investigatorId, summary));
+        System.out.println("Management summary added to report: " + updated.report.getId());
 
-        return updatedReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower reopenInvestigation(
+    public String reopenInvestigation(
             final Context ctx,
             final String reportId,
             final String reason) {
 
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", reportId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
-
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
+        StoredReport stored = readReport(stub, reportId);
+        Whistleblower report = stored.report;
 
         // Check that the report is in a completed state
         if (!report.getStatus().equals("investigation_complete") && !report.getStatus().equals("completed")) {
@@ -396,69 +420,18 @@ public class WhistleblowerContract implements ContractInterface {
             throw new ChaincodeException(errorMessage, WhistleblowerErrors.ALREADY_PERMANENTLY_CLOSED.toString());
         }
 
-        // Update the previous investigators list
-        List<String> previousInvestigators = new ArrayList<>(report.getPreviousInvestigators());
-        if (!previousInvestigators.contains(report.getAssignedTo())) {
-            previousInvestigators.add(report.getAssignedTo());
-        }
-
-        // Update the reopen reasons list
-        List<String> reopenReasons = new ArrayList<>(report.getReopenReasons());
-        reopenReasons.add(reason);
-
-        // Create an updated report with reopened status
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            "pending", // Change status back to pending
-            report.getCriticality(),
-            report.getRewardWallet(),
-            "", // Clear the assigned investigator
-            "", // Clear the assigned investigator name
-            report.getChatHistory(),
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            report.getManagementSummary(),
-            previousInvestigators,
-            reopenReasons,
-            true, // Mark as reopened
-            report.getClosureSummary(),
-            false, // Not permanently closed
-            report.getRewardNote(),
-            report.getRewardAmount(),
-            report.getRewardProcessed(),
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
-
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Investigation reopened for report: " + updatedReport.getId());
+        // Reopening moves the assigned investigator to the previous investigators and records the reason
+        StoredReport updated = saveReport(stub, stored, ReportEvent.reopened(reason));
+        System.out.println("Investigation reopened for report: " + updated.report.getId());
 
-        return updatedReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower completeInvestigation(final Context ctx, final String reportId, final String investigatorId) {
+    public String completeInvestigation(final Context ctx, final String reportId, final String investigatorId) {
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", reportId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
-
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
+        StoredReport stored = readReport(stub, reportId);
+        Whistleblower report = stored.report;
 
         // Verify that the investigator is assigned to this report
         if (!report.getAssignedTo().equals(investigatorId)) {
@@ -481,64 +454,22 @@ public class WhistleblowerContract implements ContractInterface {
             throw new ChaincodeException(errorMessage, "MANAGEMENT_SUMMARY_REQUIRED");
         }
 
-        // Create an updated report with completed status
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            "investigation_complete", // Changed from "completed" to "investigation_complete"
-            report.getCriticality(),
-            report.getRewardWallet(),
-            report.getAssignedTo(),
-            report.getAssignedToName(),
-            report.getChatHistory(),
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            report.getManagementSummary(),
-            report.getPreviousInvestigators(),
-            report.getReopenReasons(),
-            report.getIsReopened(),
-            report.getClosureSummary(),
-            report.getPermanentlyClosed(),
-            report.getRewardNote(),
-            report.getRewardAmount(),
-            report.getRewardProcessed(),
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
-
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Investigation completed for report: " + updatedReport.getId());
+        StoredReport updated = saveReport(stub, stored, ReportEvent.completed(investigatorId));
+        System.out.println("Investigation completed for report: " + updated.report.getId());
 
-        return updatedReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower permanentlyCloseCase(
+    public String permanentlyCloseCase(
             final Context ctx,
             final String reportId,
             final String managementId,
             final String closureSummary) {
 
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", reportId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
-
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
+        StoredReport stored = readReport(stub, reportId);
+        Whistleblower report = stored.report;
 
         // Check if report is already permanently closed
         if (report.getPermanentlyClosed()) {
@@ -554,49 +485,14 @@ public class WhistleblowerContract implements ContractInterface {
             throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_STATUS_CHANGE.toString());
         }
 
-        // Create an updated report with permanently closed status
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            "completed", // Change status to completed
-            report.getCriticality(),
-            report.getRewardWallet(),
-            report.getAssignedTo(),
-            report.getAssignedToName(),
-            report.getChatHistory(),
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            report.getManagementSummary(),
-            report.getPreviousInvestigators(),
-            report.getReopenReasons(),
-            report.getIsReopened(),
-            closureSummary,
-            true, // Mark as permanently closed
-            report.getRewardNote(),
-            report.getRewardAmount(),
-            report.getRewardProcessed(),
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
-
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Case permanently closed for report: " + updatedReport.getId());
+        StoredReport updated = saveReport(stub, stored, ReportEvent.closed(closureSummary));
+        System.out.println("Case permanently closed for report: " + updated.report.getId());
 
-        return updatedReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower processReward(
+    public String processReward(
             final Context ctx,
             final String reportId,
             final String managementId,
@@ -604,15 +500,8 @@ public class WhistleblowerContract implements ContractInterface {
             final double rewardAmount) {
 
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", reportId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
-
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
+        StoredReport stored = readReport(stub, reportId);
+        Whistleblower report = stored.report;
 
         // Check if report is permanently closed
         if (!report.getPermanentlyClosed()) {
@@ -635,49 +524,14 @@ public class WhistleblowerContract implements ContractInterface {
             throw new ChaincodeException(errorMessage, "REWARD_ALREADY_PROCESSED");
         }
 
-        // Create an updated report with reward information
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            report.getStatus(),
-            report.getCriticality(),
-            report.getRewardWallet(),
-            report.getAssignedTo(),
-            report.getAssignedToName(),
-            report.getChatHistory(),
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            report.getManagementSummary(),
-            report.getPreviousInvestigators(),
-            report.getReopenReasons(),
-            report.getIsReopened(),
-            report.getClosureSummary(),
-            report.getPermanentlyClosed(),
-            rewardNote,
-            rewardAmount,
-            true, // Mark reward as processed
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
-
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Reward processed for report: " + updatedReport.getId());
+        StoredReport updated = saveReport(stub, stored, ReportEvent.rewarded(rewardNote, rewardAmount));
+        System.out.println("Reward processed for report: " + updated.report.getId());
 
-        return updatedReport;
+        return respond(stub, updated);
     }
 
     @Transaction()
-    public Whistleblower addChatMessage(
+    public String addChatMessage(
             final Context ctx,
             final String reportId,
             final String sender,
@@ -686,19 +540,7 @@ public class WhistleblowerContract implements ContractInterface {
             final String attachmentJson) {
 
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
-
-        if (reportState.isEmpty()) {
-            String errorMessage = String.format("Report with ID %s does not exist", reportId);
-            System.out.println(errorMessage);
-            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
-        }
-
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
 
-        // Add a new chat message
-        List<ChatMessage> chatHistory = new ArrayList<>(report.getChatHistory());
-        
         // Process attachment if provided
         FileAttachment attachment = null;
         boolean hasAttachment = false;
@@ -713,151 +555,107 @@ public class WhistleblowerContract implements ContractInterface {
         }
         
         ChatMessage newMessage = new ChatMessage(sender, content, timestamp, false, attachment, hasAttachment);
-        chatHistory.add(newMessage);
-
-        // Create an updated report with the new chat message
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            report.getStatus(),
-            report.getCriticality(),
-            report.getRewardWallet(),
-            report.getAssignedTo(),
-            report.getAssignedToName(),
-            chatHistory,
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            report.getManagementSummary(),
-            report.getPreviousInvestigators(),
-            report.getReopenReasons(),
-            report.getIsReopened(),
-            report.getClosureSummary(),
-            report.getPermanentlyClosed(),
-            report.getRewardNote(),
-            report.getRewardAmount(),
-            report.getRewardProcessed(),
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
 
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Chat message added to report: " + updatedReport.getId());
+        String response = recordEvent(stub, reportId, ReportEvent.chatMessage(newMessage));
+        System.out.println("Chat message added to report: " + reportId);
 
-        return updatedReport;
+        return response;
     }
 
     @Transaction()
-    public Whistleblower markChatMessagesAsRead(final Context ctx, final String reportId, final String reader) {
+    public String markChatMessagesAsRead(final Context ctx, final String reportId, final String reader) {
         ChaincodeStub stub = ctx.getStub();
-        String reportState = stub.getStringState(reportId);
 
-        if (reportState.isEmpty()) {
+        // Messages not sent by the reader are marked as read. The change is validated against the report's events,
+        // and covers only the messages in the events it read, so messages appended later are left unread.
+        StoredReport stored = readReport(stub, reportId);
+        String response = respond(stub, saveReport(stub, stored, ReportEvent.messagesRead(reader, stored.lastSequence)));
+        System.out.println("Chat messages marked as read in report: " + reportId);
+
+        return response;
+    }
+
+    @Transaction()
+    public String queryReportHistory(final Context ctx, final String reportId) {
+        ChaincodeStub stub = ctx.getStub();
+
+        // Archived reports keep their events, so their history can still be read
+        if (!reportExists(stub, reportId)) {
             String errorMessage = String.format("Report with ID %s does not exist", reportId);
             System.out.println(errorMessage);
             throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
         }
 
-        Whistleblower report = genson.deserialize(reportState, Whistleblower.class);
-
-        // Mark messages as read
-        List<ChatMessage> updatedChatHistory = new ArrayList<>();
-
-        for (ChatMessage msg : report.getChatHistory()) {
-            // Mark message as read if it's not from the reader
-            boolean isRead = msg.getIsRead() || !msg.getSender().equals(reader);
-
-            ChatMessage updatedMsg = new ChatMessage(
-                msg.getSender(),
-                msg.getContent(),
-                msg.getTimestamp(),
-                isRead,
-                msg.getAttachment(),
-                msg.getHasAttachment()
-            );
-
-            updatedChatHistory.add(updatedMsg);
-        }
-
-        // Create an updated report with the messages marked as read
-        Whistleblower updatedReport = new Whistleblower(
-            report.getId(),
-            report.getTitle(),
-            report.getDescription(),
-            report.getSubmitter(),
-            report.getDate(),
-            report.getStatus(),
-            report.getCriticality(),
-            report.getRewardWallet(),
-            report.getAssignedTo(),
-            report.getAssignedToName(),
-            updatedChatHistory,
-            report.getVoiceNote(),
-            report.getHasVoiceNote(),
-            report.getDepartment(),
-            report.getLocation(),
-            report.getMonetaryValue(),
-            report.getRelationship(),
-            report.getEncounter(),
-            report.getAuthoritiesAware(),
-            report.getManagementSummary(),
-            report.getPreviousInvestigators(),
-            report.getReopenReasons(),
-            report.getIsReopened(),
-            report.getClosureSummary(),
-            report.getPermanentlyClosed(),
-            report.getRewardNote(),
-            report.getRewardAmount(),
-            report.getRewardProcessed(),
-            report.getAttachments(),
-            report.getVoiceToText()
-        );
+        // Events from every epoch, in the order they were applied. Reports stored as documents have no events.
+        List<ReportEvent> events = new ArrayList<>();
+        stub.getStateByPartialCompositeKey(EVENT_KEY_PREFIX, reportId).forEach(queryResult -> {
+            events.add(genson.deserialize(queryResult.getStringValue(), ReportEvent.class));
+        });
+
+        return genson.serialize(events);
+    }
+
+    @Transaction()
+    public void setStorageEngine(final Context ctx, final String engine) {
+        if (!STORAGE_ENGINE_DOCUMENT.equals(engine) && !STORAGE_ENGINE_EVENTS.equals(engine)) {
+            String errorMessage = String.format("Unsupported storage engine %s, expected %s or %s", engine, STORAGE_ENGINE_DOCUMENT, STORAGE_ENGINE_EVENTS);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+        stub.putStringState(stub.createCompositeKey(CONFIG_KEY_PREFIX, STORAGE_ENGINE_KEY).toString(), engine);
+        System.out.println("Storage engine for new reports set to " + engine);
+    }
+
+    // Turns the keyword index on or off for reports submitted from now on. Reports submitted while it is off are not
+    // found by keyword searches.
+    @Transaction()
+    public void setKeywordIndex(final Context ctx, final boolean enabled) {
+        ChaincodeStub stub = ctx.getStub();
+        stub.putStringState(stub.createCompositeKey(CONFIG_KEY_PREFIX, KEYWORD_INDEX_KEY).toString(), String.valueOf(enabled));
+        System.out.println("Keyword index for new reports " + (enabled ? "enabled" : "disabled"));
+    }
+
+    // Turns gzip compression of archived reports on or off. Compressed archives are only written identically by
+    // endorsing peers that run the same chaincode runtime, since the compressed bytes depend on its zlib version.
+    @Transaction()
+    public void setArchiveCompression(final Context ctx, final boolean enabled) {
+        ChaincodeStub stub = ctx.getStub();
+        stub.putStringState(stub.createCompositeKey(CONFIG_KEY_PREFIX, ARCHIVE_COMPRESSION_KEY).toString(), String.valueOf(enabled));
+        System.out.println("Archive compression " + (enabled ? "enabled" : "disabled"));
+    }
 
-        String updatedReportState = genson.serialize(updatedReport);
-        stub.putStringState(reportId, updatedReportState);
-        System.out.println("Chat messages marked as read in report: " + updatedReport.getId());
+    // Writes a snapshot of an event-sourced report, so that reads stop folding the events appended since the
+    // previous snapshot. Snapshots are written automatically by changes that read the report, but changes appended
+    // without reading the report (chat messages with responseMode=ack) never trigger one.
+    @Transaction()
+    public void compactReport(final Context ctx, final String reportId) {
+        ChaincodeStub stub = ctx.getStub();
+        StoredReport stored = readReport(stub, reportId);
 
-        return updatedReport;
+        if (stored.snapshot != null && stored.tailEvents > 0) {
+            putSnapshot(stub, new ReportSnapshot(stored.snapshot.getEpoch() + 1, stored.report));
+            System.out.println("Report compacted: " + reportId);
+        }
     }
 
     @Transaction()
     public String getAllReports(final Context ctx) {
         ChaincodeStub stub = ctx.getStub();
-        return stub.getStateByRange("", "").toString();
+        return genson.serialize(getReportSummaries(stub));
     }
 
     @Transaction()
     public String getReportsByStatus(final Context ctx, final String status) {
         ChaincodeStub stub = ctx.getStub();
 
-        List<Whistleblower> filteredReports = new ArrayList<>();
-        Map<String, String> queryResults = new HashMap<>();
-
-        // Get all reports
-        stub.getStateByRange("", "").forEach(queryResult -> {
-            String key = queryResult.getKey();
-            String value = queryResult.getStringValue();
-            queryResults.put(key, value);
-        });
+        List<ReportSummary> filteredReports = new ArrayList<>();
 
         // Filter by status
-        for (Map.Entry<String, String> entry : queryResults.entrySet()) {
-            try {
-                Whistleblower report = genson.deserialize(entry.getValue(), Whistleblower.class);
-                if (report.getStatus().equals(status)) {
-                    filteredReports.add(report);
-                }
-            } catch (Exception e) {
-                System.out.println("Error deserializing report: " + e.getMessage());
+        for (ReportSummary summary : getReportSummaries(stub)) {
+            if (summary.getStatus().equals(status)) {
+                filteredReports.add(summary);
             }
         }
 
@@ -871,25 +669,12 @@ public class WhistleblowerContract implements ContractInterface {
     public String getReportsByInvestigator(final Context ctx, final String investigatorId) {
         ChaincodeStub stub = ctx.getStub();
 
-        List<Whistleblower> filteredReports = new ArrayList<>();
-        Map<String, String> queryResults = new HashMap<>();
-
-        // Get all reports
-        stub.getStateByRange("", "").forEach(queryResult -> {
-            String key = queryResult.getKey();
-            String value = queryResult.getStringValue();
-            queryResults.put(key, value);
-        });
+        List<ReportSummary> filteredReports = new ArrayList<>();
 
         // Filter by investigator
-        for (Map.Entry<String, String> entry : queryResults.entrySet()) {
-            try {
-                Whistleblower report = genson.deserialize(entry.getValue(), Whistleblower.class);
-                if (report.getAssignedTo().equals(investigatorId)) {
-                    filteredReports.add(report);
-                }
-            } catch (Exception e) {
-                System.out.println("Error deserializing report: " + e.getMessage());
+        for (ReportSummary summary : getReportSummaries(stub)) {
+            if (investigatorId.equals(summary.getAssignedTo())) {
+                filteredReports.add(summary);
             }
         }
 
@@ -900,25 +685,12 @@ public class WhistleblowerContract implements ContractInterface {
     public String getUnassignedReports(final Context ctx) {
         ChaincodeStub stub = ctx.getStub();
 
-        List<Whistleblower> filteredReports = new ArrayList<>();
-        Map<String, String> queryResults = new HashMap<>();
-
-        // Get all reports
-        stub.getStateByRange("", "").forEach(queryResult -> {
-            String key = queryResult.getKey();
-            String value = queryResult.getStringValue();
-            queryResults.put(key, value);
-        });
+        List<ReportSummary> filteredReports = new ArrayList<>();
 
         // Filter unassigned reports
-        for (Map.Entry<String, String> entry : queryResults.entrySet()) {
-            try {
-                Whistleblower report = genson.deserialize(entry.getValue(), Whistleblower.class);
-                if (report.getAssignedTo() == null || report.getAssignedTo().isEmpty()) {
-                    filteredReports.add(report);
-                }
-            } catch (Exception e) {
-                System.out.println("Error deserializing report: " + e.getMessage());
+        for (ReportSummary summary : getReportSummaries(stub)) {
+            if (summary.getAssignedTo() == null || summary.getAssignedTo().isEmpty()) {
+                filteredReports.add(summary);
             }
         }
 
@@ -927,4 +699,1238 @@ public class WhistleblowerContract implements ContractInterface {
 
         return genson.serialize(filteredReports);
     }
+
+    // Reports that entered the status more than olderThan days before the transaction date, oldest first. Returns
+    // {"reports": [...], "bookmark": "..."}; pass the bookmark back to read the next page, until it is empty.
+    @Transaction()
+    public String getReportsAging(final Context ctx, final String status, final int olderThan, final int pageSize,
+            final String bookmark) {
+        if (olderThan < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            String errorMessage = String.format("Age must not be negative and page size must be between 1 and %d",
+                    MAX_PAGE_SIZE);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+
+        String cutoff = transactionDay(stub).minusDays(olderThan).format(DateTimeFormatter.BASIC_ISO_DATE);
+
+        List<ReportSummary> reports = new ArrayList<>();
+        String nextBookmark = "";
+
+        // Index entries for the status sort by date, so the page stops at the first report that is not old enough
+        CompositeKey statusKey = stub.createCompositeKey(STATUS_DATE_KEY_PREFIX, status);
+        try (QueryResultsIteratorWithMetadata<KeyValue> queryResults =
+                stub.getStateByPartialCompositeKeyWithPagination(statusKey, pageSize, bookmark)) {
+            boolean reachedCutoff = false;
+            for (KeyValue queryResult : queryResults) {
+                ReportSummary summary = genson.deserialize(queryResult.getStringValue(), ReportSummary.class);
+                if (summary.getStatusDate().compareTo(cutoff) >= 0) {
+                    reachedCutoff = true;
+                    break;
+                }
+                reports.add(summary);
+            }
+
+            if (!reachedCutoff && queryResults.getMetadata().getFetchedRecordsCount() == pageSize) {
+                nextBookmark = queryResults.getMetadata().getBookmark();
+            }
+        } catch (Exception e) {
+            throw new ChaincodeException("Error reading aging reports: " + e.getMessage());
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reports", reports);
+        result.put("bookmark", nextBookmark);
+        return genson.serialize(result);
+    }
+
+    // Reports that entered their current status between the from and to dates (yyyyMMdd, inclusive), oldest first
+    @Transaction()
+    public String getReportsInWindow(final Context ctx, final String from, final String to) {
+        LocalDate fromDate = parseStatusDate(from, "From date");
+        LocalDate toDate = parseStatusDate(to, "To date");
+        if (toDate.isBefore(fromDate) || fromDate.plusDays(MAX_WINDOW_DAYS).isBefore(toDate)) {
+            String errorMessage = String.format("Window must end after it starts and cover at most %d days",
+                    MAX_WINDOW_DAYS);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+
+        String fromAttribute = fromDate.format(DateTimeFormatter.BASIC_ISO_DATE);
+        String toAttribute = toDate.format(DateTimeFormatter.BASIC_ISO_DATE);
+
+        // Index entries for a status sort by date, so each status is read from the first entry on the from date, given
+        // as the bookmark, and stops at the first entry after the to date
+        List<ReportSummary> reports = new ArrayList<>();
+        for (String status : REPORT_STATUSES) {
+            CompositeKey statusKey = stub.createCompositeKey(STATUS_DATE_KEY_PREFIX, status);
+            String bookmark = stub.createCompositeKey(STATUS_DATE_KEY_PREFIX, status, fromAttribute).toString();
+            boolean pastWindow = false;
+            while (!pastWindow && !bookmark.isEmpty()) {
+                try (QueryResultsIteratorWithMetadata<KeyValue> queryResults =
+                        stub.getStateByPartialCompositeKeyWithPagination(statusKey, MAX_PAGE_SIZE, bookmark)) {
+                    for (KeyValue queryResult : queryResults) {
+                        ReportSummary summary = genson.deserialize(queryResult.getStringValue(), ReportSummary.class);
+                        if (summary.getStatusDate().compareTo(toAttribute) > 0) {
+                            pastWindow = true;
+                            break;
+                        }
+                        reports.add(summary);
+                    }
+
+                    bookmark = queryResults.getMetadata().getFetchedRecordsCount() == MAX_PAGE_SIZE
+                            ? queryResults.getMetadata().getBookmark()
+                            : "";
+                } catch (Exception e) {
+                    throw new ChaincodeException("Error reading reports in window: " + e.getMessage());
+                }
+            }
+        }
+
+        reports.sort((a, b) -> a.getStatusDate().compareTo(b.getStatusDate()));
+
+        return genson.serialize(reports);
+    }
+
+    // Finds reports matching every field in filterJson, for example {"department": "Finance", "criticality": 4}, on
+    // status, assignedTo, department, location and criticality. Returns {"reports": [...], "total": n, "facets": {...},
+    // "bookmark": "..."} where facets counts the department, location and criticality values over all matching
+    // reports, not only the page returned. Pass the bookmark back with the same filter to read the next page, until it
+    // is empty. Later pages stop reading at the end of the page, so only the first page has a total and facets.
+    @Transaction()
+    public String searchReports(final Context ctx, final String filterJson, final int pageSize, final String bookmark) {
+        validatePageSize(pageSize);
+
+        ChaincodeStub stub = ctx.getStub();
+        SearchResult found = findSummaries(stub, parseFilter(filterJson), pageSize, bookmark);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("reports", found.reports);
+        if (found.facets != null) {
+            result.put("total", found.total);
+            result.put("facets", found.facets);
+        }
+        result.put("bookmark", found.bookmark);
+        return genson.serialize(result);
+    }
+
+    // Finds report documents matching a CouchDB selector, for example {"status": "pending", "criticality": {"$gte": 4}},
+    // using the indexes in META-INF/statedb/couchdb/indexes. Returns {"reports": [...], "bookmark": "...", "source":
+    // "couchdb"}; pass the bookmark back to read the next page, until it is empty. Only report documents carrying the
+    // docType field match a selector, so run migrateReportKeys or rebuildReportSummaries after upgrading to add it to
+    // reports written before it existed. Event-sourced reports are matched through the copy of the report kept under
+    // reportView~<id>, and returned as folded from their events. On peers using LevelDB, which cannot run selectors,
+    // the selector may only give values for the fields searchReports accepts and is answered from the composite key
+    // indexes, with "source": "indexes". Bookmarks from one source cannot be used with the other.
+    @Transaction()
+    public String queryReportsRich(final Context ctx, final String selectorJson, final int pageSize, final String bookmark) {
+        validatePageSize(pageSize);
+
+        ChaincodeStub stub = ctx.getStub();
+
+        // Summaries and index entries share the report's field names, so only documents marked as reports match
+        Map<String, Object> selector = new LinkedHashMap<>(parseJsonObject(selectorJson, "selector"));
+        selector.put("docType", Whistleblower.DOC_TYPE);
+        Map<String, Object> query = new LinkedHashMap<>();
+        query.put("selector", selector);
+
+        List<String> reports = new ArrayList<>();
+        String nextBookmark = "";
+        boolean richQuerySupported = true;
+
+        try (QueryResultsIteratorWithMetadata<KeyValue> queryResults =
+                stub.getQueryResultWithPagination(genson.serialize(query), pageSize, bookmark)) {
+            String reportViewPrefix = stub.createCompositeKey(REPORT_VIEW_KEY_PREFIX).toString();
+            for (KeyValue queryResult : queryResults) {
+                if (queryResult.getKey().startsWith(reportViewPrefix)) {
+                    // The view may lack chat messages appended without reading the report, so the report is folded
+                    String id = stub.splitCompositeKey(queryResult.getKey()).getAttributes().get(0);
+                    reports.add(getReportState(stub, id));
+                } else {
+                    // CouchDB matched the document, so it is returned without decoding
+                    reports.add(queryResult.getStringValue());
+                }
+            }
+
+            if (queryResults.getMetadata().getFetchedRecordsCount() == pageSize) {
+                nextBookmark = queryResults.getMetadata().getBookmark();
+            }
+        } catch (ChaincodeException e) {
+            throw e;
+        } catch (Exception e) {
+            String message = String.valueOf(e.getMessage());
+            if (!message.toLowerCase(Locale.ROOT).contains("leveldb")) {
+                throw new ChaincodeException("Error querying reports: " + message);
+            }
+            richQuerySupported = false;
+        }
+
+        if (!richQuerySupported) {
+            SearchResult found = findSummaries(stub, parseFilter(selectorJson), pageSize, bookmark);
+            for (ReportSummary summary : found.reports) {
+                String reportState = getReportState(stub, summary.getId());
+                if (!reportState.isEmpty()) {
+                    reports.add(reportState);
+                }
+            }
+            nextBookmark = found.bookmark;
+        }
+
+        System.out.println(String.format("Reports queried: %d found%s", reports.size(),
+                richQuerySupported ? "" : " from composite key indexes"));
+
+        return "{\"reports\":[" + String.join(",", reports) + "],\"bookmark\":" + genson.serialize(nextBookmark)
+                + ",\"source\":\"" + (richQuerySupported ? "couchdb" : "indexes") + "\"}";
+    }
+
+    private static void validatePageSize(final int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            String errorMessage = String.format("Page size must be between 1 and %d", MAX_PAGE_SIZE);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+    }
+
+    // A page of summaries matching a filter, with the number of matches and their facet counts on the first page
+    private static final class SearchResult {
+        private final List<ReportSummary> reports = new ArrayList<>();
+        private Map<String, Map<String, Integer>> facets;
+        private int total;
+        private String bookmark = "";
+    }
+
+    private SearchResult findSummaries(final ChaincodeStub stub, final Map<String, String> filter, final int pageSize,
+            final String bookmark) {
+        // Drive the search from the index with the fewest entries for its value, counting at most a probe's worth of
+        // entries for each, and check the other fields on the summaries stored in that index's entries. Reports are
+        // not indexed by assignee, and an empty value matches reports that are not indexed by the field, so a search
+        // with neither reads every summary.
+        String drivingField = SUMMARY_KEY_PREFIX;
+        CompositeKey candidateKey = stub.createCompositeKey(SUMMARY_KEY_PREFIX);
+        String afterKey = "";
+        if (!bookmark.isEmpty()) {
+            // Later pages continue in the index the first page was read from, since each index sorts reports differently
+            int separator = bookmark.indexOf(BOOKMARK_SEPARATOR);
+            drivingField = separator < 0 ? "" : bookmark.substring(0, separator);
+            afterKey = bookmark.substring(separator + 1);
+            if (!drivingField.equals(SUMMARY_KEY_PREFIX)) {
+                String value = filter.get(drivingField);
+                candidateKey = value == null || value.isEmpty() || FIELD_ASSIGNED_TO.equals(drivingField)
+                        ? null
+                        : searchIndexKey(stub, drivingField, value);
+            }
+            if (candidateKey == null || !afterKey.startsWith(candidateKey.toString())) {
+                String errorMessage = "Bookmark does not belong to a search with this filter";
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+            }
+        } else {
+            int drivingCount = Integer.MAX_VALUE;
+            for (Map.Entry<String, String> predicate : filter.entrySet()) {
+                if (predicate.getValue().isEmpty() || FIELD_ASSIGNED_TO.equals(predicate.getKey())) {
+                    continue;
+                }
+
+                CompositeKey indexKey = searchIndexKey(stub, predicate.getKey(), predicate.getValue());
+                int count;
+                try (QueryResultsIteratorWithMetadata<KeyValue> probe =
+                        stub.getStateByPartialCompositeKeyWithPagination(indexKey, SELECTIVITY_PROBE_SIZE, "")) {
+                    count = probe.getMetadata().getFetchedRecordsCount();
+                } catch (Exception e) {
+                    throw new ChaincodeException("Error reading report index: " + e.getMessage());
+                }
+
+                if (count < drivingCount) {
+                    drivingField = predicate.getKey();
+                    candidateKey = indexKey;
+                    drivingCount = count;
+                }
+            }
+        }
+
+        // The first page counts every match, while later pages skip the keys already returned without decoding them
+        // and stop at the first match after the page
+        SearchResult result = new SearchResult();
+        if (bookmark.isEmpty()) {
+            result.facets = new LinkedHashMap<>();
+            for (String facet : FACETS) {
+                result.facets.put(facet, new TreeMap<>());
+            }
+        }
+        String lastKey = "";
+
+        try (QueryResultsIterator<KeyValue> candidates = stub.getStateByPartialCompositeKey(candidateKey)) {
+            for (KeyValue candidate : candidates) {
+                if (candidate.getKey().compareTo(afterKey) <= 0) {
+                    continue;
+                }
+
+                ReportSummary summary = genson.deserialize(candidate.getStringValue(), ReportSummary.class);
+                if (!matchesFilter(summary, filter)) {
+                    continue;
+                }
+
+                if (result.facets != null) {
+                    result.total++;
+                    for (String facet : FACETS) {
+                        result.facets.get(facet).merge(summaryValue(summary, facet), 1, Integer::sum);
+                    }
+                }
+
+                // Candidate keys are unique and sorted, so the bookmark names the driving index and the key of the
+                // last report returned
+                if (!lastKey.isEmpty()) {
+                    result.bookmark = drivingField + BOOKMARK_SEPARATOR + lastKey;
+                    if (result.facets == null) {
+                        break;
+                    }
+                } else {
+                    result.reports.add(summary);
+                    if (result.reports.size() == pageSize) {
+                        lastKey = candidate.getKey();
+                    }
+                }
+            }
+        } catch (Exception e) {
+            throw new ChaincodeException("Error searching reports: " + e.getMessage());
+        }
+
+        return result;
+    }
+
+    // Status is searched through the statusDate index, and the facet fields through their facet indexes
+    private static CompositeKey searchIndexKey(final ChaincodeStub stub, final String field, final String value) {
+        return FIELD_STATUS.equals(field)
+                ? stub.createCompositeKey(STATUS_DATE_KEY_PREFIX, value)
+                : stub.createCompositeKey(FACET_KEY_PREFIX, field, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseJsonObject(final String json, final String description) {
+        Map<String, Object> values;
+        try {
+            values = json == null || json.isEmpty() ? new HashMap<>() : genson.deserialize(json, Map.class);
+        } catch (Exception e) {
+            System.out.println("Error parsing " + description + ": " + e.getMessage());
+            values = null;
+        }
+        if (values == null) {
+            String errorMessage = String.format("Expected a JSON object for the %s", description);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+        return values;
+    }
+
+    private Map<String, String> parseFilter(final String filterJson) {
+        Map<String, String> filter = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : parseJsonObject(filterJson, "filter").entrySet()) {
+            Object value = entry.getValue();
+            if (!FILTER_FIELDS.contains(entry.getKey()) || value == null || value instanceof Map || value instanceof List) {
+                String errorMessage = String.format("Reports cannot be searched by %s", entry.getKey());
+                System.out.println(errorMessage);
+                throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+            }
+
+            // Criticality may be given as a JSON number as well as a string
+            filter.put(entry.getKey(), value instanceof Number ? String.valueOf(((Number) value).intValue()) : value.toString());
+        }
+        return filter;
+    }
+
+    private static boolean matchesFilter(final ReportSummary summary, final Map<String, String> filter) {
+        for (Map.Entry<String, String> predicate : filter.entrySet()) {
+            if (!predicate.getValue().equals(summaryValue(summary, predicate.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Finds reports whose title, description or voice to text contain all (mode AND) or any (mode OR) of the terms,
+    // in report ID order, up to limit reports. The terms are split the same way as the report text.
+    @Transaction()
+    public String searchReportsByKeywords(final Context ctx, final String terms, final String mode, final int limit) {
+        List<String> queryTerms = ReportTokenizer.tokenize(MAX_QUERY_TERMS, terms);
+        boolean matchAll = SEARCH_MODE_AND.equalsIgnoreCase(mode);
+        if (queryTerms.isEmpty() || !(matchAll || SEARCH_MODE_OR.equalsIgnoreCase(mode)) || limit < 1 || limit > MAX_PAGE_SIZE) {
+            String errorMessage = String.format("Expected search terms, mode %s or %s, and a limit between 1 and %d",
+                    SEARCH_MODE_AND, SEARCH_MODE_OR, MAX_PAGE_SIZE);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+
+        List<PostingList> postings = new ArrayList<>();
+        List<String> reportIds = new ArrayList<>();
+        try {
+            for (String term : queryTerms) {
+                postings.add(new PostingList(stub, term));
+            }
+
+            // Posting lists are sorted by report ID, so they are merged a report at a time without buffering them
+            while (reportIds.size() < limit) {
+                String next = matchAll ? highestPosting(postings) : lowestPosting(postings);
+                if (next == null) {
+                    break;
+                }
+
+                if (matchAll) {
+                    // Catch every list up to the highest ID, which matches if all of them contain it
+                    boolean matches = true;
+                    for (PostingList posting : postings) {
+                        posting.skipTo(next);
+                        matches &= next.equals(posting.current);
+                    }
+                    if (!matches) {
+                        continue;
+                    }
+                }
+
+                reportIds.add(next);
+                for (PostingList posting : postings) {
+                    if (next.equals(posting.current)) {
+                        posting.advance();
+                    }
+                }
+            }
+        } finally {
+            for (PostingList posting : postings) {
+                posting.close();
+            }
+        }
+
+        List<ReportSummary> reports = new ArrayList<>();
+        for (String reportId : reportIds) {
+            String summaryState = stub.getStringState(stub.createCompositeKey(SUMMARY_KEY_PREFIX, reportId).toString());
+            if (!summaryState.isEmpty()) {
+                reports.add(genson.deserialize(summaryState, ReportSummary.class));
+            }
+        }
+
+        return genson.serialize(reports);
+    }
+
+    // Null once any list is exhausted, since no further report can contain every term
+    private static String highestPosting(final List<PostingList> postings) {
+        String highest = null;
+        for (PostingList posting : postings) {
+            if (posting.current == null) {
+                return null;
+            }
+            if (highest == null || posting.current.compareTo(highest) > 0) {
+                highest = posting.current;
+            }
+        }
+        return highest;
+    }
+
+    private static String lowestPosting(final List<PostingList> postings) {
+        String lowest = null;
+        for (PostingList posting : postings) {
+            if (posting.current != null && (lowest == null || posting.current.compareTo(lowest) < 0)) {
+                lowest = posting.current;
+            }
+        }
+        return lowest;
+    }
+
+    // Reads the term~<term>~<id> postings for a term in report ID order
+    private static final class PostingList {
+        private final ChaincodeStub stub;
+        private final QueryResultsIterator<KeyValue> queryResults;
+        private final Iterator<KeyValue> iterator;
+        private String current;
+
+        private PostingList(final ChaincodeStub stub, final String term) {
+            this.stub = stub;
+            this.queryResults = stub.getStateByPartialCompositeKey(TERM_KEY_PREFIX, term);
+            this.iterator = queryResults.iterator();
+            advance();
+        }
+
+        private void advance() {
+            current = iterator.hasNext() ? stub.splitCompositeKey(iterator.next().getKey()).getAttributes().get(1) : null;
+        }
+
+        private void skipTo(final String reportId) {
+            while (current != null && current.compareTo(reportId) < 0) {
+                advance();
+            }
+        }
+
+        private void close() {
+            try {
+                queryResults.close();
+            } catch (Exception e) {
+                System.out.println("Error closing postings: " + e.getMessage());
+            }
+        }
+    }
+
+    // Writes summaries for reports stored before summaries were maintained, for example after a chaincode upgrade, adds
+    // the docType to report documents stored before they carried one, and writes the copy that rich queries select
+    // event-sourced reports by. Rebuilds up to batchSize reports: pass an empty bookmark to start, then the returned
+    // bookmark to continue, until the result reports done. Reports under report~ keys are visited first, then any not
+    // yet migrated from their bare IDs, then event-sourced reports, so the bookmark is the key of the next report.
+    @Transaction()
+    public String rebuildReportSummaries(final Context ctx, final String bookmark, final int batchSize) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            String errorMessage = String.format("Batch size must be between 1 and %d", MAX_BATCH_SIZE);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+        String reportPrefix = stub.createCompositeKey(REPORT_KEY_PREFIX).toString();
+        String snapshotPrefix = stub.createCompositeKey(SNAPSHOT_KEY_PREFIX).toString();
+
+        int rebuilt = 0;
+        int skipped = 0;
+        String nextBookmark = "";
+
+        // Paginated queries are only allowed in read-only transactions, so each batch closes its iterators early.
+        // Composite keys cannot start a range, so the report~ and snapshot~ keys before the bookmark are skipped
+        // without reading them as reports. The range over simple keys excludes composite keys.
+        boolean inSnapshots = bookmark.startsWith(snapshotPrefix);
+        boolean inBareKeys = !inSnapshots && !bookmark.isEmpty() && !bookmark.startsWith(reportPrefix);
+        try {
+            if (!inSnapshots && !inBareKeys) {
+                try (QueryResultsIterator<KeyValue> queryResults = stub.getStateByPartialCompositeKey(REPORT_KEY_PREFIX)) {
+                    for (KeyValue queryResult : queryResults) {
+                        if (queryResult.getKey().compareTo(bookmark) < 0) {
+                            continue;
+                        }
+                        if (rebuilt + skipped == batchSize) {
+                            nextBookmark = queryResult.getKey();
+                            break;
+                        }
+
+                        if (rebuildDocument(stub, queryResult)) {
+                            rebuilt++;
+                        } else {
+                            skipped++;
+                        }
+                    }
+                }
+            }
+
+            if (nextBookmark.isEmpty() && !inSnapshots) {
+                try (QueryResultsIterator<KeyValue> queryResults = stub.getStateByRange(inBareKeys ? bookmark : "", "")) {
+                    for (KeyValue queryResult : queryResults) {
+                        if (rebuilt + skipped == batchSize) {
+                            nextBookmark = queryResult.getKey();
+                            break;
+                        }
+
+                        if (rebuildDocument(stub, queryResult)) {
+                            rebuilt++;
+                        } else {
+                            skipped++;
+                        }
+                    }
+                }
+            }
+
+            if (nextBookmark.isEmpty()) {
+                try (QueryResultsIterator<KeyValue> snapshots = stub.getStateByPartialCompositeKey(SNAPSHOT_KEY_PREFIX)) {
+                    for (KeyValue snapshot : snapshots) {
+                        if (inSnapshots && snapshot.getKey().compareTo(bookmark) < 0) {
+                            continue;
+                        }
+                        if (rebuilt + skipped == batchSize) {
+                            nextBookmark = snapshot.getKey();
+                            break;
+                        }
+
+                        String id = stub.splitCompositeKey(snapshot.getKey()).getAttributes().get(0);
+                        Whistleblower report = findEventSourcedReport(stub, id).report;
+                        putSummary(stub, report);
+                        putReportView(stub, report);
+                        rebuilt++;
+                    }
+                }
+            }
+        } catch (ChaincodeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChaincodeException("Error reading reports to rebuild: " + e.getMessage());
+        }
+
+        System.out.println(String.format("Report summaries rebuilt: %d, skipped: %d", rebuilt, skipped));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rebuilt", rebuilt);
+        result.put("skipped", skipped);
+        result.put("bookmark", nextBookmark);
+        result.put("done", nextBookmark.isEmpty());
+        return genson.serialize(result);
+    }
+
+    // Writes the summary of a report document, returning false if the value is not a report
+    private boolean rebuildDocument(final ChaincodeStub stub, final KeyValue queryResult) {
+        Whistleblower report;
+        try {
+            report = genson.deserialize(queryResult.getStringValue(), Whistleblower.class);
+        } catch (Exception e) {
+            System.out.println("Skipping key " + queryResult.getKey() + ": " + e.getMessage());
+            return false;
+        }
+
+        if (!hasDocType(queryResult.getStringValue())) {
+            // Rewritten in place, so that rich queries find reports written before they carried a docType
+            stub.putStringState(queryResult.getKey(), genson.serialize(report));
+        }
+        putSummary(stub, report);
+        return true;
+    }
+
+    private static boolean hasDocType(final String reportState) {
+        return reportState.contains("\"docType\":\"" + Whistleblower.DOC_TYPE + "\"");
+    }
+
+    // Moves up to batchSize reports from their bare IDs to report~<id> keys. Pass an empty bookmark to start, then
+    // the returned bookmark to continue, until the result reports done. Each batch is a separate transaction, so a
+    // migration interrupted part way can be resumed, and reads find reports under either key in the meantime.
+    @Transaction()
+    public String migrateReportKeys(final Context ctx, final String bookmark, final int batchSize) {
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            String errorMessage = String.format("Batch size must be between 1 and %d", MAX_BATCH_SIZE);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+
+        int migrated = 0;
+        int skipped = 0;
+        String nextBookmark = "";
+
+        // Paginated range queries are only allowed in read-only transactions, so the batch is bounded by closing the
+        // iterator early. Bare report IDs are the only simple keys, and migrated keys are deleted, so the range only
+        // visits reports still to be migrated and keys that could not be migrated.
+        try (QueryResultsIterator<KeyValue> queryResults = stub.getStateByRange(bookmark, "")) {
+            for (KeyValue queryResult : queryResults) {
+                if (migrated + skipped == batchSize) {
+                    nextBookmark = queryResult.getKey();
+                    break;
+                }
+
+                String key = queryResult.getKey();
+                String reportState = queryResult.getStringValue();
+                Whistleblower report;
+                try {
+                    report = genson.deserialize(reportState, Whistleblower.class);
+                    if (!key.equals(report.getId())) {
+                        throw new IllegalStateException("Stored report ID " + report.getId() + " does not match its key");
+                    }
+                } catch (Exception e) {
+                    System.out.println("Skipping key " + key + ": " + e.getMessage());
+                    skipped++;
+                    continue;
+                }
+
+                // The stored JSON is moved as is, without encoding it again, unless it was written before reports
+                // carried the docType that rich queries select on
+                stub.putStringState(reportKey(stub, key), hasDocType(reportState) ? reportState : genson.serialize(report));
+                stub.delState(key);
+                migrated++;
+            }
+        } catch (ChaincodeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChaincodeException("Error reading reports to migrate: " + e.getMessage());
+        }
+
+        System.out.println(String.format("Report keys migrated: %d, skipped: %d", migrated, skipped));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("migrated", migrated);
+        result.put("skipped", skipped);
+        result.put("bookmark", nextBookmark);
+        result.put("done", nextBookmark.isEmpty());
+        return genson.serialize(result);
+    }
+
+    // Moves up to batchSize reports that were permanently closed more than olderThan days ago, and whose reward is
+    // processed or was never claimed, from the active keyspace to archive~<id>. They leave the report lists, searches
+    // and indexes, and are read with queryArchivedReport. Event-sourced reports keep their events, so their history
+    // is still available. Returns {"archived": n, "skipped": n, "bookmark": "...", "done": true|false}; pass the
+    // bookmark back to continue after the last report read, until done. Completed reports that cannot be archived yet
+    // are skipped, so a later run from an empty bookmark reads them again.
+    @Transaction()
+    public String archiveClosedReports(final Context ctx, final int olderThan, final String bookmark,
+            final int batchSize) {
+        if (olderThan < 0 || batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            String errorMessage = String.format("Age must not be negative and batch size must be between 1 and %d",
+                    MAX_BATCH_SIZE);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        ChaincodeStub stub = ctx.getStub();
+
+        CompositeKey completedKey = stub.createCompositeKey(STATUS_DATE_KEY_PREFIX, STATUS_COMPLETED);
+        if (!bookmark.isEmpty() && !bookmark.startsWith(completedKey.toString())) {
+            String errorMessage = "Bookmark does not belong to a previous archive batch";
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        String cutoff = transactionDay(stub).minusDays(olderThan).format(DateTimeFormatter.BASIC_ISO_DATE);
+        boolean compress = Boolean.parseBoolean(
+                stub.getStringState(stub.createCompositeKey(CONFIG_KEY_PREFIX, ARCHIVE_COMPRESSION_KEY).toString()));
+
+        int archived = 0;
+        int skipped = 0;
+        String lastKey = "";
+        String nextBookmark = "";
+
+        // Closed reports are found oldest first from the status date index, so only completed reports are read.
+        // Paginated queries are only allowed in read-only transactions, so entries up to the bookmark are passed over
+        // without reading their reports. Reports still waiting for their reward, or completed without being closed,
+        // are skipped, and at most MAX_BATCH_SIZE reports are read per transaction.
+        try (QueryResultsIterator<KeyValue> queryResults = stub.getStateByPartialCompositeKey(completedKey)) {
+            for (KeyValue queryResult : queryResults) {
+                if (queryResult.getKey().compareTo(bookmark) <= 0) {
+                    continue;
+                }
+                ReportSummary summary = genson.deserialize(queryResult.getStringValue(), ReportSummary.class);
+                if (summary.getStatusDate().compareTo(cutoff) >= 0) {
+                    break;
+                }
+                if (archived == batchSize || archived + skipped == MAX_BATCH_SIZE) {
+                    nextBookmark = lastKey;
+                    break;
+                }
+
+                lastKey = queryResult.getKey();
+                StoredReport stored = readReport(stub, summary.getId());
+                Whistleblower report = stored.report;
+                boolean rewardSettled = report.getRewardProcessed()
+                        || report.getRewardWallet() == null || report.getRewardWallet().trim().isEmpty();
+                if (!report.getPermanentlyClosed() || !rewardSettled) {
+                    skipped++;
+                    continue;
+                }
+
+                archiveReport(stub, stored, summary, compress);
+                archived++;
+            }
+        } catch (ChaincodeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ChaincodeException("Error reading reports to archive: " + e.getMessage());
+        }
+
+        System.out.println(String.format("Reports archived: %d, skipped: %d", archived, skipped));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("archived", archived);
+        result.put("skipped", skipped);
+        result.put("bookmark", nextBookmark);
+        result.put("done", nextBookmark.isEmpty());
+        return genson.serialize(result);
+    }
+
+    // Reads an archived report, with its chat history only when includeChat is true
+    @Transaction()
+    @SuppressWarnings("unchecked")
+    public String queryArchivedReport(final Context ctx, final String reportId, final boolean includeChat) {
+        ChaincodeStub stub = ctx.getStub();
+
+        String archiveState = stub.getStringState(stub.createCompositeKey(ARCHIVE_KEY_PREFIX, reportId).toString());
+        if (archiveState.isEmpty()) {
+            String errorMessage = String.format("Archived report %s does not exist", reportId);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
+        }
+
+        ArchivedReport archive = genson.deserialize(archiveState, ArchivedReport.class);
+        String reportState = decodeArchive(archive.getReport(), archive.getEncoding());
+        if (!includeChat || archive.getChatMessages() == 0) {
+            return reportState;
+        }
+
+        String chatState = stub.getStringState(stub.createCompositeKey(ARCHIVE_CHAT_KEY_PREFIX, reportId).toString());
+        Map<String, Object> report = new TreeMap<>(genson.deserialize(reportState, Map.class));
+        report.put("chatHistory", genson.deserialize(decodeArchive(chatState, archive.getEncoding()), List.class));
+        return genson.serialize(report);
+    }
+
+    private void archiveReport(final ChaincodeStub stub, final StoredReport stored, final ReportSummary summary,
+            final boolean compress) {
+        Whistleblower report = stored.report;
+        String id = report.getId();
+        String encoding = compress ? ArchivedReport.ENCODING_GZIP : ArchivedReport.ENCODING_JSON;
+
+        // The report is stored without its chat history, which is usually most of it, so reading an archived report
+        // only reads the chat when asked to. Sorted fields keep the encoded report the same on every peer.
+        @SuppressWarnings("unchecked")
+        Map<String, Object> fields = new TreeMap<>(genson.deserialize(genson.serialize(report), Map.class));
+        fields.put("chatHistory", new ArrayList<>());
+
+        int chatMessages = report.getChatHistory().size();
+        if (chatMessages > 0) {
+            stub.putStringState(stub.createCompositeKey(ARCHIVE_CHAT_KEY_PREFIX, id).toString(),
+                    encodeArchive(genson.serialize(report.getChatHistory()), compress));
+        }
+
+        ArchivedReport archive = new ArchivedReport(id, summary.getStatusDate(),
+                transactionDay(stub).format(DateTimeFormatter.BASIC_ISO_DATE), encoding,
+                encodeArchive(genson.serialize(fields), compress), chatMessages);
+        stub.putStringState(stub.createCompositeKey(ARCHIVE_KEY_PREFIX, id).toString(), genson.serialize(archive));
+
+        if (stored.snapshot == null) {
+            stub.delState(stored.key);
+        } else {
+            stub.delState(snapshotKey(stub, id));
+            stub.delState(sequenceKey(stub, id));
+            stub.delState(reportViewKey(stub, id));
+        }
+
+        stub.delState(stub.createCompositeKey(SUMMARY_KEY_PREFIX, id).toString());
+        for (String indexKey : indexKeys(stub, summary)) {
+            stub.delState(indexKey);
+        }
+
+        // Postings are written only while the keyword index is on, so delete every posting the report could have
+        for (String term : ReportTokenizer.tokenize(MAX_POSTINGS_PER_REPORT, report.getTitle(), report.getDescription(),
+                report.getVoiceToText())) {
+            stub.delState(stub.createCompositeKey(TERM_KEY_PREFIX, term, id).toString());
+        }
+    }
+
+    private static String encodeArchive(final String json, final boolean compress) {
+        if (!compress) {
+            return json;
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(json.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new ChaincodeException("Error compressing archived report: " + e.getMessage());
+        }
+        return Base64.getEncoder().encodeToString(compressed.toByteArray());
+    }
+
+    private static String decodeArchive(final String value, final String encoding) {
+        if (!ArchivedReport.ENCODING_GZIP.equals(encoding)) {
+            return value;
+        }
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(value)))) {
+            byte[] buffer = new byte[8192];
+            for (int read = gzip.read(buffer); read != -1; read = gzip.read(buffer)) {
+                json.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new ChaincodeException("Error decompressing archived report: " + e.getMessage());
+        }
+        return new String(json.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // A report read from the ledger. Document reports keep the key and JSON they were read or written as, and
+    // event-sourced reports keep their latest snapshot, the number of events appended since it was written and the
+    // sequence of the last of them, or -1 if there are none.
+    private static final class StoredReport {
+        private final String key;
+        private final Whistleblower report;
+        private final String state;
+        private final ReportSnapshot snapshot;
+        private final int tailEvents;
+        private final long lastSequence;
+
+        private StoredReport(final String key, final Whistleblower report, final String state, final ReportSnapshot snapshot,
+                final int tailEvents, final long lastSequence) {
+            this.key = key;
+            this.report = report;
+            this.state = state;
+            this.snapshot = snapshot;
+            this.tailEvents = tailEvents;
+            this.lastSequence = lastSequence;
+        }
+    }
+
+    // Archived reports keep their ID, so it cannot be used for a new report
+    private boolean reportExists(final ChaincodeStub stub, final String id) {
+        return !getDocumentState(stub, id).isEmpty() || !stub.getStringState(snapshotKey(stub, id)).isEmpty()
+                || !stub.getStringState(stub.createCompositeKey(ARCHIVE_KEY_PREFIX, id).toString()).isEmpty();
+    }
+
+    private StoredReport readReport(final ChaincodeStub stub, final String id) {
+        StoredReport stored = findDocument(stub, id);
+        if (stored == null) {
+            stored = findEventSourcedReport(stub, id);
+        }
+
+        if (stored == null) {
+            String errorMessage = String.format("Report with ID %s does not exist", id);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.REPORT_NOT_FOUND.toString());
+        }
+
+        return stored;
+    }
+
+    // Reports are stored under report~<id>. Reports written before that layout are stored under the bare ID, and are
+    // still found there until migrateReportKeys moves them or a change rewrites them.
+    private StoredReport findDocument(final ChaincodeStub stub, final String id) {
+        String key = reportKey(stub, id);
+        String reportState = stub.getStringState(key);
+        if (reportState.isEmpty()) {
+            key = id;
+            reportState = stub.getStringState(key);
+        }
+
+        return reportState.isEmpty()
+                ? null
+                : new StoredReport(key, genson.deserialize(reportState, Whistleblower.class), reportState, null, 0, -1);
+    }
+
+    // JSON of a report in either layout, or an empty string if there is no such report
+    private String getReportState(final ChaincodeStub stub, final String id) {
+        String reportState = getDocumentState(stub, id);
+        if (reportState.isEmpty()) {
+            StoredReport stored = findEventSourcedReport(stub, id);
+            reportState = stored != null ? genson.serialize(stored.report) : "";
+        }
+        return reportState;
+    }
+
+    private String getDocumentState(final ChaincodeStub stub, final String id) {
+        String reportState = stub.getStringState(reportKey(stub, id));
+        return reportState.isEmpty() ? stub.getStringState(id) : reportState;
+    }
+
+    // Folds the events of the current epoch into the latest snapshot
+    private StoredReport findEventSourcedReport(final ChaincodeStub stub, final String id) {
+        String snapshotState = stub.getStringState(snapshotKey(stub, id));
+        if (snapshotState.isEmpty()) {
+            return null;
+        }
+
+        ReportSnapshot snapshot = genson.deserialize(snapshotState, ReportSnapshot.class);
+        Whistleblower report = snapshot.getReport();
+        int tailEvents = 0;
+        long lastSequence = -1;
+
+        // Sequence of the event that added each chat message, for messages_read events to mark only the messages
+        // they were validated against. Messages in the snapshot were added before any event of the epoch.
+        List<Long> messageSequences = new ArrayList<>(Collections.nCopies(report.getChatHistory().size(), -1L));
+
+        for (KeyValue queryResult : stub.getStateByPartialCompositeKey(EVENT_KEY_PREFIX, id, epochAttribute(snapshot.getEpoch()))) {
+            ReportEvent event = genson.deserialize(queryResult.getStringValue(), ReportEvent.class);
+            lastSequence = Long.parseLong(stub.splitCompositeKey(queryResult.getKey()).getAttributes().get(2).substring(0, 19));
+            report = event.applyTo(report, messageSequences);
+            if (ReportEvent.CHAT_MESSAGE.equals(event.getType())) {
+                messageSequences.add(lastSequence);
+            }
+            tailEvents++;
+        }
+
+        return new StoredReport(null, report, null, snapshot, tailEvents, lastSequence);
+    }
+
+    // New reports are stored with the configured storage engine, and keep that layout for the rest of their life
+    private StoredReport createReport(final ChaincodeStub stub, final Whistleblower report) {
+        String engine = stub.getStringState(stub.createCompositeKey(CONFIG_KEY_PREFIX, STORAGE_ENGINE_KEY).toString());
+        if (!STORAGE_ENGINE_EVENTS.equals(engine)) {
+            return new StoredReport(reportKey(stub, report.getId()), report, putReport(stub, report), null, 0, -1);
+        }
+
+        ReportSnapshot snapshot = new ReportSnapshot(0, report);
+        putSnapshot(stub, snapshot);
+        long sequence = appendEvent(stub, report.getId(), snapshot.getEpoch(), ReportEvent.submitted(), -1);
+        putSequence(stub, report.getId(), sequence);
+        putSummary(stub, report);
+        putReportView(stub, report);
+        return new StoredReport(null, report, null, snapshot, 1, sequence);
+    }
+
+    // Applies a change to a report that has been read and validated, and stores it in the report's layout
+    private StoredReport saveReport(final ChaincodeStub stub, final StoredReport stored, final ReportEvent event) {
+        Whistleblower report = event.applyTo(stored.report);
+        if (stored.snapshot == null) {
+            String key = reportKey(stub, report.getId());
+            String reportState = putReport(stub, report);
+            if (!key.equals(stored.key)) {
+                // Moves a report stored under its bare ID to the namespaced key
+                stub.delState(stored.key);
+            }
+            return new StoredReport(key, report, reportState, null, 0, -1);
+        }
+
+        long sequence = appendEvent(stub, report.getId(), stored.snapshot.getEpoch(), event, stored.lastSequence);
+        putSequence(stub, report.getId(), sequence);
+        putReportView(stub, report);
+        if (!ReportSummary.fromReport(report).equals(ReportSummary.fromReport(stored.report))) {
+            putSummary(stub, report);
+        }
+
+        if (stored.tailEvents + 1 < SNAPSHOT_INTERVAL) {
+            return new StoredReport(null, report, null, stored.snapshot, stored.tailEvents + 1, sequence);
+        }
+
+        // Later reads start from this snapshot and only fold events appended in the new epoch
+        ReportSnapshot snapshot = new ReportSnapshot(stored.snapshot.getEpoch() + 1, report);
+        putSnapshot(stub, snapshot);
+        return new StoredReport(null, report, null, snapshot, 0, -1);
+    }
+
+    // Applies a change that needs no validation beyond the report existing. For an event-sourced report with
+    // responseMode=ack a chat message is appended without reading the report's events, so concurrent messages to the
+    // same report do not conflict. It is sequenced after the last validated change, whose readThrough can then never
+    // cover it, and a validated change committed concurrently fails it with a conflict on the sequence key instead of
+    // being replayed before it. The acknowledgement takes the status from the report summary.
+    private String recordEvent(final ChaincodeStub stub, final String id, final ReportEvent event) {
+        if (ReportEvent.CHAT_MESSAGE.equals(event.getType()) && RESPONSE_MODE_ACK.equals(getResponseMode(stub))
+                && getDocumentState(stub, id).isEmpty()) {
+            String snapshotState = stub.getStringState(snapshotKey(stub, id));
+            if (!snapshotState.isEmpty()) {
+                ReportSnapshot snapshot = genson.deserialize(snapshotState, ReportSnapshot.class);
+                String sequenceState = stub.getStringState(sequenceKey(stub, id));
+                appendEvent(stub, id, snapshot.getEpoch(), event, sequenceState.isEmpty() ? -1 : Long.parseLong(sequenceState));
+
+                String summaryKey = stub.createCompositeKey(SUMMARY_KEY_PREFIX, id).toString();
+                ReportSummary summary = genson.deserialize(stub.getStringState(summaryKey), ReportSummary.class);
+                return acknowledge(stub, id, summary.getStatus());
+            }
+        }
+
+        return respond(stub, saveReport(stub, readReport(stub, id), event));
+    }
+
+    // Event keys are unique without reading a counter, so appending never conflicts with another append. The
+    // sequence is the transaction timestamp in nanoseconds, with the transaction ID to break ties. Timestamps are set
+    // by clients, so a change validated against the report's events is sequenced after the last event it read, which
+    // the read of the epoch's events protects from phantoms. Replay then applies it after every event it was
+    // validated against, even if its client's clock is behind. Appends that do not read the events pass the
+    // sequence of the last validated change instead. Returns the sequence used.
+    private long appendEvent(final ChaincodeStub stub, final String id, final int epoch, final ReportEvent event,
+            final long after) {
+        Instant timestamp = stub.getTxTimestamp();
+        String txId = stub.getTxId();
+        long sequence = Math.max(timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano(), after + 1);
+
+        String eventKey = stub.createCompositeKey(EVENT_KEY_PREFIX, id, epochAttribute(epoch), String.format("%019d-%s", sequence, txId)).toString();
+        stub.putStringState(eventKey, genson.serialize(event.withTransaction(timestamp.toString(), txId)));
+        return sequence;
+    }
+
+    private void putSnapshot(final ChaincodeStub stub, final ReportSnapshot snapshot) {
+        stub.putStringState(snapshotKey(stub, snapshot.getReport().getId()), genson.serialize(snapshot));
+    }
+
+    private String reportKey(final ChaincodeStub stub, final String id) {
+        return stub.createCompositeKey(REPORT_KEY_PREFIX, id).toString();
+    }
+
+    private String snapshotKey(final ChaincodeStub stub, final String id) {
+        return stub.createCompositeKey(SNAPSHOT_KEY_PREFIX, id).toString();
+    }
+
+    // Sequence of the last change appended after reading the report's events, written without reading it so that
+    // validated changes only conflict through the events they read
+    private void putSequence(final ChaincodeStub stub, final String id, final long sequence) {
+        stub.putStringState(sequenceKey(stub, id), Long.toString(sequence));
+    }
+
+    private String sequenceKey(final ChaincodeStub stub, final String id) {
+        return stub.createCompositeKey(SEQUENCE_KEY_PREFIX, id).toString();
+    }
+
+    // Zero padded so that epochs sort numerically
+    private static String epochAttribute(final int epoch) {
+        return String.format("%010d", epoch);
+    }
+
+    // Event-sourced reports keep a copy of the report, carrying its docType, for rich queries to select on. It is
+    // written with each validated change, so chat messages appended without reading the report only reach it with
+    // the next one.
+    private void putReportView(final ChaincodeStub stub, final Whistleblower report) {
+        stub.putStringState(reportViewKey(stub, report.getId()), genson.serialize(report));
+    }
+
+    private String reportViewKey(final ChaincodeStub stub, final String id) {
+        return stub.createCompositeKey(REPORT_VIEW_KEY_PREFIX, id).toString();
+    }
+
+    // Document reports store the full report and its list view summary together on every change
+    private String putReport(final ChaincodeStub stub, final Whistleblower report) {
+        String reportState = genson.serialize(report);
+        stub.putStringState(reportKey(stub, report.getId()), reportState);
+        putSummary(stub, report);
+        return reportState;
+    }
+
+    // Returns the report JSON already encoded for the ledger where there is one, so the contract router does not
+    // serialize the report a second time. Clients can pass responseMode=ack in the transient data to receive only
+    // the ID, status and version (the ID of the transaction that wrote the report), and query the full report when
+    // they need it.
+    private String respond(final ChaincodeStub stub, final StoredReport stored) {
+        if (RESPONSE_MODE_ACK.equals(getResponseMode(stub))) {
+            return acknowledge(stub, stored.report.getId(), stored.report.getStatus());
+        }
+
+        return stored.state != null ? stored.state : genson.serialize(stored.report);
+    }
+
+    private String getResponseMode(final ChaincodeStub stub) {
+        Map<String, byte[]> transientMap = stub.getTransient();
+        byte[] responseMode = transientMap != null ? transientMap.get(RESPONSE_MODE_KEY) : null;
+        if (responseMode == null) {
+            return RESPONSE_MODE_FULL;
+        }
+
+        String mode = new String(responseMode, StandardCharsets.UTF_8);
+        if (!RESPONSE_MODE_FULL.equals(mode) && !RESPONSE_MODE_ACK.equals(mode)) {
+            String errorMessage = String.format("Unsupported response mode %s, expected %s or %s", mode, RESPONSE_MODE_FULL, RESPONSE_MODE_ACK);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+
+        return mode;
+    }
+
+    private String acknowledge(final ChaincodeStub stub, final String id, final String status) {
+        Map<String, String> ack = new LinkedHashMap<>();
+        ack.put("id", id);
+        ack.put("status", status);
+        ack.put("version", stub.getTxId());
+        return genson.serialize(ack);
+    }
+
+    // Writes the report summary, and keeps the statusDate~status~yyyyMMdd~id and facet~field~value~id indexes
+    // pointing at it. Index entries hold a copy of the summary, so queries over them read nothing else.
+    private void putSummary(final ChaincodeStub stub, final Whistleblower report) {
+        String summaryKey = stub.createCompositeKey(SUMMARY_KEY_PREFIX, report.getId()).toString();
+        String previousState = stub.getStringState(summaryKey);
+        ReportSummary previous = previousState.isEmpty() ? null : genson.deserialize(previousState, ReportSummary.class);
+
+        String statusDate;
+        if (previous != null && !previous.getStatus().equals(report.getStatus())) {
+            statusDate = transactionDay(stub).format(DateTimeFormatter.BASIC_ISO_DATE);
+        } else if (previous != null && previous.getStatusDate() != null) {
+            statusDate = previous.getStatusDate();
+        } else {
+            // New reports, and summaries written before status dates were recorded, count from the submission date
+            statusDate = submissionDate(stub, report);
+        }
+
+        ReportSummary summary = ReportSummary.fromReport(report, statusDate);
+        if (summary.equals(previous)) {
+            return;
+        }
+
+        String summaryState = genson.serialize(summary);
+        stub.putStringState(summaryKey, summaryState);
+
+        List<String> indexKeys = indexKeys(stub, summary);
+        if (previous != null) {
+            for (String previousKey : indexKeys(stub, previous)) {
+                if (!indexKeys.contains(previousKey)) {
+                    stub.delState(previousKey);
+                }
+            }
+        }
+        for (String indexKey : indexKeys) {
+            stub.putStringState(indexKey, summaryState);
+        }
+    }
+
+    // Postings only record that the report contains the term, since searches read the summaries of the reports found.
+    // Fabric deletes keys written with an empty value, so the value is a single zero byte. The number of terms is
+    // capped, keeping those that appear first, so a long report does not make an unbounded write set.
+    private void putPostings(final ChaincodeStub stub, final Whistleblower report) {
+        List<String> terms = ReportTokenizer.tokenize(MAX_POSTINGS_PER_REPORT, report.getTitle(), report.getDescription(),
+                report.getVoiceToText());
+        for (String term : terms) {
+            stub.putState(stub.createCompositeKey(TERM_KEY_PREFIX, term, report.getId()).toString(), new byte[] {0});
+        }
+    }
+
+    private List<String> indexKeys(final ChaincodeStub stub, final ReportSummary summary) {
+        List<String> keys = new ArrayList<>();
+        if (summary.getStatusDate() != null) {
+            keys.add(stub.createCompositeKey(STATUS_DATE_KEY_PREFIX, summary.getStatus(), summary.getStatusDate(),
+                    summary.getId()).toString());
+        }
+
+        // Reports without a department or location are not indexed by it
+        for (String facet : FACETS) {
+            String value = summaryValue(summary, facet);
+            if (!value.isEmpty()) {
+                keys.add(stub.createCompositeKey(FACET_KEY_PREFIX, facet, value, summary.getId()).toString());
+            }
+        }
+        return keys;
+    }
+
+    // Value of a filter field as it is indexed and compared, with missing values as empty strings
+    private static String summaryValue(final ReportSummary summary, final String field) {
+        String value;
+        switch (field) {
+            case FIELD_STATUS:
+                value = summary.getStatus();
+                break;
+            case FIELD_ASSIGNED_TO:
+                value = summary.getAssignedTo();
+                break;
+            case FACET_DEPARTMENT:
+                value = summary.getDepartment();
+                break;
+            case FACET_LOCATION:
+                value = summary.getLocation();
+                break;
+            default:
+                value = String.valueOf(summary.getCriticality());
+        }
+        return value == null ? "" : value;
+    }
+
+    // Day of the transaction in UTC. The timestamp is set by the client, so every endorser computes the same day.
+    private static LocalDate transactionDay(final ChaincodeStub stub) {
+        return stub.getTxTimestamp().atOffset(ZoneOffset.UTC).toLocalDate();
+    }
+
+    private static String submissionDate(final ChaincodeStub stub, final Whistleblower report) {
+        LocalDate day;
+        try {
+            day = LocalDate.parse(report.getDate().substring(0, 10));
+        } catch (RuntimeException e) {
+            day = transactionDay(stub);
+        }
+        return day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
+    private static LocalDate parseStatusDate(final String value, final String description) {
+        try {
+            return LocalDate.parse(value, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            String errorMessage = String.format("%s must be a date in yyyyMMdd format: %s", description, value);
+            System.out.println(errorMessage);
+            throw new ChaincodeException(errorMessage, WhistleblowerErrors.INVALID_ARGUMENT.toString());
+        }
+    }
+
+    private List<ReportSummary> getReportSummaries(final ChaincodeStub stub) {
+        List<ReportSummary> summaries = new ArrayList<>();
+
+        stub.getStateByPartialCompositeKey(SUMMARY_KEY_PREFIX).forEach(queryResult -> {
+            try {
+                summaries.add(genson.deserialize(queryResult.getStringValue(), ReportSummary.class));
+            } catch (Exception e) {
+                System.out.println("Error deserializing report summary: " + e.getMessage());
+            }
+        });
+
+        return summaries;
+    }
 }
\ No newline at end of file
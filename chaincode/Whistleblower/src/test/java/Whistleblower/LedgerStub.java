@@ -0,0 +1,238 @@
+package Whistleblower;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.protos.peer.ChaincodeShim.QueryResponseMetadata;
+import org.hyperledger.fabric.shim.ChaincodeStub;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+
+// An in-memory world state behind a mocked stub, with the range semantics of the peer: an empty start key only
+// covers simple keys, and a partial composite key covers every key with that prefix. Each call to nextTransaction
+// moves the transaction timestamp forward, and the timestamp can be set directly to simulate client clock skew.
+// Rich queries fail as they do on LevelDB, unless supportSelectors is called.
+final class LedgerStub {
+    private static final String MAX_UNICODE_RUNE = "\udbff\udfff";
+
+    private final TreeMap<String, byte[]> state = new TreeMap<>();
+    private final Map<String, byte[]> transientData = new HashMap<>();
+    private final ChaincodeStub stub;
+    private final Context ctx;
+    private Instant timestamp = Instant.parse("2025-06-01T00:00:00Z");
+    private int transactions = 0;
+
+    LedgerStub() {
+        stub = mock(ChaincodeStub.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+        doAnswer(i -> state.put(i.getArgument(0), i.getArgument(1))).when(stub).putState(anyString(), any());
+        doAnswer(i -> state.getOrDefault((String) i.getArgument(0), new byte[0])).when(stub).getState(anyString());
+        doAnswer(i -> state.remove((String) i.getArgument(0))).when(stub).delState(anyString());
+        doAnswer(i -> new CompositeKey(i.getArgument(0), attributes(i.getArguments())))
+                .when(stub).createCompositeKey(anyString(), any(String[].class));
+        doAnswer(i -> iterator(range(i.getArgument(0), i.getArgument(1)))).when(stub).getStateByRange(anyString(), anyString());
+        doAnswer(i -> iterator(partial(i.getArgument(0).toString()))).when(stub).getStateByPartialCompositeKey(any(CompositeKey.class));
+        doAnswer(i -> iterator(partial(compositeKey(i.getArgument(0)).toString())))
+                .when(stub).getStateByPartialCompositeKey(anyString());
+        doAnswer(i -> iterator(partial(new CompositeKey(i.getArgument(0), attributes(i.getArguments())).toString())))
+                .when(stub).getStateByPartialCompositeKey(anyString(), any(String[].class));
+        doAnswer(i -> page(partial(i.getArgument(0).toString()), i.getArgument(1), i.getArgument(2)))
+                .when(stub).getStateByPartialCompositeKeyWithPagination(any(CompositeKey.class), anyInt(), anyString());
+        doAnswer(i -> CompositeKey.parseCompositeKey(i.getArgument(0))).when(stub).splitCompositeKey(anyString());
+        doAnswer(i -> timestamp).when(stub).getTxTimestamp();
+        doAnswer(i -> "tx" + transactions).when(stub).getTxId();
+        doAnswer(i -> transientData).when(stub).getTransient();
+        doAnswer(i -> {
+            throw new RuntimeException("ExecuteQuery not supported for leveldb");
+        }).when(stub).getQueryResultWithPagination(anyString(), anyInt(), anyString());
+
+        ctx = mock(Context.class);
+        when(ctx.getStub()).thenReturn(stub);
+    }
+
+    Context context() {
+        return ctx;
+    }
+
+    ChaincodeStub stub() {
+        return stub;
+    }
+
+    // Starts a new transaction a minute after the previous one
+    Context nextTransaction() {
+        return nextTransaction(timestamp.plusSeconds(60));
+    }
+
+    Context nextTransaction(final Instant txTimestamp) {
+        transactions++;
+        timestamp = txTimestamp;
+        return ctx;
+    }
+
+    // Answers rich queries as CouchDB would for selectors that only compare top-level fields for equality
+    void supportSelectors() {
+        Genson genson = new Genson();
+        doAnswer(i -> {
+            Map<?, ?> selector = (Map<?, ?>) genson.deserialize((String) i.getArgument(0), Map.class).get("selector");
+            List<KeyValue> matches = new ArrayList<>();
+            for (Map.Entry<String, byte[]> entry : state.entrySet()) {
+                Map<?, ?> document;
+                try {
+                    document = genson.deserialize(new String(entry.getValue(), StandardCharsets.UTF_8), Map.class);
+                } catch (RuntimeException e) {
+                    continue;
+                }
+                if (document != null && document.entrySet().containsAll(selector.entrySet())) {
+                    matches.add(keyValue(entry.getKey(), entry.getValue()));
+                }
+            }
+            return page(matches, i.getArgument(1), i.getArgument(2));
+        }).when(stub).getQueryResultWithPagination(anyString(), anyInt(), anyString());
+    }
+
+    Instant timestamp() {
+        return timestamp;
+    }
+
+    Map<String, byte[]> transientData() {
+        return transientData;
+    }
+
+    TreeMap<String, byte[]> state() {
+        return state;
+    }
+
+    String getString(final String key) {
+        byte[] value = state.get(key);
+        return value == null ? "" : new String(value, StandardCharsets.UTF_8);
+    }
+
+    void putString(final String key, final String value) {
+        state.put(key, utf8(value));
+    }
+
+    // Keys under a composite key prefix, with their attributes joined by '~' for readability
+    List<String> keys(final String objectType, final String... attributes) {
+        return partial(new CompositeKey(objectType, attributes).toString()).stream()
+                .map(keyValue -> CompositeKey.parseCompositeKey(keyValue.getKey()).getAttributes().stream()
+                        .collect(Collectors.joining("~")))
+                .collect(Collectors.toList());
+    }
+
+    private List<KeyValue> range(final String startKey, final String endKey) {
+        // The peer substitutes an empty start key so that the range excludes composite keys
+        String start = startKey.isEmpty() ? "\u0001" : startKey;
+        Map<String, byte[]> entries = endKey.isEmpty() ? state.tailMap(start, true) : state.subMap(start, true, endKey, false);
+        return entries.entrySet().stream()
+                .map(entry -> keyValue(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private List<KeyValue> partial(final String prefix) {
+        return range(prefix, prefix + MAX_UNICODE_RUNE);
+    }
+
+    // The stub accepts either an encoded composite key or a bare object type
+    private static CompositeKey compositeKey(final String key) {
+        return key.startsWith(CompositeKey.NAMESPACE) ? CompositeKey.parseCompositeKey(key) : new CompositeKey(key);
+    }
+
+    private static String[] attributes(final Object[] arguments) {
+        String[] attributes = new String[arguments.length - 1];
+        for (int i = 1; i < arguments.length; i++) {
+            attributes[i - 1] = (String) arguments[i];
+        }
+        return attributes;
+    }
+
+    private static QueryResultsIterator<KeyValue> iterator(final List<KeyValue> results) {
+        return new QueryResultsIterator<KeyValue>() {
+            @Override
+            public Iterator<KeyValue> iterator() {
+                return results.iterator();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static QueryResultsIteratorWithMetadata<KeyValue> page(final List<KeyValue> results, final int pageSize,
+            final String bookmark) {
+        List<KeyValue> page = new ArrayList<>();
+        String nextBookmark = "";
+        for (KeyValue result : results) {
+            if (!bookmark.isEmpty() && result.getKey().compareTo(bookmark) < 0) {
+                continue;
+            }
+            if (page.size() == pageSize) {
+                nextBookmark = result.getKey();
+                break;
+            }
+            page.add(result);
+        }
+
+        QueryResponseMetadata metadata = QueryResponseMetadata.newBuilder()
+                .setBookmark(nextBookmark)
+                .setFetchedRecordsCount(page.size())
+                .build();
+        return new QueryResultsIteratorWithMetadata<KeyValue>() {
+            @Override
+            public Iterator<KeyValue> iterator() {
+                return page.iterator();
+            }
+
+            @Override
+            public QueryResponseMetadata getMetadata() {
+                return metadata;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static KeyValue keyValue(final String key, final byte[] value) {
+        return new KeyValue() {
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @Override
+            public byte[] getValue() {
+                return value;
+            }
+
+            @Override
+            public String getStringValue() {
+                return new String(value, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    private static byte[] utf8(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,643 @@
+package Whistleblower;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.groups.Tuple.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.owlike.genson.Genson;
+import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.shim.ChaincodeException;
+import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+public final class WhistleblowerContractTest {
+    private final Genson genson = new Genson();
+    private WhistleblowerContract contract;
+    private LedgerStub ledger;
+
+    @BeforeEach
+    void setUp() {
+        contract = new WhistleblowerContract();
+        ledger = new LedgerStub();
+    }
+
+    private void submit(final String id, final String title, final String description, final String department,
+            final String location, final int criticality) {
+        contract.submitReport(ledger.nextTransaction(), id, title, description, "anonymous", "2025-05-01", criticality,
+                "wallet-" + id, "", false, department, location, "", "", "", false, "", "");
+    }
+
+    private void submit(final String id) {
+        submit(id, "Report " + id, "Description of " + id, "", "", 1);
+    }
+
+    // Every kind of change, with enough chat messages that an event-sourced report takes a snapshot part way
+    private void runLifecycle(final String id) {
+        submit(id, "Invoices", "Inflated invoices", "Finance", "NY", 3);
+        contract.assignReport(ledger.nextTransaction(), id, "inv1", "Investigator One");
+        for (int i = 0; i < 20; i++) {
+            contract.addChatMessage(ledger.nextTransaction(), id, i % 2 == 0 ? "inv1" : "whistleblower", "message " + i,
+                    "t" + i, "");
+        }
+        contract.markChatMessagesAsRead(ledger.nextTransaction(), id, "inv1");
+        contract.addManagementSummary(ledger.nextTransaction(), id, "inv1", "summary");
+        contract.completeInvestigation(ledger.nextTransaction(), id, "inv1");
+        contract.reopenInvestigation(ledger.nextTransaction(), id, "new evidence");
+        contract.assignReport(ledger.nextTransaction(), id, "inv2", "Investigator Two");
+        contract.completeInvestigation(ledger.nextTransaction(), id, "inv2");
+        contract.permanentlyCloseCase(ledger.nextTransaction(), id, "manager", "closed");
+        contract.processReward(ledger.nextTransaction(), id, "manager", "paid", 12.5);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseObject(final String json) {
+        return genson.deserialize(json, Map.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> reportIds(final Object reports) {
+        List<Map<String, Object>> summaries = reports instanceof String
+                ? genson.deserialize((String) reports, List.class)
+                : (List<Map<String, Object>>) reports;
+        return summaries.stream().map(summary -> (String) summary.get("id")).collect(Collectors.toList());
+    }
+
+    @Nested
+    class StorageEngines {
+
+        @Test
+        void documentAndEventsEnginesStoreTheSameReport() {
+            runLifecycle("doc");
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            runLifecycle("evt");
+
+            Context ctx = ledger.context();
+            String document = genson.serialize(contract.queryReportById(ctx, "doc"));
+            String events = genson.serialize(contract.queryReportById(ctx, "evt"))
+                    .replace("\"id\":\"evt\"", "\"id\":\"doc\"")
+                    .replace("wallet-evt", "wallet-doc");
+
+            assertThat(events).isEqualTo(document);
+            assertThat(ledger.keys("snapshot")).containsExactly("evt");
+            assertThat(ledger.keys("report")).containsExactly("doc");
+        }
+
+        @Test
+        void eventsAreReplayedInCommitOrderWhenClientClocksAreBehind() {
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            submit("r1");
+            contract.assignReport(ledger.nextTransaction(), "r1", "inv1", "Investigator One");
+            contract.addManagementSummary(ledger.nextTransaction(), "r1", "inv1", "summary");
+
+            // Each change is validated after the previous one, but its client clock is further behind
+            Instant skewed = ledger.timestamp().minusSeconds(600);
+            contract.completeInvestigation(ledger.nextTransaction(skewed), "r1", "inv1");
+            contract.reopenInvestigation(ledger.nextTransaction(skewed.minusSeconds(600)), "r1", "new evidence");
+
+            List<String> types = new ArrayList<>();
+            for (Object event : genson.deserialize(contract.queryReportHistory(ledger.context(), "r1"), List.class)) {
+                types.add((String) ((Map<?, ?>) event).get("type"));
+            }
+
+            assertThat(types).containsExactly("submitted", "assigned", "summary_added", "completed", "reopened");
+            assertThat(contract.queryReportById(ledger.context(), "r1").getIsReopened()).isTrue();
+        }
+
+        @Test
+        void messagesReadOnlyCoversMessagesItWasValidatedAgainst() {
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            submit("r1");
+            ledger.transientData().put("responseMode", "ack".getBytes(StandardCharsets.UTF_8));
+
+            // Chat messages are appended without reading the report, around a validated read
+            contract.addChatMessage(ledger.nextTransaction(), "r1", "whistleblower", "first", "t1", "");
+            contract.markChatMessagesAsRead(ledger.nextTransaction(), "r1", "inv1");
+            Instant skewed = ledger.timestamp().minusSeconds(600);
+            contract.addChatMessage(ledger.nextTransaction(skewed), "r1", "whistleblower", "late", "t2", "");
+
+            List<String> types = new ArrayList<>();
+            for (Object event : genson.deserialize(contract.queryReportHistory(ledger.context(), "r1"), List.class)) {
+                types.add((String) ((Map<?, ?>) event).get("type"));
+            }
+
+            assertThat(types).containsExactly("submitted", "chat_message", "messages_read", "chat_message");
+            assertThat(contract.queryReportById(ledger.context(), "r1").getChatHistory())
+                    .extracting(ChatMessage::getContent, ChatMessage::getIsRead)
+                    .containsExactly(tuple("first", true), tuple("late", false));
+        }
+    }
+
+    @Nested
+    class ResponseModes {
+
+        @BeforeEach
+        void submitReports() {
+            submit("doc");
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            submit("evt");
+        }
+
+        @Test
+        void fullResponseIsTheJsonOfTheReportObject() {
+            for (String id : Arrays.asList("doc", "evt")) {
+                String response = contract.assignReport(ledger.nextTransaction(), id, "inv1", "Investigator One");
+
+                // Transactions used to return the report object for the contract router to serialize
+                assertThat(parseObject(response))
+                        .isEqualTo(parseObject(genson.serialize(contract.queryReportById(ledger.context(), id))));
+            }
+        }
+
+        @Test
+        void ackResponseHasOnlyIdStatusAndVersion() {
+            ledger.transientData().put("responseMode", "ack".getBytes(StandardCharsets.UTF_8));
+
+            for (String id : Arrays.asList("doc", "evt")) {
+                Context ctx = ledger.nextTransaction();
+                String txId = ledger.stub().getTxId();
+                Map<String, Object> response = parseObject(contract.assignReport(ctx, id, "inv1", "Investigator One"));
+
+                assertThat(response).containsOnlyKeys("id", "status", "version");
+                assertThat(response).containsEntry("id", id)
+                        .containsEntry("status", "under_investigation")
+                        .containsEntry("version", txId);
+            }
+        }
+
+        @Test
+        void rejectsUnknownResponseModes() {
+            ledger.transientData().put("responseMode", "summary".getBytes(StandardCharsets.UTF_8));
+            Context ctx = ledger.nextTransaction();
+
+            assertThat(catchThrowable(() -> contract.assignReport(ctx, "doc", "inv1", "Investigator One")))
+                    .isInstanceOf(ChaincodeException.class)
+                    .hasMessageContaining("summary");
+        }
+    }
+
+    @Nested
+    class KeywordSearch {
+
+        @BeforeEach
+        void submitReports() {
+            submit("r0", "Acme invoices", "Submitted before the index was enabled", "", "", 1);
+            contract.setKeywordIndex(ledger.nextTransaction(), true);
+            submit("r1", "Acme Corp fraud", "Invoices inflated by ACME in Berlin", "", "", 1);
+            submit("r2", "Bribery", "Vendor Globex paid the manager in Berlin", "", "", 1);
+            submit("r3", "Safety", "Forklift left unattended", "", "", 1);
+            submit("r4", "Acme again", "Globex and Acme colluded", "", "", 1);
+        }
+
+        @Test
+        void andModeMatchesReportsWithEveryTerm() {
+            Context ctx = ledger.context();
+
+            assertThat(reportIds(contract.searchReportsByKeywords(ctx, "acme", "AND", 10))).containsExactly("r1", "r4");
+            assertThat(reportIds(contract.searchReportsByKeywords(ctx, "Acme Berlin", "and", 10))).containsExactly("r1");
+            assertThat(reportIds(contract.searchReportsByKeywords(ctx, "acme forklift", "AND", 10))).isEmpty();
+        }
+
+        @Test
+        void orModeMatchesReportsWithAnyTermInIdOrder() {
+            Context ctx = ledger.context();
+
+            assertThat(reportIds(contract.searchReportsByKeywords(ctx, "globex berlin", "OR", 10)))
+                    .containsExactly("r1", "r2", "r4");
+            assertThat(reportIds(contract.searchReportsByKeywords(ctx, "forklift acme", "OR", 2)))
+                    .containsExactly("r1", "r3");
+        }
+
+        @Test
+        void rejectsStopWordsAndUnknownModes() {
+            Context ctx = ledger.context();
+
+            assertThat(catchThrowable(() -> contract.searchReportsByKeywords(ctx, "the", "AND", 10)))
+                    .isInstanceOf(ChaincodeException.class);
+            assertThat(catchThrowable(() -> contract.searchReportsByKeywords(ctx, "acme", "XOR", 10)))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+    }
+
+    @Nested
+    class SearchPaging {
+
+        @BeforeEach
+        void submitReports() {
+            String[] departments = {"Finance", "HR", "Finance", "IT", "Finance", "", "HR", "Finance"};
+            String[] locations = {"NY", "NY", "LA", "LA", "NY", "NY", "", "NY"};
+            for (int i = 0; i < departments.length; i++) {
+                submit("r" + i, "Report", "Description", departments[i], locations[i], i % 3 + 1);
+            }
+            contract.assignReport(ledger.nextTransaction(), "r0", "inv1", "Investigator One");
+        }
+
+        private List<String> searchAll(final String filter, final int pageSize) {
+            return searchFrom(filter, pageSize, "");
+        }
+
+        private List<String> searchFrom(final String filter, final int pageSize, final String firstBookmark) {
+            List<String> ids = new ArrayList<>();
+            String bookmark = firstBookmark;
+            do {
+                Map<String, Object> page = parseObject(contract.searchReports(ledger.context(), filter, pageSize, bookmark));
+                List<String> pageIds = reportIds(page.get("reports"));
+                assertThat(pageIds.size()).isLessThanOrEqualTo(pageSize);
+                ids.addAll(pageIds);
+                bookmark = (String) page.get("bookmark");
+            } while (!bookmark.isEmpty());
+            return ids;
+        }
+
+        @Test
+        void pagesVisitEachMatchingReportOnce() {
+            assertThat(searchAll("{\"department\":\"Finance\",\"location\":\"NY\"}", 2)).containsExactly("r0", "r4", "r7");
+            assertThat(searchAll("{\"department\":\"Finance\"}", 1)).containsExactly("r0", "r2", "r4", "r7");
+            assertThat(searchAll("", 3)).containsExactly("r0", "r1", "r2", "r3", "r4", "r5", "r6", "r7");
+        }
+
+        @Test
+        void firstPageCountsEveryMatch() {
+            Map<String, Object> page = parseObject(contract.searchReports(ledger.context(), "{\"status\":\"pending\"}", 2, ""));
+
+            assertThat(reportIds(page.get("reports"))).containsExactly("r1", "r2");
+            assertThat(((Number) page.get("total")).intValue()).isEqualTo(7);
+        }
+
+        @Test
+        void laterPagesOnlyReadToTheEndOfThePage() {
+            Map<String, Object> first = parseObject(contract.searchReports(ledger.context(), "{\"status\":\"pending\"}", 2, ""));
+            Map<String, Object> second = parseObject(contract.searchReports(ledger.context(), "{\"status\":\"pending\"}", 2,
+                    (String) first.get("bookmark")));
+
+            assertThat(reportIds(second.get("reports"))).containsExactly("r3", "r4");
+            assertThat(second).doesNotContainKeys("total", "facets");
+            assertThat((String) second.get("bookmark")).contains("r4");
+        }
+
+        @Test
+        void laterPagesStayOnTheIndexTheFirstPageUsed() {
+            String filter = "{\"department\":\"Finance\",\"location\":\"NY\"}";
+            Map<String, Object> first = parseObject(contract.searchReports(ledger.context(), filter, 1, ""));
+            assertThat(reportIds(first.get("reports"))).containsExactly("r0");
+
+            // Finance now has more reports than NY, so a new search would be driven by the location index instead
+            submit("r8", "Report", "Description", "Finance", "LA", 1);
+            submit("r9", "Report", "Description", "Finance", "LA", 1);
+            submit("r10", "Report", "Description", "Finance", "LA", 1);
+
+            assertThat(searchFrom(filter, 1, (String) first.get("bookmark"))).containsExactly("r4", "r7");
+            assertThat(searchAll(filter, 1)).containsExactly("r0", "r4", "r7");
+        }
+
+        @Test
+        void rejectsBookmarksFromAnotherFilter() {
+            Context ctx = ledger.context();
+            String bookmark = (String) parseObject(contract.searchReports(ctx, "{\"department\":\"Finance\"}", 1, ""))
+                    .get("bookmark");
+
+            assertThat(catchThrowable(() -> contract.searchReports(ctx, "{\"location\":\"NY\"}", 1, bookmark)))
+                    .isInstanceOf(ChaincodeException.class);
+            assertThat(catchThrowable(() -> contract.searchReports(ctx, "{\"department\":\"Finance\"}", 1, "r0")))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+    }
+
+    @Nested
+    class Archiving {
+
+        // Closed, but the reward claimed with the report's wallet is not yet paid
+        private void closeWithoutReward(final String id) {
+            submit(id);
+            contract.assignReport(ledger.nextTransaction(), id, "inv1", "Investigator One");
+            contract.addManagementSummary(ledger.nextTransaction(), id, "inv1", "summary");
+            contract.completeInvestigation(ledger.nextTransaction(), id, "inv1");
+            contract.permanentlyCloseCase(ledger.nextTransaction(), id, "manager", "closed");
+        }
+
+        private Map<String, Object> archive(final int olderThan, final String bookmark, final int batchSize) {
+            return parseObject(contract.archiveClosedReports(ledger.nextTransaction(), olderThan, bookmark, batchSize));
+        }
+
+        @BeforeEach
+        void closeReports() {
+            contract.setKeywordIndex(ledger.nextTransaction(), true);
+            closeWithoutReward("s1");
+            submit("s2");
+            contract.updateReportStatus(ledger.nextTransaction(), "s2", "completed");
+            runLifecycle("z0");
+            runLifecycle("z1");
+            ledger.nextTransaction(Instant.parse("2025-07-01T00:00:00Z"));
+        }
+
+        @Test
+        void archivedReportsReadBackWithAndWithoutChat() {
+            Map<String, Object> report = parseObject(genson.serialize(contract.queryReportById(ledger.context(), "z0")));
+
+            assertThat(archive(7, "", 10)).containsEntry("archived", 2L).containsEntry("skipped", 2L)
+                    .containsEntry("done", true);
+
+            Context ctx = ledger.context();
+            Map<String, Object> withChat = parseObject(contract.queryArchivedReport(ctx, "z0", true));
+            Map<String, Object> withoutChat = parseObject(contract.queryArchivedReport(ctx, "z0", false));
+            assertThat(withChat).isEqualTo(report);
+            assertThat((List<?>) withoutChat.get("chatHistory")).isEmpty();
+            withoutChat.put("chatHistory", report.get("chatHistory"));
+            assertThat(withoutChat).isEqualTo(report);
+        }
+
+        @Test
+        void archivedReportsLeaveEveryIndex() {
+            archive(7, "", 10);
+
+            assertThat(ledger.keys("report")).containsExactly("s1", "s2");
+            assertThat(ledger.keys("summary")).containsExactly("s1", "s2");
+            assertThat(ledger.keys("archive")).containsExactly("z0", "z1");
+            for (String type : new String[] {"statusDate", "facet", "term"}) {
+                assertThat(ledger.keys(type)).as(type).isNotEmpty().noneMatch(key -> key.matches(".*~z[01]"));
+            }
+            assertThat(catchThrowable(() -> contract.queryReportById(ledger.context(), "z0")))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+
+        @Test
+        void onlyReportsClosedBeforeTheCutoffAreArchived() {
+            assertThat(archive(60, "", 10)).containsEntry("archived", 0L).containsEntry("done", true);
+            assertThat(ledger.keys("archive")).isEmpty();
+        }
+
+        @Test
+        void archivedIdsCannotBeReused() {
+            archive(7, "", 10);
+
+            assertThat(catchThrowable(() -> submit("z0"))).isInstanceOf(ChaincodeException.class);
+        }
+
+        @Test
+        void batchesContinueAfterTheLastReportRead() {
+            Map<String, Object> first = archive(7, "", 1);
+            assertThat(first).containsEntry("archived", 1L).containsEntry("skipped", 2L).containsEntry("done", false);
+            assertThat(ledger.keys("archive")).containsExactly("z0");
+
+            // Reports that cannot be archived yet are not read again by the next batch
+            Map<String, Object> second = archive(7, (String) first.get("bookmark"), 1);
+            assertThat(second).containsEntry("archived", 1L).containsEntry("skipped", 0L).containsEntry("done", true);
+            assertThat(ledger.keys("archive")).containsExactly("z0", "z1");
+
+            assertThat(catchThrowable(() -> archive(7, "z0", 1))).isInstanceOf(ChaincodeException.class);
+        }
+    }
+
+    @Nested
+    class BatchReads {
+
+        @Test
+        void returnsFoundReportsAndListsMissingIds() {
+            submit("b0");
+            submit("b1");
+
+            Map<String, Object> result = parseObject(contract.queryReportsByIds(ledger.context(),
+                    "[\"b0\",\"nope\",\"b1\",\"b0\"]", "[\"id\",\"status\"]"));
+
+            assertThat(reportIds(result.get("reports"))).containsExactly("b0", "b1", "b0");
+            assertThat(result.get("missing")).isEqualTo(Collections.singletonList("nope"));
+        }
+
+        @Test
+        void rejectsMoreIdsThanABatch() {
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i <= 500; i++) {
+                ids.add("b" + i);
+            }
+
+            assertThat(catchThrowable(() -> contract.queryReportsByIds(ledger.context(), genson.serialize(ids), "")))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+    }
+
+    @Nested
+    class KeyMigration {
+
+        @BeforeEach
+        void submitLegacyReports() {
+            for (int i = 0; i < 7; i++) {
+                String id = "r" + i;
+                submit(id);
+                // Reports written before the report~ namespace are stored under their bare ID
+                String key = ledger.stub().createCompositeKey("report", id).toString();
+                ledger.state().put(id, ledger.state().remove(key));
+            }
+            ledger.putString("junk", "not a report");
+        }
+
+        @Test
+        void resumesFromTheBookmarkUntilDone() {
+            Map<String, Object> first = parseObject(contract.migrateReportKeys(ledger.nextTransaction(), "", 3));
+            // The batch counts the key that is not a report, which sorts first
+            assertThat(first.get("done")).isEqualTo(false);
+            assertThat(first.get("skipped")).isEqualTo(1L);
+            assertThat(ledger.keys("report")).containsExactly("r0", "r1");
+
+            // A later transaction continues from the bookmark, and reads find reports under either key meanwhile
+            assertThat(contract.queryReportById(ledger.context(), "r5").getTitle()).isEqualTo("Report r5");
+            int migrated = ((Number) first.get("migrated")).intValue();
+            int skipped = ((Number) first.get("skipped")).intValue();
+            String bookmark = (String) first.get("bookmark");
+            while (!bookmark.isEmpty()) {
+                Map<String, Object> next = parseObject(contract.migrateReportKeys(ledger.nextTransaction(), bookmark, 3));
+                migrated += ((Number) next.get("migrated")).intValue();
+                skipped += ((Number) next.get("skipped")).intValue();
+                bookmark = (String) next.get("bookmark");
+            }
+
+            assertThat(migrated).isEqualTo(7);
+            assertThat(skipped).isEqualTo(1);
+            assertThat(ledger.keys("report")).containsExactly("r0", "r1", "r2", "r3", "r4", "r5", "r6");
+            assertThat(ledger.state().subMap("\u0001", "\udbff\udfff").keySet()).containsExactly("junk");
+            assertThat(contract.queryReportById(ledger.context(), "r5").getTitle()).isEqualTo("Report r5");
+        }
+
+        @Test
+        void rejectsBatchSizesOutOfRange() {
+            assertThat(catchThrowable(() -> contract.migrateReportKeys(ledger.nextTransaction(), "", 0)))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+    }
+
+    @Nested
+    class StatusWindow {
+
+        // New reports count from the date given on submission
+        private void submitOn(final String id, final String date) {
+            contract.submitReport(ledger.nextTransaction(), id, "Report " + id, "Description of " + id, "anonymous", date,
+                    1, "wallet-" + id, "", false, "", "", "", "", "", false, "", "");
+        }
+
+        @BeforeEach
+        void submitReports() {
+            submitOn("w0", "2025-06-01");
+            submitOn("w1", "2025-06-03");
+            submitOn("w2", "2025-06-05");
+            submitOn("w3", "2025-06-08");
+            ledger.nextTransaction(Instant.parse("2025-06-05T09:00:00Z"));
+            contract.assignReport(ledger.context(), "w0", "inv1", "Investigator One");
+        }
+
+        @Test
+        void readsEachStatusOnceFromTheStartOfTheWindow() {
+            clearInvocations(ledger.stub());
+
+            String reports = contract.getReportsInWindow(ledger.context(), "20250602", "20250605");
+
+            assertThat(reportIds(reports)).containsExactly("w1", "w2", "w0");
+            verify(ledger.stub(), times(4)).getStateByPartialCompositeKeyWithPagination(any(CompositeKey.class),
+                    anyInt(), anyString());
+        }
+
+        @Test
+        void rejectsUnknownStatuses() {
+            Context ctx = ledger.nextTransaction();
+
+            assertThat(catchThrowable(() -> contract.updateReportStatus(ctx, "w3", "in progress")))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+    }
+
+    @Nested
+    class RichQueries {
+
+        @BeforeEach
+        void submitReports() {
+            submit("r0", "Report", "Description", "Finance", "NY", 1);
+            submit("r1", "Report", "Description", "HR", "NY", 2);
+        }
+
+        private String withoutDocType(final String key) {
+            String reportState = ledger.getString(key).replace("\"docType\":\"report\",", "");
+            assertThat(reportState).doesNotContain("docType");
+            return reportState;
+        }
+
+        @Test
+        void migrationAddsDocTypeToLegacyReports() {
+            String key = ledger.stub().createCompositeKey("report", "r0").toString();
+            ledger.putString("r0", withoutDocType(key));
+            ledger.state().remove(key);
+
+            contract.migrateReportKeys(ledger.nextTransaction(), "", 10);
+
+            assertThat(ledger.getString(key)).contains("\"docType\":\"report\"");
+        }
+
+        @Test
+        void rebuildAddsDocTypeToReportsWithoutOne() {
+            String key = ledger.stub().createCompositeKey("report", "r1").toString();
+            ledger.putString(key, withoutDocType(key));
+
+            Map<String, Object> result = parseObject(contract.rebuildReportSummaries(ledger.nextTransaction(), "", 10));
+
+            assertThat(((Number) result.get("rebuilt")).intValue()).isEqualTo(2);
+            assertThat(result.get("done")).isEqualTo(true);
+
+            assertThat(ledger.getString(key)).contains("\"docType\":\"report\"");
+            assertThat(contract.queryReportById(ledger.context(), "r1").getDepartment()).isEqualTo("HR");
+        }
+
+        @Test
+        void rebuildsEveryKindOfReportInBatches() {
+            // A report not yet migrated from its bare ID, a value that is not a report, and an event-sourced report
+            String key = ledger.stub().createCompositeKey("report", "r2").toString();
+            submit("r2", "Report", "Description", "IT", "LA", 1);
+            ledger.putString("r2", ledger.getString(key));
+            ledger.state().remove(key);
+            ledger.putString("junk", "not a report");
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            submit("r3", "Report", "Description", "HR", "LA", 3);
+            for (String id : Arrays.asList("r0", "r1", "r2", "r3")) {
+                ledger.state().remove(ledger.stub().createCompositeKey("summary", id).toString());
+            }
+            ledger.state().remove(ledger.stub().createCompositeKey("reportView", "r3").toString());
+
+            int rebuilt = 0;
+            int skipped = 0;
+            int batches = 0;
+            String bookmark = "";
+            do {
+                Map<String, Object> batch = parseObject(contract.rebuildReportSummaries(ledger.nextTransaction(), bookmark, 2));
+                rebuilt += ((Number) batch.get("rebuilt")).intValue();
+                skipped += ((Number) batch.get("skipped")).intValue();
+                bookmark = (String) batch.get("bookmark");
+                batches++;
+            } while (!bookmark.isEmpty());
+
+            assertThat(rebuilt).isEqualTo(4);
+            assertThat(skipped).isEqualTo(1);
+            assertThat(batches).isEqualTo(3);
+            assertThat(ledger.keys("summary")).containsExactly("r0", "r1", "r2", "r3");
+            assertThat(ledger.keys("reportView")).containsExactly("r3");
+        }
+
+        @Test
+        void rejectsRebuildBatchSizesOutOfRange() {
+            assertThat(catchThrowable(() -> contract.rebuildReportSummaries(ledger.nextTransaction(), "", 0)))
+                    .isInstanceOf(ChaincodeException.class);
+        }
+
+        @Test
+        void answersFromIndexesWhenSelectorsAreNotSupported() {
+            Map<String, Object> page = parseObject(contract.queryReportsRich(ledger.context(), "{\"department\":\"HR\"}", 10, ""));
+
+            assertThat(reportIds(page.get("reports"))).containsExactly("r1");
+            assertThat(page.get("source")).isEqualTo("indexes");
+        }
+
+        @Test
+        void answersFromIndexesForEventSourcedReportsWhenSelectorsAreNotSupported() {
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            submit("r2", "Report", "Description", "HR", "LA", 3);
+
+            Map<String, Object> page = parseObject(contract.queryReportsRich(ledger.context(), "{\"department\":\"HR\"}", 10, ""));
+
+            assertThat(reportIds(page.get("reports"))).containsExactly("r1", "r2");
+            assertThat(page.get("source")).isEqualTo("indexes");
+        }
+
+        @Test
+        void selectorsMatchDocumentAndEventSourcedReports() {
+            ledger.supportSelectors();
+            contract.setStorageEngine(ledger.nextTransaction(), "events");
+            submit("r2", "Report", "Description", "HR", "LA", 3);
+            ledger.transientData().put("responseMode", "ack".getBytes(StandardCharsets.UTF_8));
+            contract.addChatMessage(ledger.nextTransaction(), "r2", "whistleblower", "hello", "t1", "");
+
+            Map<String, Object> page = parseObject(contract.queryReportsRich(ledger.context(), "{\"department\":\"HR\"}", 10, ""));
+
+            assertThat(page.get("source")).isEqualTo("couchdb");
+            assertThat(reportIds(page.get("reports"))).containsExactlyInAnyOrder("r1", "r2");
+            // Event-sourced reports are returned as folded from their events, including blind chat appends
+            List<?> reports = (List<?>) page.get("reports");
+            Map<?, ?> eventSourced = (Map<?, ?>) reports.stream()
+                    .filter(report -> "r2".equals(((Map<?, ?>) report).get("id")))
+                    .findFirst()
+                    .get();
+            assertThat((List<?>) eventSourced.get("chatHistory")).hasSize(1);
+        }
+    }
+}
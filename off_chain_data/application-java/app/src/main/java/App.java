@@ -15,7 +15,9 @@ public final class App {
     private static final Map<String, Command> COMMANDS = Map.ofEntries(
             Map.entry("getAllAssets", new GetAllAssets()),
             Map.entry("transact", new Transact()),
-            Map.entry("listen", new Listen())
+            Map.entry("listen", new Listen()),
+            Map.entry("conflicts", new Conflicts()),
+            Map.entry("load", new Load())
     );
 
     private final List<String> commandNames;
@@ -9,6 +9,7 @@ import org.hyperledger.fabric.client.CommitException;
 import org.hyperledger.fabric.client.CommitStatusException;
 import org.hyperledger.fabric.client.Contract;
 import org.hyperledger.fabric.client.EndorseException;
+import org.hyperledger.fabric.client.Proposal;
 import org.hyperledger.fabric.client.SubmitException;
 
 import java.nio.charset.StandardCharsets;
@@ -42,6 +43,29 @@ public final class AssetTransferBasic {
         contract.submitTransaction("DeleteAsset", id);
     }
 
+    public Proposal newCreateAssetProposal(final Asset asset) {
+        return contract.newProposal("CreateAsset")
+                .addArguments(
+                        asset.getId(),
+                        asset.getColor(),
+                        Integer.toString(asset.getSize()),
+                        asset.getOwner(),
+                        Integer.toString(asset.getAppraisedValue()))
+                .build();
+    }
+
+    public Proposal newTransferAssetProposal(final String id, final String newOwner) {
+        return contract.newProposal("TransferAsset")
+                .addArguments(id, newOwner)
+                .build();
+    }
+
+    public Proposal newDeleteAssetProposal(final String id) {
+        return contract.newProposal("DeleteAsset")
+                .addArguments(id)
+                .build();
+    }
+
     public List<Asset> getAllAssets() throws EndorseException, CommitException, SubmitException, CommitStatusException {
         var resultBytes = contract.submitTransaction("GetAllAssets");
         var resultJson = new String(resultBytes, StandardCharsets.UTF_8);
@@ -0,0 +1,49 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Proposal;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Asset transfer basic workload. Keys are asset IDs, writes transfer the asset to a random owner, and reads
+ * evaluate ReadAsset.
+ */
+public final class AssetTransferBasicWorkload implements Workload {
+    private static final List<String> OWNERS = List.of("alice", "bob", "charlie");
+
+    private final AssetTransferBasic smartContract;
+    private final Contract contract;
+
+    public AssetTransferBasicWorkload(final Contract contract) {
+        this.smartContract = new AssetTransferBasic(contract);
+        this.contract = contract;
+    }
+
+    @Override
+    public Optional<Proposal> newSetupProposal(final String key) {
+        var asset = new Asset(key);
+        asset.setColor("blue");
+        asset.setSize(1);
+        asset.setOwner(Utils.randomElement(OWNERS));
+        asset.setAppraisedValue(1);
+        return Optional.of(smartContract.newCreateAssetProposal(asset));
+    }
+
+    @Override
+    public Proposal newWriteProposal(final String key) {
+        return smartContract.newTransferAssetProposal(key, Utils.randomElement(OWNERS));
+    }
+
+    @Override
+    public Proposal newReadProposal(final String key) {
+        return contract.newProposal("ReadAsset")
+                .addArguments(key)
+                .build();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import org.hyperledger.fabric.protos.gateway.GatewayGrpc;
+
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * gRPC channel that spreads calls across connections to several Gateway peers. A peer is unhealthy while its
+ * connection is in transient failure, so calls fail over to the remaining peers until it reconnects. If no peer is
+ * healthy, calls are distributed round robin so that every connection keeps trying to reconnect.
+ *
+ * <p>Evaluate calls are read-only, so they are routed to the healthy peer with the lowest recent latency, tracked as
+ * an exponentially weighted moving average and penalized by the recent error rate. A small fraction of evaluate calls
+ * go to a random peer so that the latency of peers not currently preferred stays up to date. If an evaluate call has
+ * no response once the configured percentile of evaluate latency has elapsed, the request is hedged by also sending
+ * it to the next fastest peer, and the first response is used. Other calls go to the healthy peer with the fewest
+ * calls in flight.
+ *
+ * <p>Calls already in progress are not moved to another peer when their peer fails. Long-running event streams should
+ * be resumed using a checkpoint.
+ */
+public final class ChannelPool extends Channel implements AutoCloseable {
+    private static final String EVALUATE_METHOD = GatewayGrpc.getEvaluateMethod().getFullMethodName();
+    private static final double EXPLORE_PROBABILITY = 0.05;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final long MIN_HEDGE_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final List<PeerEndpoint> endpoints;
+    private final AtomicInteger next = new AtomicInteger();
+    private final double hedgePercentile;
+    private final LatencyHistogram evaluateLatency = new LatencyHistogram();
+    private final ScheduledExecutorService hedgeScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "evaluate-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Create a pool.
+     * @param channels Named connections, typically one per Gateway peer.
+     * @param hedgePercentile Percentile of evaluate latency after which an evaluate request is hedged to another peer,
+     *                        or 0 to disable hedging.
+     */
+    public ChannelPool(final Map<String, ManagedChannel> channels, final double hedgePercentile) {
+        if (channels.isEmpty()) {
+            throw new IllegalArgumentException("At least one channel is required");
+        }
+
+        this.endpoints = channels.entrySet().stream()
+                .map(entry -> new PeerEndpoint(entry.getKey(), entry.getValue()))
+                .collect(Collectors.toList());
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    @Override
+    public <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(
+            final MethodDescriptor<RequestT, ResponseT> method, final CallOptions callOptions) {
+        if (method.getFullMethodName().equals(EVALUATE_METHOD)) {
+            return newEvaluateCall(method, callOptions);
+        }
+
+        return selectLeastLoaded().newCall(method, callOptions, false);
+    }
+
+    @Override
+    public String authority() {
+        return endpoints.get(0).getChannel().authority();
+    }
+
+    private PeerEndpoint selectLeastLoaded() {
+        var start = Math.floorMod(next.getAndIncrement(), endpoints.size());
+        PeerEndpoint selected = null;
+        for (int i = 0; i < endpoints.size(); i++) {
+            // Start from a rotating position so that ties between equally loaded peers are broken round robin
+            var candidate = endpoints.get((start + i) % endpoints.size());
+            if (candidate.isConnectable() && (selected == null || candidate.getInFlight() < selected.getInFlight())) {
+                selected = candidate;
+            }
+        }
+
+        return selected != null ? selected : endpoints.get(start);
+    }
+
+    private <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newEvaluateCall(
+            final MethodDescriptor<RequestT, ResponseT> method, final CallOptions callOptions) {
+        var ranked = endpoints.stream()
+                .filter(PeerEndpoint::isHealthy)
+                .sorted(Comparator.comparingDouble(PeerEndpoint::getScore))
+                .collect(Collectors.toList());
+        if (ranked.isEmpty()) {
+            return selectLeastLoaded().newCall(method, callOptions, true);
+        }
+
+        var random = ThreadLocalRandom.current();
+        if (random.nextDouble() < EXPLORE_PROBABILITY) {
+            // Includes peers marked unhealthy by errors, so that they are noticed when they recover
+            var candidate = endpoints.get(random.nextInt(endpoints.size()));
+            if (candidate.isConnectable()) {
+                return candidate.newCall(method, callOptions, true);
+            }
+        }
+
+        var primary = ranked.get(0);
+        if (ranked.size() < 2) {
+            return primary.newCall(method, callOptions, true);
+        }
+        if (hedgePercentile <= 0 || evaluateLatency.getCount() < MIN_HEDGE_SAMPLES) {
+            // Fail over to the next fastest peer, but without hedging
+            return new HedgedCall<>(method, callOptions, primary, ranked.get(1), -1, hedgeScheduler, evaluateLatency);
+        }
+
+        var hedgeDelayNanos = Math.max(TimeUnit.MICROSECONDS.toNanos(evaluateLatency.getPercentileMicros(hedgePercentile)),
+                MIN_HEDGE_DELAY_NANOS);
+        return new HedgedCall<>(method, callOptions, primary, ranked.get(1), hedgeDelayNanos, hedgeScheduler, evaluateLatency);
+    }
+
+    /**
+     * Connection state and call statistics for each peer, suitable for serialization as a JSON report.
+     * @return Metrics for each peer.
+     */
+    public List<Map<String, Object>> getMetrics() {
+        return endpoints.stream()
+                .map(PeerEndpoint::getMetrics)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Print connection state and call statistics for each peer.
+     * @param out Output stream.
+     */
+    public void printMetrics(final PrintStream out) {
+        out.println("\nGateway peer connections:");
+        for (var metrics : getMetrics()) {
+            out.printf("  %-30s %-18s in flight: %4d  calls: %8d  unavailable: %6d  evaluate EWMA: %8.2fms  error rate: %.2f%n",
+                    metrics.get("endpoint"), metrics.get("state"), metrics.get("inFlight"), metrics.get("calls"),
+                    metrics.get("unavailable"), metrics.get("latencyEwmaMs"), metrics.get("errorRateEwma"));
+        }
+        if (evaluateLatency.getCount() > 0) {
+            out.println("  evaluate attempts: " + evaluateLatency);
+        }
+    }
+
+    /**
+     * Initiate an immediate shutdown of all the connections.
+     * @return This pool.
+     */
+    public ChannelPool shutdownNow() {
+        hedgeScheduler.shutdownNow();
+        endpoints.forEach(endpoint -> endpoint.getChannel().shutdownNow());
+        return this;
+    }
+
+    /**
+     * Wait for all the connections to terminate after shutdown.
+     * @param timeout Maximum time to wait.
+     * @param unit Time unit of the timeout.
+     * @return true if all connections terminated.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        var deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (var endpoint : endpoints) {
+            var remaining = Math.max(deadline - System.nanoTime(), 0L);
+            if (!endpoint.getChannel().awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        shutdownNow().awaitTermination(1, TimeUnit.SECONDS);
+    }
+}
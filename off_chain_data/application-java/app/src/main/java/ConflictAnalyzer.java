@@ -0,0 +1,284 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.hyperledger.fabric.protos.ledger.rwset.kvrwset.KVRead;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import parser.Block;
+import parser.NamespaceReadWriteSet;
+import parser.Transaction;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Attributes transactions invalidated by MVCC read conflicts to the ledger keys and chaincode functions that caused
+ * them. Blocks must be supplied in ledger order so that the last committed writer of each key is known at the point
+ * an invalidated transaction is encountered.
+ */
+public final class ConflictAnalyzer {
+    private static final int BAR_WIDTH = 40;
+
+    private final Map<String, KeyVersion> lastWrites = new HashMap<>();
+    private final Map<String, KeyConflicts> conflictsByKey = new HashMap<>();
+    private final Map<String, Integer> conflictsByFunctions = new HashMap<>();
+    private long firstBlock = -1;
+    private long lastBlock = -1;
+    private long transactionCount = 0;
+    private long invalidatedCount = 0;
+    private long unattributedCount = 0;
+
+    public void process(final Block block) throws InvalidProtocolBufferException {
+        var blockNumber = block.getNumber();
+        if (firstBlock < 0) {
+            firstBlock = blockNumber;
+        }
+        lastBlock = blockNumber;
+
+        // Transactions are validated in block order, so a transaction can conflict with an earlier one in the same block.
+        for (var transaction : block.getTransactions()) {
+            transactionCount++;
+            if (transaction.isValid()) {
+                recordWrites(blockNumber, transaction);
+            } else if (isReadConflict(transaction.getValidationCode())) {
+                invalidatedCount++;
+                attributeConflict(blockNumber, transaction);
+            }
+        }
+    }
+
+    private static boolean isReadConflict(final TxValidationCode code) {
+        return code == TxValidationCode.MVCC_READ_CONFLICT || code == TxValidationCode.PHANTOM_READ_CONFLICT;
+    }
+
+    private void recordWrites(final long blockNumber, final Transaction transaction) throws InvalidProtocolBufferException {
+        var function = transaction.getChaincodeFunction();
+        var version = new KeyVersion(blockNumber, transaction.getTransactionNumber(), function);
+
+        for (var readWriteSet : getApplicationReadWriteSets(transaction)) {
+            var namespace = readWriteSet.getNamespace();
+            for (var write : readWriteSet.getReadWriteSet().getWritesList()) {
+                lastWrites.put(compositeKey(namespace, write.getKey()), write.getIsDelete() ? version.deleted() : version);
+            }
+        }
+    }
+
+    private void attributeConflict(final long blockNumber, final Transaction transaction) throws InvalidProtocolBufferException {
+        var function = transaction.getChaincodeFunction();
+        var attributed = false;
+
+        for (var readWriteSet : getApplicationReadWriteSets(transaction)) {
+            var namespace = readWriteSet.getNamespace();
+            var kvReadWriteSet = readWriteSet.getReadWriteSet();
+
+            for (var read : kvReadWriteSet.getReadsList()) {
+                var lastWrite = lastWrites.get(compositeKey(namespace, read.getKey()));
+                if (lastWrite != null && !lastWrite.matches(read)) {
+                    recordConflict(namespace, read.getKey(), blockNumber, function, lastWrite.function);
+                    attributed = true;
+                }
+            }
+
+            if (transaction.getValidationCode() == TxValidationCode.PHANTOM_READ_CONFLICT) {
+                for (var range : kvReadWriteSet.getRangeQueriesInfoList()) {
+                    var label = "range[" + range.getStartKey() + ", " + range.getEndKey() + ")";
+                    recordConflict(namespace, label, blockNumber, function, "");
+                    attributed = true;
+                }
+            }
+        }
+
+        if (!attributed) {
+            // Typically the conflicting write was committed before the first analyzed block.
+            unattributedCount++;
+        }
+    }
+
+    private List<NamespaceReadWriteSet> getApplicationReadWriteSets(final Transaction transaction) throws InvalidProtocolBufferException {
+        return transaction.getNamespaceReadWriteSets().stream()
+                .filter(readWriteSet -> !TransactionProcessor.isSystemChaincode(readWriteSet.getNamespace()))
+                .collect(Collectors.toList());
+    }
+
+    private void recordConflict(final String namespace, final String key, final long blockNumber,
+                                final String invalidatedFunction, final String writerFunction) {
+        conflictsByKey.computeIfAbsent(compositeKey(namespace, key), k -> new KeyConflicts(namespace, key))
+                .add(blockNumber, invalidatedFunction, writerFunction);
+        conflictsByFunctions.merge(functionPair(invalidatedFunction, writerFunction), 1, Integer::sum);
+    }
+
+    private static String compositeKey(final String namespace, final String key) {
+        return namespace + '\u0000' + key;
+    }
+
+    private static String functionPair(final String invalidatedFunction, final String writerFunction) {
+        var writer = writerFunction.isEmpty() ? "?" : writerFunction;
+        return invalidatedFunction + " <- " + writer;
+    }
+
+    /**
+     * Hot keys ordered from most to least conflicted.
+     * @return Conflict statistics for each key.
+     */
+    public List<KeyConflicts> getHotKeys() {
+        var results = new ArrayList<>(conflictsByKey.values());
+        results.sort(Comparator.comparingInt(KeyConflicts::getCount).reversed()
+                .thenComparing(KeyConflicts::getNamespace)
+                .thenComparing(KeyConflicts::getKey));
+        return results;
+    }
+
+    /**
+     * Summary suitable for serialization as a JSON report.
+     * @param limit Maximum number of hot keys to include.
+     * @return Report content.
+     */
+    public Map<String, Object> getReport(final int limit) {
+        var report = new LinkedHashMap<String, Object>();
+        report.put("firstBlock", firstBlock);
+        report.put("lastBlock", lastBlock);
+        report.put("transactions", transactionCount);
+        report.put("invalidated", invalidatedCount);
+        report.put("unattributed", unattributedCount);
+        report.put("hotKeys", getHotKeys().stream().limit(limit).collect(Collectors.toList()));
+        report.put("functions", sortByCount(conflictsByFunctions));
+        return report;
+    }
+
+    /**
+     * Print a text heatmap of the most conflicted keys and the function pairs responsible.
+     * @param out Output stream.
+     * @param limit Maximum number of hot keys to print.
+     */
+    public void printHeatmap(final PrintStream out, final int limit) {
+        out.println("\nAnalyzed blocks " + Long.toUnsignedString(firstBlock) + " to " + Long.toUnsignedString(lastBlock)
+                + ": " + transactionCount + " transactions, " + invalidatedCount + " invalidated by read conflicts, "
+                + unattributedCount + " unattributed");
+
+        var hotKeys = getHotKeys().stream().limit(limit).collect(Collectors.toList());
+        if (hotKeys.isEmpty()) {
+            out.println("No read conflicts found");
+            return;
+        }
+
+        var max = hotKeys.get(0).getCount();
+        out.println("\nHot keys:");
+        for (var keyConflicts : hotKeys) {
+            out.printf("%-" + BAR_WIDTH + "s %6d  %s/%s%n", bar(keyConflicts.getCount(), max), keyConflicts.getCount(),
+                    keyConflicts.getNamespace(), keyConflicts.getKey());
+            keyConflicts.getFunctions().forEach((pair, count) -> out.printf("%" + BAR_WIDTH + "s %6d    %s%n", "", count, pair));
+        }
+
+        out.println("\nInvalidated function <- conflicting writer function:");
+        sortByCount(conflictsByFunctions).forEach((pair, count) -> out.printf("%6d  %s%n", count, pair));
+    }
+
+    private static String bar(final int count, final int max) {
+        var width = Math.max(1, (int) Math.round((double) count * BAR_WIDTH / max));
+        return String.join("", Collections.nCopies(width, "#"));
+    }
+
+    private static Map<String, Integer> sortByCount(final Map<String, Integer> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Conflict statistics for a single ledger key.
+     */
+    public static final class KeyConflicts {
+        private final String namespace;
+        private final String key;
+        private int count = 0;
+        private long firstBlock = -1;
+        private long lastBlock = -1;
+        private final Map<String, Integer> functions = new HashMap<>();
+
+        KeyConflicts(final String namespace, final String key) {
+            this.namespace = namespace;
+            this.key = key;
+        }
+
+        void add(final long blockNumber, final String invalidatedFunction, final String writerFunction) {
+            count++;
+            if (firstBlock < 0) {
+                firstBlock = blockNumber;
+            }
+            lastBlock = blockNumber;
+            functions.merge(functionPair(invalidatedFunction, writerFunction), 1, Integer::sum);
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public long getFirstBlock() {
+            return firstBlock;
+        }
+
+        public long getLastBlock() {
+            return lastBlock;
+        }
+
+        /**
+         * Number of conflicts on this key for each invalidated / conflicting writer function pair.
+         * @return Conflict counts ordered from most to least frequent.
+         */
+        public Map<String, Integer> getFunctions() {
+            return sortByCount(functions);
+        }
+    }
+
+    /**
+     * Version of the last committed write to a key, which a valid read must match.
+     */
+    private static final class KeyVersion {
+        private final long blockNumber;
+        private final long transactionNumber;
+        private final String function;
+        private final boolean isDelete;
+
+        KeyVersion(final long blockNumber, final long transactionNumber, final String function) {
+            this(blockNumber, transactionNumber, function, false);
+        }
+
+        private KeyVersion(final long blockNumber, final long transactionNumber, final String function, final boolean isDelete) {
+            this.blockNumber = blockNumber;
+            this.transactionNumber = transactionNumber;
+            this.function = function;
+            this.isDelete = isDelete;
+        }
+
+        KeyVersion deleted() {
+            return new KeyVersion(blockNumber, transactionNumber, function, true);
+        }
+
+        boolean matches(final KVRead read) {
+            if (!read.hasVersion()) {
+                return isDelete;
+            }
+
+            var readVersion = read.getVersion();
+            return !isDelete && readVersion.getBlockNum() == blockNumber && readVersion.getTxNum() == transactionNumber;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import io.grpc.Channel;
+import org.hyperledger.fabric.client.GatewayException;
+import org.hyperledger.fabric.client.Network;
+import org.hyperledger.fabric.protos.common.BlockchainInfo;
+import parser.BlockParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.InvalidKeyException;
+import java.security.cert.CertificateException;
+
+/**
+ * Scan a range of blocks and report the ledger keys and chaincode functions responsible for transactions invalidated
+ * by MVCC read conflicts. The most conflicted keys are the first candidates for sharding.
+ */
+public final class Conflicts implements Command {
+    private static final Path REPORT_FILE = Paths.get(Utils.getEnvOrDefault("CONFLICT_REPORT_FILE", "conflicts.json"));
+    private static final long START_BLOCK = Utils.getEnvOrDefault("START_BLOCK", Long::parseUnsignedLong, 0L);
+    private static final long END_BLOCK = Utils.getEnvOrDefault("END_BLOCK", Long::parseUnsignedLong, -1L);
+    private static final int HEATMAP_SIZE = Utils.getEnvOrDefault("HEATMAP_SIZE", Integer::parseUnsignedInt, 20);
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    @Override
+    public void run(final Channel grpcChannel)
+            throws CertificateException, IOException, InvalidKeyException, GatewayException {
+        try (var gateway = Connections.newGatewayBuilder(grpcChannel).connect()) {
+            var network = gateway.getNetwork(Connections.CHANNEL_NAME);
+            var endBlock = END_BLOCK >= 0 ? END_BLOCK : getLastBlockNumber(network);
+
+            System.out.println("Analyzing read conflicts in blocks " + Long.toUnsignedString(START_BLOCK)
+                    + " to " + Long.toUnsignedString(endBlock));
+
+            var analyzer = new ConflictAnalyzer();
+            if (endBlock >= START_BLOCK) {
+                try (var blocks = network.newBlockEventsRequest()
+                        .startBlock(START_BLOCK)
+                        .build()
+                        .getEvents()) {
+                    while (blocks.hasNext()) {
+                        var block = BlockParser.parseBlock(blocks.next());
+                        analyzer.process(block);
+                        if (block.getNumber() >= endBlock) {
+                            break;
+                        }
+                    }
+                }
+            }
+
+            analyzer.printHeatmap(System.out, HEATMAP_SIZE);
+            Files.writeString(REPORT_FILE, GSON.toJson(analyzer.getReport(HEATMAP_SIZE)));
+            System.out.println("\nConflict report written to " + REPORT_FILE);
+        }
+    }
+
+    private static long getLastBlockNumber(final Network network) throws GatewayException, IOException {
+        var resultBytes = network.getContract("qscc").evaluateTransaction("GetChainInfo", network.getName());
+        return BlockchainInfo.parseFrom(resultBytes).getHeight() - 1;
+    }
+}
@@ -22,7 +22,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.InvalidKeyException;
 import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public final class Connections {
     public static final String CHANNEL_NAME = Utils.getEnvOrDefault("CHANNEL_NAME", "mychannel");
@@ -65,28 +69,73 @@ public final class Connections {
     // Gateway peer SSL host name override.
     private static final String PEER_HOST_ALIAS = Utils.getEnvOrDefault("PEER_HOST_ALIAS", PEER_NAME);
 
-    private static final long EVALUATE_TIMEOUT_SECONDS = 5;
-    private static final long ENDORSE_TIMEOUT_SECONDS = 15;
-    private static final long SUBMIT_TIMEOUT_SECONDS = 5;
-    private static final long COMMIT_STATUS_TIMEOUT_SECONDS = 60;
+    // Comma-separated Gateway peer end points, SSL host name overrides and TLS certificate paths, matched by position.
+    // Missing host name overrides and TLS certificate paths default to the single peer values above.
+    private static final List<String> PEER_ENDPOINTS = Utils.getEnvOrDefault("PEER_ENDPOINTS", Connections::splitList, List.of(PEER_ENDPOINT));
+    private static final List<String> PEER_HOST_ALIASES = Utils.getEnvOrDefault("PEER_HOST_ALIASES", Connections::splitList, List.of());
+    private static final List<String> TLS_CERT_PATHS = Utils.getEnvOrDefault("TLS_CERT_PATHS", Connections::splitList, List.of());
+
+    // Keepalive pings detect broken connections while idle. Peers reject pings more frequent than their
+    // peer.keepalive.client.interval setting, which defaults to 60 seconds.
+    private static final long KEEPALIVE_TIME_SECONDS = Utils.getEnvOrDefault("KEEPALIVE_TIME_SECONDS", Long::parseUnsignedLong, 120L);
+    private static final long KEEPALIVE_TIMEOUT_SECONDS = Utils.getEnvOrDefault("KEEPALIVE_TIMEOUT_SECONDS", Long::parseUnsignedLong, 20L);
+
+    // Percentile of evaluate latency after which evaluate requests are also sent to the next fastest peer, or 0 to disable.
+    private static final double HEDGE_PERCENTILE = Utils.getEnvOrDefault("HEDGE_PERCENTILE", Double::parseDouble, 95.0);
+
+    private static final long EVALUATE_TIMEOUT_SECONDS = Utils.getEnvOrDefault("EVALUATE_TIMEOUT_SECONDS", Long::parseUnsignedLong, 5L);
+    private static final long ENDORSE_TIMEOUT_SECONDS = Utils.getEnvOrDefault("ENDORSE_TIMEOUT_SECONDS", Long::parseUnsignedLong, 15L);
+    private static final long SUBMIT_TIMEOUT_SECONDS = Utils.getEnvOrDefault("SUBMIT_TIMEOUT_SECONDS", Long::parseUnsignedLong, 5L);
+    private static final long COMMIT_STATUS_TIMEOUT_SECONDS = Utils.getEnvOrDefault("COMMIT_STATUS_TIMEOUT_SECONDS", Long::parseUnsignedLong, 60L);
+
+    // Identity and signer are loaded once and shared by all Gateway connections.
+    private static Identity identity;
+    private static Signer signer;
 
     private Connections() {
         // Private constructor to prevent instantiation
     }
 
-    public static ManagedChannel newGrpcConnection() throws IOException {
+    /**
+     * Create connections to all the configured Gateway peers, pooled as a single channel.
+     * @return Connection pool.
+     * @throws IOException if a TLS certificate cannot be read.
+     */
+    public static ChannelPool newGrpcConnection() throws IOException {
+        var channels = new LinkedHashMap<String, ManagedChannel>();
+        for (int i = 0; i < PEER_ENDPOINTS.size(); i++) {
+            var endpoint = PEER_ENDPOINTS.get(i);
+            var hostAlias = i < PEER_HOST_ALIASES.size() ? PEER_HOST_ALIASES.get(i) : PEER_HOST_ALIAS;
+            var tlsCertPath = i < TLS_CERT_PATHS.size() ? Paths.get(TLS_CERT_PATHS.get(i)) : TLS_CERT_PATH;
+            channels.put(endpoint, newGrpcConnection(endpoint, hostAlias, tlsCertPath));
+        }
+
+        return new ChannelPool(channels, HEDGE_PERCENTILE);
+    }
+
+    private static ManagedChannel newGrpcConnection(final String endpoint, final String hostAlias, final Path tlsCertPath) throws IOException {
         var credentials = TlsChannelCredentials.newBuilder()
-                .trustManager(TLS_CERT_PATH.toFile())
+                .trustManager(tlsCertPath.toFile())
                 .build();
-        return Grpc.newChannelBuilder(PEER_ENDPOINT, credentials)
-                .overrideAuthority(PEER_HOST_ALIAS)
+        return Grpc.newChannelBuilder(endpoint, credentials)
+                .overrideAuthority(hostAlias)
+                .keepAliveTime(KEEPALIVE_TIME_SECONDS, TimeUnit.SECONDS)
+                .keepAliveTimeout(KEEPALIVE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .keepAliveWithoutCalls(true)
                 .build();
     }
 
+    private static List<String> splitList(final String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+
     public static Gateway.Builder newGatewayBuilder(final Channel grpcChannel) throws CertificateException, IOException, InvalidKeyException {
         return Gateway.newInstance()
-                .identity(newIdentity())
-                .signer(newSigner())
+                .identity(getIdentity())
+                .signer(getSigner())
                 .hash(Hash.SHA256)
                 .connection(grpcChannel)
                 .evaluateOptions(options -> options.withDeadlineAfter(EVALUATE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
@@ -95,6 +144,20 @@ public final class Connections {
                 .commitStatusOptions(options -> options.withDeadlineAfter(COMMIT_STATUS_TIMEOUT_SECONDS, TimeUnit.SECONDS));
     }
 
+    private static synchronized Identity getIdentity() throws IOException, CertificateException {
+        if (identity == null) {
+            identity = newIdentity();
+        }
+        return identity;
+    }
+
+    private static synchronized Signer getSigner() throws IOException, InvalidKeyException {
+        if (signer == null) {
+            signer = newSigner();
+        }
+        return signer;
+    }
+
     private static Identity newIdentity() throws IOException, CertificateException {
         var certReader = Files.newBufferedReader(CERT_PATH);
         var certificate = Identities.readX509Certificate(certReader);
@@ -0,0 +1,226 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unary call that is sent to a primary peer and, if no response arrives within a delay, also to a backup peer. The
+ * first peer to respond wins, and the other attempt is cancelled. If the primary fails with a peer error before the
+ * delay, the backup is tried immediately. A negative delay disables hedging, so the backup is used only on failure.
+ * Only read-only calls such as evaluate may be hedged, since the request can be processed by both peers.
+ *
+ * <p>Attempts run with a direct executor, so that a losing attempt can complete after the caller stops waiting, for
+ * example when a blocking stub returns. Callbacks to the caller are passed in order to the executor from the
+ * caller's call options.
+ *
+ * @param <RequestT> Request type.
+ * @param <ResponseT> Response type.
+ */
+final class HedgedCall<RequestT, ResponseT> extends ClientCall<RequestT, ResponseT> {
+    private final MethodDescriptor<RequestT, ResponseT> method;
+    private final CallOptions callOptions;
+    private final PeerEndpoint primary;
+    private final PeerEndpoint backup;
+    private final long hedgeDelayNanos;
+    private final ScheduledExecutorService scheduler;
+    private final LatencyHistogram latencies;
+    private final Executor callerExecutor;
+    private final Queue<Runnable> callbacks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final List<ClientCall<RequestT, ResponseT>> attempts = new ArrayList<>();
+    private Listener<ResponseT> listener;
+    private Metadata headers;
+    private RequestT message;
+    private int requested = 0;
+    private boolean backupStarted = false;
+    private ClientCall<RequestT, ResponseT> winner;
+    private boolean closed = false;
+    private int failures = 0;
+    private Status lastFailure;
+    private Metadata lastTrailers;
+
+    HedgedCall(final MethodDescriptor<RequestT, ResponseT> method, final CallOptions callOptions, final PeerEndpoint primary,
+               final PeerEndpoint backup, final long hedgeDelayNanos, final ScheduledExecutorService scheduler,
+               final LatencyHistogram latencies) {
+        this.method = method;
+        this.callOptions = callOptions.withExecutor(Runnable::run);
+        this.callerExecutor = callOptions.getExecutor();
+        this.primary = primary;
+        this.backup = backup;
+        this.hedgeDelayNanos = hedgeDelayNanos;
+        this.scheduler = scheduler;
+        this.latencies = latencies;
+    }
+
+    @Override
+    public synchronized void start(final Listener<ResponseT> responseListener, final Metadata requestHeaders) {
+        this.listener = responseListener;
+        this.headers = requestHeaders;
+    }
+
+    @Override
+    public synchronized void request(final int numMessages) {
+        requested += numMessages;
+        attempts.forEach(attempt -> attempt.request(numMessages));
+    }
+
+    @Override
+    public synchronized void sendMessage(final RequestT requestMessage) {
+        this.message = requestMessage;
+    }
+
+    @Override
+    public synchronized void halfClose() {
+        startAttempt(primary);
+        if (hedgeDelayNanos >= 0) {
+            scheduler.schedule(this::startBackup, hedgeDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void cancel(final String cancelMessage, final Throwable cause) {
+        attempts.forEach(attempt -> attempt.cancel(cancelMessage, cause));
+        if (attempts.isEmpty() && !closed && listener != null) {
+            closed = true;
+            var status = Status.CANCELLED.withDescription(cancelMessage).withCause(cause);
+            deliver(() -> listener.onClose(status, new Metadata()));
+        }
+    }
+
+    private synchronized void startBackup() {
+        if (!backupStarted && winner == null && !closed) {
+            backupStarted = true;
+            startAttempt(backup);
+        }
+    }
+
+    private void startAttempt(final PeerEndpoint endpoint) {
+        var attempt = endpoint.newCall(method, callOptions, true);
+        attempts.add(attempt);
+
+        var attemptHeaders = new Metadata();
+        attemptHeaders.merge(headers);
+        attempt.start(new AttemptListener(attempt, System.nanoTime()), attemptHeaders);
+        if (requested > 0) {
+            attempt.request(requested);
+        }
+        attempt.sendMessage(message);
+        attempt.halfClose();
+    }
+
+    private void deliver(final Runnable callback) {
+        callbacks.add(callback);
+        if (callerExecutor == null) {
+            // Callers without an executor are called directly, in order since attempt callbacks hold this call's lock
+            drain();
+        } else {
+            callerExecutor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        // Only one thread runs callbacks at a time, in the order they were queued
+        while (!callbacks.isEmpty() && draining.compareAndSet(false, true)) {
+            try {
+                for (var callback = callbacks.poll(); callback != null; callback = callbacks.poll()) {
+                    callback.run();
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    private boolean claim(final ClientCall<RequestT, ResponseT> attempt) {
+        if (winner == null) {
+            winner = attempt;
+            attempts.stream()
+                    .filter(other -> other != attempt)
+                    .forEach(other -> other.cancel("Request completed by another peer", null));
+        }
+        return winner == attempt;
+    }
+
+    private final class AttemptListener extends ClientCall.Listener<ResponseT> {
+        private final ClientCall<RequestT, ResponseT> attempt;
+        private final long startTime;
+
+        AttemptListener(final ClientCall<RequestT, ResponseT> attempt, final long startTime) {
+            this.attempt = attempt;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public void onHeaders(final Metadata responseHeaders) {
+            synchronized (HedgedCall.this) {
+                if (claim(attempt)) {
+                    deliver(() -> listener.onHeaders(responseHeaders));
+                }
+            }
+        }
+
+        @Override
+        public void onMessage(final ResponseT responseMessage) {
+            synchronized (HedgedCall.this) {
+                if (claim(attempt)) {
+                    deliver(() -> listener.onMessage(responseMessage));
+                }
+            }
+        }
+
+        @Override
+        public void onClose(final Status status, final Metadata trailers) {
+            synchronized (HedgedCall.this) {
+                if (status.isOk()) {
+                    latencies.recordNanos(System.nanoTime() - startTime);
+                }
+
+                if (winner == null && isPeerFailure(status)) {
+                    onAttemptFailed(status, trailers);
+                } else if (claim(attempt) && !closed) {
+                    closed = true;
+                    deliver(() -> listener.onClose(status, trailers));
+                }
+            }
+        }
+
+        private void onAttemptFailed(final Status status, final Metadata trailers) {
+            failures++;
+            lastFailure = status;
+            lastTrailers = trailers;
+
+            if (!backupStarted && !closed) {
+                // Fail over immediately rather than waiting for the hedge delay
+                backupStarted = true;
+                startAttempt(backup);
+            } else if (failures == attempts.size() && !closed) {
+                closed = true;
+                var failure = lastFailure;
+                var failureTrailers = lastTrailers;
+                deliver(() -> listener.onClose(failure, failureTrailers));
+            }
+        }
+    }
+
+    private static boolean isPeerFailure(final Status status) {
+        var code = status.getCode();
+        return code == Status.Code.UNAVAILABLE || code == Status.Code.RESOURCE_EXHAUSTED || code == Status.Code.INTERNAL;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses workload keys from a fixed key space, either uniformly or with a Zipfian distribution. With a Zipfian
+ * distribution the probability of choosing the key of rank k is proportional to 1 / k^exponent, so a small number of
+ * hot keys receive most of the operations.
+ */
+public final class KeyChooser {
+    private final String prefix;
+    private final int keyCount;
+    private final double[] cumulativeProbabilities;
+
+    private KeyChooser(final String prefix, final int keyCount, final double[] cumulativeProbabilities) {
+        this.prefix = prefix;
+        this.keyCount = keyCount;
+        this.cumulativeProbabilities = cumulativeProbabilities;
+    }
+
+    /**
+     * Choose keys with equal probability.
+     * @param prefix Prefix for generated keys.
+     * @param keyCount Number of keys.
+     * @return Key chooser.
+     */
+    public static KeyChooser uniform(final String prefix, final int keyCount) {
+        checkKeyCount(keyCount);
+        return new KeyChooser(prefix, keyCount, null);
+    }
+
+    /**
+     * Choose keys with a Zipfian distribution.
+     * @param prefix Prefix for generated keys.
+     * @param keyCount Number of keys.
+     * @param exponent Skew of the distribution; 0 is uniform, and values around 1 are typical of real workloads.
+     * @return Key chooser.
+     */
+    public static KeyChooser zipfian(final String prefix, final int keyCount, final double exponent) {
+        checkKeyCount(keyCount);
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Zipfian exponent must not be negative: " + exponent);
+        }
+
+        var cumulative = new double[keyCount];
+        var sum = 0.0;
+        for (int i = 0; i < keyCount; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < keyCount; i++) {
+            cumulative[i] /= sum;
+        }
+
+        return new KeyChooser(prefix, keyCount, cumulative);
+    }
+
+    private static void checkKeyCount(final int keyCount) {
+        if (keyCount < 1) {
+            throw new IllegalArgumentException("Key count must be at least 1: " + keyCount);
+        }
+    }
+
+    public int getKeyCount() {
+        return keyCount;
+    }
+
+    /**
+     * Key at a given index in the key space.
+     * @param index Key index, from 0 (the hottest key) to the key count - 1.
+     * @return Key.
+     */
+    public String keyAt(final int index) {
+        return prefix + index;
+    }
+
+    /**
+     * Choose a random key.
+     * @return Key.
+     */
+    public String nextKey() {
+        var random = ThreadLocalRandom.current();
+        if (cumulativeProbabilities == null) {
+            return keyAt(random.nextInt(keyCount));
+        }
+
+        var index = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        return keyAt(Math.min(index >= 0 ? index : -index - 1, keyCount - 1));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe latency histogram with microsecond resolution and bounded relative error. Values below 128
+ * microseconds are recorded exactly. Larger values are recorded in logarithmic buckets each split into 64 linear
+ * sub-buckets, in the style of an HDR histogram, so percentiles are accurate to within about 1.6%.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int EXACT_LIMIT = SUB_BUCKET_COUNT * 2;
+    private static final int MAX_SHIFT = Long.SIZE - SUB_BUCKET_BITS - 1;
+    private static final double PERCENT = 100.0;
+    private static final double[] SUMMARY_PERCENTILES = {50.0, 90.0, 99.0, 99.9};
+
+    private final AtomicLongArray counts = new AtomicLongArray(EXACT_LIMIT + MAX_SHIFT * SUB_BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * Record a latency.
+     * @param nanos Elapsed time in nanoseconds.
+     */
+    public void recordNanos(final long nanos) {
+        var micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0L);
+        counts.incrementAndGet(indexOf(micros));
+        totalCount.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int indexOf(final long micros) {
+        if (micros < EXACT_LIMIT) {
+            return (int) micros;
+        }
+
+        var shift = Long.SIZE - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS - 1;
+        var subBucket = (int) (micros >>> shift) - SUB_BUCKET_COUNT;
+        return EXACT_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long highestValueAt(final int index) {
+        if (index < EXACT_LIMIT) {
+            return index;
+        }
+
+        var shift = (index - EXACT_LIMIT) / SUB_BUCKET_COUNT + 1;
+        var subBucket = (index - EXACT_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((long) (subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        var count = totalCount.get();
+        return count > 0 ? (double) totalMicros.get() / count : 0;
+    }
+
+    /**
+     * Latency at or below which the given percentage of recorded values fall.
+     * @param percentile Percentile in the range 0 to 100.
+     * @return Latency in microseconds, or 0 if no values have been recorded.
+     */
+    public long getPercentileMicros(final double percentile) {
+        var count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+
+        var target = Math.max((long) Math.ceil(percentile / PERCENT * count), 1L);
+        var seen = 0L;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueAt(i), maxMicros.get());
+            }
+        }
+
+        return maxMicros.get();
+    }
+
+    /**
+     * Summary suitable for serialization as part of a JSON report.
+     * @return Count, mean, max and common percentiles, with latencies in milliseconds.
+     */
+    public Map<String, Object> getSummary() {
+        var summary = new LinkedHashMap<String, Object>();
+        summary.put("count", getCount());
+        summary.put("meanMs", toMillis(getMeanMicros()));
+        for (var percentile : SUMMARY_PERCENTILES) {
+            summary.put("p" + formatPercentile(percentile) + "Ms", toMillis(getPercentileMicros(percentile)));
+        }
+        summary.put("maxMs", toMillis(getMaxMicros()));
+        return summary;
+    }
+
+    /**
+     * One-line text summary with latencies in milliseconds.
+     * @return Summary text.
+     */
+    @Override
+    public String toString() {
+        var result = new StringBuilder("n=").append(getCount())
+                .append(String.format(" mean=%.2fms", toMillis(getMeanMicros())));
+        for (var percentile : SUMMARY_PERCENTILES) {
+            result.append(String.format(" p%s=%.2fms", formatPercentile(percentile), toMillis(getPercentileMicros(percentile))));
+        }
+        return result.append(String.format(" max=%.2fms", toMillis(getMaxMicros()))).toString();
+    }
+
+    private static double toMillis(final double micros) {
+        return micros / TimeUnit.MILLISECONDS.toMicros(1);
+    }
+
+    private static String formatPercentile(final double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+}
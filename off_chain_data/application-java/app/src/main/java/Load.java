@@ -0,0 +1,29 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.grpc.Channel;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.cert.CertificateException;
+
+public final class Load implements Command {
+    @Override
+    public void run(final Channel grpcChannel)
+            throws CertificateException, IOException, InvalidKeyException, InterruptedException {
+        try (var gateway = Connections.newGatewayBuilder(grpcChannel).connect()) {
+            var network = gateway.getNetwork(Connections.CHANNEL_NAME);
+            var contract = network.getContract(Connections.CHAINCODE_NAME);
+
+            var app = new LoadApp(contract);
+            app.run();
+
+            if (grpcChannel instanceof ChannelPool) {
+                ((ChannelPool) grpcChannel).printMetrics(System.out);
+            }
+        }
+    }
+}
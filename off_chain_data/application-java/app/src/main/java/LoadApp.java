@@ -0,0 +1,178 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.hyperledger.fabric.client.Contract;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a configurable read / write workload against a smart contract for a fixed duration, and reports throughput
+ * and latency percentiles for each transaction phase. Writes are submitted through a {@link PipelinedSubmitter}, and
+ * reads are evaluated through the same in-flight window. Latency is measured from each operation's scheduled start
+ * time, so operations delayed by a full window are not omitted from the latency statistics.
+ */
+public final class LoadApp {
+    private static final String WORKLOAD = Utils.getEnvOrDefault("WORKLOAD", "basic");
+    private static final double TARGET_TPS = Utils.getEnvOrDefault("TARGET_TPS", Double::parseDouble, 0.0);
+    private static final long DURATION_SECONDS = Utils.getEnvOrDefault("DURATION_SECONDS", Long::parseUnsignedLong, 30L);
+    private static final int CONCURRENCY = Utils.getEnvOrDefault("CONCURRENCY", Integer::parseUnsignedInt, 50);
+    private static final int STAGE_THREADS = Utils.getEnvOrDefault("STAGE_THREADS", Integer::parseUnsignedInt, 4);
+    private static final int MAX_RETRIES = Utils.getEnvOrDefault("MAX_RETRIES", Integer::parseUnsignedInt, 5);
+    private static final double READ_RATIO = Utils.getEnvOrDefault("READ_RATIO", Double::parseDouble, 0.5);
+    private static final int KEY_COUNT = Utils.getEnvOrDefault("KEY_COUNT", Integer::parseUnsignedInt, 1000);
+    private static final String KEY_DISTRIBUTION = Utils.getEnvOrDefault("KEY_DISTRIBUTION", "uniform");
+    private static final double ZIPF_EXPONENT = Utils.getEnvOrDefault("ZIPF_EXPONENT", Double::parseDouble, 0.99);
+    private static final String KEY_PREFIX = Utils.getEnvOrDefault("KEY_PREFIX", "load" + Instant.now().toEpochMilli() + "-");
+    private static final boolean SKIP_SETUP = Utils.getEnvOrDefault("SKIP_SETUP", Boolean::parseBoolean, false);
+    private static final Path REPORT_FILE = Paths.get(Utils.getEnvOrDefault("LOAD_REPORT_FILE", "load.json"));
+
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Workload workload;
+    private final KeyChooser keys;
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public LoadApp(final Contract contract) {
+        var adapter = Workload.ADAPTERS.get(WORKLOAD);
+        if (adapter == null) {
+            throw new IllegalArgumentException("Unknown workload: " + WORKLOAD + ", expected one of " + Workload.ADAPTERS.keySet());
+        }
+
+        this.workload = adapter.apply(contract);
+        this.keys = newKeyChooser();
+    }
+
+    private static KeyChooser newKeyChooser() {
+        switch (KEY_DISTRIBUTION) {
+            case "uniform":
+                return KeyChooser.uniform(KEY_PREFIX, KEY_COUNT);
+            case "zipfian":
+                return KeyChooser.zipfian(KEY_PREFIX, KEY_COUNT, ZIPF_EXPONENT);
+            default:
+                throw new IllegalArgumentException("Unknown key distribution: " + KEY_DISTRIBUTION + ", expected uniform or zipfian");
+        }
+    }
+
+    public void run() throws InterruptedException, IOException {
+        setUp();
+
+        System.out.println("\nRunning " + WORKLOAD + " workload for " + DURATION_SECONDS + " seconds"
+                + (TARGET_TPS > 0 ? " at " + TARGET_TPS + " TPS" : " unthrottled") + " with " + CONCURRENCY + " in flight");
+
+        try (var submitter = new PipelinedSubmitter(CONCURRENCY, STAGE_THREADS, MAX_RETRIES)) {
+            var outstanding = new Phaser(1);
+            var operationCount = 0L;
+            var startTime = System.nanoTime();
+            var endTime = startTime + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+
+            for (var now = startTime; now < endTime; now = System.nanoTime()) {
+                var scheduled = now;
+                if (TARGET_TPS > 0) {
+                    // Open-loop pacing: each operation has a scheduled start time independent of earlier latencies
+                    scheduled = startTime + (long) (operationCount * (double) TimeUnit.SECONDS.toNanos(1) / TARGET_TPS);
+                    if (scheduled >= endTime) {
+                        break;
+                    }
+                    if (scheduled > now) {
+                        TimeUnit.NANOSECONDS.sleep(scheduled - now);
+                    }
+                }
+
+                outstanding.register();
+                nextOperation(submitter, scheduled).whenComplete((result, e) -> {
+                    if (e != null) {
+                        recordError(e);
+                    }
+                    outstanding.arriveAndDeregister();
+                });
+                operationCount++;
+            }
+
+            outstanding.arriveAndAwaitAdvance();
+            var elapsedSeconds = (System.nanoTime() - startTime) / (double) TimeUnit.SECONDS.toNanos(1);
+
+            submitter.printReport(System.out);
+            writeReport(submitter, operationCount, elapsedSeconds);
+        }
+    }
+
+    private void setUp() throws InterruptedException {
+        if (SKIP_SETUP || workload.newSetupProposal(keys.keyAt(0)).isEmpty()) {
+            return;
+        }
+
+        System.out.println("Creating " + keys.getKeyCount() + " workload keys with prefix " + KEY_PREFIX);
+
+        // Setup uses its own submitter so that it is excluded from the measured statistics
+        try (var submitter = new PipelinedSubmitter(CONCURRENCY, STAGE_THREADS, MAX_RETRIES)) {
+            var futures = new CompletableFuture<?>[keys.getKeyCount()];
+            for (int i = 0; i < futures.length; i++) {
+                var key = keys.keyAt(i);
+                futures[i] = submitter.submit(() -> workload.newSetupProposal(key).orElseThrow());
+            }
+
+            CompletableFuture.allOf(futures).join();
+        }
+    }
+
+    private CompletableFuture<byte[]> nextOperation(final PipelinedSubmitter submitter, final long scheduled)
+            throws InterruptedException {
+        var key = keys.nextKey();
+        if (ThreadLocalRandom.current().nextDouble() < READ_RATIO) {
+            return submitter.evaluate(() -> workload.newReadProposal(key), scheduled);
+        }
+
+        return submitter.submit(() -> workload.newWriteProposal(key), scheduled);
+    }
+
+    private void recordError(final Throwable e) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        errors.computeIfAbsent(cause.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    private void writeReport(final PipelinedSubmitter submitter, final long operationCount, final double elapsedSeconds)
+            throws IOException {
+        var config = new LinkedHashMap<String, Object>();
+        config.put("workload", WORKLOAD);
+        config.put("targetTps", TARGET_TPS);
+        config.put("durationSeconds", DURATION_SECONDS);
+        config.put("concurrency", CONCURRENCY);
+        config.put("readRatio", READ_RATIO);
+        config.put("keyCount", KEY_COUNT);
+        config.put("keyDistribution", KEY_DISTRIBUTION);
+        if (KEY_DISTRIBUTION.equals("zipfian")) {
+            config.put("zipfExponent", ZIPF_EXPONENT);
+        }
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("config", config);
+        report.put("operations", operationCount);
+        report.put("elapsedSeconds", elapsedSeconds);
+        report.put("achievedOpsPerSecond", operationCount / elapsedSeconds);
+        report.putAll(submitter.getReport());
+        var errorCounts = new LinkedHashMap<String, Long>();
+        errors.forEach((name, count) -> errorCounts.put(name, count.sum()));
+        report.put("errors", errorCounts);
+
+        Files.writeString(REPORT_FILE, GSON.toJson(report));
+        System.out.println("\nLoad report written to " + REPORT_FILE);
+    }
+}
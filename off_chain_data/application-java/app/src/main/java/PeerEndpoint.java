@@ -0,0 +1,154 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ConnectivityState;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection to a single Gateway peer, with call statistics used to route calls between peers. Latency and error
+ * rate are tracked as exponentially weighted moving averages (EWMA), so they follow changes in peer load while
+ * smoothing out individual slow calls.
+ */
+final class PeerEndpoint {
+    private static final double EWMA_WEIGHT = 0.2;
+    private static final double MAX_ERROR_RATE = 0.5;
+    private static final double ERROR_PENALTY = 10;
+    private static final Set<Status.Code> PEER_ERRORS = Set.of(
+            Status.Code.UNAVAILABLE, Status.Code.DEADLINE_EXCEEDED, Status.Code.RESOURCE_EXHAUSTED, Status.Code.INTERNAL);
+
+    private final String name;
+    private final ManagedChannel channel;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong callCount = new AtomicLong();
+    private final AtomicLong unavailableCount = new AtomicLong();
+    private double latencyNanos = 0;
+    private double errorRate = 0;
+    private boolean sampled = false;
+
+    PeerEndpoint(final String name, final ManagedChannel channel) {
+        this.name = name;
+        this.channel = channel;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    ManagedChannel getChannel() {
+        return channel;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    boolean isConnectable() {
+        // Requesting the state also prompts an idle connection to start connecting
+        var state = channel.getState(true);
+        return state != ConnectivityState.TRANSIENT_FAILURE && state != ConnectivityState.SHUTDOWN;
+    }
+
+    /**
+     * Whether the peer is connectable and most recent tracked calls have not failed with peer errors.
+     * @return true if healthy.
+     */
+    synchronized boolean isHealthy() {
+        return errorRate <= MAX_ERROR_RATE && isConnectable();
+    }
+
+    /**
+     * Routing score, where lower is better. Peers that have not yet been sampled score zero so that they are tried.
+     * @return Expected latency in nanoseconds, penalized by the recent error rate.
+     */
+    synchronized double getScore() {
+        if (!sampled) {
+            return 0;
+        }
+        return latencyNanos * (1 + ERROR_PENALTY * errorRate);
+    }
+
+    private synchronized void record(final long elapsedNanos, final Status status, final boolean wasReady) {
+        var isError = PEER_ERRORS.contains(status.getCode());
+        if (!isError && !wasReady) {
+            // Latency includes connection establishment, so is not representative
+            return;
+        }
+        if (!sampled) {
+            latencyNanos = elapsedNanos;
+            errorRate = isError ? 1 : 0;
+            sampled = true;
+            return;
+        }
+
+        if (!isError) {
+            latencyNanos += EWMA_WEIGHT * (elapsedNanos - latencyNanos);
+        }
+        errorRate += EWMA_WEIGHT * ((isError ? 1 : 0) - errorRate);
+    }
+
+    /**
+     * Create a call to this peer that updates the call statistics.
+     * @param method Method to call.
+     * @param callOptions Call options.
+     * @param trackLatency Whether to include the call in the latency and error rate averages. Only calls of a
+     *                     comparable duration, such as evaluate, should be tracked.
+     * @param <RequestT> Request type.
+     * @param <ResponseT> Response type.
+     * @return Client call.
+     */
+    <RequestT, ResponseT> ClientCall<RequestT, ResponseT> newCall(
+            final MethodDescriptor<RequestT, ResponseT> method, final CallOptions callOptions, final boolean trackLatency) {
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(channel.newCall(method, callOptions)) {
+            @Override
+            public void start(final Listener<ResponseT> responseListener, final Metadata headers) {
+                var startTime = System.nanoTime();
+                var wasReady = channel.getState(false) == ConnectivityState.READY;
+                callCount.incrementAndGet();
+                inFlight.incrementAndGet();
+                super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<>(responseListener) {
+                    @Override
+                    public void onClose(final Status status, final Metadata trailers) {
+                        inFlight.decrementAndGet();
+                        if (status.getCode() == Status.Code.UNAVAILABLE) {
+                            unavailableCount.incrementAndGet();
+                        }
+                        // Calls cancelled by the client, such as the losing side of a hedged request, say nothing about the peer
+                        if (trackLatency && status.getCode() != Status.Code.CANCELLED) {
+                            record(System.nanoTime() - startTime, status, wasReady);
+                        }
+                        super.onClose(status, trailers);
+                    }
+                }, headers);
+            }
+        };
+    }
+
+    synchronized Map<String, Object> getMetrics() {
+        var metrics = new LinkedHashMap<String, Object>();
+        metrics.put("endpoint", name);
+        metrics.put("state", channel.getState(false).name());
+        metrics.put("inFlight", inFlight.get());
+        metrics.put("calls", callCount.get());
+        metrics.put("unavailable", unavailableCount.get());
+        metrics.put("latencyEwmaMs", latencyNanos / TimeUnit.MILLISECONDS.toNanos(1));
+        metrics.put("errorRateEwma", errorRate);
+        return metrics;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.Proposal;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.hyperledger.fabric.client.Transaction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Submits transactions through a pipeline of separate endorse, submit and commit status stages, so that many
+ * transactions are in flight at once without each caller blocking for the full transaction lifecycle.
+ *
+ * <p>The number of transactions in flight is bounded. {@link #submit(ProposalFactory)} blocks while the window is full,
+ * which applies backpressure to the caller. Endorse and submit run on fixed thread pools, since they are short calls.
+ * Waiting for commit status takes most of the transaction time, so it runs on a thread per in-flight transaction.
+ *
+ * <p>Latency is measured from the time each transaction was due to start, which callers pacing an open-loop workload pass
+ * in, so that time spent waiting for space in the window counts against the transaction rather than being omitted.
+ * The wait itself is also reported separately as the window wait.
+ *
+ * <p>Transactions invalidated by an MVCC read conflict or phantom read are retried with a newly endorsed proposal, after
+ * an exponential backoff with random jitter so that conflicting clients do not retry in lock step.
+ */
+public final class PipelinedSubmitter implements AutoCloseable {
+    private static final long INITIAL_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final int maxRetries;
+    private final Semaphore window;
+    private final ExecutorService endorseExecutor;
+    private final ExecutorService submitExecutor;
+    private final ExecutorService commitExecutor = Executors.newCachedThreadPool();
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final LatencyHistogram windowWaitLatency = new LatencyHistogram();
+    private final LatencyHistogram evaluateLatency = new LatencyHistogram();
+    private final LatencyHistogram endorseLatency = new LatencyHistogram();
+    private final LatencyHistogram submitLatency = new LatencyHistogram();
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    private final LatencyHistogram totalLatency = new LatencyHistogram();
+    private final AtomicLong evaluatedCount = new AtomicLong();
+    private final AtomicLong evaluateFailedCount = new AtomicLong();
+    private final AtomicLong committedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final long startTime = System.nanoTime();
+
+    /**
+     * Creates a new proposal for each attempt at a transaction. A retried transaction must be endorsed again with a
+     * new transaction ID, so the proposal cannot be reused.
+     */
+    @FunctionalInterface
+    public interface ProposalFactory {
+        Proposal newProposal() throws Exception;
+    }
+
+    /**
+     * Transaction invalidated by the committing peers.
+     */
+    public static final class TransactionInvalidException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Status status;
+
+        TransactionInvalidException(final Status status) {
+            super("Transaction " + status.getTransactionId() + " failed to commit with status code " + status.getCode());
+            this.status = status;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Create a submitter.
+     * @param maxInFlight Maximum number of transactions in flight, including those waiting to be retried.
+     * @param stageThreads Number of threads used for each of the endorse and submit stages.
+     * @param maxRetries Maximum number of times to retry a transaction invalidated by a read conflict.
+     */
+    public PipelinedSubmitter(final int maxInFlight, final int stageThreads, final int maxRetries) {
+        if (maxInFlight < 1 || stageThreads < 1 || maxRetries < 0) {
+            throw new IllegalArgumentException("maxInFlight and stageThreads must be at least 1, and maxRetries must not be negative");
+        }
+
+        this.maxRetries = maxRetries;
+        this.window = new Semaphore(maxInFlight);
+        this.endorseExecutor = Executors.newFixedThreadPool(stageThreads);
+        this.submitExecutor = Executors.newFixedThreadPool(stageThreads);
+    }
+
+    /**
+     * Submit a transaction, blocking while the maximum number of transactions are in flight. Latency is measured from
+     * the time of this call.
+     * @param proposalFactory Creates the transaction proposal.
+     * @return Transaction result, completed once the transaction is committed successfully.
+     * @throws InterruptedException if interrupted while waiting for space in the in-flight window.
+     */
+    public CompletableFuture<byte[]> submit(final ProposalFactory proposalFactory) throws InterruptedException {
+        return submit(proposalFactory, System.nanoTime());
+    }
+
+    /**
+     * Submit a transaction, blocking while the maximum number of transactions are in flight.
+     * @param proposalFactory Creates the transaction proposal.
+     * @param scheduledNanos {@link System#nanoTime()} at which the transaction was due to start, from which its latency
+     *                       is measured.
+     * @return Transaction result, completed once the transaction is committed successfully.
+     * @throws InterruptedException if interrupted while waiting for space in the in-flight window.
+     */
+    public CompletableFuture<byte[]> submit(final ProposalFactory proposalFactory, final long scheduledNanos)
+            throws InterruptedException {
+        var attempt = acquire(proposalFactory, scheduledNanos);
+        endorseExecutor.execute(() -> endorse(attempt, 0));
+        return attempt.result;
+    }
+
+    /**
+     * Evaluate a transaction, blocking while the maximum number of transactions are in flight. Latency is measured
+     * from the time of this call.
+     * @param proposalFactory Creates the transaction proposal.
+     * @return Transaction result.
+     * @throws InterruptedException if interrupted while waiting for space in the in-flight window.
+     */
+    public CompletableFuture<byte[]> evaluate(final ProposalFactory proposalFactory) throws InterruptedException {
+        return evaluate(proposalFactory, System.nanoTime());
+    }
+
+    /**
+     * Evaluate a transaction, blocking while the maximum number of transactions are in flight. Evaluations share the
+     * in-flight window with submitted transactions, and run on the endorse stage threads.
+     * @param proposalFactory Creates the transaction proposal.
+     * @param scheduledNanos {@link System#nanoTime()} at which the evaluation was due to start, from which its latency
+     *                       is measured.
+     * @return Transaction result.
+     * @throws InterruptedException if interrupted while waiting for space in the in-flight window.
+     */
+    public CompletableFuture<byte[]> evaluate(final ProposalFactory proposalFactory, final long scheduledNanos)
+            throws InterruptedException {
+        var attempt = acquire(proposalFactory, scheduledNanos);
+        endorseExecutor.execute(() -> {
+            try {
+                var evaluateResult = proposalFactory.newProposal().evaluate();
+                evaluateLatency.recordNanos(System.nanoTime() - attempt.startTime);
+                evaluatedCount.incrementAndGet();
+                release(attempt, evaluateResult, null);
+            } catch (Exception e) {
+                evaluateFailedCount.incrementAndGet();
+                release(attempt, null, e);
+            }
+        });
+        return attempt.result;
+    }
+
+    private Attempt acquire(final ProposalFactory proposalFactory, final long scheduledNanos) throws InterruptedException {
+        window.acquire();
+        windowWaitLatency.recordNanos(Math.max(System.nanoTime() - scheduledNanos, 0L));
+        return new Attempt(proposalFactory, new CompletableFuture<>(), scheduledNanos);
+    }
+
+    private void endorse(final Attempt attempt, final int retries) {
+        try {
+            var start = System.nanoTime();
+            var transaction = attempt.proposalFactory.newProposal().endorse();
+            endorseLatency.recordNanos(System.nanoTime() - start);
+
+            submitExecutor.execute(() -> submit(attempt, transaction, retries));
+        } catch (Exception e) {
+            complete(attempt, null, e);
+        }
+    }
+
+    private void submit(final Attempt attempt, final Transaction transaction, final int retries) {
+        try {
+            var start = System.nanoTime();
+            var commit = transaction.submitAsync();
+            submitLatency.recordNanos(System.nanoTime() - start);
+
+            commitExecutor.execute(() -> awaitCommit(attempt, commit, retries));
+        } catch (Exception e) {
+            complete(attempt, null, e);
+        }
+    }
+
+    private void awaitCommit(final Attempt attempt, final SubmittedTransaction commit, final int retries) {
+        try {
+            var start = System.nanoTime();
+            var status = commit.getStatus();
+            commitLatency.recordNanos(System.nanoTime() - start);
+
+            if (status.isSuccessful()) {
+                complete(attempt, commit.getResult(), null);
+            } else if (isReadConflict(status.getCode()) && retries < maxRetries) {
+                retryCount.incrementAndGet();
+                retryScheduler.schedule(() -> endorseExecutor.execute(() -> endorse(attempt, retries + 1)),
+                        backoffMillis(retries), TimeUnit.MILLISECONDS);
+            } else {
+                complete(attempt, null, new TransactionInvalidException(status));
+            }
+        } catch (Exception e) {
+            complete(attempt, null, e);
+        }
+    }
+
+    private static boolean isReadConflict(final TxValidationCode code) {
+        return code == TxValidationCode.MVCC_READ_CONFLICT || code == TxValidationCode.PHANTOM_READ_CONFLICT;
+    }
+
+    private static long backoffMillis(final int retries) {
+        var ceiling = Math.min(INITIAL_BACKOFF_MILLIS << Math.min(retries, Integer.SIZE - 2), MAX_BACKOFF_MILLIS);
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private void complete(final Attempt attempt, final byte[] result, final Exception error) {
+        totalLatency.recordNanos(System.nanoTime() - attempt.startTime);
+        if (error == null) {
+            committedCount.incrementAndGet();
+        } else {
+            failedCount.incrementAndGet();
+        }
+
+        release(attempt, result, error);
+    }
+
+    private void release(final Attempt attempt, final byte[] result, final Exception error) {
+        // Release the window before completing, so that dependent transactions can be submitted from the callback.
+        // Callbacks run on the unbounded commit pool, so a callback blocked on a full window cannot stall a stage.
+        window.release();
+        commitExecutor.execute(() -> {
+            if (error == null) {
+                attempt.result.complete(result);
+            } else {
+                attempt.result.completeExceptionally(error instanceof CompletionException ? error : new CompletionException(error));
+            }
+        });
+    }
+
+    /**
+     * Committed transactions per second since the submitter was created.
+     * @return Throughput.
+     */
+    public double getThroughput() {
+        var elapsedNanos = Math.max(System.nanoTime() - startTime, 1L);
+        return committedCount.get() * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    /**
+     * Summary suitable for serialization as a JSON report.
+     * @return Transaction counts, throughput, and latency statistics for each pipeline stage.
+     */
+    public Map<String, Object> getReport() {
+        var report = new LinkedHashMap<String, Object>();
+        report.put("evaluated", evaluatedCount.get());
+        report.put("evaluateFailed", evaluateFailedCount.get());
+        report.put("committed", committedCount.get());
+        report.put("failed", failedCount.get());
+        report.put("retried", retryCount.get());
+        report.put("throughputTps", getThroughput());
+        report.put("windowWait", windowWaitLatency.getSummary());
+        report.put("evaluate", evaluateLatency.getSummary());
+        report.put("endorse", endorseLatency.getSummary());
+        report.put("submit", submitLatency.getSummary());
+        report.put("commitStatus", commitLatency.getSummary());
+        report.put("total", totalLatency.getSummary());
+        return report;
+    }
+
+    /**
+     * Print transaction counts, throughput and latency histograms.
+     * @param out Output stream.
+     */
+    public void printReport(final PrintStream out) {
+        out.printf("%nCommitted %d transactions (%d failed, %d retries) at %.1f TPS%n",
+                committedCount.get(), failedCount.get(), retryCount.get(), getThroughput());
+        out.println("  endorse:       " + endorseLatency);
+        out.println("  submit:        " + submitLatency);
+        out.println("  commit status: " + commitLatency);
+        out.println("  total:         " + totalLatency);
+        if (evaluatedCount.get() > 0 || evaluateFailedCount.get() > 0) {
+            out.printf("Evaluated %d transactions (%d failed)%n", evaluatedCount.get(), evaluateFailedCount.get());
+            out.println("  evaluate:      " + evaluateLatency);
+        }
+        out.println("Window wait:     " + windowWaitLatency);
+    }
+
+    /**
+     * Stop the pipeline threads. Transactions still in flight are abandoned.
+     */
+    @Override
+    public void close() {
+        retryScheduler.shutdownNow();
+        endorseExecutor.shutdownNow();
+        submitExecutor.shutdownNow();
+        commitExecutor.shutdownNow();
+    }
+
+    private static final class Attempt {
+        private final ProposalFactory proposalFactory;
+        private final CompletableFuture<byte[]> result;
+        private final long startTime;
+
+        Attempt(final ProposalFactory proposalFactory, final CompletableFuture<byte[]> result, final long startTime) {
+            this.proposalFactory = proposalFactory;
+            this.result = result;
+            this.startTime = startTime;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Proposal;
+
+import java.util.Optional;
+
+/**
+ * ERC-20 token workload. Keys are recipient account IDs, writes transfer one token from the client identity to the
+ * recipient, and reads evaluate the recipient balance. The client identity must hold enough tokens for the run, for
+ * example by calling Mint before starting the load.
+ */
+public final class TokenErc20Workload implements Workload {
+    private final Contract contract;
+
+    public TokenErc20Workload(final Contract contract) {
+        this.contract = contract;
+    }
+
+    @Override
+    public Optional<Proposal> newSetupProposal(final String key) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Proposal newWriteProposal(final String key) {
+        return contract.newProposal("Transfer")
+                .addArguments(key, "1")
+                .build();
+    }
+
+    @Override
+    public Proposal newReadProposal(final String key) {
+        return contract.newProposal("BalanceOf")
+                .addArguments(key)
+                .build();
+    }
+}
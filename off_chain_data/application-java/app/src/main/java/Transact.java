@@ -13,7 +13,7 @@ import java.security.cert.CertificateException;
 public final class Transact implements Command {
     @Override
     public void run(final Channel grpcChannel)
-            throws CertificateException, IOException, InvalidKeyException {
+            throws CertificateException, IOException, InvalidKeyException, InterruptedException {
         try (var gateway = Connections.newGatewayBuilder(grpcChannel).connect()) {
             var network = gateway.getNetwork(Connections.CHANNEL_NAME);
             var contract = network.getContract(Connections.CHAINCODE_NAME);
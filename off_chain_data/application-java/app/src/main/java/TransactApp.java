@@ -4,16 +4,11 @@
  * SPDX-License-Identifier: Apache-2.0
  */
 
-import org.hyperledger.fabric.client.CommitException;
-import org.hyperledger.fabric.client.CommitStatusException;
-import org.hyperledger.fabric.client.EndorseException;
-import org.hyperledger.fabric.client.SubmitException;
-
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
-import java.util.stream.Stream;
 
 public final class TransactApp {
     private static final List<String> COLORS = List.of("red", "green", "blue");
@@ -21,48 +16,67 @@ public final class TransactApp {
     private static final int MAX_INITIAL_VALUE = 1000;
     private static final int MAX_INITIAL_SIZE = 10;
 
+    private static final int BATCH_SIZE = Utils.getEnvOrDefault("BATCH_SIZE", Integer::parseUnsignedInt, 10);
+    private static final int MAX_IN_FLIGHT = Utils.getEnvOrDefault("MAX_IN_FLIGHT", Integer::parseUnsignedInt, 50);
+    private static final int STAGE_THREADS = Utils.getEnvOrDefault("STAGE_THREADS", Integer::parseUnsignedInt, 4);
+    private static final int MAX_RETRIES = Utils.getEnvOrDefault("MAX_RETRIES", Integer::parseUnsignedInt, 5);
+
     private final AssetTransferBasic smartContract;
-    private final int batchSize = 10;
 
     public TransactApp(final AssetTransferBasic smartContract) {
         this.smartContract = smartContract;
     }
 
-    public void run() {
-        var futures = Stream.generate(this::newCompletableFuture)
-                .limit(batchSize)
-                .toArray(CompletableFuture[]::new);
-        var allComplete = CompletableFuture.allOf(futures);
-        allComplete.join();
-    }
+    public void run() throws InterruptedException {
+        try (var submitter = new PipelinedSubmitter(MAX_IN_FLIGHT, STAGE_THREADS, MAX_RETRIES)) {
+            var futures = new ArrayList<CompletableFuture<Void>>();
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                futures.add(transact(submitter));
+            }
 
-    private CompletableFuture<Void> newCompletableFuture() {
-        return CompletableFuture.runAsync(() -> {
+            var allComplete = CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new));
             try {
-                transact();
-            } catch (Exception e) {
-                throw new CompletionException(e);
+                allComplete.join();
+            } finally {
+                submitter.printReport(System.out);
             }
-        });
+        }
     }
 
-    private void transact() throws EndorseException, CommitException, SubmitException, CommitStatusException {
+    private CompletableFuture<Void> transact(final PipelinedSubmitter submitter) throws InterruptedException {
         var asset = newAsset();
 
-        smartContract.createAsset(asset);
-        System.out.println("Created new asset " + asset.getId());
-
         // Transfer randomly 1 in 2 assets to a new owner.
-        if (Utils.randomInt(2) == 0) { // checkstyle:ignore-line:MagicNumber
+        var transfer = Utils.randomInt(2) == 0; // checkstyle:ignore-line:MagicNumber
+        // Delete randomly 1 in 4 created assets.
+        var delete = Utils.randomInt(4) == 0; // checkstyle:ignore-line:MagicNumber
+
+        var result = submitter.submit(() -> smartContract.newCreateAssetProposal(asset))
+                .thenAccept(created -> System.out.println("Created new asset " + asset.getId()));
+
+        if (transfer) {
             var newOwner = Utils.differentElement(OWNERS, asset.getOwner());
-            var oldOwner = smartContract.transferAsset(asset.getId(), newOwner);
-            System.out.println("Transferred asset " + asset.getId() + " from " + oldOwner + " to " + newOwner);
+            result = result
+                    .thenCompose(previous -> submitAsync(submitter, () -> smartContract.newTransferAssetProposal(asset.getId(), newOwner)))
+                    .thenAccept(oldOwner -> System.out.println("Transferred asset " + asset.getId() + " from "
+                            + new String(oldOwner, StandardCharsets.UTF_8) + " to " + newOwner));
         }
 
-        // Delete randomly 1 in 4 created assets.
-        if (Utils.randomInt(4) == 0) { // checkstyle:ignore-line:MagicNumber
-            smartContract.deleteAsset(asset.getId());
-            System.out.println("Deleted asset " + asset.getId());
+        if (delete) {
+            result = result
+                    .thenCompose(previous -> submitAsync(submitter, () -> smartContract.newDeleteAssetProposal(asset.getId())))
+                    .thenAccept(deleted -> System.out.println("Deleted asset " + asset.getId()));
+        }
+
+        return result;
+    }
+
+    private static CompletableFuture<byte[]> submitAsync(final PipelinedSubmitter submitter, final PipelinedSubmitter.ProposalFactory proposalFactory) {
+        try {
+            return submitter.submit(proposalFactory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
         }
     }
 
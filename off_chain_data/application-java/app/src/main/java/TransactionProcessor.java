@@ -33,7 +33,7 @@ public final class TransactionProcessor {
         this.store = store;
     }
 
-    private static boolean isSystemChaincode(final String chaincodeName) {
+    static boolean isSystemChaincode(final String chaincodeName) {
         return SYSTEM_CHAINCODE_NAMES.contains(chaincodeName);
     }
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Proposal;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Whistleblower workload. Keys are report IDs, writes update the report status, and reads evaluate
+ * queryReportById.
+ */
+public final class WhistleblowerWorkload implements Workload {
+    private static final List<String> STATUSES = List.of("pending", "under_investigation", "investigation_complete");
+
+    private final Contract contract;
+
+    public WhistleblowerWorkload(final Contract contract) {
+        this.contract = contract;
+    }
+
+    @Override
+    public Optional<Proposal> newSetupProposal(final String key) {
+        return Optional.of(contract.newProposal("submitReport")
+                .addArguments(
+                        key,
+                        "Load test report " + key,
+                        "Generated by the load generator",
+                        "anonymous",
+                        LocalDate.now().toString(),
+                        "1", // criticality
+                        "", // reward wallet
+                        "", // voice note
+                        "false", // has voice note
+                        "Operations",
+                        "Remote",
+                        "0", // monetary value
+                        "None", // relationship
+                        "Once", // encounter
+                        "false", // authorities aware
+                        "", // voice to text
+                        "[]") // attachments
+                .build());
+    }
+
+    @Override
+    public Proposal newWriteProposal(final String key) {
+        return contract.newProposal("updateReportStatus")
+                .addArguments(key, Utils.randomElement(STATUSES))
+                .build();
+    }
+
+    @Override
+    public Proposal newReadProposal(final String key) {
+        return contract.newProposal("queryReportById")
+                .addArguments(key)
+                .build();
+    }
+}
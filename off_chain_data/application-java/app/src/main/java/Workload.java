@@ -0,0 +1,48 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.Contract;
+import org.hyperledger.fabric.client.Proposal;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Adapts the load generator to a specific smart contract. Each operation targets a single workload key, chosen by
+ * the load generator according to the configured key distribution.
+ */
+public interface Workload {
+    /**
+     * Workload adapters by name, each creating proposals for a given contract.
+     */
+    Map<String, Function<Contract, Workload>> ADAPTERS = Map.of(
+            "basic", AssetTransferBasicWorkload::new,
+            "whistleblower", WhistleblowerWorkload::new,
+            "erc20", TokenErc20Workload::new
+    );
+
+    /**
+     * Proposal to create the ledger state for a key before the measured run, if the workload needs it.
+     * @param key Workload key.
+     * @return Setup proposal, or empty if no setup is needed.
+     */
+    Optional<Proposal> newSetupProposal(String key);
+
+    /**
+     * Proposal to submit for a write operation.
+     * @param key Workload key.
+     * @return Write proposal.
+     */
+    Proposal newWriteProposal(String key);
+
+    /**
+     * Proposal to evaluate for a read operation.
+     * @param key Workload key.
+     * @return Read proposal.
+     */
+    Proposal newReadProposal(String key);
+}
@@ -41,7 +41,7 @@ class ParsedBlock implements Block {
             for (int i = 0; i < payloads.size(); i++) {
                 var payload = new ParsedPayload(payloads.get(i), validationCodes.get(i));
                 if (payload.isEndorserTransaction()) {
-                    transactions.add(new ParsedTransaction(payload));
+                    transactions.add(new ParsedTransaction(payload, i));
                 }
             }
 
@@ -20,10 +20,12 @@ import java.util.stream.Collectors;
 
 final class ParsedTransaction implements Transaction {
     private final ParsedPayload payload;
+    private final long transactionNumber;
     private final AtomicReference<List<NamespaceReadWriteSet>> cachedNamespaceReadWriteSets = new AtomicReference<>();
 
-    ParsedTransaction(final ParsedPayload payload) {
+    ParsedTransaction(final ParsedPayload payload, final long transactionNumber) {
         this.payload = payload;
+        this.transactionNumber = transactionNumber;
     }
 
     @Override
@@ -31,6 +33,17 @@ final class ParsedTransaction implements Transaction {
         return payload.getChannelHeader();
     }
 
+    @Override
+    public long getTransactionNumber() {
+        return transactionNumber;
+    }
+
+    @Override
+    public String getChaincodeFunction() throws InvalidProtocolBufferException {
+        var actions = getTransactionActions();
+        return actions.isEmpty() ? "" : actions.get(0).getChaincodeFunction();
+    }
+
     @Override
     public Identity getCreator() throws InvalidProtocolBufferException {
         var creator = SerializedIdentity.parseFrom(payload.getSignatureHeader().getCreator());
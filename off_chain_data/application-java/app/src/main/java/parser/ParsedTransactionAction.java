@@ -10,6 +10,8 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import org.hyperledger.fabric.protos.ledger.rwset.TxReadWriteSet;
 import org.hyperledger.fabric.protos.peer.ChaincodeAction;
 import org.hyperledger.fabric.protos.peer.ChaincodeActionPayload;
+import org.hyperledger.fabric.protos.peer.ChaincodeInvocationSpec;
+import org.hyperledger.fabric.protos.peer.ChaincodeProposalPayload;
 import org.hyperledger.fabric.protos.peer.ProposalResponsePayload;
 import org.hyperledger.fabric.protos.peer.TransactionAction;
 
@@ -26,6 +28,19 @@ final class ParsedTransactionAction {
         return ParsedReadWriteSet.fromTxReadWriteSet(getTxReadWriteSet());
     }
 
+    public String getChaincodeFunction() throws InvalidProtocolBufferException {
+        var args = getChaincodeInvocationSpec().getChaincodeSpec().getInput().getArgsList();
+        return args.isEmpty() ? "" : args.get(0).toStringUtf8();
+    }
+
+    private ChaincodeInvocationSpec getChaincodeInvocationSpec() throws InvalidProtocolBufferException {
+        return ChaincodeInvocationSpec.parseFrom(getChaincodeProposalPayload().getInput());
+    }
+
+    private ChaincodeProposalPayload getChaincodeProposalPayload() throws InvalidProtocolBufferException {
+        return ChaincodeProposalPayload.parseFrom(getChaincodeActionPayload().getChaincodeProposalPayload());
+    }
+
     private TxReadWriteSet getTxReadWriteSet() throws InvalidProtocolBufferException {
         return TxReadWriteSet.parseFrom(getChaincodeAction().getResults());
     }
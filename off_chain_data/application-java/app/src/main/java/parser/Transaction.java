@@ -16,6 +16,8 @@ import java.util.List;
 
 public interface Transaction {
     ChannelHeader getChannelHeader() throws InvalidProtocolBufferException;
+    long getTransactionNumber();
+    String getChaincodeFunction() throws InvalidProtocolBufferException;
     Identity getCreator() throws InvalidProtocolBufferException;
     TxValidationCode getValidationCode();
     boolean isValid();
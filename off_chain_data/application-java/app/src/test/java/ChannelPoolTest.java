@@ -0,0 +1,105 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.StatusRuntimeException;
+import org.hyperledger.fabric.protos.gateway.EvaluateRequest;
+import org.hyperledger.fabric.protos.gateway.GatewayGrpc;
+import org.hyperledger.fabric.protos.gateway.SubmitRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.groups.Tuple.tuple;
+
+final class ChannelPoolTest {
+    private static final int CALLS = 30;
+    private static final double HEDGE_PERCENTILE = 90;
+
+    private final List<TestPeer> peers = new ArrayList<>();
+    private final Map<String, ManagedChannel> channels = new LinkedHashMap<>();
+    private ChannelPool pool;
+
+    @AfterEach
+    void afterEach() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        channels.values().forEach(ManagedChannel::shutdownNow);
+        peers.forEach(TestPeer::close);
+    }
+
+    @Test
+    void routesEvaluateAwayFromPeerThatCannotConnect() throws Exception {
+        var down = addPeer(new TestPeer("down"));
+        addPeer(new TestPeer("up").start());
+
+        // A peer whose server is not running fails to connect, and stays in transient failure until it reconnects
+        var downChannel = channels.get(down.getName());
+        downChannel.getState(true);
+        HedgedCallTest.awaitCondition(() -> downChannel.getState(false) == ConnectivityState.TRANSIENT_FAILURE);
+
+        pool = new ChannelPool(channels, HEDGE_PERCENTILE);
+        var gateway = GatewayGrpc.newBlockingStub(pool);
+        for (int i = 0; i < CALLS; i++) {
+            assertThat(TestPeer.payload(gateway.evaluate(EvaluateRequest.getDefaultInstance()))).isEqualTo("up");
+        }
+
+        assertThat(pool.getMetrics())
+                .extracting(metrics -> metrics.get("endpoint"), metrics -> metrics.get("inFlight"))
+                .containsExactly(tuple("down", 0), tuple("up", 0));
+    }
+
+    @Test
+    void spreadsSubmitAcrossIdlePeers() throws Exception {
+        var first = addPeer(new TestPeer("first").start());
+        var second = addPeer(new TestPeer("second").start());
+
+        pool = new ChannelPool(channels, 0);
+        var gateway = GatewayGrpc.newBlockingStub(pool);
+        for (int i = 0; i < CALLS; i++) {
+            gateway.submit(SubmitRequest.getDefaultInstance());
+        }
+
+        assertThat(first.getSubmitCount()).isEqualTo(CALLS / 2);
+        assertThat(second.getSubmitCount()).isEqualTo(CALLS / 2);
+        assertThat(pool.getMetrics()).allSatisfy(metrics -> assertThat(metrics.get("inFlight")).isEqualTo(0));
+    }
+
+    @Test
+    void failsOverEvaluateWhenPeerFails() throws Exception {
+        addPeer(new TestPeer("failing").start().behave(TestPeer.Behavior.UNAVAILABLE));
+        var working = addPeer(new TestPeer("working").start());
+
+        pool = new ChannelPool(channels, 0);
+        var gateway = GatewayGrpc.newBlockingStub(pool);
+        var failures = 0;
+        for (int i = 0; i < CALLS; i++) {
+            try {
+                assertThat(TestPeer.payload(gateway.evaluate(EvaluateRequest.getDefaultInstance()))).isEqualTo("working");
+            } catch (StatusRuntimeException e) {
+                // Calls occasionally sent to a random peer to sample its latency are not failed over
+                failures++;
+            }
+        }
+
+        assertThat(working.getEvaluateCount()).isGreaterThanOrEqualTo(CALLS - failures);
+        assertThat(failures).isLessThan(CALLS / 2);
+        assertThat(pool.getMetrics()).allSatisfy(metrics -> assertThat(metrics.get("inFlight")).isEqualTo(0));
+    }
+
+    private TestPeer addPeer(final TestPeer peer) {
+        peers.add(peer);
+        channels.put(peer.getName(), peer.newChannel());
+        return peer;
+    }
+}
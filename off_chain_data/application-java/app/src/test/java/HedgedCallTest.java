@@ -0,0 +1,165 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.grpc.CallOptions;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+import org.hyperledger.fabric.protos.gateway.EvaluateRequest;
+import org.hyperledger.fabric.protos.gateway.EvaluateResponse;
+import org.hyperledger.fabric.protos.gateway.GatewayGrpc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+final class HedgedCallTest {
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long SHORT_DELAY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long LONG_DELAY_NANOS = TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+
+    private final List<TestPeer> peers = new ArrayList<>();
+    private final List<PeerEndpoint> endpoints = new ArrayList<>();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private ScheduledExecutorService scheduler;
+    private TestPeer primaryPeer;
+    private TestPeer backupPeer;
+    private PeerEndpoint primary;
+    private PeerEndpoint backup;
+
+    @BeforeEach
+    void beforeEach() throws Exception {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        primaryPeer = newPeer("primary");
+        backupPeer = newPeer("backup");
+        primary = newEndpoint(primaryPeer);
+        backup = newEndpoint(backupPeer);
+    }
+
+    @AfterEach
+    void afterEach() {
+        scheduler.shutdownNow();
+        endpoints.forEach(endpoint -> endpoint.getChannel().shutdownNow());
+        peers.forEach(TestPeer::close);
+    }
+
+    @Test
+    void hedgesToBackupAndCancelsPrimaryWhenPrimaryIsSlow() throws Exception {
+        primaryPeer.behave(TestPeer.Behavior.HANG);
+
+        var response = evaluate(SHORT_DELAY_NANOS).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(TestPeer.payload(response)).isEqualTo("backup");
+        // The primary never responds, so its attempt only completes if it is cancelled
+        awaitInFlightCleared();
+        assertThat(latencies.getCount()).as("successful attempts recorded").isEqualTo(1);
+    }
+
+    @Test
+    void doesNotHedgeWhenPrimaryRespondsWithinDelay() throws Exception {
+        var response = evaluate(LONG_DELAY_NANOS).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(TestPeer.payload(response)).isEqualTo("primary");
+        assertThat(backupPeer.getEvaluateCount()).isZero();
+        awaitInFlightCleared();
+    }
+
+    @Test
+    void failsOverToBackupWhenPrimaryIsUnavailable() throws Exception {
+        primaryPeer.behave(TestPeer.Behavior.UNAVAILABLE);
+
+        var response = evaluate(-1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(TestPeer.payload(response)).isEqualTo("backup");
+        assertThat(primaryPeer.getEvaluateCount()).isEqualTo(1);
+        awaitInFlightCleared();
+    }
+
+    @Test
+    void doesNotUseBackupWithoutHedgingWhilePrimaryIsSlow() throws Exception {
+        primaryPeer.behave(TestPeer.Behavior.HANG);
+
+        var future = evaluate(-1);
+        awaitCondition(() -> primaryPeer.getEvaluateCount() == 1);
+        future.cancel(true);
+
+        assertThat(primaryPeer.getCancelled().await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(backupPeer.getEvaluateCount()).isZero();
+        awaitInFlightCleared();
+    }
+
+    @Test
+    void failsWithLastPeerErrorWhenBothPeersAreUnavailable() {
+        primaryPeer.behave(TestPeer.Behavior.UNAVAILABLE);
+        backupPeer.behave(TestPeer.Behavior.UNAVAILABLE);
+
+        assertThatThrownBy(() -> evaluate(-1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOfSatisfying(StatusRuntimeException.class, e -> {
+                    assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+                    assertThat(e.getStatus().getDescription()).isEqualTo("backup unavailable");
+                });
+        awaitInFlightCleared();
+    }
+
+    @Test
+    void cancelsEveryAttemptWhenCallerCancels() throws Exception {
+        primaryPeer.behave(TestPeer.Behavior.HANG);
+        backupPeer.behave(TestPeer.Behavior.HANG);
+
+        var future = evaluate(0);
+        awaitCondition(() -> primaryPeer.getEvaluateCount() == 1 && backupPeer.getEvaluateCount() == 1);
+        assertThat(primary.getInFlight()).isEqualTo(1);
+        assertThat(backup.getInFlight()).isEqualTo(1);
+        future.cancel(true);
+
+        assertThat(primaryPeer.getCancelled().await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        assertThat(backupPeer.getCancelled().await(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isTrue();
+        awaitInFlightCleared();
+    }
+
+    private ListenableFuture<EvaluateResponse> evaluate(final long hedgeDelayNanos) {
+        var call = new HedgedCall<>(GatewayGrpc.getEvaluateMethod(), CallOptions.DEFAULT, primary, backup,
+                hedgeDelayNanos, scheduler, latencies);
+        return ClientCalls.futureUnaryCall(call, EvaluateRequest.getDefaultInstance());
+    }
+
+    private void awaitInFlightCleared() {
+        awaitCondition(() -> primary.getInFlight() == 0 && backup.getInFlight() == 0);
+    }
+
+    private TestPeer newPeer(final String name) throws Exception {
+        var peer = new TestPeer(name).start();
+        peers.add(peer);
+        return peer;
+    }
+
+    private PeerEndpoint newEndpoint(final TestPeer peer) {
+        var endpoint = peer.newEndpoint();
+        endpoints.add(endpoint);
+        return endpoint;
+    }
+
+    static void awaitCondition(final BooleanSupplier condition) {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met before timeout").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+final class LatencyHistogramTest {
+    private static final int EXACT_LIMIT = 128;
+    private static final int SUB_BUCKET_COUNT = 64;
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final double GROWTH = 1.37;
+    private static final double MEDIAN = 50;
+    private static final double HIGHEST = 100;
+    private static final int RANKED_VALUES = 10;
+    private static final double RANKED_PERCENTILE = 90;
+    private static final double PERCENTILE_STEP = 0.1;
+
+    @Test
+    void isEmptyUntilValuesAreRecorded() {
+        var histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMeanMicros()).isZero();
+        assertThat(histogram.getMaxMicros()).isZero();
+        assertThat(histogram.getPercentileMicros(MEDIAN)).isZero();
+    }
+
+    @Test
+    void recordsValuesBelowExactLimitExactly() {
+        var histogram = new LatencyHistogram();
+        for (long micros = 1; micros < EXACT_LIMIT; micros++) {
+            recordMicros(histogram, micros);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(EXACT_LIMIT - 1);
+        assertThat(histogram.getMeanMicros()).isEqualTo(EXACT_LIMIT / 2.0);
+        assertThat(histogram.getMaxMicros()).isEqualTo(EXACT_LIMIT - 1);
+        assertThat(histogram.getPercentileMicros(MEDIAN)).isEqualTo(EXACT_LIMIT / 2);
+        assertThat(histogram.getPercentileMicros(HIGHEST)).isEqualTo(EXACT_LIMIT - 1);
+    }
+
+    @Test
+    void roundsPercentileRankUp() {
+        var histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= RANKED_VALUES; micros++) {
+            recordMicros(histogram, micros);
+        }
+
+        assertThat(histogram.getPercentileMicros(0)).as("lowest").isEqualTo(1);
+        assertThat(histogram.getPercentileMicros(RANKED_PERCENTILE)).as("at rank").isEqualTo(RANKED_VALUES - 1);
+        assertThat(histogram.getPercentileMicros(RANKED_PERCENTILE + PERCENTILE_STEP)).as("above rank").isEqualTo(RANKED_VALUES);
+    }
+
+    @Test
+    void reportsHighestValueOfBucketAboveExactLimit() {
+        var histogram = new LatencyHistogram();
+        recordMicros(histogram, EXACT_LIMIT);
+        recordMicros(histogram, MAX_MICROS);
+
+        // The first logarithmic bucket is split into sub-buckets two microseconds wide
+        assertThat(histogram.getPercentileMicros(MEDIAN)).isEqualTo(EXACT_LIMIT + 1);
+    }
+
+    @Test
+    void boundsRelativeErrorOfLargeValues() {
+        for (double value = EXACT_LIMIT; value < MAX_MICROS; value *= GROWTH) {
+            var micros = (long) value;
+            var histogram = new LatencyHistogram();
+            recordMicros(histogram, micros);
+            recordMicros(histogram, MAX_MICROS);
+
+            assertThat(histogram.getPercentileMicros(MEDIAN))
+                    .as("p50 of %d", micros)
+                    .isBetween(micros, micros + micros / SUB_BUCKET_COUNT);
+        }
+    }
+
+    @Test
+    void limitsPercentilesToMaxRecordedValue() {
+        var histogram = new LatencyHistogram();
+        recordMicros(histogram, MAX_MICROS);
+
+        assertThat(histogram.getPercentileMicros(MEDIAN)).isEqualTo(MAX_MICROS);
+        assertThat(histogram.getPercentileMicros(HIGHEST)).isEqualTo(MAX_MICROS);
+    }
+
+    @Test
+    void recordsNegativeLatencyAsZero() {
+        var histogram = new LatencyHistogram();
+        histogram.recordNanos(-1);
+
+        assertThat(histogram.getCount()).isEqualTo(1);
+        assertThat(histogram.getPercentileMicros(HIGHEST)).isZero();
+    }
+
+    @Test
+    void summarizesInMilliseconds() {
+        var histogram = new LatencyHistogram();
+        recordMicros(histogram, TimeUnit.MILLISECONDS.toMicros(2));
+
+        assertThat(histogram.getSummary()).containsExactly(
+                entry("count", 1L),
+                entry("meanMs", 2.0),
+                entry("p50Ms", 2.0),
+                entry("p90Ms", 2.0),
+                entry("p99Ms", 2.0),
+                entry("p99.9Ms", 2.0),
+                entry("maxMs", 2.0));
+    }
+
+    private static void recordMicros(final LatencyHistogram histogram, final long micros) {
+        histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import org.hyperledger.fabric.client.Proposal;
+import org.hyperledger.fabric.client.Status;
+import org.hyperledger.fabric.client.SubmittedTransaction;
+import org.hyperledger.fabric.client.Transaction;
+import org.hyperledger.fabric.protos.peer.TxValidationCode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+final class PipelinedSubmitterTest {
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long BLOCKED_MILLIS = 100;
+    private static final int STAGE_THREADS = 2;
+    private static final int MAX_RETRIES = 3;
+    private static final byte[] RESULT = "result".getBytes(StandardCharsets.UTF_8);
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+    private PipelinedSubmitter submitter;
+
+    @AfterEach
+    void afterEach() {
+        if (submitter != null) {
+            submitter.close();
+        }
+        callers.shutdownNow();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TxValidationCode.class, names = {"MVCC_READ_CONFLICT", "PHANTOM_READ_CONFLICT"})
+    void retriesReadConflictWithNewProposal(final TxValidationCode conflict) throws Exception {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, MAX_RETRIES);
+        var proposals = new TestProposals(conflict, TxValidationCode.VALID);
+
+        var result = submitter.submit(proposals::next).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertThat(result).isEqualTo(RESULT);
+        assertThat(proposals.getCount()).isEqualTo(2);
+        assertThat(submitter.getReport()).contains(Map.entry("committed", 1L), Map.entry("failed", 0L), Map.entry("retried", 1L));
+    }
+
+    @Test
+    void failsWithoutRetryWhenInvalidatedForOtherReasons() {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, MAX_RETRIES);
+        var proposals = new TestProposals(TxValidationCode.ENDORSEMENT_POLICY_FAILURE);
+
+        assertThatThrownBy(() -> submitter.submit(proposals::next).get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOfSatisfying(PipelinedSubmitter.TransactionInvalidException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(TxValidationCode.ENDORSEMENT_POLICY_FAILURE));
+        assertThat(proposals.getCount()).isEqualTo(1);
+        assertThat(submitter.getReport()).contains(Map.entry("committed", 0L), Map.entry("failed", 1L), Map.entry("retried", 0L));
+    }
+
+    @Test
+    void failsWhenReadConflictsExceedMaxRetries() {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, 1);
+        var proposals = new TestProposals(TxValidationCode.MVCC_READ_CONFLICT, TxValidationCode.PHANTOM_READ_CONFLICT);
+
+        assertThatThrownBy(() -> submitter.submit(proposals::next).get(TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause()
+                .isInstanceOfSatisfying(PipelinedSubmitter.TransactionInvalidException.class, e ->
+                        assertThat(e.getStatus().getCode()).isEqualTo(TxValidationCode.PHANTOM_READ_CONFLICT));
+        assertThat(proposals.getCount()).isEqualTo(2);
+        assertThat(submitter.getReport()).contains(Map.entry("failed", 1L), Map.entry("retried", 1L));
+    }
+
+    @Test
+    void blocksSubmitUntilTransactionInWindowCommits() throws Exception {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, MAX_RETRIES);
+        var commitBlocked = new CountDownLatch(1);
+        var first = submitter.submit(() -> newProposal(newCommit(TxValidationCode.VALID, commitBlocked)));
+
+        var secondSubmitted = new CountDownLatch(1);
+        var second = CompletableFuture.supplyAsync(() -> {
+            var result = submitQuietly(() -> newProposal(newCommit(TxValidationCode.VALID, null)));
+            secondSubmitted.countDown();
+            return result;
+        }, callers).thenCompose(result -> result);
+
+        assertThat(secondSubmitted.await(BLOCKED_MILLIS, TimeUnit.MILLISECONDS)).as("submitted while window full").isFalse();
+        commitBlocked.countDown();
+
+        assertThat(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(RESULT);
+        assertThat(second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(RESULT);
+    }
+
+    @Test
+    void releasesWindowWhenTransactionFails() throws Exception {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, MAX_RETRIES);
+        var failed = submitter.submit(() -> {
+            throw new IllegalStateException("endorse failed");
+        });
+        var succeeded = submitter.submit(() -> newProposal(newCommit(TxValidationCode.VALID, null)));
+
+        assertThat(succeeded.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(RESULT);
+        assertThat(failed).isCompletedExceptionally();
+    }
+
+    @Test
+    void releasesWindowBeforeCompletingSoCallbacksCanSubmit() throws Exception {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, MAX_RETRIES);
+
+        var dependent = submitter.submit(() -> newProposal(newCommit(TxValidationCode.VALID, null)))
+                .thenCompose(result -> submitQuietly(() -> newProposal(newCommit(TxValidationCode.VALID, null))));
+
+        assertThat(dependent.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(RESULT);
+        assertThat(submitter.getReport()).contains(Map.entry("committed", 2L));
+    }
+
+    @Test
+    void sharesWindowBetweenEvaluateAndSubmit() throws Exception {
+        submitter = new PipelinedSubmitter(1, STAGE_THREADS, MAX_RETRIES);
+        var commitBlocked = new CountDownLatch(1);
+        var submitted = submitter.submit(() -> newProposal(newCommit(TxValidationCode.VALID, commitBlocked)));
+
+        var proposal = mock(Proposal.class);
+        when(proposal.evaluate()).thenReturn(RESULT);
+        var evaluateStarted = new CountDownLatch(1);
+        var evaluated = CompletableFuture.supplyAsync(() -> {
+            try {
+                var result = submitter.evaluate(() -> proposal);
+                evaluateStarted.countDown();
+                return result;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, callers).thenCompose(result -> result);
+
+        assertThat(evaluateStarted.await(BLOCKED_MILLIS, TimeUnit.MILLISECONDS)).as("evaluated while window full").isFalse();
+        commitBlocked.countDown();
+
+        assertThat(submitted.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(RESULT);
+        assertThat(evaluated.get(TIMEOUT_SECONDS, TimeUnit.SECONDS)).isEqualTo(RESULT);
+        assertThat(submitter.getReport()).contains(Map.entry("evaluated", 1L), Map.entry("committed", 1L));
+    }
+
+    private CompletableFuture<byte[]> submitQuietly(final PipelinedSubmitter.ProposalFactory proposalFactory) {
+        try {
+            return submitter.submit(proposalFactory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Proposal newProposal(final SubmittedTransaction commit) throws Exception {
+        var transaction = mock(Transaction.class);
+        when(transaction.submitAsync()).thenReturn(commit);
+        var proposal = mock(Proposal.class);
+        when(proposal.endorse()).thenReturn(transaction);
+        return proposal;
+    }
+
+    // Commit whose status is returned once released, or immediately if there is nothing to wait for
+    private static SubmittedTransaction newCommit(final TxValidationCode code, final CountDownLatch released) throws Exception {
+        var status = mock(Status.class);
+        when(status.getTransactionId()).thenReturn("tx");
+        when(status.getCode()).thenReturn(code);
+        when(status.isSuccessful()).thenReturn(code == TxValidationCode.VALID);
+
+        var commit = mock(SubmittedTransaction.class);
+        when(commit.getResult()).thenReturn(RESULT);
+        when(commit.getStatus()).then(invocation -> {
+            if (released != null) {
+                released.await();
+            }
+            return status;
+        });
+        return commit;
+    }
+
+    // Proposals for successive attempts at one transaction, each committed with the next of the given codes
+    private static final class TestProposals {
+        private final TxValidationCode[] codes;
+        private final AtomicInteger count = new AtomicInteger();
+
+        TestProposals(final TxValidationCode... codes) {
+            this.codes = codes;
+        }
+
+        Proposal next() throws Exception {
+            var attempt = count.getAndIncrement();
+            return newProposal(newCommit(codes[Math.min(attempt, codes.length - 1)], null));
+        }
+
+        int getCount() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright IBM Corp. All Rights Reserved.
+ *
+ * SPDX-License-Identifier: Apache-2.0
+ */
+
+import com.google.protobuf.ByteString;
+import io.grpc.Context;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.hyperledger.fabric.protos.gateway.EvaluateRequest;
+import org.hyperledger.fabric.protos.gateway.EvaluateResponse;
+import org.hyperledger.fabric.protos.gateway.GatewayGrpc;
+import org.hyperledger.fabric.protos.gateway.SubmitRequest;
+import org.hyperledger.fabric.protos.gateway.SubmitResponse;
+import org.hyperledger.fabric.protos.peer.Response;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process Gateway peer whose evaluate responses carry the peer name, so tests can tell which peer answered.
+ * Evaluate calls can be set to succeed, fail with a peer error, or never respond until cancelled by the client.
+ */
+final class TestPeer implements AutoCloseable {
+    enum Behavior { RESPOND, UNAVAILABLE, HANG }
+
+    private final String name;
+    private final String serverName = InProcessServerBuilder.generateName();
+    private final AtomicInteger evaluateCount = new AtomicInteger();
+    private final AtomicInteger submitCount = new AtomicInteger();
+    private final CountDownLatch cancelled = new CountDownLatch(1);
+    private volatile Behavior behavior = Behavior.RESPOND;
+    private Server server;
+
+    TestPeer(final String name) {
+        this.name = name;
+    }
+
+    TestPeer start() throws IOException {
+        server = InProcessServerBuilder.forName(serverName)
+                .addService(new Service())
+                .build()
+                .start();
+        return this;
+    }
+
+    TestPeer behave(final Behavior evaluateBehavior) {
+        this.behavior = evaluateBehavior;
+        return this;
+    }
+
+    ManagedChannel newChannel() {
+        return InProcessChannelBuilder.forName(serverName).build();
+    }
+
+    PeerEndpoint newEndpoint() {
+        return new PeerEndpoint(name, newChannel());
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getEvaluateCount() {
+        return evaluateCount.get();
+    }
+
+    int getSubmitCount() {
+        return submitCount.get();
+    }
+
+    /**
+     * Latch released when the client cancels a call that this peer was holding.
+     * @return Cancellation latch.
+     */
+    CountDownLatch getCancelled() {
+        return cancelled;
+    }
+
+    static String payload(final EvaluateResponse response) {
+        return response.getResult().getPayload().toStringUtf8();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.shutdownNow();
+        }
+    }
+
+    private final class Service extends GatewayGrpc.GatewayImplBase {
+        @Override
+        public void evaluate(final EvaluateRequest request, final StreamObserver<EvaluateResponse> responseObserver) {
+            evaluateCount.incrementAndGet();
+            switch (behavior) {
+                case UNAVAILABLE:
+                    responseObserver.onError(Status.UNAVAILABLE.withDescription(name + " unavailable").asRuntimeException());
+                    break;
+                case HANG:
+                    // The listener runs immediately if the client has already cancelled
+                    Context.current().addListener(context -> cancelled.countDown(), Runnable::run);
+                    break;
+                default:
+                    var result = Response.newBuilder().setPayload(ByteString.copyFromUtf8(name));
+                    responseObserver.onNext(EvaluateResponse.newBuilder().setResult(result).build());
+                    responseObserver.onCompleted();
+                    break;
+            }
+        }
+
+        @Override
+        public void submit(final SubmitRequest request, final StreamObserver<SubmitResponse> responseObserver) {
+            submitCount.incrementAndGet();
+            responseObserver.onNext(SubmitResponse.getDefaultInstance());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -12,7 +12,9 @@ public enum ContractConstants {
   SYMBOL_KEY("symbolKey"),
   DECIMALS_KEY("decimals"),
   TOTAL_SUPPLY_KEY("totalSupply"),
+  DELTA_STORAGE_KEY("deltaStorage"),
   TRANSFER_EVENT("Transfer"),
+  BATCH_TRANSFER_EVENT("BatchTransfer"),
   MINTER_ORG_MSPID("Org1MSP"),
   APPROVAL("Approval");
 
@@ -15,5 +15,6 @@ public enum ContractErrors {
     NOT_FOUND,
     INVALID_TRANSFER,
     INSUFFICIENT_FUND,
-    NO_ALLOWANCE_FOUND
+    NO_ALLOWANCE_FOUND,
+    INVALID_BATCH
 }
@@ -7,7 +7,9 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.ALLOWANCE_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.APPROVAL;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.BALANCE_PREFIX;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.BATCH_TRANSFER_EVENT;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.DECIMALS_KEY;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.DELTA_STORAGE_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.NAME_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.SYMBOL_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.TOTAL_SUPPLY_KEY;
@@ -15,6 +17,7 @@ import static org.hyperledger.fabric.samples.erc20.ContractConstants.TRANSFER_EV
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.BALANCE_NOT_FOUND;
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.INSUFFICIENT_FUND;
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.INVALID_AMOUNT;
+import static org.hyperledger.fabric.samples.erc20.ContractErrors.INVALID_BATCH;
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.INVALID_TRANSFER;
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.NOT_FOUND;
 import static org.hyperledger.fabric.samples.erc20.ContractErrors.NO_ALLOWANCE_FOUND;
@@ -22,6 +25,10 @@ import static org.hyperledger.fabric.samples.erc20.ContractErrors.UNAUTHORIZED_S
 import static org.hyperledger.fabric.samples.erc20.utils.ContractUtility.stringIsNullOrEmpty;
 
 import com.owlike.genson.Genson;
+import com.owlike.genson.JsonBindingException;
+import com.owlike.genson.stream.JsonStreamException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import org.hyperledger.fabric.Logger;
 import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.contract.ContractInterface;
@@ -32,10 +39,13 @@ import org.hyperledger.fabric.contract.annotation.Info;
 import org.hyperledger.fabric.contract.annotation.License;
 import org.hyperledger.fabric.contract.annotation.Transaction;
 import org.hyperledger.fabric.samples.erc20.model.Approval;
+import org.hyperledger.fabric.samples.erc20.model.BatchTransfer;
+import org.hyperledger.fabric.samples.erc20.model.Recipient;
 import org.hyperledger.fabric.samples.erc20.model.Transfer;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
 
 @Contract(
     name = "erc20token",
@@ -86,6 +96,17 @@ public final class ERC20TokenContract implements ContractInterface {
       throw new ChaincodeException(
           "Mint amount must be a positive integer", INVALID_AMOUNT.toString());
     }
+    Transfer transferEvent = new Transfer("0x0", minter, amount);
+    if (this.isDeltaStorage(ctx)) {
+      // Neither the minter balance nor totalSupply is read, so concurrent mints do not conflict
+      this.putDelta(
+          stub, stub.createCompositeKey(BALANCE_PREFIX.getValue(), minter, stub.getTxId()), amount);
+      this.putDelta(
+          stub, stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), stub.getTxId()), amount);
+      stub.setEvent(TRANSFER_EVENT.getValue(), this.marshal(transferEvent));
+      logger.info(String.format("minter account %s credited with %d", minter, amount));
+      return;
+    }
     CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), minter);
     String currentBalanceStr = stub.getStringState(balanceKey.toString());
     // If minter current balance doesn't yet exist, we'll create it with a current balance of 0
@@ -105,7 +126,6 @@ public final class ERC20TokenContract implements ContractInterface {
     // Used safe math .
     totalSupply = Math.addExact(totalSupply, amount);
     stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
-    Transfer transferEvent = new Transfer("0x0", minter, amount);
     stub.setEvent(TRANSFER_EVENT.getValue(), this.marshal(transferEvent));
     logger.info(
         String.format(
@@ -141,7 +161,7 @@ public final class ERC20TokenContract implements ContractInterface {
           "Burn amount must be a positive integer", INVALID_AMOUNT.toString());
     }
     CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), minter);
-    String currentBalanceStr = stub.getStringState(balanceKey.toString());
+    String currentBalanceStr = this.getDebitableBalance(ctx, minter, amount);
     if (stringIsNullOrEmpty(currentBalanceStr)) {
       throw new ChaincodeException("The balance does not exist", BALANCE_NOT_FOUND.toString());
     }
@@ -155,12 +175,17 @@ public final class ERC20TokenContract implements ContractInterface {
     long updatedBalance = Math.subtractExact(currentBalance, amount);
     stub.putStringState(balanceKey.toString(), String.valueOf(updatedBalance));
     // Decrease totalSupply
-    String totalSupplyBytes = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
-    if (stringIsNullOrEmpty(totalSupplyBytes)) {
-      throw new ChaincodeException("TotalSupply does not exist", NOT_FOUND.toString());
+    if (this.isDeltaStorage(ctx)) {
+      this.putDelta(
+          stub, stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), stub.getTxId()), -amount);
+    } else {
+      String totalSupplyBytes = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
+      if (stringIsNullOrEmpty(totalSupplyBytes)) {
+        throw new ChaincodeException("TotalSupply does not exist", NOT_FOUND.toString());
+      }
+      long totalSupply = Math.subtractExact(Long.parseLong(totalSupplyBytes), amount);
+      stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
     }
-    long totalSupply = Math.subtractExact(Long.parseLong(totalSupplyBytes), amount);
-    stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
     // Emit the Transfer event
     final Transfer transferEvent = new Transfer(minter, "0x0", amount);
     stub.setEvent(TRANSFER_EVENT.getValue(), this.marshal(transferEvent));
@@ -170,6 +195,61 @@ public final class ERC20TokenContract implements ContractInterface {
             minter, currentBalance, updatedBalance));
   }
 
+  /**
+   * BatchMint creates new tokens and credits them directly to several recipient accounts, for
+   * example for an airdrop, in a single transaction. Credits to the same recipient are aggregated,
+   * the total supply is updated once, and a single BatchTransfer event is emitted instead of one
+   * Transfer event per recipient. If any recipient is invalid, no tokens are minted.
+   *
+   * @param ctx the transaction context
+   * @param recipientsJson JSON array of recipients, each with "to" and "value" fields
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void BatchMint(final Context ctx, final String recipientsJson) {
+
+    // Check minter authorization - this sample assumes Org1 is the central banker with privilege to
+    // mint new tokens
+    String clientMSPID = ctx.getClientIdentity().getMSPID();
+    ChaincodeStub stub = ctx.getStub();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSPID.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to mint new tokens", UNAUTHORIZED_SENDER.toString());
+    }
+
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+
+    Recipient[] recipients = this.parseRecipients(recipientsJson);
+    for (Recipient recipient : recipients) {
+      if (recipient.getValue() <= 0) {
+        throw new ChaincodeException(
+            "Mint amount must be a positive integer", INVALID_AMOUNT.toString());
+      }
+    }
+    Map<String, Long> credits = this.aggregateCredits(recipients);
+    long total = this.sumCredits(credits);
+
+    for (Map.Entry<String, Long> credit : credits.entrySet()) {
+      this.creditBalance(ctx, credit.getKey(), credit.getValue());
+    }
+    // Increase totalSupply
+    if (this.isDeltaStorage(ctx)) {
+      this.putDelta(
+          stub, stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), stub.getTxId()), total);
+    } else {
+      String totalSupplyStr = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
+      long totalSupply = 0;
+      if (!stringIsNullOrEmpty(totalSupplyStr)) {
+        totalSupply = Long.parseLong(totalSupplyStr);
+      }
+      totalSupply = Math.addExact(totalSupply, total);
+      stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
+    }
+    BatchTransfer batchEvent = new BatchTransfer("0x0", total, this.toRecipients(credits));
+    stub.setEvent(BATCH_TRANSFER_EVENT.getValue(), this.marshal(batchEvent));
+    logger.info(String.format("minted %d tokens to %d recipients", total, credits.size()));
+  }
+
   /**
    * Transfer transfers tokens from client account to recipient account. Recipient account must be a
    * valid client Id as returned by the ClientID() function must be a valid clientID as returned by
@@ -189,6 +269,38 @@ public final class ERC20TokenContract implements ContractInterface {
     ctx.getStub().setEvent(TRANSFER_EVENT.getValue(), this.marshal(transferEvent));
   }
 
+  /**
+   * BatchTransfer transfers tokens from the client account to several recipient accounts in a
+   * single transaction, for example to pay out rewards. Each recipient is validated in the same way
+   * as for Transfer. The sender is debited once with the total, credits to the same recipient are
+   * aggregated, and a single BatchTransfer event is emitted instead of one Transfer event per
+   * recipient. If any recipient is invalid or the sender has insufficient funds for the total, no
+   * tokens are transferred.
+   *
+   * @param ctx the transaction context
+   * @param recipientsJson JSON array of recipients, each with "to" and "value" fields
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void BatchTransfer(final Context ctx, final String recipientsJson) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    String from = ctx.getClientIdentity().getId();
+
+    Recipient[] recipients = this.parseRecipients(recipientsJson);
+    for (Recipient recipient : recipients) {
+      this.validateTransfer(from, recipient.getTo(), recipient.getValue());
+    }
+    Map<String, Long> credits = this.aggregateCredits(recipients);
+    long total = this.sumCredits(credits);
+
+    this.debitBalance(ctx, from, total);
+    for (Map.Entry<String, Long> credit : credits.entrySet()) {
+      this.creditBalance(ctx, credit.getKey(), credit.getValue());
+    }
+    BatchTransfer batchEvent = new BatchTransfer(from, total, this.toRecipients(credits));
+    ctx.getStub().setEvent(BATCH_TRANSFER_EVENT.getValue(), this.marshal(batchEvent));
+  }
+
   /**
    * BalanceOf returns the balance of the given account.
    *
@@ -200,9 +312,7 @@ public final class ERC20TokenContract implements ContractInterface {
   public long BalanceOf(final Context ctx, final String owner) {
     // Check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    ChaincodeStub stub = ctx.getStub();
-    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
-    String balance = stub.getStringState(balanceKey.toString());
+    String balance = this.readBalance(ctx, owner);
     if (stringIsNullOrEmpty(balance)) {
       String errorMessage = String.format("Balance of the owner  %s not exists", owner);
       throw new ChaincodeException(errorMessage, NOT_FOUND.toString());
@@ -222,10 +332,8 @@ public final class ERC20TokenContract implements ContractInterface {
     // Check contract options are already set first to execute the function
     this.checkInitialized(ctx);
     // Get ID of submitting client identity
-    ChaincodeStub stub = ctx.getStub();
     String clientAccountID = ctx.getClientIdentity().getId();
-    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), clientAccountID);
-    String balanceBytes = stub.getStringState(balanceKey.toString());
+    String balanceBytes = this.readBalance(ctx, clientAccountID);
     if (stringIsNullOrEmpty(balanceBytes)) {
       String errorMessage = String.format("The account  %s does not exist", clientAccountID);
       throw new ChaincodeException(errorMessage, NOT_FOUND.toString());
@@ -261,6 +369,9 @@ public final class ERC20TokenContract implements ContractInterface {
     // Check contract options are already set first to execute the function
     this.checkInitialized(ctx);
     String totalSupply = ctx.getStub().getStringState(TOTAL_SUPPLY_KEY.getValue());
+    if (this.isDeltaStorage(ctx)) {
+      totalSupply = this.sumDeltas(ctx.getStub(), totalSupply, TOTAL_SUPPLY_KEY.getValue());
+    }
     if (stringIsNullOrEmpty(totalSupply)) {
       throw new ChaincodeException("Total Supply  not found", NOT_FOUND.toString());
     }
@@ -371,7 +482,20 @@ public final class ERC20TokenContract implements ContractInterface {
    */
   private void transferHelper(
       final Context ctx, final String from, final String to, final long value) {
+    this.validateTransfer(from, to, value);
+    this.debitBalance(ctx, from, value);
+    this.creditBalance(ctx, to, value);
+  }
 
+  /**
+   * Validates a single transfer. Used by transferHelper and by the batch operations so that every
+   * recipient is checked in the same way.
+   *
+   * @param from the sender
+   * @param to the receiver
+   * @param value the amount.
+   */
+  private void validateTransfer(final String from, final String to, final long value) {
     if (from.equalsIgnoreCase(to)) {
       throw new ChaincodeException(
           "Cannot transfer to and from same client account", INVALID_TRANSFER.toString());
@@ -380,10 +504,20 @@ public final class ERC20TokenContract implements ContractInterface {
     if (value < 0) {
       throw new ChaincodeException("Transfer amount cannot be negative", INVALID_AMOUNT.toString());
     }
+  }
+
+  /**
+   * Debits an account after checking that it has sufficient funds.
+   *
+   * @param ctx the transaction context
+   * @param from the account to debit
+   * @param value the amount.
+   */
+  private void debitBalance(final Context ctx, final String from, final long value) {
     ChaincodeStub stub = ctx.getStub();
     // Retrieve the current balance of the sender
     CompositeKey fromBalanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), from);
-    String fromCurrentBalanceStr = stub.getStringState(fromBalanceKey.toString());
+    String fromCurrentBalanceStr = this.getDebitableBalance(ctx, from, value);
     if (stringIsNullOrEmpty(fromCurrentBalanceStr)) {
       String errorMessage = String.format("Client account %s has no balance", from);
       throw new ChaincodeException(errorMessage, INSUFFICIENT_FUND.toString());
@@ -394,6 +528,30 @@ public final class ERC20TokenContract implements ContractInterface {
       String errorMessage = String.format("Client account %s has insufficient funds", from);
       throw new ChaincodeException(errorMessage, INSUFFICIENT_FUND.toString());
     }
+    long fromUpdatedBalance = Math.subtractExact(fromCurrentBalance, value);
+    stub.putStringState(fromBalanceKey.toString(), String.valueOf(fromUpdatedBalance));
+    logger.info(
+        String.format(
+            "client %s balance updated from %d to %d",
+            from, fromCurrentBalance, fromUpdatedBalance));
+  }
+
+  /**
+   * Credits an account. In delta storage mode the recipient balance is not read, so transfers to a
+   * busy account do not conflict.
+   *
+   * @param ctx the transaction context
+   * @param to the account to credit
+   * @param value the amount.
+   */
+  private void creditBalance(final Context ctx, final String to, final long value) {
+    ChaincodeStub stub = ctx.getStub();
+    if (this.isDeltaStorage(ctx)) {
+      this.putDelta(
+          stub, stub.createCompositeKey(BALANCE_PREFIX.getValue(), to, stub.getTxId()), value);
+      logger.info(String.format("recipient %s credited with %d", to, value));
+      return;
+    }
     // Retrieve the current balance of the recipient
     CompositeKey toBalanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), to);
     String toCurrentBalanceStr = stub.getStringState(toBalanceKey.toString());
@@ -404,19 +562,86 @@ public final class ERC20TokenContract implements ContractInterface {
       toCurrentBalance = Long.parseLong(toCurrentBalanceStr.trim());
     }
     // Update the balance
-    long fromUpdatedBalance = Math.subtractExact(fromCurrentBalance, value);
     long toUpdatedBalance = Math.addExact(toCurrentBalance, value);
-    stub.putStringState(fromBalanceKey.toString(), String.valueOf(fromUpdatedBalance));
     stub.putStringState(toBalanceKey.toString(), String.valueOf(toUpdatedBalance));
-    logger.info(
-        String.format(
-            "client %s balance updated from %d to %d",
-            from, fromCurrentBalance, fromUpdatedBalance));
     logger.info(
         String.format(
             "recipient %s balance updated from %d to %d", to, toCurrentBalance, toUpdatedBalance));
   }
 
+  /**
+   * Switch the contract to delta storage mode. Credits to an account, and changes to the total
+   * supply, are then written as unique delta keys instead of read-modify-writes of a single key, so
+   * concurrent mints and transfers to the same account no longer fail with MVCC read conflicts.
+   * Balances are the sum of the consolidated balance and any outstanding deltas. Once enabled,
+   * delta storage cannot be disabled.
+   *
+   * @param ctx the transaction context
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void EnableDeltaStorage(final Context ctx) {
+    // Check minter authorization - this sample assumes Org1 is the central banker with privilege to
+    // change how balances are stored
+    String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSPID.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to change balance storage", UNAUTHORIZED_SENDER.toString());
+    }
+
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    ctx.getStub().putStringState(DELTA_STORAGE_KEY.getValue(), "true");
+  }
+
+  /**
+   * ConsolidateBalance folds the outstanding credit deltas of an account into its balance key. In
+   * delta storage mode this should be called periodically for busy accounts to keep balance reads
+   * cheap.
+   *
+   * @param ctx the transaction context
+   * @param owner the account to consolidate
+   * @return the account balance
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long ConsolidateBalance(final Context ctx, final String owner) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    String balance = this.consolidateBalance(ctx.getStub(), owner);
+    if (stringIsNullOrEmpty(balance)) {
+      String errorMessage = String.format("Balance of the owner  %s not exists", owner);
+      throw new ChaincodeException(errorMessage, NOT_FOUND.toString());
+    }
+    logger.info(String.format("%s balance consolidated to %s tokens", owner, balance));
+    return Long.parseLong(balance);
+  }
+
+  /**
+   * ConsolidateTotalSupply folds the outstanding mint and burn deltas into the totalSupply key. In
+   * delta storage mode this should be called periodically to keep total supply reads cheap.
+   *
+   * @param ctx the transaction context
+   * @return the total token supply
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long ConsolidateTotalSupply(final Context ctx) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    ChaincodeStub stub = ctx.getStub();
+    long totalSupply = 0;
+    String totalSupplyStr = stub.getStringState(TOTAL_SUPPLY_KEY.getValue());
+    if (!stringIsNullOrEmpty(totalSupplyStr)) {
+      totalSupply = Long.parseLong(totalSupplyStr);
+    }
+    CompositeKey deltaKey = stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue());
+    for (KeyValue delta : stub.getStateByPartialCompositeKey(deltaKey)) {
+      totalSupply = Math.addExact(totalSupply, Long.parseLong(delta.getStringValue()));
+      stub.delState(delta.getKey());
+    }
+    stub.putStringState(TOTAL_SUPPLY_KEY.getValue(), String.valueOf(totalSupply));
+    logger.info(String.format("TotalSupply consolidated to %d tokens", totalSupply));
+    return totalSupply;
+  }
+
   /**
    * Set optional information for a token.
    *
@@ -501,6 +726,171 @@ public final class ERC20TokenContract implements ContractInterface {
     }
     return Integer.parseInt(decimals);
   }
+  /**
+   * Parses the recipients of a batch operation.
+   *
+   * @param recipientsJson JSON array of recipients
+   * @return the recipients
+   */
+  private Recipient[] parseRecipients(final String recipientsJson) {
+    Recipient[] recipients;
+    try {
+      recipients = new Genson().deserialize(recipientsJson, Recipient[].class);
+    } catch (JsonBindingException | JsonStreamException e) {
+      throw new ChaincodeException(
+          "Recipients must be a JSON array of {to, value} objects", INVALID_BATCH.toString());
+    }
+    if (recipients == null || recipients.length == 0) {
+      throw new ChaincodeException(
+          "Batch must have at least one recipient", INVALID_BATCH.toString());
+    }
+    for (Recipient recipient : recipients) {
+      if (recipient == null || stringIsNullOrEmpty(recipient.getTo())) {
+        throw new ChaincodeException(
+            "Every recipient must have an account", INVALID_BATCH.toString());
+      }
+    }
+    return recipients;
+  }
+
+  /**
+   * Aggregates the credits of a batch per recipient, so that each balance key is written once.
+   *
+   * @param recipients the recipients
+   * @return the total credit for each recipient, in order of first appearance
+   */
+  private Map<String, Long> aggregateCredits(final Recipient[] recipients) {
+    Map<String, Long> credits = new LinkedHashMap<>();
+    for (Recipient recipient : recipients) {
+      credits.merge(recipient.getTo(), recipient.getValue(), Math::addExact);
+    }
+    return credits;
+  }
+
+  private long sumCredits(final Map<String, Long> credits) {
+    long total = 0;
+    for (long value : credits.values()) {
+      total = Math.addExact(total, value);
+    }
+    return total;
+  }
+
+  private Recipient[] toRecipients(final Map<String, Long> credits) {
+    return credits.entrySet().stream()
+        .map(credit -> new Recipient(credit.getKey(), credit.getValue()))
+        .toArray(Recipient[]::new);
+  }
+
+  /**
+   * Checks whether credits are stored as delta keys rather than by updating balances in place.
+   *
+   * @param ctx the transaction context
+   * @return true if delta storage mode is enabled
+   */
+  private boolean isDeltaStorage(final Context ctx) {
+    return !stringIsNullOrEmpty(ctx.getStub().getStringState(DELTA_STORAGE_KEY.getValue()));
+  }
+
+  /**
+   * Writes a delta under a key that is unique to the current transaction.
+   *
+   * @param stub the chaincode stub
+   * @param deltaKey the delta key
+   * @param value the signed amount
+   */
+  private void putDelta(final ChaincodeStub stub, final CompositeKey deltaKey, final long value) {
+    stub.putStringState(deltaKey.toString(), String.valueOf(value));
+  }
+
+  /**
+   * Returns the balance of an account, including any outstanding credit deltas.
+   *
+   * @param ctx the transaction context
+   * @param owner the account owner
+   * @return the balance, or null if the account does not exist
+   */
+  private String readBalance(final Context ctx, final String owner) {
+    ChaincodeStub stub = ctx.getStub();
+    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
+    String balance = stub.getStringState(balanceKey.toString());
+    if (this.isDeltaStorage(ctx)) {
+      balance = this.sumDeltas(stub, balance, BALANCE_PREFIX.getValue(), owner);
+    }
+    return balance;
+  }
+
+  /**
+   * Returns the balance of an account that is about to be debited. In delta storage mode the
+   * consolidated balance is used alone when it covers the debit, so that credit deltas written by
+   * concurrent transactions are not read. Otherwise outstanding deltas are first consolidated.
+   *
+   * @param ctx the transaction context
+   * @param owner the account owner
+   * @param amount the amount to be debited
+   * @return the balance, or null if the account does not exist
+   */
+  private String getDebitableBalance(final Context ctx, final String owner, final long amount) {
+    ChaincodeStub stub = ctx.getStub();
+    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
+    String balance = stub.getStringState(balanceKey.toString());
+    if (!this.isDeltaStorage(ctx)
+        || (!stringIsNullOrEmpty(balance) && Long.parseLong(balance) >= amount)) {
+      return balance;
+    }
+    return this.consolidateBalance(stub, owner);
+  }
+
+  /**
+   * Folds the credit deltas of an account into its balance key and deletes them.
+   *
+   * @param stub the chaincode stub
+   * @param owner the account owner
+   * @return the consolidated balance, or null if the account does not exist
+   */
+  private String consolidateBalance(final ChaincodeStub stub, final String owner) {
+    CompositeKey balanceKey = stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner);
+    Long balance = null;
+    // The partial key matches both the balance key itself and the owner's delta keys
+    for (KeyValue entry : stub.getStateByPartialCompositeKey(balanceKey)) {
+      long value = Long.parseLong(entry.getStringValue());
+      balance = balance == null ? value : Math.addExact(balance, value);
+      if (!entry.getKey().equals(balanceKey.toString())) {
+        stub.delState(entry.getKey());
+      }
+    }
+    if (balance == null) {
+      return null;
+    }
+    stub.putStringState(balanceKey.toString(), String.valueOf(balance));
+    return String.valueOf(balance);
+  }
+
+  /**
+   * Adds the deltas stored under a partial composite key to a consolidated value.
+   *
+   * @param stub the chaincode stub
+   * @param consolidated the consolidated value, which may be null or empty
+   * @param objectType the delta key object type
+   * @param attributes the delta key attributes
+   * @return the sum, or the consolidated value if there are no deltas
+   */
+  private String sumDeltas(
+      final ChaincodeStub stub,
+      final String consolidated,
+      final String objectType,
+      final String... attributes) {
+    CompositeKey consolidatedKey = stub.createCompositeKey(objectType, attributes);
+    boolean found = !stringIsNullOrEmpty(consolidated);
+    long sum = found ? Long.parseLong(consolidated) : 0;
+    for (KeyValue delta : stub.getStateByPartialCompositeKey(consolidatedKey)) {
+      if (!delta.getKey().equals(consolidatedKey.toString())) {
+        sum = Math.addExact(sum, Long.parseLong(delta.getStringValue()));
+        found = true;
+      }
+    }
+    return found ? String.valueOf(sum) : consolidated;
+  }
+
   /**
    * marshal the event data
    *
@@ -0,0 +1,58 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc20.model;
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+@DataType()
+public final class BatchTransfer {
+
+  @Property()
+  @JsonProperty("from")
+  private String from;
+
+  @Property()
+  @JsonProperty("value")
+  private long value;
+
+  @Property()
+  @JsonProperty("recipients")
+  private Recipient[] recipients;
+
+  /** Default constructor */
+  public BatchTransfer() {
+    super();
+  }
+
+  /**
+   * Constructor of the class
+   *
+   * @param from owner of the token
+   * @param value total amount transferred
+   * @param recipients token receivers and the amount credited to each
+   */
+  public BatchTransfer(
+      @JsonProperty("from") final String from,
+      @JsonProperty("value") final long value,
+      @JsonProperty("recipients") final Recipient[] recipients) {
+    super();
+    this.from = from;
+    this.value = value;
+    this.recipients = recipients;
+  }
+
+  public String getFrom() {
+    return from;
+  }
+
+  public long getValue() {
+    return value;
+  }
+
+  public Recipient[] getRecipients() {
+    return recipients;
+  }
+}
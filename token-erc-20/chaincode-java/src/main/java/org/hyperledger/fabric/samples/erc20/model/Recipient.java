@@ -0,0 +1,47 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc20.model;
+
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+@DataType()
+public final class Recipient {
+
+  @Property()
+  @JsonProperty("to")
+  private String to;
+
+  @Property()
+  @JsonProperty("value")
+  private long value;
+
+  /** Default constructor */
+  public Recipient() {
+    super();
+  }
+
+  /**
+   * Constructor of the class
+   *
+   * @param to token receiver
+   * @param value amount to be credited
+   */
+  public Recipient(
+      @JsonProperty("to") final String to,
+      @JsonProperty("value") final long value) {
+    super();
+    this.to = to;
+    this.value = value;
+  }
+
+  public String getTo() {
+    return to;
+  }
+
+  public long getValue() {
+    return value;
+  }
+}
@@ -8,19 +8,32 @@ import org.hyperledger.fabric.contract.Context;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
+import org.hyperledger.fabric.shim.ledger.KeyValue;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.ALLOWANCE_PREFIX;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.BALANCE_PREFIX;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.BATCH_TRANSFER_EVENT;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.DECIMALS_KEY;
+import static org.hyperledger.fabric.samples.erc20.ContractConstants.DELTA_STORAGE_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.MINTER_ORG_MSPID;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.NAME_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.SYMBOL_KEY;
 import static org.hyperledger.fabric.samples.erc20.ContractConstants.TOTAL_SUPPLY_KEY;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -587,4 +600,274 @@ public class TokenERC20ContractTest {
           .hasMessage("Cannot transfer to and from same client account");
     }
   }
+
+  @Nested
+  class DeltaStorageTransactions {
+
+    private final String to =
+        "x509::CN=User2@org2.example.com, L=San Francisco, ST=California,"
+            + " C=US::CN=ca.org2.example.com, O=org2.example.com, L=San Francisco, ST=California, C=US";
+
+    private ChaincodeStub newDeltaStub(final Context ctx, final String clientId) {
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn(MINTER_ORG_MSPID.getValue());
+      when(ci.getId()).thenReturn(clientId);
+      when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
+      when(stub.getStringState(DELTA_STORAGE_KEY.getValue())).thenReturn("true");
+      when(stub.getTxId()).thenReturn("tx1");
+      return stub;
+    }
+
+    private CompositeKey mockKey(final ChaincodeStub stub, final String key, final String... attributes) {
+      CompositeKey ck = mock(CompositeKey.class);
+      when(ck.toString()).thenReturn(key);
+      if (attributes.length == 1) {
+        when(stub.createCompositeKey(anyString(), eq(attributes[0]))).thenReturn(ck);
+      } else if (attributes.length == 2) {
+        when(stub.createCompositeKey(anyString(), eq(attributes[0]), eq(attributes[1]))).thenReturn(ck);
+      }
+      return ck;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockRange(final ChaincodeStub stub, final CompositeKey partialKey, final KeyValue... entries) {
+      QueryResultsIterator<KeyValue> results = mock(QueryResultsIterator.class);
+      when(results.iterator()).thenAnswer(invocation -> (Iterator<KeyValue>) Arrays.asList(entries).iterator());
+      when(stub.getStateByPartialCompositeKey(partialKey)).thenReturn(results);
+    }
+
+    private KeyValue entry(final String key, final String value) {
+      KeyValue kv = mock(KeyValue.class);
+      when(kv.getKey()).thenReturn(key);
+      when(kv.getStringValue()).thenReturn(value);
+      return kv;
+    }
+
+    @Test
+    public void invokeMintWritesDeltasOnly() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newDeltaStub(ctx, org1UserId);
+      CompositeKey balanceDelta = mockKey(stub, "balance~minter~tx1", org1UserId, "tx1");
+      CompositeKey supplyDelta = mock(CompositeKey.class);
+      when(supplyDelta.toString()).thenReturn("totalSupply~tx1");
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue(), "tx1")).thenReturn(supplyDelta);
+
+      contract.Mint(ctx, 1000);
+
+      verify(stub).putStringState("balance~minter~tx1", "1000");
+      verify(stub).putStringState("totalSupply~tx1", "1000");
+      verify(stub, never()).getStringState(TOTAL_SUPPLY_KEY.getValue());
+      verify(stub, never()).putStringState(eq(TOTAL_SUPPLY_KEY.getValue()), anyString());
+    }
+
+    @Test
+    public void invokeTransferCreditsRecipientDelta() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newDeltaStub(ctx, org1UserId);
+      CompositeKey ckFrom = mockKey(stub, "balance~from", org1UserId);
+      when(stub.getStringState(ckFrom.toString())).thenReturn("1000");
+      CompositeKey ckTo = mockKey(stub, "balance~to", to);
+      mockKey(stub, "balance~to~tx1", to, "tx1");
+
+      contract.Transfer(ctx, to, 100);
+
+      verify(stub).putStringState("balance~from", "900");
+      verify(stub).putStringState("balance~to~tx1", "100");
+      verify(stub, never()).getStringState(ckTo.toString());
+    }
+
+    @Test
+    public void whenDebitExceedsConsolidatedBalance() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newDeltaStub(ctx, org1UserId);
+      CompositeKey ckFrom = mockKey(stub, "balance~from", org1UserId);
+      when(stub.getStringState(ckFrom.toString())).thenReturn("50");
+      mockRange(stub, ckFrom, entry("balance~from", "50"), entry("balance~from~txA", "70"));
+      mockKey(stub, "balance~to~tx1", to, "tx1");
+
+      contract.Transfer(ctx, to, 100);
+
+      verify(stub).delState("balance~from~txA");
+      verify(stub).putStringState("balance~from", "20");
+      verify(stub).putStringState("balance~to~tx1", "100");
+    }
+
+    @Test
+    public void whenDebitExceedsBalanceIncludingDeltas() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newDeltaStub(ctx, org1UserId);
+      CompositeKey ckFrom = mockKey(stub, "balance~from", org1UserId);
+      mockRange(stub, ckFrom, entry("balance~from~txA", "70"));
+
+      Throwable thrown = catchThrowable(() -> contract.Transfer(ctx, to, 100));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasNoCause()
+          .hasMessage("Client account " + org1UserId + " has insufficient funds");
+    }
+
+    @Test
+    public void invokeBalanceOfSumsDeltas() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newDeltaStub(ctx, org1UserId);
+      CompositeKey ck = mockKey(stub, "balance~owner", to);
+      when(stub.getStringState(ck.toString())).thenReturn("10");
+      mockRange(stub, ck, entry("balance~owner", "10"), entry("balance~owner~txA", "5"), entry("balance~owner~txB", "7"));
+
+      assertThat(contract.BalanceOf(ctx, to)).isEqualTo(22);
+    }
+
+    @Test
+    public void invokeConsolidateTotalSupply() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newDeltaStub(ctx, org1UserId);
+      when(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).thenReturn("1000");
+      CompositeKey ck = mock(CompositeKey.class);
+      when(stub.createCompositeKey(TOTAL_SUPPLY_KEY.getValue())).thenReturn(ck);
+      mockRange(stub, ck, entry("totalSupply~txA", "500"), entry("totalSupply~txB", "-200"));
+
+      assertThat(contract.ConsolidateTotalSupply(ctx)).isEqualTo(1300);
+      verify(stub).delState("totalSupply~txA");
+      verify(stub).delState("totalSupply~txB");
+      verify(stub).putStringState(TOTAL_SUPPLY_KEY.getValue(), "1300");
+    }
+  }
+
+  @Nested
+  class BatchTransactions {
+
+    private final String to =
+        "x509::CN=User2@org2.example.com, L=San Francisco, ST=California,"
+            + " C=US::CN=ca.org2.example.com, O=org2.example.com, L=San Francisco, ST=California, C=US";
+    private final String other =
+        "x509::CN=User3@org2.example.com, L=San Francisco, ST=California,"
+            + " C=US::CN=ca.org2.example.com, O=org2.example.com, L=San Francisco, ST=California, C=US";
+
+    private ChaincodeStub newStub(final Context ctx, final String mspId) {
+      ChaincodeStub stub = mock(ChaincodeStub.class);
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn(mspId);
+      when(ci.getId()).thenReturn(org1UserId);
+      when(stub.getStringState(NAME_KEY.getValue())).thenReturn("ARBTToken");
+      return stub;
+    }
+
+    private CompositeKey mockBalanceKey(final ChaincodeStub stub, final String owner, final String balance) {
+      CompositeKey ck = mock(CompositeKey.class);
+      when(ck.toString()).thenReturn(BALANCE_PREFIX.getValue() + owner);
+      when(stub.createCompositeKey(BALANCE_PREFIX.getValue(), owner)).thenReturn(ck);
+      when(stub.getStringState(ck.toString())).thenReturn(balance);
+      return ck;
+    }
+
+    private String recipientsJson() {
+      return "[{\"to\":\"" + to + "\",\"value\":100},"
+          + "{\"to\":\"" + other + "\",\"value\":50},"
+          + "{\"to\":\"" + to + "\",\"value\":25}]";
+    }
+
+    @Test
+    public void invokeBatchTransferTest() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newStub(ctx, "Org2MSP");
+      CompositeKey ckFrom = mockBalanceKey(stub, org1UserId, "1000");
+      CompositeKey ckTo = mockBalanceKey(stub, to, "10");
+      CompositeKey ckOther = mockBalanceKey(stub, other, null);
+
+      contract.BatchTransfer(ctx, recipientsJson());
+
+      verify(stub).putStringState(ckFrom.toString(), "825");
+      verify(stub).putStringState(ckTo.toString(), "135");
+      verify(stub).putStringState(ckOther.toString(), "50");
+      verify(stub, times(1)).setEvent(eq(BATCH_TRANSFER_EVENT.getValue()), any(byte[].class));
+      verify(stub, never()).setEvent(eq("Transfer"), any(byte[].class));
+    }
+
+    @Test
+    public void whenBatchTransferToSelf() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newStub(ctx, "Org2MSP");
+      mockBalanceKey(stub, org1UserId, "1000");
+      String json = "[{\"to\":\"" + to + "\",\"value\":100},{\"to\":\"" + org1UserId + "\",\"value\":1}]";
+
+      Throwable thrown = catchThrowable(() -> contract.BatchTransfer(ctx, json));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasNoCause()
+          .hasMessage("Cannot transfer to and from same client account");
+      verify(stub, never()).putStringState(anyString(), anyString());
+    }
+
+    @Test
+    public void whenBatchTransferExceedsBalance() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newStub(ctx, "Org2MSP");
+      mockBalanceKey(stub, org1UserId, "150");
+
+      Throwable thrown = catchThrowable(() -> contract.BatchTransfer(ctx, recipientsJson()));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasNoCause()
+          .hasMessage("Client account " + org1UserId + " has insufficient funds");
+      verify(stub, never()).putStringState(anyString(), anyString());
+    }
+
+    @Test
+    public void whenBatchIsMalformed() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      newStub(ctx, "Org2MSP");
+
+      Throwable thrown = catchThrowable(() -> contract.BatchTransfer(ctx, "[]"));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Batch must have at least one recipient");
+    }
+
+    @Test
+    public void invokeBatchMintTest() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      ChaincodeStub stub = newStub(ctx, MINTER_ORG_MSPID.getValue());
+      when(stub.getStringState(TOTAL_SUPPLY_KEY.getValue())).thenReturn("1000");
+      CompositeKey ckTo = mockBalanceKey(stub, to, null);
+      CompositeKey ckOther = mockBalanceKey(stub, other, "5");
+
+      contract.BatchMint(ctx, recipientsJson());
+
+      verify(stub).putStringState(ckTo.toString(), "125");
+      verify(stub).putStringState(ckOther.toString(), "55");
+      verify(stub).putStringState(TOTAL_SUPPLY_KEY.getValue(), "1175");
+      String expectedEvent = "{\"from\":\"0x0\",\"recipients\":[{\"to\":\"" + to + "\",\"value\":125},"
+          + "{\"to\":\"" + other + "\",\"value\":50}],\"value\":175}";
+      verify(stub).setEvent(BATCH_TRANSFER_EVENT.getValue(), expectedEvent.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void whenBatchMintUnAuthorized() {
+      ERC20TokenContract contract = new ERC20TokenContract();
+      Context ctx = mock(Context.class);
+      newStub(ctx, "Org2MSP");
+
+      Throwable thrown = catchThrowable(() -> contract.BatchMint(ctx, recipientsJson()));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasNoCause()
+          .hasMessage("Client is not authorized to mint new tokens");
+    }
+  }
 }
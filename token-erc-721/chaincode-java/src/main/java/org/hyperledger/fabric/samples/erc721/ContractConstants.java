@@ -5,12 +5,17 @@ package org.hyperledger.fabric.samples.erc721;
 
 public enum ContractConstants {
   BALANCE("balance"),
+  BALANCE_COUNT("balanceCount"),
   NFT("nft"),
+  TOTAL_SUPPLY("totalSupply"),
+  TOKEN_BY_INDEX("tokenByIndex"),
+  TOKEN_INDEX("tokenIndex"),
   APPROVAL("approval"),
   NAMEKEY("nameKey"),
   SYMBOLKEY("symbolKey"),
   APPROVE_FOR_ALL("ApproveForAll"),
   TRANSFER("Transfer"),
+  BATCH_TRANSFER("BatchTransfer"),
   MINTER_ORG_MSP("Org1MSP");
   private final String prefix;
 
@@ -13,13 +13,24 @@ import org.hyperledger.fabric.contract.annotation.License;
 import org.hyperledger.fabric.contract.annotation.Contact;
 import org.hyperledger.fabric.contract.annotation.Contract;
 import org.hyperledger.fabric.samples.erc721.models.Approval;
+import org.hyperledger.fabric.samples.erc721.models.BatchTransfer;
 import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.TokenPage;
 import org.hyperledger.fabric.samples.erc721.models.Transfer;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.hyperledger.fabric.samples.erc721.utils.ContractUtility.stringIsNullOrEmpty;
@@ -44,9 +55,10 @@ import static org.hyperledger.fabric.samples.erc721.utils.ContractUtility.string
 public class ERC721TokenContract implements ContractInterface {
 
   /**
-   * BalanceOf counts all non-fungible tokens assigned to an owner.There is a key record for every
-   * non-fungible token in the format of balancePrefix.owner.tokenId. balanceOf() queries for and
-   * counts all records matching balancePrefix.owner.*
+   * BalanceOf returns the number of non-fungible tokens assigned to an owner. The balance is kept
+   * in a counter record in the format of balanceCountPrefix.owner, which is updated whenever a
+   * token is minted, transferred or burned. For an owner without a counter record, balanceOf()
+   * counts the key records in the format of balancePrefix.owner.tokenId instead.
    *
    * @param ctx the transaction context
    * @param owner An owner for whom to query the balance
@@ -56,17 +68,7 @@ public class ERC721TokenContract implements ContractInterface {
   public long BalanceOf(final Context ctx, final String owner) {
     // Check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    final ChaincodeStub stub = ctx.getStub();
-    final CompositeKey balanceKey =
-        stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner);
-    final QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(balanceKey);
-    long balance = 0;
-    for (KeyValue result : results) {
-      if (!stringIsNullOrEmpty(result.getStringValue())) {
-        balance++;
-      }
-    }
-    return balance;
+    return this._readBalance(ctx, owner);
   }
 
   /**
@@ -220,6 +222,10 @@ public class ERC721TokenContract implements ContractInterface {
 
     // Overwrite a non-fungible token to assign a new owner.
     nft.setOwner(to);
+    if (!from.equals(to)) {
+      this._updateBalance(ctx, from, -1);
+      this._updateBalance(ctx, to, 1);
+    }
     final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
     stub.putStringState(nftKey.toString(), nft.toJSONString());
 
@@ -239,6 +245,73 @@ public class ERC721TokenContract implements ContractInterface {
         ContractConstants.TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
   }
 
+  /**
+   * Transfers the ownership of several non-fungible tokens from one owner to another owner. The
+   * sender is authorized once for the whole batch if they are the owner or an authorized operator
+   * of the owner, and otherwise must be the approved client of every token. The balances of the
+   * owners are updated once, and a single BatchTransfer event is emitted instead of a Transfer
+   * event per token.
+   *
+   * @param ctx the transaction context
+   * @param from the current owner of the non-fungible tokens
+   * @param to the new token owner
+   * @param tokenIds The non-fungible tokens to transfer
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public void BatchTransferFrom(
+      final Context ctx, final String from, final String to, final String[] tokenIds) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    this._checkBatch(tokenIds);
+    final String sender = ctx.getClientIdentity().getId();
+    final ChaincodeStub stub = ctx.getStub();
+    final boolean senderAuthorized =
+        from.equalsIgnoreCase(sender) || this.IsApprovedForAll(ctx, from, sender);
+
+    // Check every token before writing any of them, so that the batch transfers all or nothing
+    final List<NFT> nfts = new ArrayList<>(tokenIds.length);
+    for (String tokenId : tokenIds) {
+      final NFT nft = this._readNft(ctx, tokenId);
+      if (!nft.getOwner().equalsIgnoreCase(from)) {
+        throw new ChaincodeException(
+            String.format("The from %s is not the current owner of the token %s.", from, tokenId),
+            ContractErrors.INVALID_TOKEN_OWNER.toString());
+      }
+      if (!senderAuthorized && !nft.getApproved().equalsIgnoreCase(sender)) {
+        final String errorMessage =
+            String.format(
+                "The sender %s is not the current owner nor an authorized operator of the token %s.",
+                sender, tokenId);
+        throw new ChaincodeException(errorMessage, ContractErrors.UNAUTHORIZED_SENDER.toString());
+      }
+      nfts.add(nft);
+    }
+
+    for (NFT nft : nfts) {
+      final String tokenId = nft.getTokenId();
+      nft.setApproved("");
+      nft.setOwner(to);
+      final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
+      stub.putStringState(nftKey.toString(), nft.toJSONString());
+
+      final CompositeKey balanceKeyFrom =
+          stub.createCompositeKey(ContractConstants.BALANCE.getValue(), from, tokenId);
+      stub.delState(balanceKeyFrom.toString());
+      final CompositeKey balanceKeyTo =
+          stub.createCompositeKey(ContractConstants.BALANCE.getValue(), to, tokenId);
+      stub.putStringState(balanceKeyTo.toString(), Character.toString(Character.MIN_VALUE));
+    }
+
+    if (!from.equals(to)) {
+      this._updateBalance(ctx, from, -tokenIds.length);
+      this._updateBalance(ctx, to, tokenIds.length);
+    }
+
+    final BatchTransfer transferEvent = new BatchTransfer(from, to, tokenIds);
+    stub.setEvent(
+        ContractConstants.BATCH_TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
+  }
+
   // ============== ERC721 metadata extension ===============
 
   /**
@@ -285,9 +358,10 @@ public class ERC721TokenContract implements ContractInterface {
   /** ============= ERC721 enumeration extension =============== * */
 
   /**
-   * Counts non-fungible tokens tracked by this contract. There is a key record for every
-   * non-fungible token in the format of nftPrefix.tokenId. The function queries for and counts all
-   * records matching nftPrefix.*
+   * Counts non-fungible tokens tracked by this contract. The count is kept in the totalSupply
+   * record, which is updated whenever a token is minted or burned. If the contract was initialized
+   * before the record was introduced and BuildTokenIndex has not been called, the function queries
+   * for and counts all records matching nftPrefix.*
    *
    * @param ctx the transaction context
    * @return count of valid non-fungible tokens tracked by this contract,where each one of them has
@@ -297,16 +371,90 @@ public class ERC721TokenContract implements ContractInterface {
   public long TotalSupply(final Context ctx) {
     // Check contract options are already set first to execute the function
     this.checkInitialized(ctx);
-    final ChaincodeStub stub = ctx.getStub();
-    final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue());
-    final QueryResultsIterator<KeyValue> iterator = stub.getStateByPartialCompositeKey(nftKey);
-    long totalSupply = 0;
-    for (KeyValue result : iterator) {
+    final String totalSupply = ctx.getStub().getStringState(ContractConstants.TOTAL_SUPPLY.getValue());
+    if (!stringIsNullOrEmpty(totalSupply)) {
+      return Long.parseLong(totalSupply);
+    }
+
+    long count = 0;
+    for (KeyValue result : this._getAllNfts(ctx)) {
       if (!stringIsNullOrEmpty(result.getStringValue())) {
-        totalSupply++;
+        count++;
       }
     }
-    return totalSupply;
+    return count;
+  }
+
+  /**
+   * Returns the identifier of the non-fungible token at a given index of all the tokens tracked by
+   * this contract. There is a key record in the format of tokenByIndexPrefix.index for every token,
+   * and the indexes are kept dense when a token is burned by moving the last token into its place.
+   * The order of the tokens is therefore not specified.
+   *
+   * @param ctx the transaction context
+   * @param index the index of the token, less than TotalSupply
+   * @return the identifier of the non-fungible token at the index
+   */
+  @Transaction(intent = Transaction.TYPE.EVALUATE)
+  public String TokenByIndex(final Context ctx, final long index) {
+    final long totalSupply = this.TotalSupply(ctx);
+    if (index < 0 || index >= totalSupply) {
+      throw new ChaincodeException(
+          String.format("Index %d is out of bounds for a total supply of %d", index, totalSupply),
+          ContractErrors.INDEX_OUT_OF_BOUNDS.toString());
+    }
+
+    final ChaincodeStub stub = ctx.getStub();
+    if (!stringIsNullOrEmpty(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue()))) {
+      final CompositeKey indexKey =
+          stub.createCompositeKey(ContractConstants.TOKEN_BY_INDEX.getValue(), Long.toString(index));
+      return stub.getStringState(indexKey.toString());
+    }
+
+    // The token index has not been built yet, so walk the token records in key order
+    long position = 0;
+    for (KeyValue result : this._getAllNfts(ctx)) {
+      if (!stringIsNullOrEmpty(result.getStringValue()) && position++ == index) {
+        return stub.splitCompositeKey(result.getKey()).getAttributes().get(0);
+      }
+    }
+    throw new ChaincodeException(
+        String.format("Index %d is out of bounds", index),
+        ContractErrors.INDEX_OUT_OF_BOUNDS.toString());
+  }
+
+  /**
+   * Returns a page of the identifiers of the non-fungible tokens assigned to an owner. The tokens
+   * are read from the key records in the format of balancePrefix.owner.tokenId, in token ID order.
+   *
+   * @param ctx the transaction context
+   * @param owner An owner for whom to list the tokens
+   * @param pageSize the maximum number of token IDs to return
+   * @param bookmark the bookmark returned with the previous page, or empty for the first page
+   * @return the token IDs on the page, and the bookmark for the next page
+   */
+  @Transaction(intent = Transaction.TYPE.EVALUATE)
+  public TokenPage TokensOfOwner(
+      final Context ctx, final String owner, final int pageSize, final String bookmark) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    if (pageSize <= 0) {
+      throw new ChaincodeException(
+          String.format("Page size %d must be greater than zero", pageSize),
+          ContractErrors.INVALID_PAGE_SIZE.toString());
+    }
+
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey balanceKey =
+        stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner);
+    final QueryResultsIteratorWithMetadata<KeyValue> results =
+        stub.getStateByPartialCompositeKeyWithPagination(
+            balanceKey, pageSize, bookmark == null ? "" : bookmark);
+    final List<String> tokenIds = new ArrayList<>();
+    for (KeyValue result : results) {
+      tokenIds.add(stub.splitCompositeKey(result.getKey()).getAttributes().get(1));
+    }
+    return new TokenPage(tokenIds.toArray(new String[0]), results.getMetadata().getBookmark());
   }
 
   /** ============== Extended Functions for this sample =============== * */
@@ -339,6 +487,43 @@ public class ERC721TokenContract implements ContractInterface {
 
     stub.putStringState(ContractConstants.NAMEKEY.getValue(), name);
     stub.putStringState(ContractConstants.SYMBOLKEY.getValue(), symbol);
+    stub.putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), "0");
+  }
+
+  /**
+   * Build the total supply record and the token index for a contract that was initialized before
+   * they were introduced. Until this function is called, TotalSupply and TokenByIndex query all the
+   * token records, and minting or burning a token does not update the token index.
+   *
+   * @param ctx the transaction context
+   * @return the total supply
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long BuildTokenIndex(final Context ctx) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String clientMSPID = ctx.getClientIdentity().getMSPID();
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSP.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to build the token index",
+          ContractErrors.UNAUTHORIZED_SENDER.toString());
+    }
+
+    final ChaincodeStub stub = ctx.getStub();
+    final String totalSupply = stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue());
+    if (!stringIsNullOrEmpty(totalSupply)) {
+      throw new ChaincodeException("The token index is already built");
+    }
+
+    long index = 0;
+    for (KeyValue result : this._getAllNfts(ctx)) {
+      if (!stringIsNullOrEmpty(result.getStringValue())) {
+        final String tokenId = stub.splitCompositeKey(result.getKey()).getAttributes().get(0);
+        this._putTokenIndex(ctx, tokenId, index++);
+      }
+    }
+    stub.putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), Long.toString(index));
+    return index;
   }
 
   /**
@@ -378,12 +563,82 @@ public class ERC721TokenContract implements ContractInterface {
     final CompositeKey balanceKey =
         stub.createCompositeKey(ContractConstants.BALANCE.getValue(), minter, tokenId);
     stub.putStringState(balanceKey.toString(), Character.toString(Character.MIN_VALUE));
+    this._updateBalance(ctx, minter, 1);
+
+    // Append the token to the token index
+    final String totalSupply = stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue());
+    if (!stringIsNullOrEmpty(totalSupply)) {
+      final long index = Long.parseLong(totalSupply);
+      this._putTokenIndex(ctx, tokenId, index);
+      stub.putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), Long.toString(index + 1));
+    }
+
     final Transfer transferEvent = new Transfer("0x0", minter, tokenId);
     stub.setEvent(
         ContractConstants.TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
     return nft;
   }
 
+  /**
+   * Mint several new non-fungible tokens. The balance of the minter and the total supply are
+   * updated once for the whole batch, and a single BatchTransfer event is emitted instead of a
+   * Transfer event per token.
+   *
+   * @param ctx the transaction context
+   * @param tokensJson JSON array of objects with the tokenId and tokenURI of each token to mint
+   * @return the number of non-fungible tokens minted
+   */
+  @Transaction(intent = Transaction.TYPE.SUBMIT)
+  public long BatchMint(final Context ctx, final String tokensJson) {
+    // Check contract options are already set first to execute the function
+    this.checkInitialized(ctx);
+    final String clientMSPID = ctx.getClientIdentity().getMSPID();
+    final ChaincodeStub stub = ctx.getStub();
+    // Check minter authorization this sample assumes Org1 is the issuer with privilege to mint a
+    // new token
+    if (!clientMSPID.equalsIgnoreCase(ContractConstants.MINTER_ORG_MSP.getValue())) {
+      throw new ChaincodeException(
+          "Client is not authorized to mint new tokens",
+          ContractErrors.UNAUTHORIZED_SENDER.toString());
+    }
+    final String minter = ctx.getClientIdentity().getId();
+    final List<NFT> nfts = this._parseTokens(tokensJson, minter);
+    final String[] tokenIds = nfts.stream().map(NFT::getTokenId).toArray(String[]::new);
+    this._checkBatch(tokenIds);
+
+    // Check every token before writing any of them, so that the batch mints all or nothing
+    for (String tokenId : tokenIds) {
+      if (this._nftExists(ctx, tokenId)) {
+        throw new ChaincodeException(
+            String.format("The token %s is already minted.", tokenId),
+            ContractErrors.TOKEN_ALREADY_EXITS.toString());
+      }
+    }
+
+    final String totalSupply = stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue());
+    long index = stringIsNullOrEmpty(totalSupply) ? -1 : Long.parseLong(totalSupply);
+    for (NFT nft : nfts) {
+      final String tokenId = nft.getTokenId();
+      final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue(), tokenId);
+      stub.putStringState(nftKey.toString(), nft.toJSONString());
+      final CompositeKey balanceKey =
+          stub.createCompositeKey(ContractConstants.BALANCE.getValue(), minter, tokenId);
+      stub.putStringState(balanceKey.toString(), Character.toString(Character.MIN_VALUE));
+      if (index >= 0) {
+        this._putTokenIndex(ctx, tokenId, index++);
+      }
+    }
+    this._updateBalance(ctx, minter, nfts.size());
+    if (index >= 0) {
+      stub.putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), Long.toString(index));
+    }
+
+    final BatchTransfer transferEvent = new BatchTransfer("0x0", minter, tokenIds);
+    stub.setEvent(
+        ContractConstants.BATCH_TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
+    return nfts.size();
+  }
+
   /**
    * Burn a non-fungible token
    *
@@ -411,6 +666,16 @@ public class ERC721TokenContract implements ContractInterface {
     final CompositeKey balanceKey =
         stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner, tokenId);
     stub.delState(balanceKey.toString());
+    this._updateBalance(ctx, owner, -1);
+
+    // Remove the token from the token index
+    final String totalSupply = stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue());
+    if (!stringIsNullOrEmpty(totalSupply)) {
+      final long lastIndex = Long.parseLong(totalSupply) - 1;
+      this._removeTokenIndex(ctx, tokenId, lastIndex);
+      stub.putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), Long.toString(lastIndex));
+    }
+
     final Transfer transferEvent = new Transfer(owner, "0x0", tokenId);
     stub.setEvent(
         ContractConstants.TRANSFER.getValue(), transferEvent.toJSONString().getBytes(UTF_8));
@@ -476,6 +741,147 @@ public class ERC721TokenContract implements ContractInterface {
     return ((stringIsNullOrEmpty(nft)) ? false : true);
   }
 
+  /**
+   * Parse the tokens of a batch mint.
+   *
+   * @param tokensJson JSON array of objects with the tokenId and tokenURI of each token
+   * @param minter the owner of the new tokens
+   * @return the new non-fungible tokens
+   */
+  private List<NFT> _parseTokens(final String tokensJson, final String minter) {
+    try {
+      final JSONArray tokens = new JSONArray(tokensJson);
+      final List<NFT> nfts = new ArrayList<>(tokens.length());
+      for (int i = 0; i < tokens.length(); i++) {
+        final JSONObject token = tokens.getJSONObject(i);
+        nfts.add(new NFT(token.getString("tokenId"), minter, token.optString("tokenURI", ""), ""));
+      }
+      return nfts;
+    } catch (JSONException e) {
+      throw new ChaincodeException(
+          "Invalid batch of tokens: " + e.getMessage(), ContractErrors.INVALID_BATCH.toString());
+    }
+  }
+
+  /**
+   * Check that a batch contains at least one token, and no token more than once. The ledger state
+   * read by a transaction does not include its own writes, so a repeated token would be processed
+   * twice against the same state.
+   *
+   * @param tokenIds the token IDs in the batch
+   */
+  private void _checkBatch(final String[] tokenIds) {
+    if (tokenIds == null || tokenIds.length == 0) {
+      throw new ChaincodeException(
+          "Batch must contain at least one token", ContractErrors.INVALID_BATCH.toString());
+    }
+    final Set<String> seen = new HashSet<>();
+    for (String tokenId : tokenIds) {
+      if (stringIsNullOrEmpty(tokenId) || !seen.add(tokenId)) {
+        throw new ChaincodeException(
+            String.format("Token %s is empty or repeated in the batch", tokenId),
+            ContractErrors.INVALID_BATCH.toString());
+      }
+    }
+  }
+
+  /**
+   * Read the number of non-fungible tokens assigned to an owner.
+   *
+   * @param ctx the transaction context
+   * @param owner the owner of the tokens
+   * @return the balance from the counter record, or by counting the balance records if there is none
+   */
+  private long _readBalance(final Context ctx, final String owner) {
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey countKey =
+        stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue(), owner);
+    final String count = stub.getStringState(countKey.toString());
+    if (!stringIsNullOrEmpty(count)) {
+      return Long.parseLong(count);
+    }
+
+    final CompositeKey balanceKey =
+        stub.createCompositeKey(ContractConstants.BALANCE.getValue(), owner);
+    final QueryResultsIterator<KeyValue> results = stub.getStateByPartialCompositeKey(balanceKey);
+    long balance = 0;
+    for (KeyValue result : results) {
+      if (!stringIsNullOrEmpty(result.getStringValue())) {
+        balance++;
+      }
+    }
+    return balance;
+  }
+
+  /**
+   * Adjust the balance counter record of an owner. The ledger state read by a transaction does not
+   * include its own writes, so the balance of an owner must be adjusted at most once per
+   * transaction.
+   *
+   * @param ctx the transaction context
+   * @param owner the owner of the tokens
+   * @param delta the change in the number of tokens owned
+   */
+  private void _updateBalance(final Context ctx, final String owner, final long delta) {
+    final ChaincodeStub stub = ctx.getStub();
+    final long balance = this._readBalance(ctx, owner) + delta;
+    final CompositeKey countKey =
+        stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue(), owner);
+    stub.putStringState(countKey.toString(), Long.toString(balance));
+  }
+
+  /**
+   * Query all the non-fungible token records in the format of nftPrefix.tokenId.
+   *
+   * @param ctx the transaction context
+   * @return the token records
+   */
+  private QueryResultsIterator<KeyValue> _getAllNfts(final Context ctx) {
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey nftKey = stub.createCompositeKey(ContractConstants.NFT.getValue());
+    return stub.getStateByPartialCompositeKey(nftKey);
+  }
+
+  /**
+   * Record a non-fungible token at an index of the token index.
+   *
+   * @param ctx the transaction context
+   * @param tokenId Unique ID of a non-fungible token
+   * @param index the index of the token
+   */
+  private void _putTokenIndex(final Context ctx, final String tokenId, final long index) {
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey indexKey =
+        stub.createCompositeKey(ContractConstants.TOKEN_BY_INDEX.getValue(), Long.toString(index));
+    stub.putStringState(indexKey.toString(), tokenId);
+    final CompositeKey tokenIndexKey =
+        stub.createCompositeKey(ContractConstants.TOKEN_INDEX.getValue(), tokenId);
+    stub.putStringState(tokenIndexKey.toString(), Long.toString(index));
+  }
+
+  /**
+   * Remove a non-fungible token from the token index, moving the token at the last index into its
+   * place.
+   *
+   * @param ctx the transaction context
+   * @param tokenId Unique ID of a non-fungible token
+   * @param lastIndex the last index of the token index
+   */
+  private void _removeTokenIndex(final Context ctx, final String tokenId, final long lastIndex) {
+    final ChaincodeStub stub = ctx.getStub();
+    final CompositeKey tokenIndexKey =
+        stub.createCompositeKey(ContractConstants.TOKEN_INDEX.getValue(), tokenId);
+    final long index = Long.parseLong(stub.getStringState(tokenIndexKey.toString()));
+    final CompositeKey lastIndexKey =
+        stub.createCompositeKey(ContractConstants.TOKEN_BY_INDEX.getValue(), Long.toString(lastIndex));
+    if (index != lastIndex) {
+      final String lastTokenId = stub.getStringState(lastIndexKey.toString());
+      this._putTokenIndex(ctx, lastTokenId, index);
+    }
+    stub.delState(lastIndexKey.toString());
+    stub.delState(tokenIndexKey.toString());
+  }
+
   /**
    * Checks that contract options have been already initialized
    *
@@ -0,0 +1,91 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc721.models;
+
+import com.owlike.genson.Genson;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@DataType()
+public final class BatchTransfer {
+
+  @Property()
+  @JsonProperty("from")
+  private String from;
+
+  @Property()
+  @JsonProperty("to")
+  private String to;
+
+  @Property()
+  @JsonProperty("tokenIds")
+  private String[] tokenIds;
+
+  /**
+   * Constructor of the class
+   *
+   * @param from
+   * @param to
+   * @param tokenIds
+   */
+  public BatchTransfer(
+      @JsonProperty("from") final String from,
+      @JsonProperty("to") final String to,
+      @JsonProperty("tokenIds") final String[] tokenIds) {
+    super();
+    this.from = from;
+    this.to = to;
+    this.tokenIds = tokenIds;
+  }
+
+  /** Default Constructor of the class. */
+  public BatchTransfer() {
+    super();
+  }
+
+  /**
+   * Constructs new BatchTransfer from JSON bytes.
+   *
+   * @param bytes BatchTransfer JSON.
+   * @return
+   */
+  public static BatchTransfer fromBytes(final byte[] bytes) {
+    return new Genson().deserialize(new String(bytes, UTF_8), BatchTransfer.class);
+  }
+
+  public String getFrom() {
+    return from;
+  }
+
+  public void setFrom(final String from) {
+    this.from = from;
+  }
+
+  public String getTo() {
+    return to;
+  }
+
+  /** @param to */
+  public void setTo(final String to) {
+    this.to = to;
+  }
+
+  /** @return */
+  public String[] getTokenIds() {
+    return tokenIds;
+  }
+
+  /** @param tokenIds */
+  public void setTokenIds(final String[] tokenIds) {
+    this.tokenIds = tokenIds;
+  }
+
+  /** @return String JSON */
+  public String toJSONString() {
+    return new Genson().serialize(this).toString();
+  }
+}
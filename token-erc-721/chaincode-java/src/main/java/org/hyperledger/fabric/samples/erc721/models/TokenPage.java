@@ -0,0 +1,65 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ */
+package org.hyperledger.fabric.samples.erc721.models;
+
+import com.owlike.genson.Genson;
+import com.owlike.genson.annotation.JsonProperty;
+import org.hyperledger.fabric.contract.annotation.DataType;
+import org.hyperledger.fabric.contract.annotation.Property;
+
+@DataType()
+public final class TokenPage {
+
+  @Property()
+  @JsonProperty("tokenIds")
+  private String[] tokenIds;
+
+  @Property()
+  @JsonProperty("bookmark")
+  private String bookmark;
+
+  /**
+   * Constructor of the class
+   *
+   * @param tokenIds the token IDs on this page
+   * @param bookmark bookmark to pass to retrieve the next page, empty on the last page
+   */
+  public TokenPage(
+      @JsonProperty("tokenIds") final String[] tokenIds,
+      @JsonProperty("bookmark") final String bookmark) {
+    super();
+    this.tokenIds = tokenIds;
+    this.bookmark = bookmark;
+  }
+
+  /** Default Constructor of the class. */
+  public TokenPage() {
+    super();
+  }
+
+  /** @return */
+  public String[] getTokenIds() {
+    return tokenIds;
+  }
+
+  /** @param tokenIds */
+  public void setTokenIds(final String[] tokenIds) {
+    this.tokenIds = tokenIds;
+  }
+
+  /** @return */
+  public String getBookmark() {
+    return bookmark;
+  }
+
+  /** @param bookmark */
+  public void setBookmark(final String bookmark) {
+    this.bookmark = bookmark;
+  }
+
+  /** @return String JSON */
+  public String toJSONString() {
+    return new Genson().serialize(this).toString();
+  }
+}
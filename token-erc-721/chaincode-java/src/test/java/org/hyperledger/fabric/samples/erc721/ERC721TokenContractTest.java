@@ -2,13 +2,17 @@ package org.hyperledger.fabric.samples.erc721;
 
 import org.hyperledger.fabric.contract.ClientIdentity;
 import org.hyperledger.fabric.contract.Context;
+import org.hyperledger.fabric.protos.peer.QueryResponseMetadata;
 import org.hyperledger.fabric.samples.erc721.models.Approval;
+import org.hyperledger.fabric.samples.erc721.models.BatchTransfer;
 import org.hyperledger.fabric.samples.erc721.models.NFT;
+import org.hyperledger.fabric.samples.erc721.models.TokenPage;
 import org.hyperledger.fabric.shim.ChaincodeException;
 import org.hyperledger.fabric.shim.ChaincodeStub;
 import org.hyperledger.fabric.shim.ledger.CompositeKey;
 import org.hyperledger.fabric.shim.ledger.KeyValue;
 import org.hyperledger.fabric.shim.ledger.QueryResultsIterator;
+import org.hyperledger.fabric.shim.ledger.QueryResultsIteratorWithMetadata;
 import org.json.JSONException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -17,12 +21,18 @@ import org.junit.jupiter.api.Test;
 import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -75,6 +85,15 @@ public class ERC721TokenContractTest {
     }
   }
 
+  private static CompositeKey mockBalanceCount(
+      final ChaincodeStub stub, final String owner, final String count) {
+    CompositeKey ck = mock(CompositeKey.class);
+    when(ck.toString()).thenReturn(ContractConstants.BALANCE_COUNT.getValue() + owner);
+    when(stub.createCompositeKey(ContractConstants.BALANCE_COUNT.getValue(), owner)).thenReturn(ck);
+    when(stub.getStringState(ck.toString())).thenReturn(count);
+    return ck;
+  }
+
   @Nested
   class InvokeERC721TokenBalanceOf {
 
@@ -88,6 +107,7 @@ public class ERC721TokenContractTest {
       list.add(new MockKeyValue("balance_Alice_101", "\u0000"));
       list.add(new MockKeyValue("balance_Alice_101", "\u0000"));
       when(ctx.getStub()).thenReturn(stub);
+      mockBalanceCount(stub, "Alice", null);
       CompositeKey balanceKey =
           stub.createCompositeKey(ContractConstants.BALANCE.getValue(), "Alice");
       when(stub.getStateByPartialCompositeKey(balanceKey))
@@ -145,6 +165,8 @@ public class ERC721TokenContractTest {
       when(ck3.toString()).thenReturn(ContractConstants.BALANCE.getValue() + "Bob" + "101");
       when(stub.createCompositeKey(ContractConstants.BALANCE.getValue(), "Bob", "101"))
           .thenReturn(ck3);
+      mockBalanceCount(stub, "Alice", "1");
+      mockBalanceCount(stub, "Bob", "0");
     }
 
     @Test
@@ -165,6 +187,22 @@ public class ERC721TokenContractTest {
           .putStringState(ContractConstants.NFT.getValue() + "101", this.updatedNFT.toJSONString());
     }
 
+    @Test
+    public void whenTransferUpdatesBalanceCounts() {
+      Approval approval = new Approval("Alice", "Alice", false);
+      CompositeKey ck = mock(CompositeKey.class);
+      when(ck.toString()).thenReturn(ContractConstants.APPROVAL.getValue() + "Alice" + "Alice");
+      when(this.stub.createCompositeKey(ContractConstants.APPROVAL.getValue(), "Alice", "Alice"))
+          .thenReturn(ck);
+      when(this.stub.getStringState(ck.toString())).thenReturn(approval.toJSONString());
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ci.getId()).thenReturn("Alice");
+      when(this.ctx.getClientIdentity()).thenReturn(ci);
+      contract.TransferFrom(this.ctx, "Alice", "Bob", "101");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Alice", "0");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Bob", "1");
+    }
+
     @Test
     public void whenSenderIsApprovedClientOfToken()
         throws CertificateException, JSONException, IOException {
@@ -443,6 +481,7 @@ public class ERC721TokenContractTest {
       when(ctx.getClientIdentity()).thenReturn(ci);
       when(ci.getMSPID()).thenReturn("Org1MSP");
       when(ci.getId()).thenReturn("Alice");
+      mockBalanceCount(stub, "Alice", "0");
       ERC721TokenContract contract = new ERC721TokenContract();
       final NFT response = contract.MintWithTokenURI(ctx, "101", "DummyURI");
 
@@ -498,10 +537,311 @@ public class ERC721TokenContractTest {
       when(ctx.getClientIdentity()).thenReturn(ci);
       when(ci.getMSPID()).thenReturn("Org1MSP");
       when(ci.getId()).thenReturn("Alice");
+      mockBalanceCount(stub, "Alice", "1");
       ERC721TokenContract contract = new ERC721TokenContract();
       contract.Burn(ctx, "101");
       verify(stub).delState(ck.toString());
       verify(stub).delState(ck2.toString());
     }
   }
+
+  @Nested
+  class ERC721EnumerationTest {
+
+    private Context ctx = null;
+    private ChaincodeStub stub = null;
+    private ERC721TokenContract contract = null;
+
+    @BeforeEach
+    public void initialize() {
+      this.ctx = mock(Context.class);
+      this.stub = mock(ChaincodeStub.class);
+      when(this.ctx.getStub()).thenReturn(stub);
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
+      ClientIdentity ci = mock(ClientIdentity.class);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn("Org1MSP");
+      when(ci.getId()).thenReturn("Alice");
+      contract = new ERC721TokenContract();
+    }
+
+    private CompositeKey mockKey(final String objectType, final String... attributes) {
+      CompositeKey ck = mock(CompositeKey.class);
+      when(ck.toString()).thenReturn(objectType + String.join("", attributes));
+      when(stub.createCompositeKey(objectType, attributes)).thenReturn(ck);
+      return ck;
+    }
+
+    @Test
+    public void invokeBalanceOfWithCounter() {
+      mockBalanceCount(stub, "Alice", "42");
+      assertThat(contract.BalanceOf(ctx, "Alice")).isEqualTo(42L);
+      verify(stub, never()).getStateByPartialCompositeKey(any(CompositeKey.class));
+    }
+
+    @Test
+    public void invokeTotalSupplyWithCounter() {
+      when(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue())).thenReturn("7");
+      assertThat(contract.TotalSupply(ctx)).isEqualTo(7L);
+    }
+
+    @Test
+    public void whenMintAppendsToTokenIndex() {
+      CompositeKey nftKey = mockKey(ContractConstants.NFT.getValue(), "103");
+      mockKey(ContractConstants.BALANCE.getValue(), "Alice", "103");
+      CompositeKey indexKey = mockKey(ContractConstants.TOKEN_BY_INDEX.getValue(), "2");
+      CompositeKey tokenIndexKey = mockKey(ContractConstants.TOKEN_INDEX.getValue(), "103");
+      when(stub.getStringState(nftKey.toString())).thenReturn(null);
+      when(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue())).thenReturn("2");
+      mockBalanceCount(stub, "Alice", "1");
+
+      contract.MintWithTokenURI(ctx, "103", "DummyURI");
+
+      verify(stub).putStringState(indexKey.toString(), "103");
+      verify(stub).putStringState(tokenIndexKey.toString(), "2");
+      verify(stub).putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), "3");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Alice", "2");
+    }
+
+    @Test
+    public void whenBurnMovesLastTokenIntoPlace() {
+      CompositeKey nftKey = mockKey(ContractConstants.NFT.getValue(), "101");
+      mockKey(ContractConstants.BALANCE.getValue(), "Alice", "101");
+      when(stub.getStringState(nftKey.toString()))
+          .thenReturn(new NFT("101", "Alice", "DummyURI", "").toJSONString());
+      when(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue())).thenReturn("3");
+      mockBalanceCount(stub, "Alice", "2");
+      CompositeKey tokenIndexKey = mockKey(ContractConstants.TOKEN_INDEX.getValue(), "101");
+      when(stub.getStringState(tokenIndexKey.toString())).thenReturn("0");
+      CompositeKey lastIndexKey = mockKey(ContractConstants.TOKEN_BY_INDEX.getValue(), "2");
+      when(stub.getStringState(lastIndexKey.toString())).thenReturn("103");
+      CompositeKey firstIndexKey = mockKey(ContractConstants.TOKEN_BY_INDEX.getValue(), "0");
+      CompositeKey movedTokenIndexKey = mockKey(ContractConstants.TOKEN_INDEX.getValue(), "103");
+
+      contract.Burn(ctx, "101");
+
+      verify(stub).putStringState(firstIndexKey.toString(), "103");
+      verify(stub).putStringState(movedTokenIndexKey.toString(), "0");
+      verify(stub).delState(lastIndexKey.toString());
+      verify(stub).delState(tokenIndexKey.toString());
+      verify(stub).putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), "2");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Alice", "1");
+    }
+
+    @Test
+    public void invokeTokenByIndex() {
+      when(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue())).thenReturn("3");
+      CompositeKey indexKey = mockKey(ContractConstants.TOKEN_BY_INDEX.getValue(), "1");
+      when(stub.getStringState(indexKey.toString())).thenReturn("102");
+      assertThat(contract.TokenByIndex(ctx, 1)).isEqualTo("102");
+    }
+
+    @Test
+    public void whenTokenByIndexIsOutOfBounds() {
+      when(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue())).thenReturn("3");
+      Throwable thrown = catchThrowable(() -> contract.TokenByIndex(ctx, 3));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Index 3 is out of bounds for a total supply of 3");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void invokeTokensOfOwner() {
+      CompositeKey balanceKey = mockKey(ContractConstants.BALANCE.getValue(), "Alice");
+      List<KeyValue> list =
+          Arrays.asList(
+              new MockKeyValue("balanceAlice101", "\u0000"),
+              new MockKeyValue("balanceAlice102", "\u0000"));
+      QueryResultsIteratorWithMetadata<KeyValue> results =
+          mock(QueryResultsIteratorWithMetadata.class);
+      when(results.iterator()).thenReturn(list.iterator());
+      when(results.getMetadata())
+          .thenReturn(QueryResponseMetadata.newBuilder().setBookmark("next").build());
+      when(stub.getStateByPartialCompositeKeyWithPagination(balanceKey, 2, ""))
+          .thenReturn(results);
+      for (KeyValue kv : list) {
+        CompositeKey split = mock(CompositeKey.class);
+        when(split.getAttributes())
+            .thenReturn(Arrays.asList("Alice", kv.getKey().substring("balanceAlice".length())));
+        when(stub.splitCompositeKey(kv.getKey())).thenReturn(split);
+      }
+
+      TokenPage page = contract.TokensOfOwner(ctx, "Alice", 2, "");
+
+      assertThat(page.getTokenIds()).containsExactly("101", "102");
+      assertThat(page.getBookmark()).isEqualTo("next");
+    }
+
+    @Test
+    public void whenTokensOfOwnerPageSizeIsInvalid() {
+      Throwable thrown = catchThrowable(() -> contract.TokensOfOwner(ctx, "Alice", 0, ""));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Page size 0 must be greater than zero");
+      verify(stub, never()).putStringState(anyString(), anyString());
+    }
+  }
+
+  @Nested
+  class ERC721BatchFunctionTest {
+
+    private Context ctx = null;
+    private ChaincodeStub stub = null;
+    private ClientIdentity ci = null;
+    private ERC721TokenContract contract = null;
+
+    @BeforeEach
+    public void initialize() {
+      this.ctx = mock(Context.class);
+      this.stub = mock(ChaincodeStub.class);
+      this.ci = mock(ClientIdentity.class);
+      when(ctx.getStub()).thenReturn(stub);
+      when(ctx.getClientIdentity()).thenReturn(ci);
+      when(ci.getMSPID()).thenReturn("Org1MSP");
+      when(stub.getStringState(ContractConstants.NAMEKEY.getValue())).thenReturn("ARBTToken");
+      when(stub.getStringState(ContractConstants.TOTAL_SUPPLY.getValue())).thenReturn("5");
+      mockBalanceCount(stub, "Alice", "2");
+      mockBalanceCount(stub, "Bob", "1");
+      mockApproval("Alice", "Dave", false);
+      contract = new ERC721TokenContract();
+    }
+
+    private CompositeKey mockKey(final String objectType, final String... attributes) {
+      CompositeKey ck = mock(CompositeKey.class);
+      when(ck.toString()).thenReturn(objectType + String.join("", attributes));
+      when(stub.createCompositeKey(objectType, attributes)).thenReturn(ck);
+      return ck;
+    }
+
+    private void mockNft(final NFT nft) {
+      CompositeKey ck = mockKey(ContractConstants.NFT.getValue(), nft.getTokenId());
+      when(stub.getStringState(ck.toString())).thenReturn(nft.toJSONString());
+      mockKey(ContractConstants.BALANCE.getValue(), nft.getOwner(), nft.getTokenId());
+      mockKey(ContractConstants.BALANCE.getValue(), "Bob", nft.getTokenId());
+    }
+
+    private void mockApproval(final String owner, final String operator, final boolean approved) {
+      CompositeKey ck = mockKey(ContractConstants.APPROVAL.getValue(), owner, operator);
+      when(stub.getStringState(ck.toString()))
+          .thenReturn(new Approval(owner, operator, approved).toJSONString());
+    }
+
+    @Test
+    public void whenOwnerTransfersBatch() {
+      when(ci.getId()).thenReturn("Alice");
+      mockNft(new NFT("101", "Alice", "http://test.com", "Charlie"));
+      mockNft(new NFT("102", "Alice", "http://test.com", ""));
+
+      contract.BatchTransferFrom(ctx, "Alice", "Bob", new String[] {"101", "102"});
+
+      verify(stub)
+          .putStringState(
+              ContractConstants.NFT.getValue() + "101",
+              new NFT("101", "Bob", "http://test.com", "").toJSONString());
+      verify(stub)
+          .putStringState(
+              ContractConstants.NFT.getValue() + "102",
+              new NFT("102", "Bob", "http://test.com", "").toJSONString());
+      verify(stub).delState(ContractConstants.BALANCE.getValue() + "Alice101");
+      verify(stub).putStringState(ContractConstants.BALANCE.getValue() + "Bob102", "\u0000");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Alice", "0");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Bob", "3");
+      verify(stub, times(1))
+          .setEvent(
+              ContractConstants.BATCH_TRANSFER.getValue(),
+              new BatchTransfer("Alice", "Bob", new String[] {"101", "102"})
+                  .toJSONString()
+                  .getBytes());
+      verify(stub, never()).setEvent(eq(ContractConstants.TRANSFER.getValue()), any());
+    }
+
+    @Test
+    public void whenSenderIsNotApprovedForEveryToken() {
+      when(ci.getId()).thenReturn("Dave");
+      mockNft(new NFT("101", "Alice", "http://test.com", "Dave"));
+      mockNft(new NFT("102", "Alice", "http://test.com", "Charlie"));
+
+      Throwable thrown =
+          catchThrowable(
+              () -> contract.BatchTransferFrom(ctx, "Alice", "Bob", new String[] {"101", "102"}));
+
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage(
+              "The sender Dave is not the current owner nor an authorized operator of the token 102.");
+      verify(stub, never()).putStringState(anyString(), anyString());
+    }
+
+    @Test
+    public void whenBatchRepeatsToken() {
+      when(ci.getId()).thenReturn("Alice");
+      Throwable thrown =
+          catchThrowable(
+              () -> contract.BatchTransferFrom(ctx, "Alice", "Bob", new String[] {"101", "101"}));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("Token 101 is empty or repeated in the batch");
+    }
+
+    @Test
+    public void whenInvokeBatchMint() {
+      when(ci.getId()).thenReturn("Alice");
+      mockKey(ContractConstants.NFT.getValue(), "103");
+      mockKey(ContractConstants.NFT.getValue(), "104");
+      mockKey(ContractConstants.BALANCE.getValue(), "Alice", "103");
+      mockKey(ContractConstants.BALANCE.getValue(), "Alice", "104");
+      CompositeKey index5 = mockKey(ContractConstants.TOKEN_BY_INDEX.getValue(), "5");
+      CompositeKey index6 = mockKey(ContractConstants.TOKEN_BY_INDEX.getValue(), "6");
+      mockKey(ContractConstants.TOKEN_INDEX.getValue(), "103");
+      mockKey(ContractConstants.TOKEN_INDEX.getValue(), "104");
+
+      final long minted =
+          contract.BatchMint(
+              ctx, "[{\"tokenId\":\"103\",\"tokenURI\":\"uri3\"},{\"tokenId\":\"104\"}]");
+
+      assertThat(minted).isEqualTo(2L);
+      verify(stub)
+          .putStringState(
+              ContractConstants.NFT.getValue() + "103", new NFT("103", "Alice", "uri3", "").toJSONString());
+      verify(stub)
+          .putStringState(
+              ContractConstants.NFT.getValue() + "104", new NFT("104", "Alice", "", "").toJSONString());
+      verify(stub).putStringState(index5.toString(), "103");
+      verify(stub).putStringState(index6.toString(), "104");
+      verify(stub).putStringState(ContractConstants.TOTAL_SUPPLY.getValue(), "7");
+      verify(stub).putStringState(ContractConstants.BALANCE_COUNT.getValue() + "Alice", "4");
+      verify(stub, times(1))
+          .setEvent(
+              ContractConstants.BATCH_TRANSFER.getValue(),
+              new BatchTransfer("0x0", "Alice", new String[] {"103", "104"})
+                  .toJSONString()
+                  .getBytes());
+    }
+
+    @Test
+    public void whenBatchMintContainsExistingToken() {
+      when(ci.getId()).thenReturn("Alice");
+      mockNft(new NFT("101", "Alice", "http://test.com", ""));
+      mockKey(ContractConstants.NFT.getValue(), "103");
+
+      Throwable thrown =
+          catchThrowable(
+              () -> contract.BatchMint(ctx, "[{\"tokenId\":\"103\"},{\"tokenId\":\"101\"}]"));
+
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessage("The token 101 is already minted.");
+      verify(stub, never()).putStringState(anyString(), anyString());
+    }
+
+    @Test
+    public void whenBatchMintIsMalformed() {
+      when(ci.getId()).thenReturn("Alice");
+      Throwable thrown = catchThrowable(() -> contract.BatchMint(ctx, "{\"tokenId\":\"103\"}"));
+      assertThat(thrown)
+          .isInstanceOf(ChaincodeException.class)
+          .hasMessageStartingWith("Invalid batch of tokens");
+    }
+  }
 }